@@ -0,0 +1,14 @@
+package com.example.emrtdreader;
+
+import android.app.Application;
+
+import com.example.emrtdreader.sdk.ocr.OcrEngineRegistry;
+
+public class EmrtdReaderApplication extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Warm the OCR engines (traineddata, TessBaseAPI init, ML Kit model) before the first scan
+        OcrEngineRegistry.get(this).preload();
+    }
+}
@@ -43,9 +43,9 @@ import com.example.emrtdreader.sdk.analysis.ScanState;
 import com.example.emrtdreader.sdk.domain.AccessKey;
 import com.example.emrtdreader.sdk.models.MrzResult;
 import com.example.emrtdreader.sdk.models.OcrResult;
-import com.example.emrtdreader.sdk.ocr.MlKitOcrEngine;
-import com.example.emrtdreader.sdk.ocr.TesseractOcrEngine;
 import com.example.emrtdreader.sdk.ocr.DualOcrRunner;
+import com.example.emrtdreader.sdk.ocr.OcrEngine;
+import com.example.emrtdreader.sdk.ocr.OcrEngineRegistry;
 
 import android.graphics.Rect;
 import com.example.emrtdreader.sdk.utils.MrzParser;
@@ -76,8 +76,9 @@ public class MRZScanActivity extends AppCompatActivity implements MrzImageAnalyz
 
     private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
 
-    private final MlKitOcrEngine mlKit = new MlKitOcrEngine();
-    private final TesseractOcrEngine tess = new TesseractOcrEngine();
+    // Process-wide engines (warmed at app start); not closed by this screen
+    private OcrEngine mlKit;
+    private OcrEngine tess;
     private DualOcrRunner.Mode mode = DualOcrRunner.Mode.AUTO_DUAL;
     private MrzImageAnalyzer analyzer;
     private MrzResult latestMrz;
@@ -98,6 +99,10 @@ public class MRZScanActivity extends AppCompatActivity implements MrzImageAnalyz
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_mrz_scan);
 
+        OcrEngineRegistry engines = OcrEngineRegistry.get(this);
+        mlKit = engines.mlKit();
+        tess = engines.tesseract();
+
         previewView = findViewById(R.id.cameraPreviewView);
         analysisOverlayView = findViewById(R.id.analysisOverlayView);
         ocrSpinner = findViewById(R.id.ocrSpinner);
@@ -248,7 +253,12 @@ public class MRZScanActivity extends AppCompatActivity implements MrzImageAnalyz
                         .build();
 
                 analyzer = new MrzImageAnalyzer(getApplicationContext(), mlKit, tess, mode, 200, "back", this);
-                analysis.setAnalyzer(analysisExecutor, analyzer);
+                analyzer.setAdaptiveRouter(OcrEngineRegistry.get(this).adaptiveRouter());
+                MrzImageAnalyzer warmAnalyzer = analyzer;
+                // Preview starts right away; frames go to OCR once the engines are warm
+                OcrEngineRegistry.get(this).whenReady().thenRunAsync(() -> {
+                    if (!isDestroyed()) analysis.setAnalyzer(analysisExecutor, warmAnalyzer);
+                }, ContextCompat.getMainExecutor(this));
 
                 provider.unbindAll();
                 provider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
@@ -360,8 +370,7 @@ public class MRZScanActivity extends AppCompatActivity implements MrzImageAnalyz
             overlayAnimator.cancel();
         }
         analysisExecutor.shutdownNow();
-        mlKit.close();
-        tess.close();
+        OcrEngineRegistry.get(this).adaptiveRouter().flush();
     }
 
     @ColorInt
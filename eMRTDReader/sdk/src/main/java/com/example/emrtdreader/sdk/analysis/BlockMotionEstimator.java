@@ -0,0 +1,432 @@
+package com.example.emrtdreader.sdk.analysis;
+
+import android.graphics.Rect;
+
+import java.util.Arrays;
+
+/**
+ * Frame-to-frame motion of the MRZ region from sum-of-absolute-differences block matching.
+ *
+ * Idea:
+ * - Downsample the ROI (plus search margin) of both Y planes 4x (box average): one coarse pyramid
+ *   level is enough for handheld motion and keeps the search cheap.
+ * - Split the ROI into a 4x2 grid of blocks and find each block's best SAD offset within ±6 coarse
+ *   pixels (±24 px full resolution). Flat blocks are skipped: their SAD minimum is meaningless.
+ * - Translation = median block vector, refined at full resolution (±2 px, sampled every 2nd pixel).
+ * - Optional scale: least-squares fit of block vectors against block offsets from the ROI center.
+ * - Streaming ({@link #estimateStream}): the coarse region of the last frame is kept as the
+ *   reference, so no previous Y plane is needed; the translation is refined between coarse pixels.
+ *
+ * Scratch buffers are reused between calls; not thread-safe (one instance per pipeline thread).
+ */
+public final class BlockMotionEstimator {
+
+    // Coarse pyramid level: 4x4 box average
+    private static final int LEVEL = 4;
+    private static final int LEVEL_SHIFT = 4; // log2(LEVEL * LEVEL)
+
+    // Block grid over the ROI and search radius, in coarse pixels
+    private static final int GRID_X = 4;
+    private static final int GRID_Y = 2;
+    private static final int SEARCH_RADIUS = 6;
+    private static final int MIN_BLOCK_W = 4;
+    private static final int MIN_BLOCK_H = 3;
+
+    // Full-resolution refinement around the coarse estimate
+    private static final int REFINE_RADIUS = LEVEL / 2;
+    private static final int REFINE_STEP = 2;
+
+    // Block needs this mean |dI/dx| (coarse) to carry texture worth matching
+    private static final int MIN_BLOCK_TEXTURE = 4;
+    // Reliable estimate: enough textured blocks agreeing with the median, low residual after compensation
+    private static final int MIN_VALID_BLOCKS = 2;
+    private static final float MIN_INLIER_RATIO = 0.5f;
+    private static final float MAX_RESIDUAL = 24f;
+    private static final float MAX_SCALE_DELTA = 0.1f;
+
+    /** Estimated motion from the previous frame to the current one (full-resolution pixels). */
+    public static final class Motion {
+        public static final Motion NONE = new Motion(0f, 0f, 1f, 0f, 0, false);
+
+        public final float dx;
+        public final float dy;
+        public final float scale;     // about the ROI center; 1 when not estimated
+        public final float residual;  // mean |cur - prev| per pixel after compensation
+        public final int validBlocks;
+        public final boolean reliable;
+
+        Motion(float dx, float dy, float scale, float residual, int validBlocks, boolean reliable) {
+            this.dx = dx;
+            this.dy = dy;
+            this.scale = scale;
+            this.residual = residual;
+            this.validBlocks = validBlocks;
+            this.reliable = reliable;
+        }
+
+        public float magnitude() {
+            return (float) Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    private final boolean estimateScale;
+
+    private int[] curCoarse = new int[0];
+    private int[] prevCoarse = new int[0];
+    private final int[] blockVx = new int[GRID_X * GRID_Y];
+    private final int[] blockVy = new int[GRID_X * GRID_Y];
+    private final int[] blockCx = new int[GRID_X * GRID_Y];
+    private final int[] blockCy = new int[GRID_X * GRID_Y];
+    private final int[] sortScratch = new int[GRID_X * GRID_Y];
+
+    // Coarse region of the current call: origin and size, ROI inside it (absolute coarse px)
+    private int regX0;
+    private int regY0;
+    private int regW;
+    private int regH;
+    private int roiX0;
+    private int roiY0;
+    private int roiX1;
+    private int roiY1;
+
+    // Streaming: prevCoarse holds the previous frame's coarse region at this origin/size
+    private boolean hasLast;
+    private int lastX0;
+    private int lastY0;
+    private int lastW;
+    private int lastH;
+    private int lastFrameW;
+    private int lastFrameH;
+
+    public BlockMotionEstimator() {
+        this(true);
+    }
+
+    public BlockMotionEstimator(boolean estimateScale) {
+        this.estimateScale = estimateScale;
+    }
+
+    /**
+     * Motion of the content inside roi between previousYPlane and yPlane.
+     * Returns {@link Motion#NONE} when there is no previous frame or the ROI is too small to match.
+     * Restarts the stream of {@link #estimateStream}.
+     */
+    public Motion estimate(byte[] yPlane, byte[] previousYPlane, int width, int height, Rect roi) {
+        checkPlane(yPlane, width, height);
+        hasLast = false;
+        if (previousYPlane == null || previousYPlane.length < width * height || roi == null) {
+            return Motion.NONE;
+        }
+        if (!layout(width, height, roi)) return Motion.NONE;
+
+        ensureCapacity(regW * regH);
+        downsample(yPlane, width, regX0, regY0, regW, regH, curCoarse);
+        downsample(previousYPlane, width, regX0, regY0, regW, regH, prevCoarse);
+
+        // 1) Coarse block matching
+        int valid = matchBlocks(regX0, regY0, regW, regH);
+        if (valid < MIN_VALID_BLOCKS) return new Motion(0f, 0f, 1f, 0f, valid, false);
+        int mvx = median(blockVx, valid);
+        int mvy = median(blockVy, valid);
+
+        // 2) Full-resolution refinement of the translation
+        int roiL = clamp(roi.left, 0, width);
+        int roiT = clamp(roi.top, 0, height);
+        int roiR = clamp(roi.right, roiL, width);
+        int roiB = clamp(roi.bottom, roiT, height);
+        int tx = mvx * LEVEL;
+        int ty = mvy * LEVEL;
+        long bestSad = -1;
+        int bestCount = 1;
+        int refX = tx;
+        int refY = ty;
+        for (int dy = -REFINE_RADIUS; dy <= REFINE_RADIUS; dy++) {
+            for (int dx = -REFINE_RADIUS; dx <= REFINE_RADIUS; dx++) {
+                int sx = tx + dx;
+                int sy = ty + dy;
+                int x0 = Math.max(roiL, -sx);
+                int y0 = Math.max(roiT, -sy);
+                int x1 = Math.min(roiR, width - sx);
+                int y1 = Math.min(roiB, height - sy);
+                if (x1 - x0 < REFINE_STEP || y1 - y0 < REFINE_STEP) continue;
+                long sum = 0;
+                int count = 0;
+                for (int y = y0; y < y1; y += REFINE_STEP) {
+                    int prow = y * width;
+                    int crow = (y + sy) * width + sx;
+                    for (int x = x0; x < x1; x += REFINE_STEP) {
+                        sum += Math.abs((yPlane[crow + x] & 0xFF) - (previousYPlane[prow + x] & 0xFF));
+                        count++;
+                    }
+                }
+                // Compare mean SADs: candidate overlaps differ near the frame border
+                if (count > 0 && (bestSad < 0 || sum * bestCount < bestSad * count)) {
+                    bestSad = sum;
+                    bestCount = count;
+                    refX = sx;
+                    refY = sy;
+                }
+            }
+        }
+        float residual = bestSad < 0 ? Float.MAX_VALUE : bestSad / (float) bestCount;
+        return finish(valid, mvx, mvy, refX, refY, residual);
+    }
+
+    /**
+     * Motion of the content inside roi since the previous call, for a frame stream: the estimator
+     * keeps the coarse ROI region of the last frame, so callers don't need the previous Y plane.
+     * The translation is refined between coarse pixels (equiangular fit of the ROI SAD) instead of
+     * at full resolution. Returns {@link Motion#NONE} on the first frame, after {@link #reset()},
+     * or when the ROI is missing or too small (which also restarts the stream).
+     */
+    public Motion estimateStream(byte[] yPlane, int width, int height, Rect roi) {
+        checkPlane(yPlane, width, height);
+        if (roi == null || !layout(width, height, roi)) {
+            hasLast = false;
+            return Motion.NONE;
+        }
+        ensureCapacity(regW * regH);
+        downsample(yPlane, width, regX0, regY0, regW, regH, curCoarse);
+
+        Motion motion = Motion.NONE;
+        if (hasLast && lastFrameW == width && lastFrameH == height) {
+            motion = matchStream();
+        }
+
+        // This frame's region becomes the reference for the next one
+        int[] swap = prevCoarse;
+        prevCoarse = curCoarse;
+        curCoarse = swap;
+        lastX0 = regX0;
+        lastY0 = regY0;
+        lastW = regW;
+        lastH = regH;
+        lastFrameW = width;
+        lastFrameH = height;
+        hasLast = true;
+        return motion;
+    }
+
+    /** Forget the previous frame of {@link #estimateStream} (e.g. when the stream restarts). */
+    public void reset() {
+        hasLast = false;
+    }
+
+    private Motion matchStream() {
+        int valid = matchBlocks(lastX0, lastY0, lastW, lastH);
+        if (valid < MIN_VALID_BLOCKS) return new Motion(0f, 0f, 1f, 0f, valid, false);
+        int mvx = median(blockVx, valid);
+        int mvy = median(blockVy, valid);
+
+        // 2) Sub-coarse-pixel refinement of the translation from the ROI SAD around the median
+        float c = roiSad(mvx, mvy);
+        if (c == Float.MAX_VALUE) return new Motion(0f, 0f, 1f, 0f, valid, false);
+        float l = roiSad(mvx - 1, mvy);
+        float r = roiSad(mvx + 1, mvy);
+        float u = roiSad(mvx, mvy - 1);
+        float d = roiSad(mvx, mvy + 1);
+        float ox = subSample(l, c, r);
+        float oy = subSample(u, c, d);
+        // Minimum of the fitted V-shapes: the SAD left at the refined offset
+        float residual = Math.max(0f,
+                c - (Math.max(l, r) - c) * Math.abs(ox) - (Math.max(u, d) - c) * Math.abs(oy));
+        return finish(valid, mvx, mvy, (mvx + ox) * LEVEL, (mvy + oy) * LEVEL, residual);
+    }
+
+    /** Coarse region (ROI grown by the search margin) and ROI for this frame; false if too small. */
+    private boolean layout(int width, int height, Rect roi) {
+        // ROI clamped to the frame, then grown by the search margin (aligned to the coarse grid)
+        int roiL = clamp(roi.left, 0, width);
+        int roiT = clamp(roi.top, 0, height);
+        int roiR = clamp(roi.right, roiL, width);
+        int roiB = clamp(roi.bottom, roiT, height);
+        int margin = SEARCH_RADIUS * LEVEL;
+        regX0 = Math.max(0, roiL - margin) / LEVEL;
+        regY0 = Math.max(0, roiT - margin) / LEVEL;
+        regW = Math.min(width, roiR + margin) / LEVEL - regX0;
+        regH = Math.min(height, roiB + margin) / LEVEL - regY0;
+
+        // ROI in coarse coordinates
+        roiX0 = (roiL + LEVEL - 1) / LEVEL;
+        roiY0 = (roiT + LEVEL - 1) / LEVEL;
+        roiX1 = Math.min(regX0 + regW, roiR / LEVEL);
+        roiY1 = Math.min(regY0 + regH, roiB / LEVEL);
+        return (roiX1 - roiX0) / GRID_X >= MIN_BLOCK_W && (roiY1 - roiY0) / GRID_Y >= MIN_BLOCK_H;
+    }
+
+    /**
+     * Best SAD offset of each textured block of prevCoarse (region at px0/py0, pw x ph) within
+     * curCoarse (the current region). Fills the block arrays; returns the number of blocks matched.
+     */
+    private int matchBlocks(int px0, int py0, int pw, int ph) {
+        int bw = (roiX1 - roiX0) / GRID_X;
+        int bh = (roiY1 - roiY0) / GRID_Y;
+        int valid = 0;
+        for (int gy = 0; gy < GRID_Y; gy++) {
+            for (int gx = 0; gx < GRID_X; gx++) {
+                int bx = roiX0 + gx * bw;
+                int by = roiY0 + gy * bh;
+                // The previous region may not cover the block when the ROI moved between frames
+                if (bx < px0 || by < py0 || bx + bw > px0 + pw || by + bh > py0 + ph) continue;
+                int pBase = (by - py0) * pw + (bx - px0);
+                if (texture(prevCoarse, pw, pBase, bw, bh) < MIN_BLOCK_TEXTURE * bw * bh) continue;
+                long best = Long.MAX_VALUE;
+                int bestVx = 0;
+                int bestVy = 0;
+                for (int vy = -SEARCH_RADIUS; vy <= SEARCH_RADIUS; vy++) {
+                    int cy = by + vy - regY0;
+                    if (cy < 0 || cy + bh > regH) continue;
+                    for (int vx = -SEARCH_RADIUS; vx <= SEARCH_RADIUS; vx++) {
+                        int cx = bx + vx - regX0;
+                        if (cx < 0 || cx + bw > regW) continue;
+                        long sad = sad(prevCoarse, pw, pBase, curCoarse, regW, cy * regW + cx, bw, bh, best);
+                        // Prefer the smaller vector on ties (static content stays at zero)
+                        if (sad < best || (sad == best && vx * vx + vy * vy < bestVx * bestVx + bestVy * bestVy)) {
+                            best = sad;
+                            bestVx = vx;
+                            bestVy = vy;
+                        }
+                    }
+                }
+                if (best == Long.MAX_VALUE) continue;
+                blockVx[valid] = bestVx;
+                blockVy[valid] = bestVy;
+                blockCx[valid] = bx + bw / 2;
+                blockCy[valid] = by + bh / 2;
+                valid++;
+            }
+        }
+        return valid;
+    }
+
+    /** Inlier count, optional scale and reliability around the median block vector. */
+    private Motion finish(int valid, int mvx, int mvy, float dx, float dy, float residual) {
+        int inliers = 0;
+        for (int i = 0; i < valid; i++) {
+            if (Math.abs(blockVx[i] - mvx) <= 1 && Math.abs(blockVy[i] - mvy) <= 1) inliers++;
+        }
+
+        // 3) Optional scale about the ROI center from the block vector field
+        float scale = 1f;
+        if (estimateScale && valid >= 3) {
+            float cx = (roiX0 + roiX1) / 2f;
+            float cy = (roiY0 + roiY1) / 2f;
+            float num = 0f;
+            float den = 0f;
+            for (int i = 0; i < valid; i++) {
+                float ox = blockCx[i] - cx;
+                float oy = blockCy[i] - cy;
+                num += ox * (blockVx[i] - mvx) + oy * (blockVy[i] - mvy);
+                den += ox * ox + oy * oy;
+            }
+            if (den > 0f) {
+                scale = 1f + Math.max(-MAX_SCALE_DELTA, Math.min(MAX_SCALE_DELTA, num / den));
+            }
+        }
+
+        boolean reliable = inliers >= Math.max(MIN_VALID_BLOCKS, Math.round(valid * MIN_INLIER_RATIO))
+                && residual <= MAX_RESIDUAL;
+        return new Motion(dx, dy, scale, residual, valid, reliable);
+    }
+
+    /**
+     * Mean |cur - prev| over the coarse ROI with the current region shifted by (vx, vy);
+     * Float.MAX_VALUE if the two regions don't overlap there.
+     */
+    private float roiSad(int vx, int vy) {
+        int x0 = Math.max(Math.max(roiX0, lastX0), regX0 - vx);
+        int x1 = Math.min(Math.min(roiX1, lastX0 + lastW), regX0 + regW - vx);
+        int y0 = Math.max(Math.max(roiY0, lastY0), regY0 - vy);
+        int y1 = Math.min(Math.min(roiY1, lastY0 + lastH), regY0 + regH - vy);
+        if (x1 <= x0 || y1 <= y0) return Float.MAX_VALUE;
+        long sum = 0;
+        for (int y = y0; y < y1; y++) {
+            int p = (y - lastY0) * lastW + (x0 - lastX0);
+            int c = (y + vy - regY0) * regW + (x0 + vx - regX0);
+            for (int x = x0; x < x1; x++) {
+                sum += Math.abs(curCoarse[c++] - prevCoarse[p++]);
+            }
+        }
+        return sum / (float) ((x1 - x0) * (y1 - y0));
+    }
+
+    /** Offset of the minimum from the center sample, fitting a symmetric V through l, c, r. */
+    private static float subSample(float l, float c, float r) {
+        float hi = Math.max(l, r);
+        if (hi == Float.MAX_VALUE || hi <= c) return 0f;
+        float offset = (l - r) / (2f * (hi - c));
+        return Math.max(-0.5f, Math.min(0.5f, offset));
+    }
+
+    /** LEVELxLEVEL box average of the coarse region at (x0, y0) of plane into out (cw x ch). */
+    private static void downsample(byte[] plane, int width, int x0, int y0, int cw, int ch, int[] out) {
+        for (int cy = 0; cy < ch; cy++) {
+            int rowBase = (y0 + cy) * LEVEL * width + x0 * LEVEL;
+            int o = cy * cw;
+            for (int cx = 0; cx < cw; cx++) {
+                int idx = rowBase + cx * LEVEL;
+                int sum = 0;
+                for (int ky = 0; ky < LEVEL; ky++) {
+                    int k = idx + ky * width;
+                    sum += (plane[k] & 0xFF) + (plane[k + 1] & 0xFF) + (plane[k + 2] & 0xFF) + (plane[k + 3] & 0xFF);
+                }
+                out[o + cx] = sum >> LEVEL_SHIFT;
+            }
+        }
+    }
+
+    /** Sum of |dI/dx| inside the block starting at index base. */
+    private static long texture(int[] img, int stride, int base, int bw, int bh) {
+        long sum = 0;
+        for (int y = 0; y < bh; y++) {
+            int row = base + y * stride;
+            for (int x = 1; x < bw; x++) {
+                sum += Math.abs(img[row + x] - img[row + x - 1]);
+            }
+        }
+        return sum;
+    }
+
+    /** SAD between blocks starting at a[aBase] and b[bBase]; stops early once it exceeds limit. */
+    private static long sad(int[] a, int aStride, int aBase, int[] b, int bStride, int bBase,
+                            int bw, int bh, long limit) {
+        long sum = 0;
+        for (int y = 0; y < bh; y++) {
+            int ia = aBase + y * aStride;
+            int ib = bBase + y * bStride;
+            for (int x = 0; x < bw; x++) {
+                sum += Math.abs(a[ia + x] - b[ib + x]);
+            }
+            if (sum > limit) return sum;
+        }
+        return sum;
+    }
+
+    private int median(int[] values, int n) {
+        System.arraycopy(values, 0, sortScratch, 0, n);
+        Arrays.sort(sortScratch, 0, n);
+        return sortScratch[n / 2];
+    }
+
+    private void ensureCapacity(int size) {
+        // Grown separately: streaming swaps the two buffers, and prevCoarse must keep its content
+        if (curCoarse.length < size) curCoarse = new int[size];
+        if (prevCoarse.length < size && !hasLast) prevCoarse = new int[size];
+    }
+
+    private static void checkPlane(byte[] yPlane, int width, int height) {
+        if (yPlane == null) {
+            throw new IllegalArgumentException("yPlane cannot be null");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width/height must be positive");
+        }
+        if (yPlane.length < width * height) {
+            throw new IllegalArgumentException("yPlane is smaller than width*height");
+        }
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+}
@@ -3,26 +3,93 @@ package com.example.emrtdreader.sdk.analysis;
 import android.graphics.Rect;
 
 import com.example.emrtdreader.sdk.models.GateMetrics;
+import com.example.emrtdreader.sdk.models.GateRejectReason;
+
+import java.util.EnumSet;
 
 /**
  * Computes frame quality metrics directly from the luma (Y) plane and applies
  * threshold gating for MRZ capture.
+ *
+ * Motion: when block matching ({@link BlockMotionEstimator}) tracks the ROI, the gate limits the
+ * displacement in pixels; otherwise it falls back to the raw ROI MAD, which also reacts to
+ * exposure changes and can't tell a still document from a moving one.
+ *
+ * Glare: laminate reflections wash out part of the MRZ while brightness/contrast/blur still look
+ * fine. The ROI pass that computes the Laplacian also counts saturated pixels, chains saturated
+ * runs across rows into the largest connected highlight, and counts how many of the expected text
+ * rows (the ROI minus top/bottom margins) a saturated run crosses. A frame is rejected when the ROI
+ * is broadly saturated, or when a sizeable highlight cuts through the text rows.
+ *
+ * Streaming: {@link #evaluateStream} computes brightness, contrast, blur, glare and motion MAD in a
+ * single subsampled pass over the ROI. The gate keeps the subsampled ROI of the previous frames in a
+ * small ring for the MAD, so callers don't have to keep a full copy of the previous Y plane.
+ * The ring makes the gate stateful: use one instance per frame stream.
  */
 public final class MrzFrameGate {
 
+    // Default max ROI displacement between consecutive frames (full-resolution px)
+    public static final double DEFAULT_MAX_MOTION_PX = 12.0;
+    // Default max saturated fraction of the ROI / max fraction of text rows crossed by glare
+    public static final double DEFAULT_MAX_GLARE_FRACTION = 0.20;
+    public static final double DEFAULT_MAX_GLARE_TEXT_OVERLAP = 0.25;
+
+    // Luma at or above this is treated as saturated (sensor clip / specular highlight)
+    private static final int SATURATION_LUMA = 250;
+    // A saturated run counts against a text row from this length (px, or fraction of ROI width)
+    private static final int MIN_GLARE_RUN_PX = 4;
+    private static final float MIN_GLARE_RUN_RATIO = 0.03f;
+    // Rows this close to the ROI top/bottom (fraction of height) are margin, not text
+    private static final float TEXT_MARGIN_RATIO = 0.15f;
+    // Text-row overlap only matters for a highlight covering at least this fraction of the ROI
+    private static final float MIN_GLARE_EXTENT = 0.02f;
+
+    // Default ROI sampling step (px in x and y) for the streaming pass
+    public static final int DEFAULT_SAMPLE_STEP = 2;
+    // Ring slots of subsampled ROIs: the previous frame is read while the current one is written
+    private static final int HISTORY_SLOTS = 2;
+
+    private static final ThreadLocal<BlockMotionEstimator> MOTION_ESTIMATOR =
+            ThreadLocal.withInitial(BlockMotionEstimator::new);
+
     public static final class Thresholds {
         public final double minBrightness;
         public final double maxBrightness;
         public final double minContrast;
         public final double minBlurVar;
         public final double maxMotion;
+        public final double maxMotionPx;
+        public final double maxGlareFraction;
+        public final double maxGlareTextOverlap;
 
         public Thresholds(double minBrightness,
                           double maxBrightness,
                           double minContrast,
                           double minBlurVar,
                           double maxMotion) {
-            if (minBrightness < 0 || maxBrightness < 0 || minContrast < 0 || minBlurVar < 0 || maxMotion < 0) {
+            this(minBrightness, maxBrightness, minContrast, minBlurVar, maxMotion, DEFAULT_MAX_MOTION_PX);
+        }
+
+        public Thresholds(double minBrightness,
+                          double maxBrightness,
+                          double minContrast,
+                          double minBlurVar,
+                          double maxMotion,
+                          double maxMotionPx) {
+            this(minBrightness, maxBrightness, minContrast, minBlurVar, maxMotion, maxMotionPx,
+                    DEFAULT_MAX_GLARE_FRACTION, DEFAULT_MAX_GLARE_TEXT_OVERLAP);
+        }
+
+        public Thresholds(double minBrightness,
+                          double maxBrightness,
+                          double minContrast,
+                          double minBlurVar,
+                          double maxMotion,
+                          double maxMotionPx,
+                          double maxGlareFraction,
+                          double maxGlareTextOverlap) {
+            if (minBrightness < 0 || maxBrightness < 0 || minContrast < 0 || minBlurVar < 0 || maxMotion < 0
+                    || maxMotionPx < 0 || maxGlareFraction < 0 || maxGlareTextOverlap < 0) {
                 throw new IllegalArgumentException("Thresholds must be non-negative");
             }
             if (minBrightness > maxBrightness) {
@@ -33,26 +100,43 @@ public final class MrzFrameGate {
             this.minContrast = minContrast;
             this.minBlurVar = minBlurVar;
             this.maxMotion = maxMotion;
+            this.maxMotionPx = maxMotionPx;
+            this.maxGlareFraction = maxGlareFraction;
+            this.maxGlareTextOverlap = maxGlareTextOverlap;
         }
     }
 
     public static final class Result {
         public final boolean pass;
         public final GateMetrics metrics;
+        // Why the frame failed; empty when it passed
+        public final EnumSet<GateRejectReason> reasons;
 
-        Result(boolean pass, GateMetrics metrics) {
+        Result(boolean pass, GateMetrics metrics, EnumSet<GateRejectReason> reasons) {
             this.pass = pass;
             this.metrics = metrics;
+            this.reasons = reasons;
         }
     }
 
     private final Thresholds thresholds;
+    private final int sampleStep;
+    private final RoiHistory history = new RoiHistory();
 
     public MrzFrameGate(Thresholds thresholds) {
+        this(thresholds, DEFAULT_SAMPLE_STEP);
+    }
+
+    /** @param sampleStep ROI sampling step of {@link #evaluateStream} (1 = every pixel) */
+    public MrzFrameGate(Thresholds thresholds, int sampleStep) {
         if (thresholds == null) {
             throw new IllegalArgumentException("thresholds cannot be null");
         }
+        if (sampleStep < 1) {
+            throw new IllegalArgumentException("sampleStep must be >= 1");
+        }
         this.thresholds = thresholds;
+        this.sampleStep = sampleStep;
     }
 
     public Result evaluate(byte[] yPlane,
@@ -60,13 +144,70 @@ public final class MrzFrameGate {
                            int height,
                            byte[] previousYPlane,
                            Rect roiHint) {
-        GateMetrics metrics = computeMetrics(yPlane, width, height, previousYPlane, roiHint);
-        boolean pass = metrics.brightnessMean >= thresholds.minBrightness
-                && metrics.brightnessMean <= thresholds.maxBrightness
-                && metrics.contrastStd >= thresholds.minContrast
-                && metrics.blurVarLap >= thresholds.minBlurVar
-                && metrics.motionMad <= thresholds.maxMotion;
-        return new Result(pass, metrics);
+        return evaluate(yPlane, width, height, previousYPlane, roiHint, null);
+    }
+
+    /**
+     * Same as {@link #evaluate(byte[], int, int, byte[], Rect)} with motion already estimated by the
+     * caller (e.g. inside the tracked MRZ box); null estimates motion inside the gate ROI.
+     */
+    public Result evaluate(byte[] yPlane,
+                           int width,
+                           int height,
+                           byte[] previousYPlane,
+                           Rect roiHint,
+                           BlockMotionEstimator.Motion motion) {
+        return judge(computeMetrics(yPlane, width, height, previousYPlane, roiHint, motion));
+    }
+
+    /**
+     * Single-pass gate for a frame stream: brightness/contrast are measured over the ROI (not the
+     * whole frame), every metric is sampled every {@code sampleStep} px, and motion MAD is taken
+     * against the gate's copy of the previous frame's ROI (0 on the first frame or when the ROI
+     * changed). A motion vector from the caller, if any, takes precedence over the MAD as in
+     * {@link #evaluate(byte[], int, int, byte[], Rect, BlockMotionEstimator.Motion)}.
+     */
+    public Result evaluateStream(byte[] yPlane,
+                                 int width,
+                                 int height,
+                                 Rect roiHint,
+                                 BlockMotionEstimator.Motion motion) {
+        checkPlane(yPlane, width, height);
+        Rect roi = resolveRoi(width, height, roiHint);
+        RoiStats stats = scanRoi(yPlane, width, height, roi, sampleStep, history);
+        if (motion == null) {
+            motion = BlockMotionEstimator.Motion.NONE;
+        }
+        return judge(new GateMetrics((float) stats.mean, (float) stats.stddev, (float) stats.lapVar,
+                (float) stats.motionMad, motion.dx, motion.dy, motion.reliable,
+                stats.glareFraction, stats.glareExtent, stats.glareTextOverlap));
+    }
+
+    /** Forget the previous-ROI ring (e.g. when the stream restarts). */
+    public void resetHistory() {
+        history.reset();
+    }
+
+    private Result judge(GateMetrics metrics) {
+        boolean motionOk = metrics.motionTracked
+                ? Math.hypot(metrics.motionDx, metrics.motionDy) <= thresholds.maxMotionPx
+                : metrics.motionMad <= thresholds.maxMotion;
+        EnumSet<GateRejectReason> reasons = EnumSet.noneOf(GateRejectReason.class);
+        if (metrics.brightnessMean < thresholds.minBrightness) reasons.add(GateRejectReason.LOW_BRIGHTNESS);
+        // An overexposed frame is saturation too
+        if (metrics.brightnessMean > thresholds.maxBrightness || isGlare(metrics)) {
+            reasons.add(GateRejectReason.GLARE);
+        }
+        if (metrics.contrastStd < thresholds.minContrast) reasons.add(GateRejectReason.LOW_CONTRAST);
+        if (metrics.blurVarLap < thresholds.minBlurVar) reasons.add(GateRejectReason.HIGH_BLUR);
+        if (!motionOk) reasons.add(GateRejectReason.HIGH_MOTION);
+        return new Result(reasons.isEmpty(), metrics, reasons);
+    }
+
+    private boolean isGlare(GateMetrics metrics) {
+        return metrics.glareFraction > thresholds.maxGlareFraction
+                || (metrics.glareExtent >= MIN_GLARE_EXTENT
+                && metrics.glareTextOverlap > thresholds.maxGlareTextOverlap);
     }
 
     public static GateMetrics computeMetrics(byte[] yPlane,
@@ -74,16 +215,17 @@ public final class MrzFrameGate {
                                              int height,
                                              byte[] previousYPlane,
                                              Rect roiHint) {
-        if (yPlane == null) {
-            throw new IllegalArgumentException("yPlane cannot be null");
-        }
-        if (width <= 0 || height <= 0) {
-            throw new IllegalArgumentException("width/height must be positive");
-        }
+        return computeMetrics(yPlane, width, height, previousYPlane, roiHint, null);
+    }
+
+    public static GateMetrics computeMetrics(byte[] yPlane,
+                                             int width,
+                                             int height,
+                                             byte[] previousYPlane,
+                                             Rect roiHint,
+                                             BlockMotionEstimator.Motion motion) {
+        checkPlane(yPlane, width, height);
         int pixelCount = width * height;
-        if (yPlane.length < pixelCount) {
-            throw new IllegalArgumentException("yPlane is smaller than width*height");
-        }
 
         double sum = 0;
         double sum2 = 0;
@@ -97,10 +239,27 @@ public final class MrzFrameGate {
         double stddev = Math.sqrt(Math.max(0, variance));
 
         Rect roi = resolveRoi(width, height, roiHint);
-        double lapVar = computeLaplacianVarianceROI(yPlane, width, height, roi);
+        RoiStats roiStats = scanRoi(yPlane, width, height, roi, 1, null);
         double motionMad = computeMadROI(yPlane, previousYPlane, width, height, roi);
+        if (motion == null) {
+            motion = MOTION_ESTIMATOR.get().estimate(yPlane, previousYPlane, width, height, roi);
+        }
 
-        return new GateMetrics((float) mean, (float) stddev, (float) lapVar, (float) motionMad);
+        return new GateMetrics((float) mean, (float) stddev, (float) roiStats.lapVar, (float) motionMad,
+                motion.dx, motion.dy, motion.reliable,
+                roiStats.glareFraction, roiStats.glareExtent, roiStats.glareTextOverlap);
+    }
+
+    private static void checkPlane(byte[] yPlane, int width, int height) {
+        if (yPlane == null) {
+            throw new IllegalArgumentException("yPlane cannot be null");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width/height must be positive");
+        }
+        if (yPlane.length < width * height) {
+            throw new IllegalArgumentException("yPlane is smaller than width*height");
+        }
     }
 
     private static Rect resolveRoi(int width, int height, Rect roiHint) {
@@ -158,52 +317,176 @@ public final class MrzFrameGate {
         return motionSum / area;
     }
 
-    private static double computeLaplacianVarianceROI(byte[] yPlane,
-                                                      int width,
-                                                      int height,
-                                                      Rect roi) {
+    /** Per-ROI results of the fused pass. */
+    private static final class RoiStats {
+        double mean;
+        double stddev;
+        double lapVar;
+        double motionMad;
+        float glareFraction;
+        float glareExtent;
+        float glareTextOverlap;
+    }
+
+    /**
+     * Subsampled ROIs of the previous frames. Slots are reused (grown only), so steady-state
+     * streaming allocates nothing; the MAD reads the latest slot while the next one is filled.
+     */
+    private static final class RoiHistory {
+        private final byte[][] slots = new byte[HISTORY_SLOTS][];
+        private final Rect lastRoi = new Rect();
+        private int lastStep;
+        private int latest = -1;
+
+        /** Samples of the previous frame if it was taken on the same grid, else null. */
+        byte[] previous(Rect roi, int step) {
+            if (latest < 0 || step != lastStep || !lastRoi.equals(roi)) return null;
+            return slots[latest];
+        }
+
+        byte[] next(int count) {
+            int slot = (latest + 1) % HISTORY_SLOTS;
+            if (slots[slot] == null || slots[slot].length < count) {
+                slots[slot] = new byte[count];
+            }
+            return slots[slot];
+        }
+
+        void commit(Rect roi, int step) {
+            latest = (latest + 1) % HISTORY_SLOTS;
+            lastRoi.set(roi);
+            lastStep = step;
+        }
+
+        void reset() {
+            latest = -1;
+        }
+    }
+
+    /**
+     * One pass over the ROI, visiting every {@code step}-th pixel of every {@code step}-th row:
+     * ROI mean/stddev, Laplacian variance on interior samples, saturated sample count, longest
+     * saturated run per row (chained across overlapping rows into connected highlights), text rows
+     * crossed by a long saturated run and, with a history, MAD against the previous frame's samples.
+     * Areas are scaled by step^2 so thresholds don't depend on the sampling.
+     */
+    private static RoiStats scanRoi(byte[] yPlane, int width, int height, Rect roi, int step,
+                                    RoiHistory history) {
+        RoiStats stats = new RoiStats();
         int roiWidth = roi.width();
         int roiHeight = roi.height();
         int area = roiWidth * roiHeight;
-        if (area <= 0 || width <= 2 || height <= 2) {
-            return 0;
+        if (area <= 0) {
+            if (history != null) history.reset();
+            return stats;
         }
 
+        // Laplacian window (needs all four neighbours)
+        boolean lapEnabled = width > 2 && height > 2;
         int xStart = Math.max(roi.left, 1);
         int yStart = Math.max(roi.top, 1);
         int xEnd = Math.min(roi.right - 1, width - 2);
         int yEnd = Math.min(roi.bottom - 1, height - 2);
 
-        if (xStart > xEnd || yStart > yEnd) {
-            return 0;
-        }
+        int minRun = Math.max(MIN_GLARE_RUN_PX, Math.round(roiWidth * MIN_GLARE_RUN_RATIO));
+        int margin = Math.round(roiHeight * TEXT_MARGIN_RATIO);
+        int textTop = roi.top + margin;
+        int textBottom = roi.bottom - margin;
+
+        int cols = (roiWidth + step - 1) / step;
+        int rows = (roiHeight + step - 1) / step;
+        byte[] prev = history != null ? history.previous(roi, step) : null;
+        byte[] cur = history != null ? history.next(cols * rows) : null;
 
+        long sum = 0;
+        long sum2 = 0;
+        long madSum = 0;
         double lapSum = 0;
         double lapSum2 = 0;
         int lapCount = 0;
-        for (int y = yStart; y <= yEnd; y++) {
+        int saturated = 0;
+        int textRows = 0;
+        int textRowsHit = 0;
+        // Current chain of overlapping row runs (previous row's longest run and accumulated area)
+        int chainLeft = -1;
+        int chainRight = -1;
+        int chainArea = 0;
+        int maxChainArea = 0;
+
+        int s = 0;
+        for (int y = roi.top; y < roi.bottom; y += step) {
             int row = y * width;
-            for (int x = xStart; x <= xEnd; x++) {
+            boolean lapRow = lapEnabled && y >= yStart && y <= yEnd;
+            int runStart = -1;
+            int bestStart = -1;
+            int bestEnd = -1;
+            for (int x = roi.left; x < roi.right; x += step, s++) {
                 int idx = row + x;
-                double c = yPlane[idx] & 0xFF;
-                double lap = (-4 * c
-                        + (yPlane[idx - 1] & 0xFF)
-                        + (yPlane[idx + 1] & 0xFF)
-                        + (yPlane[idx - width] & 0xFF)
-                        + (yPlane[idx + width] & 0xFF));
-                lapSum += lap;
-                lapSum2 += lap * lap;
-                lapCount++;
+                int c = yPlane[idx] & 0xFF;
+                sum += c;
+                sum2 += c * c;
+                if (cur != null) {
+                    cur[s] = (byte) c;
+                    if (prev != null) madSum += Math.abs(c - (prev[s] & 0xFF));
+                }
+                if (c >= SATURATION_LUMA) {
+                    saturated++;
+                    if (runStart < 0) runStart = x;
+                } else if (runStart >= 0) {
+                    if (x - runStart > bestEnd - bestStart) {
+                        bestStart = runStart;
+                        bestEnd = x;
+                    }
+                    runStart = -1;
+                }
+                if (lapRow && x >= xStart && x <= xEnd) {
+                    double lap = (-4.0 * c
+                            + (yPlane[idx - 1] & 0xFF)
+                            + (yPlane[idx + 1] & 0xFF)
+                            + (yPlane[idx - width] & 0xFF)
+                            + (yPlane[idx + width] & 0xFF));
+                    lapSum += lap;
+                    lapSum2 += lap * lap;
+                    lapCount++;
+                }
+            }
+            if (runStart >= 0 && roi.right - runStart > bestEnd - bestStart) {
+                bestStart = runStart;
+                bestEnd = roi.right;
             }
-        }
 
-        if (lapCount == 0) {
-            return 0;
+            int runLength = bestEnd - bestStart;
+            if (y >= textTop && y < textBottom) {
+                textRows++;
+                if (runLength >= minRun) textRowsHit++;
+            }
+            if (runLength > 0) {
+                boolean connected = chainArea > 0 && bestStart < chainRight && bestEnd > chainLeft;
+                chainArea = connected ? chainArea + runLength * step : runLength * step;
+                chainLeft = bestStart;
+                chainRight = bestEnd;
+                maxChainArea = Math.max(maxChainArea, chainArea);
+            } else {
+                chainArea = 0;
+            }
         }
 
-        double lapMean = lapSum / lapCount;
-        double lapVar = (lapSum2 / lapCount) - lapMean * lapMean;
-        double normalized = lapVar / area;
-        return Math.max(0, normalized);
+        int samples = s;
+        double mean = sum / (double) samples;
+        stats.mean = mean;
+        stats.stddev = Math.sqrt(Math.max(0, sum2 / (double) samples - mean * mean));
+        if (lapCount > 0) {
+            double lapMean = lapSum / lapCount;
+            double lapVar = (lapSum2 / lapCount) - lapMean * lapMean;
+            stats.lapVar = Math.max(0, lapVar / area);
+        }
+        stats.glareFraction = saturated / (float) samples;
+        stats.glareExtent = Math.min(1f, maxChainArea / (float) area);
+        stats.glareTextOverlap = textRows > 0 ? textRowsHit / (float) textRows : 0f;
+        if (history != null) {
+            stats.motionMad = prev != null ? madSum / (double) samples : 0;
+            history.commit(roi, step);
+        }
+        return stats;
     }
 }
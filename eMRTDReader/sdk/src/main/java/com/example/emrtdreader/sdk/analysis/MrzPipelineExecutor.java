@@ -1,70 +1,51 @@
 package com.example.emrtdreader.sdk.analysis;
 
+import com.example.emrtdreader.sdk.ocr.OcrScheduler;
+
 import java.util.Objects;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.RejectedExecutionHandler;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Single-threaded executor that keeps only the latest queued task.
+ * Serial executor on the shared {@link OcrScheduler.Lane#FRAME} lane that keeps only the latest
+ * queued task.
  */
 public final class MrzPipelineExecutor {
-    private final ThreadPoolExecutor executor;
-
-    public MrzPipelineExecutor() {
-        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(1);
-        executor = new ThreadPoolExecutor(
-                1,
-                1,
-                0L,
-                TimeUnit.MILLISECONDS,
-                queue,
-                new NamedThreadFactory("mrz-pipeline"),
-                new LatestOnlyPolicy());
-    }
+    private final AtomicReference<Runnable> pending = new AtomicReference<>(null);
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    private volatile boolean shutdown;
 
     public void submit(Runnable task) {
         Objects.requireNonNull(task, "task");
-        if (executor.isShutdown()) {
+        if (shutdown) {
             return;
         }
-        executor.execute(task);
+        // A newer task replaces the queued one
+        pending.set(task);
+        scheduleDrain();
     }
 
     public void shutdown() {
-        executor.shutdown();
-    }
-
-    private static final class LatestOnlyPolicy implements RejectedExecutionHandler {
-        @Override
-        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
-            if (executor.isShutdown()) {
-                return;
-            }
-            BlockingQueue<Runnable> queue = executor.getQueue();
-            queue.poll();
-            queue.offer(task);
-        }
+        shutdown = true;
     }
 
-    private static final class NamedThreadFactory implements ThreadFactory {
-        private final AtomicInteger count = new AtomicInteger(0);
-        private final String baseName;
-
-        private NamedThreadFactory(String baseName) {
-            this.baseName = baseName;
-        }
-
-        @Override
-        public Thread newThread(Runnable runnable) {
-            Thread thread = new Thread(runnable);
-            thread.setName(baseName + "-" + count.incrementAndGet());
-            thread.setDaemon(true);
-            return thread;
+    private void scheduleDrain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
         }
+        OcrScheduler.get().execute(OcrScheduler.Lane.FRAME, () -> {
+            try {
+                // Queued tasks still run after shutdown(), as with ThreadPoolExecutor.shutdown()
+                Runnable task;
+                while ((task = pending.getAndSet(null)) != null) {
+                    task.run();
+                }
+            } finally {
+                draining.set(false);
+                if (pending.get() != null) {
+                    scheduleDrain();
+                }
+            }
+        });
     }
 }
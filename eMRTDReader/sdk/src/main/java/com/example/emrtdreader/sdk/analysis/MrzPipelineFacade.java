@@ -1,5 +1,8 @@
 package com.example.emrtdreader.sdk.analysis;
 
+import android.graphics.Rect;
+
+import com.example.emrtdreader.sdk.models.KalmanMrzTracker;
 import com.example.emrtdreader.sdk.models.MrzBox;
 import com.example.emrtdreader.sdk.models.MrzParseResult;
 import com.example.emrtdreader.sdk.models.MrzTracker;
@@ -8,6 +11,8 @@ import com.example.emrtdreader.sdk.models.TrackResult;
 
 public final class MrzPipelineFacade {
     static final long OCR_INTERVAL_MS = 250L;
+    // Frames the box may be carried by block-matched motion before the localizer runs again
+    static final int MAX_PREDICTED_FRAMES = 4;
 
     private final MrzFrameGate gate;
     private final MrzLocalizer localizer;
@@ -15,8 +20,20 @@ public final class MrzPipelineFacade {
     private final MrzPipelineOcrEngine ocrEngine;
     private final MrzPipelineParser parser;
     private final MrzStateMachine stateMachine;
+    private final BlockMotionEstimator motionEstimator = new BlockMotionEstimator();
     private boolean ocrInFlight;
     private long lastOcrMs;
+    private MrzBox lastBox;
+    private int predictedFrames;
+
+    /** Facade with the default Kalman box tracker ({@link KalmanMrzTracker}). */
+    public MrzPipelineFacade(MrzFrameGate gate,
+                             MrzLocalizer localizer,
+                             MrzPipelineOcrEngine ocrEngine,
+                             MrzPipelineParser parser,
+                             MrzStateMachine stateMachine) {
+        this(gate, localizer, new KalmanMrzTracker(), ocrEngine, parser, stateMachine);
+    }
 
     public MrzPipelineFacade(MrzFrameGate gate,
                              MrzLocalizer localizer,
@@ -54,14 +71,42 @@ public final class MrzPipelineFacade {
         if (frame == null) {
             throw new IllegalArgumentException("frame cannot be null");
         }
-        MrzFrameGate.Result gateResult = gate.evaluate(
+        // Motion of the last known MRZ box against the estimator's coarse copy of the previous
+        // frame; the gate gets this vector instead of its MAD
+        BlockMotionEstimator.Motion motion = null;
+        if (lastBox != null) {
+            motion = motionEstimator.estimateStream(
+                    frame.yPlane,
+                    frame.width,
+                    frame.height,
+                    toRect(lastBox)
+            );
+        } else {
+            motionEstimator.reset();
+        }
+        // Single subsampled pass; the gate keeps the previous ROI itself for the motion MAD
+        MrzFrameGate.Result gateResult = gate.evaluateStream(
                 frame.yPlane,
                 frame.width,
                 frame.height,
-                frame.previousYPlane,
-                frame.roiHint
+                frame.roiHint,
+                motion
         );
-        MrzBox localized = localizer.locate(frame);
+
+        // Carry the box along the measured motion; re-run the localizer periodically or when lost
+        MrzBox localized;
+        if (motion != null && motion.reliable && predictedFrames < MAX_PREDICTED_FRAMES) {
+            localized = moveBox(lastBox, motion, frame.width, frame.height);
+            predictedFrames++;
+        } else {
+            localized = localizer.locate(frame);
+            predictedFrames = 0;
+            if (motion == null && localized != null) {
+                // Newly found box: seed the estimator with this frame so the next one can be matched
+                motionEstimator.estimateStream(frame.yPlane, frame.width, frame.height, toRect(localized));
+            }
+        }
+        lastBox = localized;
         TrackResult trackResult = localized != null ? tracker.track(localized) : null;
         boolean stable = trackResult != null && trackResult.stable;
         if (stable) {
@@ -93,6 +138,28 @@ public final class MrzPipelineFacade {
         );
     }
 
+    private static Rect toRect(MrzBox box) {
+        return new Rect(
+                Math.round(box.left),
+                Math.round(box.top),
+                Math.round(box.right),
+                Math.round(box.bottom)
+        );
+    }
+
+    /** Translate the box and scale it about its center, clamped to the frame. */
+    private static MrzBox moveBox(MrzBox box, BlockMotionEstimator.Motion motion, int width, int height) {
+        float cx = (box.left + box.right) / 2f + motion.dx;
+        float cy = (box.top + box.bottom) / 2f + motion.dy;
+        float halfW = (box.right - box.left) / 2f * motion.scale;
+        float halfH = (box.bottom - box.top) / 2f * motion.scale;
+        float left = Math.max(0f, Math.min(width, cx - halfW));
+        float top = Math.max(0f, Math.min(height, cy - halfH));
+        float right = Math.max(left, Math.min(width, cx + halfW));
+        float bottom = Math.max(top, Math.min(height, cy + halfH));
+        return new MrzBox(left, top, right, bottom);
+    }
+
     private boolean shouldRunOcr(long nowMs) {
         if (ocrInFlight) {
             return false;
@@ -0,0 +1,211 @@
+package com.example.emrtdreader.sdk.analysis;
+
+import com.example.emrtdreader.sdk.models.MrzBox;
+import com.example.emrtdreader.sdk.ocr.MrzPitchCheck;
+
+import java.util.Arrays;
+
+/**
+ * Projection-based MRZ localizer working directly on the luma (Y) plane.
+ *
+ * Idea (same heuristics as MrzAutoDetector, without a Bitmap):
+ * - Sample the Y plane on a coarse grid (every step-th pixel, ~640 samples across).
+ * - Row energy: sum of |dY/dx| per sampled row, smoothed; MRZ rows have many vertical strokes.
+ * - Pick the strongest contiguous band above a relative threshold in the lower part of the frame.
+ * - Column energy inside the band refines left/right bounds and must repeat at MRZ character pitch
+ *   ({@link MrzPitchCheck}).
+ *
+ * All energies are integers and scratch arrays are reused between frames, so a steady stream of
+ * same-sized frames allocates nothing but the returned MrzBox. Not thread-safe: use one instance
+ * per pipeline thread.
+ */
+public final class ProjectionMrzLocalizer implements MrzLocalizer {
+
+    // Sampling: aim for ~640 samples across the frame
+    private static final int TARGET_SAMPLES_W = 640;
+    private static final int MIN_FRAME_PX = 200;
+
+    // Search constraints (ratios of frame height)
+    private static final float SEARCH_TOP_RATIO = 0.40f;
+    private static final float SEARCH_BOTTOM_RATIO = 0.98f;
+    private static final float MIN_BAND_HEIGHT_RATIO = 0.10f;
+    private static final float MAX_BAND_HEIGHT_RATIO = 0.45f;
+    private static final float MIN_BAND_WIDTH_RATIO = 0.60f;
+    private static final float MIN_ASPECT_RATIO = 3.0f;
+    private static final float MIN_BOTTOM_RATIO = 0.55f;
+
+    // Row smoothing window (odd) and band expansion, in samples
+    private static final int ROW_SMOOTH_WIN = 9;
+    private static final int ROW_EXPAND = 6;
+    private static final int COL_EXPAND = 8;
+
+    // Thresholds in percent of the max energy
+    private static final int ROW_THRESH_PCT = 55;
+    private static final int COL_THRESH_PCT = 20;
+
+    private int[] rowEnergy = new int[0];
+    private int[] rowSmooth = new int[0];
+    private float[] colEnergy = new float[0];
+
+    @Override
+    public MrzBox locate(FrameInput frame) {
+        if (frame == null) {
+            throw new IllegalArgumentException("frame cannot be null");
+        }
+        return locate(frame.yPlane, frame.width, frame.height);
+    }
+
+    public MrzBox locate(byte[] yPlane, int width, int height) {
+        if (yPlane == null) {
+            throw new IllegalArgumentException("yPlane cannot be null");
+        }
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width/height must be positive");
+        }
+        if (yPlane.length < width * height) {
+            throw new IllegalArgumentException("yPlane is smaller than width*height");
+        }
+        if (width < MIN_FRAME_PX || height < MIN_FRAME_PX) return null;
+
+        final int step = Math.max(1, (width + TARGET_SAMPLES_W - 1) / TARGET_SAMPLES_W);
+        final int sw = width / step;
+        final int sh = height / step;
+        ensureCapacity(sw, sh);
+
+        final int y0 = clamp(Math.round(sh * SEARCH_TOP_RATIO), 0, sh - 1);
+        final int y1 = clamp(Math.round(sh * SEARCH_BOTTOM_RATIO), 0, sh);
+        if (y1 - y0 < 20) return null;
+
+        // 1) Row energy over sampled rows in the search zone
+        final int rowStride = width * step;
+        for (int sy = y0; sy < y1; sy++) {
+            int idx = sy * rowStride;
+            int prev = yPlane[idx] & 0xFF;
+            int sum = 0;
+            for (int sx = 1; sx < sw; sx++) {
+                idx += step;
+                int cur = yPlane[idx] & 0xFF;
+                sum += Math.abs(cur - prev);
+                prev = cur;
+            }
+            rowEnergy[sy] = sum;
+        }
+        int maxE = smoothRows(y0, y1);
+        if (maxE <= 0) return null;
+
+        // 2) Strongest contiguous band above threshold (max integrated energy)
+        final long thr = (long) maxE * ROW_THRESH_PCT;
+        int bestTop = -1;
+        int bestBot = -1;
+        long bestScore = 0;
+        int curTop = -1;
+        long curScore = 0;
+        for (int sy = y0; sy <= y1; sy++) {
+            boolean on = sy < y1 && (long) rowSmooth[sy] * 100 >= thr;
+            if (on) {
+                if (curTop < 0) curTop = sy;
+                curScore += rowSmooth[sy];
+            } else if (curTop >= 0) {
+                if (curScore > bestScore) {
+                    bestScore = curScore;
+                    bestTop = curTop;
+                    bestBot = sy;
+                }
+                curTop = -1;
+                curScore = 0;
+            }
+        }
+        if (bestTop < 0 || bestBot <= bestTop) return null;
+
+        bestTop = clamp(bestTop - ROW_EXPAND, 0, sh - 1);
+        bestBot = clamp(bestBot + ROW_EXPAND, bestTop + 1, sh);
+
+        int bandH = bestBot - bestTop;
+        float bandHR = bandH / (float) sh;
+        if (bandHR < MIN_BAND_HEIGHT_RATIO || bandHR > MAX_BAND_HEIGHT_RATIO) return null;
+
+        // 3) Column energy inside the band (row-major accumulation)
+        Arrays.fill(colEnergy, 0, sw, 0f);
+        for (int sy = bestTop; sy < bestBot; sy++) {
+            int idx = sy * rowStride;
+            int prev = yPlane[idx] & 0xFF;
+            for (int sx = 1; sx < sw; sx++) {
+                idx += step;
+                int cur = yPlane[idx] & 0xFF;
+                colEnergy[sx] += Math.abs(cur - prev);
+                prev = cur;
+            }
+        }
+        float maxC = 0f;
+        for (int sx = 0; sx < sw; sx++) {
+            if (colEnergy[sx] > maxC) maxC = colEnergy[sx];
+        }
+        if (maxC <= 0f) return null;
+
+        final float cThr = maxC * COL_THRESH_PCT;
+        int left = 0;
+        while (left < sw && colEnergy[left] * 100 < cThr) left++;
+        int right = sw - 1;
+        while (right >= 0 && colEnergy[right] * 100 < cThr) right--;
+        if (right <= left || !MrzPitchCheck.hasMrzPitch(colEnergy, left, right + 1)) return null;
+
+        left = clamp(left - COL_EXPAND, 0, sw - 1);
+        right = clamp(right + COL_EXPAND, left + 1, sw);
+
+        int bandW = right - left;
+        if (bandW / (float) sw < MIN_BAND_WIDTH_RATIO) return null;
+        if (bandW / (float) bandH < MIN_ASPECT_RATIO) return null;
+
+        // 4) Back to frame coordinates
+        float l = Math.min(left * step, width - 1);
+        float t = Math.min(bestTop * step, height - 1);
+        float r = Math.min(Math.max(right * step, l + 1), width);
+        float b = Math.min(Math.max(bestBot * step, t + 1), height);
+        if (b < height * MIN_BOTTOM_RATIO) return null;
+
+        return new MrzBox(l, t, r, b);
+    }
+
+    /** Moving-average smoothing of rowEnergy[from..to) into rowSmooth; returns the max. */
+    private int smoothRows(int from, int to) {
+        int half = ROW_SMOOTH_WIN / 2;
+        long acc = 0;
+        int count = 0;
+        // Prime window [from, from + half)
+        for (int i = from; i < Math.min(to, from + half); i++) {
+            acc += rowEnergy[i];
+            count++;
+        }
+        int max = 0;
+        for (int i = from; i < to; i++) {
+            int add = i + half;
+            if (add < to) {
+                acc += rowEnergy[add];
+                count++;
+            }
+            int drop = i - half - 1;
+            if (drop >= from) {
+                acc -= rowEnergy[drop];
+                count--;
+            }
+            int v = (int) (acc / Math.max(1, count));
+            rowSmooth[i] = v;
+            if (v > max) max = v;
+        }
+        return max;
+    }
+
+    private void ensureCapacity(int sw, int sh) {
+        if (rowEnergy.length < sh) {
+            rowEnergy = new int[sh];
+            rowSmooth = new int[sh];
+        }
+        if (colEnergy.length < sw) {
+            colEnergy = new float[sw];
+        }
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+}
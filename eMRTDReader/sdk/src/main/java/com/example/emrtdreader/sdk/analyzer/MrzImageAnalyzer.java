@@ -4,26 +4,38 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Matrix;
 import android.graphics.Rect;
+import android.os.CancellationSignal;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageProxy;
 
 import com.example.emrtdreader.sdk.analysis.ScanState;
+import com.example.emrtdreader.sdk.models.KalmanBoxTracker;
 import com.example.emrtdreader.sdk.models.MrzResult;
 import com.example.emrtdreader.sdk.models.OcrMetrics;
 import com.example.emrtdreader.sdk.models.OcrResult;
+import com.example.emrtdreader.sdk.ocr.AdaptiveOcrRouter;
 import com.example.emrtdreader.sdk.ocr.DualOcrRunner;
+import com.example.emrtdreader.sdk.ocr.FrameArena;
 import com.example.emrtdreader.sdk.ocr.FrameStats;
+import com.example.emrtdreader.sdk.ocr.HashedWheelTimer;
 import com.example.emrtdreader.sdk.ocr.MrzAutoDetector;
+import com.example.emrtdreader.sdk.ocr.MrzBandCycler;
+import com.example.emrtdreader.sdk.ocr.MrzRectifier;
+import com.example.emrtdreader.sdk.ocr.MrzSearchWindow;
 import com.example.emrtdreader.sdk.ocr.OcrEngine;
-import com.example.emrtdreader.sdk.ocr.RectAverager;
+import com.example.emrtdreader.sdk.ocr.OcrScheduler;
 import com.example.emrtdreader.sdk.utils.MrzBurstAggregator;
 
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * CameraX analyzer that:
@@ -49,11 +61,7 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
     private static final float FALLBACK_ROI_HEIGHT_RATIO = 0.38f;
     private static final float FALLBACK_ROI_SIDE_MARGIN_RATIO = 0.05f;
 
-    // ROI scaling for OCR stability (especially for Tesseract on small MRZ)
-    private static final int TARGET_MRZ_LINE_PX = 110; // ~100-120px per line is a good baseline
-    private static final float MIN_SCALE = 1.25f;
-    private static final float MAX_SCALE = 4.0f;
-
+    /** Called on SDK worker threads, never the main thread; UI work must be posted by the listener. */
     public interface Listener {
         void onOcr(OcrResult ocr, MrzResult bestSingle, Rect roi);
         void onFinalMrz(MrzResult finalMrz, Rect roi);
@@ -66,14 +74,26 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
     private final Listener listener;
 
     private final MrzBurstAggregator aggregator;
-    private final RectAverager rectAverager;
+    private final KalmanBoxTracker roiTracker = new KalmanBoxTracker();
+    private final MrzSearchWindow searchWindow = new MrzSearchWindow();
+    private final MrzBandCycler bandCycler = new MrzBandCycler();
 
     private final AtomicBoolean finished = new AtomicBoolean(false);
     private final AtomicBoolean ocrInFlight = new AtomicBoolean(false);
 
-    // Backpressure/timeout handling
-    private volatile long ocrInFlightSinceMs = 0L;
-    private static final long OCR_IN_FLIGHT_TIMEOUT_MS = 1200L;
+    // Backpressure/timeout handling.
+    // Cancels the in-flight OCR run when it is given up as stuck, freeing the engine workers.
+    // Whoever takes it (the run's callback or the watchdog) settles the run
+    private final AtomicReference<CancellationSignal> ocrCancel = new AtomicReference<>();
+    // Fires OCR_IN_FLIGHT_TIMEOUT_MS after dispatch unless the run settles first
+    private volatile HashedWheelTimer.Timeout ocrWatchdog;
+    // Outcome of the in-flight run for the adaptive router (null when not routed)
+    private volatile AdaptiveOcrRouter.Attempt ocrAttempt;
+    // Backstop only: beyond the runner's own deadline, so its timeout result is delivered first
+    private static final long OCR_IN_FLIGHT_TIMEOUT_MS = DualOcrRunner.IN_FLIGHT_BACKSTOP_MS;
+
+    // Debug leak reporting: a frame arena older than this is reported as leaked
+    private static final long ARENA_LEAK_AGE_MS = 5000L;
 
     // Simple degradation counters (reset on success)
     private int consecutiveMrzNotFound = 0;
@@ -84,9 +104,14 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
     private static final int MAX_CONSEC_REJECTED = 3;
     private static final int MAX_CONSEC_INVALID = 3;
 
+    // OCR misses in a row after which the detector re-scans the full frame
+    private static final int FULL_SCAN_AFTER_OCR_MISSES = 2;
+
     private volatile OcrEngine mlKitEngine;
     private volatile OcrEngine tessEngine;
     private volatile DualOcrRunner.Mode mode;
+    // Picks the engine mode per frame when the configured mode is AUTO_DUAL
+    private volatile AdaptiveOcrRouter adaptiveRouter;
 
     private long lastTs = 0L;
     private final long intervalMs;
@@ -120,7 +145,6 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
         this.cameraId = (cameraId == null || cameraId.isBlank()) ? "default" : cameraId;
 
         this.aggregator = new MrzBurstAggregator(3, 12);
-        this.rectAverager = new RectAverager(6, 0.35f);
     }
 
     @VisibleForTesting
@@ -132,10 +156,20 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
         this.mode = mode;
     }
 
+    /**
+     * With a router, AUTO_DUAL frames run in whichever mode the router expects to reach a valid MRZ
+     * fastest on this camera, and every run's outcome is fed back. Explicit modes are left as set.
+     */
+    public void setAdaptiveRouter(@Nullable AdaptiveOcrRouter router) {
+        this.adaptiveRouter = router;
+    }
+
     public void resetBurst() {
         finished.set(false);
         aggregator.reset();
-        rectAverager.reset();
+        roiTracker.reset();
+        searchWindow.reset();
+        bandCycler.reset();
     }
 
     @Override
@@ -149,6 +183,8 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
             } catch (Throwable ignore) {}
         }
 
+        FrameArena arena = null;
+        boolean handedOff = false;
         try {
             if (finished.get()) return;
 
@@ -160,57 +196,62 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
 
             final int rotationDeg = image.getImageInfo().getRotationDegrees();
 
+            if (FrameArena.isLeakReporting()) FrameArena.reportLeaks(ARENA_LEAK_AGE_MS);
+
+            // Every bitmap of this frame is owned by its arena and recycled together
+            arena = FrameArena.open("analyzer");
+
             // Convert quickly; heavy work goes to pipeline thread
-            Bitmap frame = ImageProxyUtils.toBitmap(image);
+            Bitmap frame = arena.track(ImageProxyUtils.toBitmap(image));
             if (frame == null) {
                 notifyFrameProcessed(ScanState.WAITING, "Frame->Bitmap failed", now);
                 return;
             }
 
             // Always work with ARGB_8888 immutable copy
-            Bitmap safe = frame.copy(Bitmap.Config.ARGB_8888, false);
+            Bitmap safe = arena.track(frame.copy(Bitmap.Config.ARGB_8888, false));
             if (safe == null) {
                 notifyFrameProcessed(ScanState.WAITING, "Bitmap copy failed", now);
                 return;
             }
 
             // Rotate to upright BEFORE detection/OCR (critical)
-            final Bitmap upright = (rotationDeg != 0) ? rotateBitmap(safe, rotationDeg) : safe;
+            final Bitmap upright = (rotationDeg != 0) ? arena.track(rotateBitmap(safe, rotationDeg)) : safe;
 
-            // Offload whole pipeline
-            pipelineExecutor.submit(() -> runPipeline(upright));
+            // Offload whole pipeline; a dropped frame (executor busy) is superseded and released below
+            final FrameArena frameArena = arena;
+            handedOff = pipelineExecutor.submit(() -> runPipeline(upright, frameArena));
 
         } catch (Throwable e) {
             String msg = e.getMessage();
             if (msg == null || msg.trim().isEmpty()) msg = "Analyzer error while processing frame";
             notifyError(msg, e);
         } finally {
+            if (arena != null && !handedOff) arena.close();
             image.close();
         }
     }
 
+    private void runPipeline(Bitmap uprightFrame, FrameArena arena) {
+        FrameArena prev = FrameArena.bind(arena);
+        try {
+            runPipeline(uprightFrame);
+        } finally {
+            FrameArena.bind(prev);
+            // DualOcrRunner holds its own reference if OCR was dispatched; otherwise the frame ends here
+            arena.close();
+        }
+    }
+
     private void runPipeline(Bitmap uprightFrame) {
         if (uprightFrame == null) return;
         if (finished.get()) return;
 
-        // Prevent piling OCR jobs
+        // Prevent piling OCR jobs (a stuck run is reset by its watchdog, see onOcrWatchdog)
         if (!ocrInFlight.compareAndSet(false, true)) {
-            long now = System.currentTimeMillis();
-            // If we are stuck in-flight for too long, force a reset and request retry.
-            if (ocrInFlightSinceMs > 0L && (now - ocrInFlightSinceMs) > OCR_IN_FLIGHT_TIMEOUT_MS) {
-                ocrInFlight.set(false);
-                ocrInFlightSinceMs = 0L;
-                consecutiveMrzNotFound = 0;
-                consecutiveMrzRejected = 0;
-                consecutiveMrzInvalid = 0;
-                notifyFrameProcessed(ScanState.MRZ_OCR_TIMEOUT, "OCR timeout", now);
-                notifyFrameProcessed(ScanState.MRZ_RETRY_REQUIRED, "Processing took too long. Try again.", now);
-            } else {
-                notifyFrameProcessed(ScanState.OCR_IN_FLIGHT, MSG_SKIP_OCR_IN_FLIGHT, now);
-            }
+            notifyFrameProcessed(ScanState.OCR_IN_FLIGHT, MSG_SKIP_OCR_IN_FLIGHT, System.currentTimeMillis());
             return;
         }
-        ocrInFlightSinceMs = System.currentTimeMillis();
 
         try {
             // Frame metrics (for UI/logs)
@@ -225,41 +266,81 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
             int w = uprightFrame.getWidth();
             int h = uprightFrame.getHeight();
 
-            Rect detected = MrzAutoDetector.detect(uprightFrame);
-            if (detected == null) {
-                detected = buildFallbackRoi(w, h);
-                notifyFrameProcessed(ScanState.MRZ_NOT_FOUND, MSG_NO_ROI, System.currentTimeMillis());
+            // Search around the stable rect; full-frame scan every N frames, after a miss, on low
+            // confidence, or when the runner-up band is due (it may lie outside the window)
+            boolean wantRunnerUp = bandCycler.runnerUpPending();
+            Rect window = wantRunnerUp ? null : searchWindow.next(w, h);
+            List<MrzAutoDetector.Band> bands = MrzAutoDetector.detectBands(uprightFrame, window);
+            if (bands.isEmpty() && window != null) {
+                // Lost inside the window: re-acquire over the full frame right away
+                bands = MrzAutoDetector.detectBands(uprightFrame, null);
             }
+            final int bandRank = bandCycler.pick(bands.size());
 
-            Rect stable = rectAverager.update(detected, w, h);
+            Rect stable;
+            if (bandRank > 0) {
+                // Top band gave no MRZ last cycle: read the runner-up as-is, keeping the tracker
+                // and search window anchored on the top band
+                stable = bands.get(bandRank).rect;
+            } else {
+                Rect detected = bands.isEmpty() ? null : bands.get(0).rect;
+                if (detected != null) {
+                    roiTracker.update(detected.left, detected.top, detected.right, detected.bottom);
+                } else {
+                    roiTracker.coast();
+                    notifyFrameProcessed(ScanState.MRZ_NOT_FOUND, MSG_NO_ROI, System.currentTimeMillis());
+                }
+
+                // Velocity-compensated tracked box; blind bottom ROI only when nothing is tracked
+                stable = roiTracker.hasEstimate() ? trackedRect(roiTracker, w, h) : buildFallbackRoi(w, h);
+                searchWindow.onDetection(detected, stable);
+            }
 
-            Bitmap rawRoi = Bitmap.createBitmap(
+            Bitmap rawRoi = FrameArena.trackCurrent(Bitmap.createBitmap(
                     uprightFrame,
                     stable.left,
                     stable.top,
                     stable.width(),
                     stable.height()
-            );
-
-            Bitmap roiForOcr = scaleMrzRoi(rawRoi);
+            ));
 
-            runOcrAsync(roiForOcr, metrics, stable);
+            // Straighten tilted/keystoned MRZ lines (no-op for axis-aligned bands).
+            // ROI goes out at native resolution; MrzPreprocessor resamples it once per engine
+            Bitmap roi = MrzRectifier.rectify(rawRoi);
+            runOcrAsync(roi, metrics, stable, bandRank, w, h);
 
         } catch (Throwable t) {
+            disarmOcrWatchdog();
             ocrInFlight.set(false);
             notifyError("Pipeline error", t);
         }
     }
 
-    private void runOcrAsync(Bitmap roiBmp, OcrMetrics metrics, Rect stable) {
+    private void runOcrAsync(Bitmap roiBmp, OcrMetrics metrics, Rect stable, int bandRank,
+                             int frameWidth, int frameHeight) {
         DualOcrRunner.Mode m = (mode == null) ? DualOcrRunner.Mode.AUTO_DUAL : mode;
 
-        DualOcrRunner.runAsync(appContext, m, mlKitEngine, tessEngine, roiBmp, 0,
+        AdaptiveOcrRouter router = adaptiveRouter;
+        AdaptiveOcrRouter.Attempt attempt = null;
+        if (router != null && m == DualOcrRunner.Mode.AUTO_DUAL) {
+            AdaptiveOcrRouter.Route route = router.route(cameraId, frameWidth, frameHeight);
+            m = route.chooseMode();
+            attempt = route.begin(m);
+        }
+        ocrAttempt = attempt;
+
+        CancellationSignal cancel = new CancellationSignal();
+        ocrCancel.set(cancel);
+        // Fires on the shared timer wheel even if no further frame arrives
+        ocrWatchdog = OcrScheduler.get().schedule(() -> onOcrWatchdog(cancel),
+                OCR_IN_FLIGHT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        DualOcrRunner.runAsync(appContext, m, mlKitEngine, tessEngine, roiBmp, 0, FrameArena.current(), cancel,
                 new DualOcrRunner.RunCallback() {
                     @Override
                     public void onSuccess(DualOcrRunner.RunResult rr) {
+                        if (!settleOcr(cancel)) return;
+                        finishAttempt(rr != null ? rr.mrz : null);
                         ocrInFlight.set(false);
-                        ocrInFlightSinceMs = 0L;
                         if (finished.get()) return;
 
                         OcrResult ocr;
@@ -277,6 +358,7 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
 
                         // MRZ candidate (may come from Tesseract or fallback parsing)
                         MrzResult mrz = (rr != null) ? rr.mrz : null;
+                        bandCycler.onOcrResult(bandRank, mrz != null);
 
                         if (listener != null) {
                             listener.onOcr(ocr, mrz, stable);
@@ -311,6 +393,11 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
                                 msg = "OCR text detected, but MRZ rejected";
                             }
 
+                            // Confidence dropped in the stable rect: re-acquire over the full frame
+                            if (consecutiveMrzNotFound + consecutiveMrzRejected >= FULL_SCAN_AFTER_OCR_MISSES) {
+                                searchWindow.requestFullScan();
+                            }
+
                             // Escalate to retry when we see repeated failures
                             if (consecutiveMrzNotFound >= MAX_CONSEC_NOT_FOUND
                                     || consecutiveMrzRejected >= MAX_CONSEC_REJECTED
@@ -328,6 +415,8 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
 
                     @Override
                     public void onFailure(Throwable error) {
+                        if (!settleOcr(cancel)) return;
+                        finishAttempt(null);
                         ocrInFlight.set(false);
                         String cause = (error != null && error.getMessage() != null && !error.getMessage().isBlank())
                                 ? error.getMessage()
@@ -349,27 +438,47 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
     }
 
     /**
-     * Scale ROI so that one MRZ line is about TARGET_MRZ_LINE_PX pixels.
-     * This significantly reduces confusion like '<' -> 'K' in Tesseract on small ROI.
+     * Watchdog of the run dispatched with cancel: gives it up as stuck, resets and requests a retry.
+     * The stuck run's callback won't arrive after this; its queued/running OCR is dropped.
      */
-    private static Bitmap scaleMrzRoi(Bitmap src) {
-        if (src == null) return null;
-        int w = src.getWidth();
-        int h = src.getHeight();
-        if (w <= 0 || h <= 0) return src;
+    private void onOcrWatchdog(CancellationSignal cancel) {
+        // The run's callback got there first: nothing is stuck
+        if (!ocrCancel.compareAndSet(cancel, null)) return;
+        cancel.cancel();
+        // Runs on the timer thread: reset and notify on the OCR lane
+        OcrScheduler.get().execute(OcrScheduler.Lane.OCR, OcrScheduler.PRIORITY_HIGH, this::resetStuckOcr);
+    }
 
-        // MRZ is typically 2 lines => one line height ~ h/2
-        int currentLinePx = Math.max(1, h / 2);
-        float scale = TARGET_MRZ_LINE_PX / (float) currentLinePx;
-        scale = Math.max(MIN_SCALE, Math.min(scale, MAX_SCALE));
+    private void resetStuckOcr() {
+        // A run given up as stuck counts as a failure at the timeout
+        finishAttempt(null);
+        ocrInFlight.set(false);
+        consecutiveMrzNotFound = 0;
+        consecutiveMrzRejected = 0;
+        consecutiveMrzInvalid = 0;
+        long now = System.currentTimeMillis();
+        notifyFrameProcessed(ScanState.MRZ_OCR_TIMEOUT, "OCR timeout", now);
+        notifyFrameProcessed(ScanState.MRZ_RETRY_REQUIRED, "Processing took too long. Try again.", now);
+    }
 
-        // If scale ~1, keep original to avoid extra alloc
-        if (scale < 1.05f) return src;
+    /** Claims the run for its callback; false if the watchdog already gave it up. */
+    private boolean settleOcr(CancellationSignal cancel) {
+        if (!ocrCancel.compareAndSet(cancel, null)) return false;
+        HashedWheelTimer.Timeout watchdog = ocrWatchdog;
+        if (watchdog != null) watchdog.cancel();
+        return true;
+    }
 
-        int newW = Math.max(1, Math.round(w * scale));
-        int newH = Math.max(1, Math.round(h * scale));
+    private void disarmOcrWatchdog() {
+        ocrCancel.set(null);
+        HashedWheelTimer.Timeout watchdog = ocrWatchdog;
+        if (watchdog != null) watchdog.cancel();
+    }
 
-        return Bitmap.createScaledBitmap(src, newW, newH, false);
+    private void finishAttempt(@Nullable MrzResult mrz) {
+        AdaptiveOcrRouter.Attempt attempt = ocrAttempt;
+        ocrAttempt = null;
+        if (attempt != null) attempt.finish(mrz);
     }
 
     private void notifyError(String message, Throwable error) {
@@ -398,6 +507,14 @@ public final class MrzImageAnalyzer implements ImageAnalysis.Analyzer {
         }
     }
 
+    private static Rect trackedRect(KalmanBoxTracker tracker, int frameWidth, int frameHeight) {
+        int left = Math.max(0, Math.min(frameWidth - 1, Math.round(tracker.left())));
+        int top = Math.max(0, Math.min(frameHeight - 1, Math.round(tracker.top())));
+        int right = Math.max(left + 1, Math.min(frameWidth, Math.round(tracker.right())));
+        int bottom = Math.max(top + 1, Math.min(frameHeight, Math.round(tracker.bottom())));
+        return new Rect(left, top, right, bottom);
+    }
+
     private static Rect buildFallbackRoi(int frameWidth, int frameHeight) {
         int marginX = Math.round(frameWidth * FALLBACK_ROI_SIDE_MARGIN_RATIO);
         int roiHeight = Math.round(frameHeight * FALLBACK_ROI_HEIGHT_RATIO);
@@ -1,45 +1,44 @@
 package com.example.emrtdreader.sdk.analyzer;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.example.emrtdreader.sdk.ocr.OcrScheduler;
+
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Single-thread executor for MRZ background pipeline.
- * Keeps only latest task to avoid backlog.
+ * Runs the MRZ background pipeline on the shared {@link OcrScheduler.Lane#FRAME} lane,
+ * one task at a time. Keeps only latest task to avoid backlog.
  */
 public final class MrzPipelineExecutor {
 
-    private final ExecutorService executor;
     private final AtomicBoolean busy = new AtomicBoolean(false);
-
-    public MrzPipelineExecutor() {
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, "mrz-pipeline");
-            t.setDaemon(true);
-            return t;
-        });
-    }
+    private volatile boolean shutdown;
 
     /**
      * Submit task if executor is idle.
      * Drops task if another one is running.
+     *
+     * @return true if the task was accepted, false if it was dropped
      */
-    public void submit(Runnable task) {
+    public boolean submit(Runnable task) {
+        if (shutdown) {
+            return false;
+        }
         if (!busy.compareAndSet(false, true)) {
-            return; // drop task, keep latest behavior
+            return false; // drop task, keep latest behavior
         }
 
-        executor.execute(() -> {
+        OcrScheduler.get().execute(OcrScheduler.Lane.FRAME, () -> {
             try {
-                task.run();
+                if (!shutdown) task.run();
             } finally {
                 busy.set(false);
             }
         });
+        return true;
     }
 
+    /** Stops accepting tasks; a task that already started runs to completion. */
     public void shutdown() {
-        executor.shutdownNow();
+        shutdown = true;
     }
 }
@@ -7,11 +7,49 @@ public class GateMetrics implements Serializable {
     public final float contrastStd;
     public final float blurVarLap;
     public final float motionMad;
+    // Block-matched ROI motion since the previous frame (px); valid only when motionTracked
+    public final float motionDx;
+    public final float motionDy;
+    public final boolean motionTracked;
+    // Specular glare in the ROI: saturated pixel fraction, largest connected saturated area
+    // (fraction of the ROI) and fraction of the expected text rows crossed by a saturated run
+    public final float glareFraction;
+    public final float glareExtent;
+    public final float glareTextOverlap;
 
     public GateMetrics(float brightnessMean, float contrastStd, float blurVarLap, float motionMad) {
+        this(brightnessMean, contrastStd, blurVarLap, motionMad, 0f, 0f, false);
+    }
+
+    public GateMetrics(float brightnessMean,
+                       float contrastStd,
+                       float blurVarLap,
+                       float motionMad,
+                       float motionDx,
+                       float motionDy,
+                       boolean motionTracked) {
+        this(brightnessMean, contrastStd, blurVarLap, motionMad, motionDx, motionDy, motionTracked, 0f, 0f, 0f);
+    }
+
+    public GateMetrics(float brightnessMean,
+                       float contrastStd,
+                       float blurVarLap,
+                       float motionMad,
+                       float motionDx,
+                       float motionDy,
+                       boolean motionTracked,
+                       float glareFraction,
+                       float glareExtent,
+                       float glareTextOverlap) {
         this.brightnessMean = brightnessMean;
         this.contrastStd = contrastStd;
         this.blurVarLap = blurVarLap;
         this.motionMad = motionMad;
+        this.motionDx = motionDx;
+        this.motionDy = motionDy;
+        this.motionTracked = motionTracked;
+        this.glareFraction = glareFraction;
+        this.glareExtent = glareExtent;
+        this.glareTextOverlap = glareTextOverlap;
     }
 }
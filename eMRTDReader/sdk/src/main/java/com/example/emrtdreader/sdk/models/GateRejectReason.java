@@ -5,5 +5,6 @@ public enum GateRejectReason {
     LOW_CONTRAST,
     HIGH_BLUR,
     HIGH_MOTION,
+    GLARE,
     UNKNOWN
 }
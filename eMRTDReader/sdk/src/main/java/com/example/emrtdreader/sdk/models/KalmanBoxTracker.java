@@ -0,0 +1,225 @@
+package com.example.emrtdreader.sdk.models;
+
+/**
+ * Constant-velocity Kalman tracker for an MRZ box (left/top/right/bottom edges).
+ *
+ * Idea:
+ * - Each edge is an independent [position, velocity] state with white-acceleration process noise,
+ *   so a moving document is followed without the lag of a moving average / EMA.
+ * - Measurements far outside the predicted uncertainty (Mahalanobis gate) are treated as outliers
+ *   and the box coasts on its velocity; a run of outliers re-initializes on the new box.
+ * - Stability comes from the innovations: the covariance converges on a fixed schedule whatever
+ *   is measured, so instead a running average of the normalized innovation squared (~1 when the
+ *   edges only carry measurement noise) must stay low and the box must be nearly still. A box that
+ *   jitters in place has near-zero velocity but large innovations and is not stable.
+ *
+ * All state lives in preallocated arrays: update/coast allocate nothing. Not thread-safe.
+ */
+public final class KalmanBoxTracker {
+
+    public static final float DEFAULT_MEASUREMENT_STD_PX = 4f;
+    public static final float DEFAULT_ACCELERATION_STD_PX = 2f;
+
+    private static final int EDGES = 4;
+
+    // Initial velocity uncertainty (px/frame) for a freshly acquired box
+    private static final float INITIAL_VELOCITY_STD_PX = 20f;
+    // Squared Mahalanobis distance (~3 sigma) above which an edge measurement is an outlier
+    private static final float GATE_CHI2 = 9f;
+    // A box is an outlier if at least this many edges fail the gate
+    private static final int OUTLIER_EDGES = 2;
+    // Consecutive outliers / coasted frames before the track is dropped
+    private static final int MAX_OUTLIERS = 3;
+    private static final int MAX_COASTS = 5;
+    // Stable: innovations within the measurement noise (running mean of y^2 / S over the edges),
+    // nearly still, seen a few times
+    private static final float MAX_STABLE_NIS = 1f;
+    // Weight of the newest update in the running innovation average (plain mean until then)
+    private static final float NIS_SMOOTHING = 0.5f;
+    private static final float MAX_STABLE_SPEED_PX = 1.5f;
+    private static final int MIN_UPDATES = 3;
+
+    private final float measVar;
+    private final float accelVar;
+
+    private final float[] pos = new float[EDGES];
+    private final float[] vel = new float[EDGES];
+    private final float[] p00 = new float[EDGES];
+    private final float[] p01 = new float[EDGES];
+    private final float[] p11 = new float[EDGES];
+
+    private boolean initialized;
+    private int updates;
+    private int outliers;
+    private int coasts;
+    private int stableFrames;
+    private float nisAvg;
+
+    public KalmanBoxTracker() {
+        this(DEFAULT_MEASUREMENT_STD_PX, DEFAULT_ACCELERATION_STD_PX);
+    }
+
+    public KalmanBoxTracker(float measurementStdPx, float accelerationStdPx) {
+        if (measurementStdPx <= 0f || accelerationStdPx <= 0f) {
+            throw new IllegalArgumentException("noise std must be > 0");
+        }
+        this.measVar = measurementStdPx * measurementStdPx;
+        this.accelVar = accelerationStdPx * accelerationStdPx;
+    }
+
+    /**
+     * Feed a detected box. Returns false if it was rejected as an outlier (the track coasted instead).
+     */
+    public boolean update(float left, float top, float right, float bottom) {
+        if (!initialized) {
+            init(left, top, right, bottom);
+            return true;
+        }
+        predict();
+
+        int failed = 0;
+        for (int i = 0; i < EDGES; i++) {
+            float y = measurement(i, left, top, right, bottom) - pos[i];
+            if (y * y > GATE_CHI2 * (p00[i] + measVar)) failed++;
+        }
+        if (failed >= OUTLIER_EDGES) {
+            if (++outliers >= MAX_OUTLIERS) {
+                init(left, top, right, bottom);
+                return true;
+            }
+            refreshStability();
+            return false;
+        }
+
+        float nis = 0f;
+        for (int i = 0; i < EDGES; i++) {
+            float y = measurement(i, left, top, right, bottom) - pos[i];
+            float s = p00[i] + measVar;
+            nis += y * y / s;
+            float k0 = p00[i] / s;
+            float k1 = p01[i] / s;
+            pos[i] += k0 * y;
+            vel[i] += k1 * y;
+            float a = p00[i];
+            float b = p01[i];
+            p00[i] = (1f - k0) * a;
+            p01[i] = (1f - k0) * b;
+            p11[i] -= k1 * b;
+        }
+        float alpha = Math.max(NIS_SMOOTHING, 1f / updates);
+        nisAvg += alpha * (nis / EDGES - nisAvg);
+        outliers = 0;
+        coasts = 0;
+        updates++;
+        refreshStability();
+        return true;
+    }
+
+    /** Advance one frame without a measurement. Drops the track after too many coasted frames. */
+    public void coast() {
+        if (!initialized) return;
+        if (++coasts > MAX_COASTS) {
+            reset();
+            return;
+        }
+        predict();
+        refreshStability();
+    }
+
+    public void reset() {
+        initialized = false;
+        updates = 0;
+        outliers = 0;
+        coasts = 0;
+        stableFrames = 0;
+    }
+
+    public boolean hasEstimate() {
+        return initialized;
+    }
+
+    public float left() { return pos[0]; }
+
+    public float top() { return pos[1]; }
+
+    public float right() { return Math.max(pos[0], pos[2]); }
+
+    public float bottom() { return Math.max(pos[1], pos[3]); }
+
+    /** Horizontal / vertical box velocity in px per frame (mean of the opposing edges). */
+    public float velocityX() { return (vel[0] + vel[2]) / 2f; }
+
+    public float velocityY() { return (vel[1] + vel[3]) / 2f; }
+
+    /** Largest edge position std (px). */
+    public float positionStd() {
+        float max = 0f;
+        for (int i = 0; i < EDGES; i++) max = Math.max(max, p00[i]);
+        return (float) Math.sqrt(max);
+    }
+
+    /** Running average of the normalized innovation squared per edge (~1 for measurement noise). */
+    public float innovationScore() {
+        return nisAvg;
+    }
+
+    public boolean isStable() {
+        return stableFrames > 0;
+    }
+
+    /** Consecutive frames the track has been stable. */
+    public int stableFrames() {
+        return stableFrames;
+    }
+
+    private void init(float left, float top, float right, float bottom) {
+        float v0 = INITIAL_VELOCITY_STD_PX * INITIAL_VELOCITY_STD_PX;
+        for (int i = 0; i < EDGES; i++) {
+            pos[i] = measurement(i, left, top, right, bottom);
+            vel[i] = 0f;
+            p00[i] = measVar;
+            p01[i] = 0f;
+            p11[i] = v0;
+        }
+        initialized = true;
+        updates = 1;
+        outliers = 0;
+        coasts = 0;
+        stableFrames = 0;
+        nisAvg = 0f;
+    }
+
+    /** x = F x, P = F P F' + Q with F = [[1, 1], [0, 1]] and white acceleration noise (dt = 1 frame). */
+    private void predict() {
+        float q00 = accelVar / 4f;
+        float q01 = accelVar / 2f;
+        for (int i = 0; i < EDGES; i++) {
+            pos[i] += vel[i];
+            float a = p00[i];
+            float b = p01[i];
+            float c = p11[i];
+            p00[i] = a + 2f * b + c + q00;
+            p01[i] = b + c + q01;
+            p11[i] = c + accelVar;
+        }
+    }
+
+    private void refreshStability() {
+        boolean stable = updates >= MIN_UPDATES
+                && coasts == 0
+                && outliers == 0
+                && nisAvg <= MAX_STABLE_NIS
+                && Math.abs(velocityX()) <= MAX_STABLE_SPEED_PX
+                && Math.abs(velocityY()) <= MAX_STABLE_SPEED_PX;
+        stableFrames = stable ? stableFrames + 1 : 0;
+    }
+
+    private static float measurement(int edge, float left, float top, float right, float bottom) {
+        switch (edge) {
+            case 0: return left;
+            case 1: return top;
+            case 2: return right;
+            default: return bottom;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.emrtdreader.sdk.models;
+
+/**
+ * {@link MrzTracker} backed by {@link KalmanBoxTracker}: same TrackResult contract for the luma
+ * facade, with velocity-aware smoothing and innovation-based stability instead of EMA + IoU count.
+ */
+public class KalmanMrzTracker extends MrzTracker {
+
+    private final KalmanBoxTracker filter;
+
+    public KalmanMrzTracker() {
+        this(new KalmanBoxTracker());
+    }
+
+    public KalmanMrzTracker(KalmanBoxTracker filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("filter cannot be null");
+        }
+        this.filter = filter;
+    }
+
+    @Override
+    public TrackResult track(MrzBox current) {
+        if (current == null) {
+            throw new IllegalArgumentException("current box is required");
+        }
+        filter.update(current.left, current.top, current.right, current.bottom);
+        MrzBox smoothed = new MrzBox(filter.left(), filter.top(), filter.right(), filter.bottom());
+        // Jitter: edge uncertainty relative to the box height
+        float height = Math.max(1f, smoothed.bottom - smoothed.top);
+        return new TrackResult(filter.isStable(), filter.stableFrames(), filter.positionStd() / height, smoothed);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.emrtdreader.sdk.models;
+
+import java.io.Serializable;
+
+/**
+ * MRZ geometry measured on the ROI before OCR: text line count and character pitch.
+ * Used as a format hint so parsing/repair only evaluate formats the band can physically hold.
+ */
+public class MrzLayout implements Serializable {
+    public static final int TD1_CHARS = 30;
+    public static final int TD2_CHARS = 36;
+    public static final int TD3_CHARS = 44;
+
+    // Max deviation of the measured chars-per-line from the nominal length to pin the format
+    // (line count and chars-per-line must agree; either one alone is too noisy to reject on)
+    private static final int CHARS_TOLERANCE = 3;
+
+    public final int lineCount;     // 2 or 3; 0 if unknown
+    public final int charsPerLine;  // 0 if unknown
+    public final float pitchPx;     // character pitch in ROI pixels; 0 if unknown
+    public final MrzFormat format;  // null unless lines and chars agree on one parseable format
+
+    public MrzLayout(int lineCount, int charsPerLine, float pitchPx) {
+        if (lineCount < 0 || charsPerLine < 0 || pitchPx < 0f) {
+            throw new IllegalArgumentException("layout values must be >= 0");
+        }
+        this.lineCount = lineCount;
+        this.charsPerLine = charsPerLine;
+        this.pitchPx = pitchPx;
+        this.format = classify(lineCount, charsPerLine);
+    }
+
+    /** True if an MRZ of the given format fits this geometry. Unknown geometry allows everything. */
+    public boolean allows(MrzFormat candidate) {
+        if (candidate == null) return false;
+        return format == null || candidate == format;
+    }
+
+    /**
+     * Pins TD1 (3 lines, ~30 chars) or TD3 (2 lines, ~44 chars) only; any other combination,
+     * including TD2 geometry the parser doesn't handle, leaves the format unknown.
+     */
+    private static MrzFormat classify(int lineCount, int charsPerLine) {
+        if (lineCount == 3 && Math.abs(charsPerLine - TD1_CHARS) <= CHARS_TOLERANCE) return MrzFormat.TD1;
+        if (lineCount == 2 && Math.abs(charsPerLine - TD3_CHARS) <= CHARS_TOLERANCE) return MrzFormat.TD3;
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "MrzLayout{lines=" + lineCount
+                + ", chars=" + charsPerLine
+                + ", pitch=" + pitchPx
+                + ", format=" + format + '}';
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import com.example.emrtdreader.sdk.models.MrzResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Learns which OCR engine mode and preprocessing candidates work best on this device and camera.
+ *
+ * Idea:
+ * - Every "arm" (a {@link DualOcrRunner.Mode}, or a {@link PreprocessParams} candidate) keeps a
+ *   Beta(1 + successes, 1 + failures) posterior on reaching a checksum-valid MRZ, plus a running mean
+ *   of its latency. Stats are kept per camera and rotated frame size ({@link Route}).
+ * - Thompson sampling: per decision, draw a success probability p for each arm and pick the arm with
+ *   the lowest expected time to a valid MRZ, latency / p. Uncertain arms still get tried now and then;
+ *   clearly worse ones fade out.
+ * - Evidence is capped ({@link #MAX_EVIDENCE}), so old outcomes are discounted and the policy follows
+ *   changes (lighting, a different document type).
+ * - Stats persist through {@link AdaptiveOcrRouterStore} every few outcomes and on {@link #flush()}.
+ *
+ * Thread-safe.
+ */
+public final class AdaptiveOcrRouter {
+
+    // Modes that can yield an MRZ; MLKIT_ONLY never parses one (MRZ comes from Tesseract by policy)
+    private static final DualOcrRunner.Mode[] MODES = {
+            DualOcrRunner.Mode.AUTO_DUAL,
+            DualOcrRunner.Mode.TESS_ONLY
+    };
+    // Outcomes kept per arm; beyond this older ones are scaled down so the policy keeps adapting
+    static final double MAX_EVIDENCE = 50.0;
+    // Weight of a new latency sample in the running mean
+    private static final double LATENCY_ALPHA = 0.2;
+    // Latency assumed for an arm that was never tried
+    static final double PRIOR_LATENCY_MS = 800.0;
+    // Floor for a sampled success probability (latency / p stays finite)
+    private static final double MIN_SUCCESS_P = 0.01;
+    // Floor for an arm's latency, so a sub-millisecond mean still ranks arms by success probability
+    private static final double MIN_LATENCY_MS = 1.0;
+    // Outcomes between writes of a route's stats
+    private static final int SAVE_EVERY = 10;
+
+    private static final String MODE_ARM_PREFIX = "mode:";
+    private static final String PARAMS_ARM_PREFIX = "params:";
+
+    @Nullable
+    private final AdaptiveOcrRouterStore store;
+    private final Random random;
+    private final Map<String, Route> routes = new HashMap<>();
+
+    public AdaptiveOcrRouter(Context context) {
+        this(new AdaptiveOcrRouterStore(context), new Random());
+    }
+
+    /** store may be null: stats then live only as long as the router. */
+    AdaptiveOcrRouter(@Nullable AdaptiveOcrRouterStore store, Random random) {
+        if (random == null) {
+            throw new IllegalArgumentException("random cannot be null");
+        }
+        this.store = store;
+        this.random = random;
+    }
+
+    /** Stats and decisions for one camera at one rotated frame size (loaded from the store once). */
+    public Route route(String cameraId, int width, int height) {
+        String key = AdaptiveOcrRouterStore.buildKey(cameraId, width, height);
+        synchronized (routes) {
+            Route route = routes.get(key);
+            if (route == null) {
+                Map<String, ArmStats> saved = store != null ? store.load(cameraId, width, height) : null;
+                route = new Route(cameraId, width, height, saved);
+                routes.put(key, route);
+            }
+            return route;
+        }
+    }
+
+    /** Persist every route now (e.g. when the scanner goes to background). */
+    public void flush() {
+        List<Route> all;
+        synchronized (routes) {
+            all = new ArrayList<>(routes.values());
+        }
+        for (Route route : all) {
+            route.save();
+        }
+    }
+
+    public final class Route {
+        private final String cameraId;
+        private final int width;
+        private final int height;
+
+        // Guarded by this
+        private final Map<String, ArmStats> arms = new HashMap<>();
+        private int unsaved;
+
+        private Route(String cameraId, int width, int height, @Nullable Map<String, ArmStats> saved) {
+            this.cameraId = cameraId;
+            this.width = width;
+            this.height = height;
+            if (saved != null) arms.putAll(saved);
+        }
+
+        /** Engine mode for the next frame. */
+        public synchronized DualOcrRunner.Mode chooseMode() {
+            DualOcrRunner.Mode best = MODES[0];
+            double bestTime = Double.MAX_VALUE;
+            for (DualOcrRunner.Mode mode : MODES) {
+                double t = sampleTimeToMrz(arm(modeArm(mode)));
+                if (t < bestTime) {
+                    bestTime = t;
+                    best = mode;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Candidates reordered by one sampled expected time each (fastest first). The sort is stable,
+         * so with no evidence the order only changes through sampling noise around the prior.
+         */
+        public synchronized List<PreprocessParams> orderCandidates(List<PreprocessParams> candidates) {
+            if (candidates == null || candidates.size() < 2) {
+                return candidates == null ? Collections.emptyList() : candidates;
+            }
+            int n = candidates.size();
+            double[] times = new double[n];
+            List<Integer> order = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                times[i] = sampleTimeToMrz(arm(paramsArm(candidates.get(i))));
+                order.add(i);
+            }
+            order.sort((a, b) -> Double.compare(times[a], times[b]));
+            List<PreprocessParams> ordered = new ArrayList<>(n);
+            for (int i : order) ordered.add(candidates.get(i));
+            return ordered;
+        }
+
+        /** Start timing one OCR run in mode. */
+        public Attempt begin(DualOcrRunner.Mode mode) {
+            return new Attempt(this, modeArm(mode));
+        }
+
+        /** Start timing one Tesseract run on a candidate. */
+        public Attempt begin(PreprocessParams params) {
+            return new Attempt(this, paramsArm(params));
+        }
+
+        synchronized Map<String, ArmStats> snapshot() {
+            Map<String, ArmStats> copy = new HashMap<>();
+            for (Map.Entry<String, ArmStats> e : arms.entrySet()) {
+                copy.put(e.getKey(), e.getValue().copy());
+            }
+            return copy;
+        }
+
+        private void record(String armId, boolean success, long latencyMs) {
+            Map<String, ArmStats> toSave = null;
+            synchronized (this) {
+                arm(armId).add(success, latencyMs);
+                if (++unsaved >= SAVE_EVERY) {
+                    unsaved = 0;
+                    toSave = snapshot();
+                }
+            }
+            if (toSave != null) persist(toSave);
+        }
+
+        private void save() {
+            Map<String, ArmStats> toSave;
+            synchronized (this) {
+                unsaved = 0;
+                toSave = snapshot();
+            }
+            persist(toSave);
+        }
+
+        private void persist(Map<String, ArmStats> stats) {
+            if (store != null) store.save(cameraId, width, height, stats);
+        }
+
+        private ArmStats arm(String armId) {
+            ArmStats stats = arms.get(armId);
+            if (stats == null) {
+                stats = new ArmStats();
+                arms.put(armId, stats);
+            }
+            return stats;
+        }
+    }
+
+    /** One timed run of an arm; the first finish() counts, later calls are ignored. */
+    public static final class Attempt {
+        private final Route route;
+        private final String armId;
+        private final long startNs = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean(false);
+
+        private Attempt(Route route, String armId) {
+            this.route = route;
+            this.armId = armId;
+        }
+
+        /** Success means a checksum-valid MRZ (confidence >= {@link DualOcrRunner#STRONG_MRZ_CONFIDENCE}). */
+        public void finish(@Nullable MrzResult mrz) {
+            if (!done.compareAndSet(false, true)) return;
+            boolean success = mrz != null && mrz.confidence >= DualOcrRunner.STRONG_MRZ_CONFIDENCE;
+            long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNs);
+            route.record(armId, success, latencyMs);
+        }
+    }
+
+    /** Discounted success/failure counts and running mean latency of one arm. */
+    static final class ArmStats {
+        double successes;
+        double failures;
+        double latencyMs;
+
+        ArmStats() {
+            this(0, 0, 0);
+        }
+
+        ArmStats(double successes, double failures, double latencyMs) {
+            if (!(successes >= 0) || !(failures >= 0) || !(latencyMs >= 0)
+                    || Double.isInfinite(successes) || Double.isInfinite(failures) || Double.isInfinite(latencyMs)) {
+                throw new IllegalArgumentException("arm stats must be finite and >= 0");
+            }
+            this.successes = successes;
+            this.failures = failures;
+            this.latencyMs = latencyMs;
+        }
+
+        void add(boolean success, long sampleMs) {
+            boolean first = successes + failures == 0;
+            latencyMs = first ? sampleMs : latencyMs + LATENCY_ALPHA * (sampleMs - latencyMs);
+            if (success) {
+                successes++;
+            } else {
+                failures++;
+            }
+            double total = successes + failures;
+            if (total > MAX_EVIDENCE) {
+                double k = MAX_EVIDENCE / total;
+                successes *= k;
+                failures *= k;
+            }
+        }
+
+        double expectedLatencyMs() {
+            return successes + failures > 0 ? latencyMs : PRIOR_LATENCY_MS;
+        }
+
+        ArmStats copy() {
+            return new ArmStats(successes, failures, latencyMs);
+        }
+    }
+
+    /** Sampled expected time to a valid MRZ: latency per run / sampled success probability. */
+    private double sampleTimeToMrz(ArmStats stats) {
+        double p = sampleBeta(random, 1 + stats.successes, 1 + stats.failures);
+        return Math.max(MIN_LATENCY_MS, stats.expectedLatencyMs()) / Math.max(MIN_SUCCESS_P, p);
+    }
+
+    static double sampleBeta(Random random, double a, double b) {
+        double x = sampleGamma(random, a);
+        double y = sampleGamma(random, b);
+        return x / (x + y);
+    }
+
+    /** Marsaglia-Tsang; shape >= 1 (posteriors here are 1 + counts). */
+    private static double sampleGamma(Random random, double shape) {
+        double d = shape - 1.0 / 3.0;
+        double c = 1.0 / Math.sqrt(9.0 * d);
+        while (true) {
+            double x;
+            double v;
+            do {
+                x = random.nextGaussian();
+                v = 1.0 + c * x;
+            } while (v <= 0);
+            v = v * v * v;
+            double u = random.nextDouble();
+            if (u < 1.0 - 0.0331 * x * x * x * x) return d * v;
+            if (Math.log(u) < 0.5 * x * x + d * (1.0 - v + Math.log(v))) return d * v;
+        }
+    }
+
+    private static String modeArm(DualOcrRunner.Mode mode) {
+        return MODE_ARM_PREFIX + mode.name();
+    }
+
+    private static String paramsArm(PreprocessParams p) {
+        return PARAMS_ARM_PREFIX + p.blockSize + "/" + p.c + "/" + p.scale + "/" + p.blurRadius;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Persists {@link AdaptiveOcrRouter} arm statistics per camera and rotated frame size, as JSON in
+ * SharedPreferences (same keying as {@link PreprocessParamStore}).
+ */
+public final class AdaptiveOcrRouterStore {
+    static final String PREF_NAME = "mrz_adaptive_router";
+    private static final String KEY_PREFIX = "router_stats";
+    private static final String FIELD_SUCCESSES = "successes";
+    private static final String FIELD_FAILURES = "failures";
+    private static final String FIELD_LATENCY_MS = "latencyMs";
+
+    private final SharedPreferences preferences;
+
+    public AdaptiveOcrRouterStore(Context context) {
+        this.preferences = context.getApplicationContext()
+                .getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    public void save(String cameraId, int width, int height, Map<String, AdaptiveOcrRouter.ArmStats> arms) {
+        if (arms == null || width <= 0 || height <= 0) {
+            return;
+        }
+        String json = toJson(arms);
+        if (json == null) {
+            return;
+        }
+        preferences.edit()
+                .putString(buildKey(cameraId, width, height), json)
+                .apply();
+    }
+
+    @Nullable
+    public Map<String, AdaptiveOcrRouter.ArmStats> load(String cameraId, int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        String json = preferences.getString(buildKey(cameraId, width, height), null);
+        if (json == null) {
+            return null;
+        }
+        return fromJson(json);
+    }
+
+    @VisibleForTesting
+    static String buildKey(String cameraId, int width, int height) {
+        String safeId = (cameraId == null || cameraId.trim().isEmpty()) ? "unknown" : cameraId.trim();
+        return KEY_PREFIX + ":" + safeId + ":" + width + "x" + height;
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static String toJson(Map<String, AdaptiveOcrRouter.ArmStats> arms) {
+        try {
+            JSONObject json = new JSONObject();
+            for (Map.Entry<String, AdaptiveOcrRouter.ArmStats> e : arms.entrySet()) {
+                AdaptiveOcrRouter.ArmStats stats = e.getValue();
+                JSONObject arm = new JSONObject();
+                arm.put(FIELD_SUCCESSES, stats.successes);
+                arm.put(FIELD_FAILURES, stats.failures);
+                arm.put(FIELD_LATENCY_MS, stats.latencyMs);
+                json.put(e.getKey(), arm);
+            }
+            return json.toString();
+        } catch (JSONException e) {
+            return null;
+        }
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static Map<String, AdaptiveOcrRouter.ArmStats> fromJson(String json) {
+        if (json == null || json.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            JSONObject obj = new JSONObject(json);
+            Map<String, AdaptiveOcrRouter.ArmStats> arms = new HashMap<>();
+            Iterator<String> keys = obj.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                JSONObject arm = obj.getJSONObject(key);
+                arms.put(key, new AdaptiveOcrRouter.ArmStats(
+                        arm.getDouble(FIELD_SUCCESSES),
+                        arm.getDouble(FIELD_FAILURES),
+                        arm.getDouble(FIELD_LATENCY_MS)));
+            }
+            return arms;
+        } catch (JSONException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -19,7 +19,7 @@ public final class AdaptiveThreshold {
 
         final int w = gray.getWidth();
         final int h = gray.getHeight();
-        final Bitmap out = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        final Bitmap out = FrameArena.createBitmap(w, h, Bitmap.Config.ARGB_8888);
 
         final int safeBlock = blockSize < 3 ? 3 : (blockSize % 2 == 0 ? blockSize + 1 : blockSize);
         final int radius = safeBlock / 2;
@@ -0,0 +1,137 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import java.util.Arrays;
+
+/**
+ * Adaptive (histogram percentile) contrast stretch for MRZ luma.
+ *
+ * Idea:
+ * - Build a sampled 256-bin histogram of the ROI.
+ * - Pick low/high percentiles (ignores specks and specular highlights).
+ * - Map [low..high] -> [0..255] through a 256-entry LUT.
+ *
+ * Unlike a fixed gain around 128, dark or washed-out captures keep their text instead of clipping.
+ * Works on a luma byte buffer in place, or fuses ARGB->luma + LUT into one scan over pixels.
+ */
+public final class ContrastStretch {
+
+    static final float LOW_PERCENTILE = 0.02f;
+    static final float HIGH_PERCENTILE = 0.98f;
+
+    // Don't blow up noise on almost-flat ROIs: the mapped span is never narrower than this
+    static final int MIN_SPAN = 48;
+
+    // Histogram sampling: aim for ~16k samples regardless of ROI size
+    private static final int TARGET_SAMPLES = 16 * 1024;
+
+    private static final ThreadLocal<int[]> HIST_POOL = ThreadLocal.withInitial(() -> new int[256]);
+    private static final ThreadLocal<byte[]> LUT_POOL = ThreadLocal.withInitial(() -> new byte[256]);
+
+    private ContrastStretch() {}
+
+    /** Stretch luma[offset .. offset+length) in place. */
+    public static void applyInPlace(byte[] luma, int offset, int length) {
+        if (luma == null || length <= 0) return;
+        int[] hist = clearedHistogram();
+        int step = sampleStep(length);
+        int end = offset + length;
+        int samples = 0;
+        for (int i = offset; i < end; i += step) {
+            hist[luma[i] & 0xFF]++;
+            samples++;
+        }
+        byte[] lut = buildLut(hist, samples);
+        for (int i = offset; i < end; i++) {
+            luma[i] = lut[luma[i] & 0xFF];
+        }
+    }
+
+    /**
+     * Convert ARGB pixels to stretched gray ARGB in place (one linear scan after the sampled histogram).
+     */
+    public static void applyToArgbInPlace(int[] argb, int length) {
+        if (argb == null || length <= 0) return;
+        int[] hist = clearedHistogram();
+        int step = sampleStep(length);
+        int samples = 0;
+        for (int i = 0; i < length; i += step) {
+            hist[lum(argb[i])]++;
+            samples++;
+        }
+        byte[] lut = buildLut(hist, samples);
+        for (int i = 0; i < length; i++) {
+            int v = lut[lum(argb[i])] & 0xFF;
+            argb[i] = 0xFF000000 | (v << 16) | (v << 8) | v;
+        }
+    }
+
+    /**
+     * Build a stretch LUT from a histogram. Returned array is pooled per thread.
+     */
+    static byte[] buildLut(int[] hist, int total) {
+        byte[] lut = LUT_POOL.get();
+        if (total <= 0) {
+            for (int i = 0; i < 256; i++) lut[i] = (byte) i;
+            return lut;
+        }
+
+        int lowCount = Math.round(total * LOW_PERCENTILE);
+        int highCount = Math.round(total * HIGH_PERCENTILE);
+
+        int lo = 0;
+        int hi = 255;
+        int acc = 0;
+        boolean loFound = false;
+        for (int v = 0; v < 256; v++) {
+            acc += hist[v];
+            if (!loFound && acc > lowCount) {
+                lo = v;
+                loFound = true;
+            }
+            if (acc >= highCount) {
+                hi = v;
+                break;
+            }
+        }
+
+        if (hi - lo < MIN_SPAN) {
+            int mid = (lo + hi) / 2;
+            lo = Math.max(0, mid - MIN_SPAN / 2);
+            hi = Math.min(255, lo + MIN_SPAN);
+            lo = Math.max(0, hi - MIN_SPAN);
+        }
+
+        int span = hi - lo;
+        for (int v = 0; v < 256; v++) {
+            int mapped;
+            if (v <= lo) {
+                mapped = 0;
+            } else if (v >= hi) {
+                mapped = 255;
+            } else {
+                mapped = ((v - lo) * 255 + span / 2) / span;
+            }
+            lut[v] = (byte) mapped;
+        }
+        return lut;
+    }
+
+    private static int[] clearedHistogram() {
+        int[] hist = HIST_POOL.get();
+        Arrays.fill(hist, 0);
+        return hist;
+    }
+
+    private static int sampleStep(int length) {
+        // odd step so samples don't lock onto even stroke/column periods
+        return Math.max(1, length / TARGET_SAMPLES) | 1;
+    }
+
+    private static int lum(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = (argb) & 0xFF;
+        // integer luma approximation
+        return (r * 77 + g * 150 + b * 29) >> 8;
+    }
+}
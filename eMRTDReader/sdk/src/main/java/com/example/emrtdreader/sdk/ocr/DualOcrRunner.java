@@ -2,28 +2,25 @@ package com.example.emrtdreader.sdk.ocr;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.os.CancellationSignal;
 
 import com.example.emrtdreader.sdk.models.MrzFormat;
+import com.example.emrtdreader.sdk.models.MrzLayout;
 import com.example.emrtdreader.sdk.models.MrzResult;
 import com.example.emrtdreader.sdk.models.OcrResult;
 
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Runs OCR (single or dual).
  *
- * IMPORTANT POLICY:
- * - MRZ must be derived ONLY from Tesseract output.
- * - ML Kit may be used for UI text feedback but never trusted for MRZ parsing.
+ * MRZ POLICY:
+ * - Tesseract output is the primary MRZ source.
+ * - ML Kit text is used for UI feedback; in AUTO_DUAL an MRZ is derived from it only when it is strong
+ *   (confidence >= {@link #STRONG_MRZ_CONFIDENCE}) and Tesseract produced none.
  *
  * Selection rules:
  * - Mode.MLKIT_ONLY: returns ML Kit OCR result, mrz=null
@@ -31,7 +28,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * - Mode.AUTO_DUAL:
  *      - run both engines in parallel
  *      - choose OCR text: prefer ML Kit if it has non-empty text, else use Tesseract
- *      - choose MRZ: from Tesseract only
+ *      - choose MRZ: Tesseract's if parsed, else a strong MRZ derived from the chosen text
+ *      - complete early as soon as either engine yields a strong MRZ (Tesseract MRZ, or MRZ derived
+ *        from ML Kit text) and cancel the other engine's pending work; otherwise wait for both or
+ *        the timeout, whichever comes first
+ *      - a caller cancel settles the run: neither engine's result nor the timeout is delivered
  */
 public final class DualOcrRunner {
 
@@ -43,12 +44,21 @@ public final class DualOcrRunner {
     }
 
     private static final long DEFAULT_DUAL_TIMEOUT_MS = 1200L;
+    // Preprocessing runs before the dual deadline starts counting
+    private static final long PREPROCESS_BUDGET_MS = 600L;
+    // Slack for delivering the timed-out result after the dual deadline
+    private static final long DELIVERY_MARGIN_MS = 400L;
 
-    private static final ExecutorService PREPROCESS_EXECUTOR =
-            Executors.newSingleThreadExecutor(new NamedThreadFactory("mrz-preprocess"));
+    /**
+     * Backstop for callers watching a {@link #runAsync} run: past the runner's own deadline (plus
+     * preprocessing and delivery), so the runner's timeout result - partial ML Kit text, or an MRZ
+     * derived from it - always gets through first. Only a run that never calls back hits it.
+     */
+    public static final long IN_FLIGHT_BACKSTOP_MS =
+            DEFAULT_DUAL_TIMEOUT_MS + PREPROCESS_BUDGET_MS + DELIVERY_MARGIN_MS;
 
-    private static final ScheduledExecutorService TIMEOUT_EXECUTOR =
-            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("mrz-ocr-timeout"));
+    /** MRZ confidence that is trusted without waiting for the other engine. */
+    static final int STRONG_MRZ_CONFIDENCE = 4;
 
     public static final class RunResult {
         public final OcrResult ocr;
@@ -69,7 +79,64 @@ public final class DualOcrRunner {
                                 Bitmap roi,
                                 int rotationDeg,
                                 RunCallback callback) {
-        runAsyncWithTimeout(ctx, mode, mlKit, tess, roi, rotationDeg, DEFAULT_DUAL_TIMEOUT_MS, callback);
+        runAsync(ctx, mode, mlKit, tess, roi, rotationDeg, null, callback);
+    }
+
+    /**
+     * Same as {@link #runAsync(Context, Mode, OcrEngine, OcrEngine, Bitmap, int, RunCallback)}, with
+     * preprocessing bitmaps allocated from the frame's arena. The runner retains the arena before
+     * returning and releases it after the callback is delivered, so the caller may close its own
+     * reference right away.
+     */
+    public static void runAsync(Context ctx,
+                                Mode mode,
+                                OcrEngine mlKit,
+                                OcrEngine tess,
+                                Bitmap roi,
+                                int rotationDeg,
+                                FrameArena arena,
+                                RunCallback callback) {
+        runAsync(ctx, mode, mlKit, tess, roi, rotationDeg, arena, null, callback);
+    }
+
+    /**
+     * Cancellable run. Canceling signal (e.g. when the caller gives up on a stuck frame) cancels both
+     * engines' work, so their workers are free for the next frame, and releases the arena; the
+     * callback is not invoked after that.
+     */
+    public static void runAsync(Context ctx,
+                                Mode mode,
+                                OcrEngine mlKit,
+                                OcrEngine tess,
+                                Bitmap roi,
+                                int rotationDeg,
+                                FrameArena arena,
+                                CancellationSignal signal,
+                                RunCallback callback) {
+        runAsyncWithTimeout(ctx, mode, mlKit, tess, roi, rotationDeg, DEFAULT_DUAL_TIMEOUT_MS, arena, signal, callback);
+    }
+
+    static void runAsyncWithTimeout(Context ctx,
+                                    Mode mode,
+                                    OcrEngine mlKit,
+                                    OcrEngine tess,
+                                    Bitmap roi,
+                                    int rotationDeg,
+                                    long dualTimeoutMs,
+                                    RunCallback callback) {
+        runAsyncWithTimeout(ctx, mode, mlKit, tess, roi, rotationDeg, dualTimeoutMs, null, callback);
+    }
+
+    static void runAsyncWithTimeout(Context ctx,
+                                    Mode mode,
+                                    OcrEngine mlKit,
+                                    OcrEngine tess,
+                                    Bitmap roi,
+                                    int rotationDeg,
+                                    long dualTimeoutMs,
+                                    FrameArena arena,
+                                    RunCallback callback) {
+        runAsyncWithTimeout(ctx, mode, mlKit, tess, roi, rotationDeg, dualTimeoutMs, arena, null, callback);
     }
 
     static void runAsyncWithTimeout(Context ctx,
@@ -79,23 +146,115 @@ public final class DualOcrRunner {
                                     Bitmap roi,
                                     int rotationDeg,
                                     long dualTimeoutMs,
+                                    FrameArena arena,
+                                    CancellationSignal signal,
                                     RunCallback callback) {
         if (callback == null) return;
+        if (signal != null && signal.isCanceled()) return;
 
         if (roi == null) {
             callback.onSuccess(new RunResult(emptyOcrResult(), null));
             return;
         }
 
+        // Runner reference: released once the callback has been delivered (or the run is canceled)
+        final FrameArena held = (arena != null && arena.retain()) ? arena : null;
+        final Delivery cb = new Delivery(callback, held);
+
+        // One signal per engine call; the caller's signal fans out to both
+        final CancellationSignal mlCancel = new CancellationSignal();
+        final CancellationSignal tessCancel = new CancellationSignal();
+        // Run-level signal: settles AUTO_DUAL (claims completion, stops its timeout) on a caller cancel
+        final CancellationSignal runCancel = new CancellationSignal();
+        // Set once the engines have their inputs; before that preprocessing may still use the arena
+        final AtomicBoolean dispatched = new AtomicBoolean(false);
+        if (signal != null) {
+            signal.setOnCancelListener(() -> {
+                cb.cancel();
+                runCancel.cancel();
+                mlCancel.cancel();
+                tessCancel.cancel();
+                if (dispatched.get()) cb.drop();
+            });
+        }
+
         CompletableFuture
-                .supplyAsync(() -> preprocessForEngines(roi), PREPROCESS_EXECUTOR)
-                .thenAccept(inputs -> runAsyncInternal(ctx, mode, mlKit, tess, inputs, rotationDeg, dualTimeoutMs, callback))
+                .supplyAsync(() -> {
+                    FrameArena prev = FrameArena.bind(held);
+                    try {
+                        return preprocessForEngines(roi, mode != Mode.MLKIT_ONLY && tess != null && tess.supportsLuma());
+                    } finally {
+                        FrameArena.bind(prev);
+                    }
+                }, OcrScheduler.get().executor(OcrScheduler.Lane.PREPROCESS))
+                .thenAccept(inputs -> {
+                    // Canceled while preprocessing: nothing to dispatch
+                    if (signal != null && signal.isCanceled()) {
+                        cb.drop();
+                        return;
+                    }
+                    // Engines that keep reading after dispatch take their own hold on the bound arena
+                    FrameArena prev = FrameArena.bind(held);
+                    try {
+                        runAsyncInternal(ctx, mode, mlKit, tess, inputs, rotationDeg, dualTimeoutMs,
+                                mlCancel, tessCancel, runCancel, cb);
+                    } finally {
+                        FrameArena.bind(prev);
+                    }
+                    dispatched.set(true);
+                    if (signal != null && signal.isCanceled()) cb.drop();
+                })
                 .exceptionally(ex -> {
-                    callback.onFailure(new IllegalStateException("OCR preprocessing failed", ex));
+                    cb.onFailure(new IllegalStateException("OCR preprocessing failed", ex));
                     return null;
                 });
     }
 
+    /**
+     * Delivers the callback at most once, then releases the runner's arena reference. After
+     * {@link #cancel()} the callback is suppressed; the reference is still released exactly once.
+     */
+    private static final class Delivery implements RunCallback {
+        private final RunCallback callback;
+        private final FrameArena held;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private volatile boolean canceled;
+
+        Delivery(RunCallback callback, FrameArena held) {
+            this.callback = callback;
+            this.held = held;
+        }
+
+        @Override
+        public void onSuccess(RunResult result) {
+            if (!done.compareAndSet(false, true)) return;
+            try {
+                if (!canceled) callback.onSuccess(result);
+            } finally {
+                if (held != null) held.release();
+            }
+        }
+
+        @Override
+        public void onFailure(Throwable error) {
+            if (!done.compareAndSet(false, true)) return;
+            try {
+                if (!canceled) callback.onFailure(error);
+            } finally {
+                if (held != null) held.release();
+            }
+        }
+
+        void cancel() {
+            canceled = true;
+        }
+
+        /** Canceled run whose inputs are no longer read by the runner: release without a callback. */
+        void drop() {
+            if (done.compareAndSet(false, true) && held != null) held.release();
+        }
+    }
+
     private static void runAsyncInternal(Context ctx,
                                          Mode mode,
                                          OcrEngine mlKit,
@@ -103,48 +262,88 @@ public final class DualOcrRunner {
                                          PreprocessResult inputs,
                                          int rotationDeg,
                                          long dualTimeoutMs,
+                                         CancellationSignal mlCancel,
+                                         CancellationSignal tessCancel,
+                                         CancellationSignal runCancel,
                                          RunCallback callback) {
         Bitmap mlInput = (inputs != null) ? inputs.mlInput : null;
         Bitmap tessInput = (inputs != null) ? inputs.tessInput : null;
+        LumaImage tessLuma = (inputs != null) ? inputs.tessLuma : null;
+        MrzLayout layout = (inputs != null) ? inputs.layout : null;
 
         if (mode == Mode.MLKIT_ONLY) {
-            runSingleAsync(ctx, mlKit, mlInput, rotationDeg, /*mrzFromTessOnly*/ false, callback);
+            runSingleAsync(ctx, mlKit, mlInput, null, rotationDeg, /*parseMrz*/ false, layout, mlCancel, callback);
             return;
         }
         if (mode == Mode.TESS_ONLY) {
-            runSingleAsync(ctx, tess, tessInput, rotationDeg, /*mrzFromTessOnly*/ true, callback);
+            runSingleAsync(ctx, tess, tessInput, tessLuma, rotationDeg, /*parseMrz*/ true, layout, tessCancel, callback);
             return;
         }
 
-        // AUTO_DUAL
-        CompletableFuture<OcrOutcome> mlFuture = runEngineAsync(ctx, mlKit, mlInput, rotationDeg, /*mrzFromTessOnly*/ false);
-        CompletableFuture<OcrOutcome> tessFuture = runEngineAsync(ctx, tess, tessInput, rotationDeg, /*mrzFromTessOnly*/ true);
+        // AUTO_DUAL: ML Kit text is parsed once here too; its MRZ only backs up Tesseract's (early
+        // completion and the fallback in finalizeAutoResult)
+        CompletableFuture<OcrOutcome> mlFuture = runEngineAsync(ctx, mlKit, mlInput, null, rotationDeg, /*parseMrz*/ true, layout, mlCancel);
+        CompletableFuture<OcrOutcome> tessFuture = runEngineAsync(ctx, tess, tessInput, tessLuma, rotationDeg, /*parseMrz*/ true, layout, tessCancel);
 
         CompletableFuture<Void> all = CompletableFuture.allOf(mlFuture, tessFuture);
         AtomicBoolean completed = new AtomicBoolean(false);
 
-        ScheduledFuture<?> timeoutFuture = TIMEOUT_EXECUTOR.schedule(() -> {
+        HashedWheelTimer.Timeout timeout = OcrScheduler.get().schedule(() -> {
             if (completed.compareAndSet(false, true)) {
-                finalizeAutoResult(mlFuture, tessFuture, callback,
-                        new TimeoutException("Dual OCR timed out"));
+                // Results arriving after the timeout are discarded: stop whatever is still queued
+                mlCancel.cancel();
+                tessCancel.cancel();
+                // Only claim on the timer thread; finalization and the callback chain run on the OCR lane
+                OcrScheduler.get().execute(OcrScheduler.Lane.OCR, OcrScheduler.PRIORITY_HIGH,
+                        () -> finalizeAutoResult(mlFuture, tessFuture, callback,
+                                new TimeoutException("Dual OCR timed out")));
             }
         }, dualTimeoutMs, TimeUnit.MILLISECONDS);
 
+        // Caller cancel: nothing is finalized, not even at the deadline
+        runCancel.setOnCancelListener(() -> {
+            if (completed.compareAndSet(false, true)) timeout.cancel();
+        });
+
+        // Speculative completion: a strong MRZ from either engine doesn't wait for the other one
+        mlFuture.thenAccept(outcome -> {
+            if (isStrongOutcome(outcome) && completed.compareAndSet(false, true)) {
+                timeout.cancel();
+                tessCancel.cancel();
+                finalizeAutoResult(mlFuture, tessFuture, callback, null);
+            }
+        });
+        tessFuture.thenAccept(outcome -> {
+            if (isStrongOutcome(outcome) && completed.compareAndSet(false, true)) {
+                timeout.cancel();
+                mlCancel.cancel();
+                finalizeAutoResult(mlFuture, tessFuture, callback, null);
+            }
+        });
+
         all.whenComplete((ignored, ex) -> {
             if (completed.compareAndSet(false, true)) {
-                timeoutFuture.cancel(false);
+                timeout.cancel();
                 finalizeAutoResult(mlFuture, tessFuture, callback, ex);
             }
         });
     }
 
+    /** Same rule as the ML Kit text fallback in {@link #finalizeAutoResult}. */
+    private static boolean isStrongOutcome(OcrOutcome outcome) {
+        return outcome != null && outcome.mrz != null && outcome.mrz.confidence >= STRONG_MRZ_CONFIDENCE;
+    }
+
     private static void runSingleAsync(Context ctx,
                                        OcrEngine engine,
                                        Bitmap input,
+                                       LumaImage lumaInput,
                                        int rotationDeg,
-                                       boolean mrzFromTessOnly,
+                                       boolean parseMrz,
+                                       MrzLayout layout,
+                                       CancellationSignal signal,
                                        RunCallback callback) {
-        runEngineAsync(ctx, engine, input, rotationDeg, mrzFromTessOnly).whenComplete((outcome, ex) -> {
+        runEngineAsync(ctx, engine, input, lumaInput, rotationDeg, parseMrz, layout, signal).whenComplete((outcome, ex) -> {
             if (ex != null) {
                 callback.onFailure(ex);
                 return;
@@ -190,13 +389,10 @@ public final class DualOcrRunner {
         }
 
         if (chosenOcr != null) {
-            // Pragmatic fallback: if Tesseract didn't yield MRZ, try deriving MRZ from
-            // the chosen OCR text (typically ML Kit) and accept it only if it's strong.
-            if (mrz == null && !isBlank(chosenOcr.rawText)) {
-                MrzResult fromText = MrzTextProcessor.normalizeAndRepair(chosenOcr.rawText);
-                if (fromText != null && fromText.confidence >= 4) {
-                    mrz = fromText;
-                }
+            // Pragmatic fallback: if Tesseract didn't yield MRZ, take the MRZ already derived from
+            // the ML Kit text, only if it's strong. (Tesseract's own text was parsed into its MRZ.)
+            if (mrz == null && mlOutcome != null && chosenOcr == mlOutcome.ocr && isStrongOutcome(mlOutcome)) {
+                mrz = mlOutcome.mrz;
             }
             callback.onSuccess(new RunResult(chosenOcr, mrz));
             return;
@@ -219,8 +415,11 @@ public final class DualOcrRunner {
     private static CompletableFuture<OcrOutcome> runEngineAsync(Context ctx,
                                                                 OcrEngine engine,
                                                                 Bitmap input,
+                                                                LumaImage lumaInput,
                                                                 int rotationDeg,
-                                                                boolean mrzFromTessOnly) {
+                                                                boolean parseMrz,
+                                                                MrzLayout layout,
+                                                                CancellationSignal signal) {
         CompletableFuture<OcrOutcome> future = new CompletableFuture<>();
 
         if (engine == null) {
@@ -229,14 +428,14 @@ public final class DualOcrRunner {
         }
 
         try {
-            engine.recognizeAsync(ctx, input, rotationDeg, new OcrEngine.Callback() {
+            OcrEngine.Callback engineCb = new OcrEngine.Callback() {
                 @Override
                 public void onSuccess(OcrResult result) {
-                    // MRZ parse policy: ONLY when caller explicitly wants MRZ (tesseract path)
+                    // MRZ parse policy: only when the caller wants it (never for ML Kit-only runs)
                     MrzResult mrz = null;
-                    if (mrzFromTessOnly) {
+                    if (parseMrz) {
                         String raw = (result != null) ? result.rawText : "";
-                        mrz = MrzTextProcessor.normalizeAndRepair(raw);
+                        mrz = MrzTextProcessor.normalizeAndRepair(raw, layout);
                     }
                     future.complete(new OcrOutcome(result, mrz, null));
                 }
@@ -245,7 +444,12 @@ public final class DualOcrRunner {
                 public void onFailure(Throwable error) {
                     future.complete(new OcrOutcome(null, null, error));
                 }
-            });
+            };
+            if (lumaInput != null) {
+                engine.recognizeLumaAsync(ctx, lumaInput, MrzLumaPreprocessor.lineStrips(lumaInput), signal, engineCb);
+            } else {
+                engine.recognizeAsync(ctx, input, rotationDeg, signal, engineCb);
+            }
         } catch (Throwable e) {
             future.complete(new OcrOutcome(null, null, e));
         }
@@ -253,14 +457,21 @@ public final class DualOcrRunner {
         return future;
     }
 
-    private static PreprocessResult preprocessForEngines(Bitmap roi) {
+    private static PreprocessResult preprocessForEngines(Bitmap roi, boolean tessLuma) {
+        // Line count / character pitch: restricts MRZ parsing to formats the band can hold
+        MrzLayout layout = MrzLayoutEstimator.estimate(roi);
+
         // ML Kit: non-binary
         Bitmap ml = MrzPreprocessor.preprocessForMl(roi);
 
-        // Tesseract: binary + scaled via default candidate
+        // Tesseract: binary + scaled via default candidate; luma-capable engines get no bitmap
+        if (tessLuma) {
+            LumaImage luma = MrzLumaPreprocessor.preprocessForTesseract(roi, PreprocessParamSet.getDefault());
+            return new PreprocessResult(ml, null, luma, layout);
+        }
         Bitmap tess = MrzPreprocessor.preprocessForTesseract(roi);
 
-        return new PreprocessResult(ml, tess);
+        return new PreprocessResult(ml, tess, null, layout);
     }
 
     /**
@@ -305,26 +516,14 @@ public final class DualOcrRunner {
     private static final class PreprocessResult {
         private final Bitmap mlInput;
         private final Bitmap tessInput;
+        private final LumaImage tessLuma;
+        private final MrzLayout layout;
 
-        private PreprocessResult(Bitmap mlInput, Bitmap tessInput) {
+        private PreprocessResult(Bitmap mlInput, Bitmap tessInput, LumaImage tessLuma, MrzLayout layout) {
             this.mlInput = mlInput;
             this.tessInput = tessInput;
-        }
-    }
-
-    private static final class NamedThreadFactory implements ThreadFactory {
-        private final String baseName;
-        private final AtomicInteger counter = new AtomicInteger(1);
-
-        private NamedThreadFactory(String baseName) {
-            this.baseName = baseName;
-        }
-
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, baseName + "-" + counter.getAndIncrement());
-            t.setDaemon(true);
-            return t;
+            this.tessLuma = tessLuma;
+            this.layout = layout;
         }
     }
 }
@@ -0,0 +1,199 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Frame-scoped owner of the bitmaps created while one camera frame travels through the pipeline.
+ *
+ * Idea:
+ * - Every stage (frame conversion, rotation, ROI crop, rectification, preprocessing) registers the
+ *   bitmaps it creates with the frame's arena instead of leaving them to GC.
+ * - The arena is reference counted: the analyzer owns one ref, DualOcrRunner holds one until its
+ *   callback is delivered, and engines hold one while they are still reading their input.
+ * - When the last ref goes away all registered bitmaps are recycled at once.
+ *
+ * Stages that don't take an arena parameter (MrzPreprocessor, MrzScalePlanner, ...) allocate through
+ * {@link #createBitmap(int, int, Bitmap.Config)}, which registers with the arena bound to the current
+ * thread (plain allocation when none is bound).
+ *
+ * Debug: with {@link #setLeakReporting(boolean)} enabled, open arenas are tracked and
+ * {@link #reportLeaks(long)} logs the ones that outlived the given age.
+ */
+public final class FrameArena {
+
+    private static final String TAG = "FrameArena";
+
+    // Typical frame: ~10 bitmaps (frame, copy, rotation, crop, rectified, ML + 3-4 Tesseract stages)
+    private static final int INITIAL_CAPACITY = 12;
+
+    private static final ThreadLocal<FrameArena> CURRENT = new ThreadLocal<>();
+
+    private static volatile boolean leakReporting = false;
+    private static final Set<FrameArena> OPEN = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private final String tag;
+    private final long openedAtMs;
+    private final ArrayList<Bitmap> owned = new ArrayList<>(INITIAL_CAPACITY);
+    private final AtomicInteger refs = new AtomicInteger(1);
+    private final AtomicInteger ownerRef = new AtomicInteger(1);
+    private boolean released;
+
+    private FrameArena(String tag) {
+        this.tag = (tag == null || tag.isEmpty()) ? "frame" : tag;
+        this.openedAtMs = System.currentTimeMillis();
+    }
+
+    /** Open a new arena; the caller owns one reference and must {@link #close()} it. */
+    public static FrameArena open(String tag) {
+        FrameArena arena = new FrameArena(tag);
+        if (leakReporting) OPEN.add(arena);
+        return arena;
+    }
+
+    /**
+     * Register a bitmap with this arena. Returns the same bitmap. Registering the same instance twice
+     * is a no-op. If the arena is already released the bitmap is returned untracked.
+     */
+    public synchronized Bitmap track(Bitmap bitmap) {
+        if (bitmap == null || released) return bitmap;
+        for (int i = 0; i < owned.size(); i++) {
+            if (owned.get(i) == bitmap) return bitmap;
+        }
+        owned.add(bitmap);
+        return bitmap;
+    }
+
+    /** Take an extra reference. Returns false if the arena has already been released. */
+    public boolean retain() {
+        while (true) {
+            int n = refs.get();
+            if (n <= 0) return false;
+            if (refs.compareAndSet(n, n + 1)) return true;
+        }
+    }
+
+    /** Drop a reference taken with {@link #retain()}. */
+    public void release() {
+        int n = refs.decrementAndGet();
+        if (n == 0) {
+            recycleAll();
+        } else if (n < 0) {
+            refs.set(0);
+            Log.w(TAG, "Arena " + tag + " released more times than retained");
+        }
+    }
+
+    /** Drop the owner's reference (idempotent). */
+    public void close() {
+        if (ownerRef.compareAndSet(1, 0)) {
+            release();
+        }
+    }
+
+    public synchronized boolean isReleased() {
+        return released;
+    }
+
+    public synchronized int size() {
+        return owned.size();
+    }
+
+    private void recycleAll() {
+        synchronized (this) {
+            if (released) return;
+            // Recycle before isReleased() can report true: a released arena owns no live bitmaps
+            for (Bitmap b : owned) {
+                try {
+                    if (!b.isRecycled()) b.recycle();
+                } catch (Throwable ignored) {}
+            }
+            owned.clear();
+            released = true;
+        }
+        OPEN.remove(this);
+    }
+
+    // ---- thread binding ----
+
+    /**
+     * Bind arena to the calling thread and return the previously bound one, which must be restored
+     * with another bind() call (try/finally).
+     */
+    public static FrameArena bind(FrameArena arena) {
+        FrameArena prev = CURRENT.get();
+        if (arena == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(arena);
+        }
+        return prev;
+    }
+
+    public static FrameArena current() {
+        return CURRENT.get();
+    }
+
+    /** Register bitmap with the arena bound to this thread, if any. */
+    public static Bitmap trackCurrent(Bitmap bitmap) {
+        FrameArena arena = CURRENT.get();
+        return arena != null ? arena.track(bitmap) : bitmap;
+    }
+
+    /** Allocate a bitmap owned by the arena bound to this thread (plain allocation if none). */
+    public static Bitmap createBitmap(int width, int height, Bitmap.Config config) {
+        return trackCurrent(Bitmap.createBitmap(width, height, config));
+    }
+
+    /**
+     * Retain the arena bound to this thread for an engine that keeps reading its input after
+     * recognizeAsync() returns. Returns null when no arena is bound (nothing to release later).
+     */
+    public static FrameArena holdCurrent() {
+        FrameArena arena = CURRENT.get();
+        return (arena != null && arena.retain()) ? arena : null;
+    }
+
+    /** Release a hold obtained from {@link #holdCurrent()}; null-safe. */
+    public static void releaseHold(FrameArena hold) {
+        if (hold != null) hold.release();
+    }
+
+    // ---- debug leak reporting ----
+
+    public static void setLeakReporting(boolean enabled) {
+        leakReporting = enabled;
+        if (!enabled) OPEN.clear();
+    }
+
+    public static boolean isLeakReporting() {
+        return leakReporting;
+    }
+
+    /**
+     * Log arenas that are still open after maxAgeMs and return their count.
+     * Only arenas opened while leak reporting was enabled are considered.
+     */
+    public static int reportLeaks(long maxAgeMs) {
+        if (!leakReporting) return 0;
+        long now = System.currentTimeMillis();
+        int leaks = 0;
+        for (FrameArena arena : OPEN) {
+            long age = now - arena.openedAtMs;
+            if (age <= maxAgeMs) continue;
+            leaks++;
+            Log.w(TAG, "LEAK arena=" + arena.tag
+                    + " ageMs=" + age
+                    + " refs=" + arena.refs.get()
+                    + " ownerOpen=" + (arena.ownerRef.get() == 1)
+                    + " bitmaps=" + arena.size());
+        }
+        return leaks;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coarse timer for pipeline deadlines (OCR timeouts, in-flight watchdogs).
+ *
+ * Idea:
+ * - Deadlines hash into a ring of buckets by tick ({@code tickMs} each); one worker thread visits a
+ *   bucket per tick and fires the entries that are due. Entries more than one turn away stay in the
+ *   bucket until a later turn.
+ * - Each bucket is an intrusive doubly linked list with its own lock, so schedule and cancel are O(1)
+ *   and allocate nothing beyond the {@link Timeout} itself; the worker unlinks due entries into a
+ *   chain through the same links.
+ * - Almost every OCR deadline is canceled long before it fires: that costs one CAS plus an unlink,
+ *   instead of a heap removal in a ScheduledThreadPoolExecutor's delay queue.
+ * - Deadlines fire up to one tick late, never early. Tasks run on the worker thread and must be short.
+ * - The worker starts on the first schedule and exits after {@code idleMs} without pending entries.
+ *
+ * Thread-safe.
+ */
+public final class HashedWheelTimer {
+
+    private static final String TAG = "HashedWheelTimer";
+
+    private final String threadName;
+    private final long tickNs;
+    private final long idleNs;
+    private final Bucket[] wheel;
+    private final int mask;
+    // All ticks count from here
+    private final long startNs = System.nanoTime();
+
+    // Live (scheduled, not yet fired or canceled) entries
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong fired = new AtomicLong();
+    // Last tick whose bucket the worker has visited; written under that bucket's lock
+    private volatile long processedTick;
+
+    private final Object lifecycle = new Object();
+    // Guarded by lifecycle
+    private boolean running;
+    private int workers;
+
+    /**
+     * @param tickMs    timer resolution
+     * @param wheelSize buckets per turn (rounded up to a power of two); size it so one turn covers
+     *                  the usual deadline
+     * @param idleMs    worker thread lifetime without pending entries
+     */
+    public HashedWheelTimer(String threadName, long tickMs, int wheelSize, long idleMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs must be > 0");
+        }
+        if (wheelSize < 1 || wheelSize > (1 << 20)) {
+            throw new IllegalArgumentException("wheelSize must be in [1, 2^20]");
+        }
+        if (idleMs < 0) {
+            throw new IllegalArgumentException("idleMs must be >= 0");
+        }
+        this.threadName = threadName;
+        this.tickNs = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.idleNs = TimeUnit.MILLISECONDS.toNanos(idleMs);
+        int size = Integer.highestOneBit(wheelSize);
+        if (size < wheelSize) size <<= 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) wheel[i] = new Bucket();
+        this.mask = size - 1;
+        this.processedTick = -1;
+    }
+
+    /** Run task once, no earlier than delay from now. */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new IllegalArgumentException("task cannot be null");
+        }
+        if (unit == null) {
+            throw new IllegalArgumentException("unit cannot be null");
+        }
+        long deadlineNs = System.nanoTime() + Math.max(0L, unit.toNanos(delay));
+        Timeout timeout = new Timeout(this, task, deadlineNs);
+        pending.incrementAndGet();
+        // Tick containing the deadline: its bucket is visited once that tick has ended, i.e. after
+        // the deadline and less than one tick past it (the worker's deadline check rules out early)
+        long tick = Math.max(0L, (deadlineNs - startNs) / tickNs);
+        while (true) {
+            long target = Math.max(tick, processedTick + 1);
+            Bucket bucket = wheel[(int) (target & mask)];
+            synchronized (bucket) {
+                // The worker may have visited target between the read above and the lock
+                if (target > processedTick) {
+                    bucket.add(timeout);
+                    break;
+                }
+            }
+        }
+        ensureWorker();
+        return timeout;
+    }
+
+    /** Scheduled entries that have neither fired nor been canceled. */
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    /** Tasks that have run so far. */
+    public long firedCount() {
+        return fired.get();
+    }
+
+    private void ensureWorker() {
+        synchronized (lifecycle) {
+            if (running) return;
+            running = true;
+            Thread t = new Thread(this::runWorker, threadName + "-" + (++workers));
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private void runWorker() {
+        long idleSinceNs = System.nanoTime();
+        while (true) {
+            long tick = processedTick + 1;
+            long tickEndNs = startNs + (tick + 1) * tickNs;
+            long now = System.nanoTime();
+            if (now < tickEndNs) {
+                if (pending.get() == 0) {
+                    if (now - idleSinceNs >= idleNs && tryStop()) return;
+                } else {
+                    idleSinceNs = now;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(tickEndNs - now);
+                } catch (InterruptedException e) {
+                    // Daemon worker: only stops when idle
+                }
+                continue;
+            }
+            Timeout due = expire(wheel[(int) (tick & mask)], tick, now);
+            while (due != null) {
+                Timeout next = due.next;
+                due.next = null;
+                due.fire();
+                due = next;
+            }
+        }
+    }
+
+    /** Unlinks the entries of bucket that are due at now and marks tick visited; returns them as a chain. */
+    private Timeout expire(Bucket bucket, long tick, long now) {
+        Timeout chain = null;
+        synchronized (bucket) {
+            Timeout t = bucket.head;
+            while (t != null) {
+                Timeout next = t.next;
+                if (t.deadlineNs <= now) {
+                    bucket.remove(t);
+                    pending.decrementAndGet();
+                    t.next = chain;
+                    chain = t;
+                }
+                t = next;
+            }
+            processedTick = tick;
+        }
+        return chain;
+    }
+
+    private boolean tryStop() {
+        synchronized (lifecycle) {
+            // A schedule() between the pending check and here keeps this worker alive
+            if (pending.get() != 0) return false;
+            running = false;
+            return true;
+        }
+    }
+
+    /** Handle of one scheduled task. */
+    public static final class Timeout {
+        private static final int ST_PENDING = 0;
+        private static final int ST_CANCELED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final HashedWheelTimer timer;
+        private final Runnable task;
+        private final long deadlineNs;
+        private volatile int state = ST_PENDING;
+
+        // Guarded by the lock of bucket
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(HashedWheelTimer timer, Runnable task, long deadlineNs) {
+            this.timer = timer;
+            this.task = task;
+            this.deadlineNs = deadlineNs;
+        }
+
+        /** @return true if this call stopped the task from running */
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, ST_PENDING, ST_CANCELED)) return false;
+            Bucket b = bucket;
+            if (b != null) {
+                synchronized (b) {
+                    // Still linked (the worker hasn't taken it): free the slot now
+                    if (bucket == b) {
+                        b.remove(this);
+                        timer.pending.decrementAndGet();
+                    }
+                }
+            }
+            return true;
+        }
+
+        public boolean isCanceled() {
+            return state == ST_CANCELED;
+        }
+
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        private void fire() {
+            if (!STATE.compareAndSet(this, ST_PENDING, ST_EXPIRED)) return;
+            timer.fired.incrementAndGet();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                // One failing task must not stop the wheel
+                Log.e(TAG, "Timer task failed", t);
+            }
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout t) {
+            t.bucket = this;
+            t.prev = tail;
+            t.next = null;
+            if (tail == null) {
+                head = t;
+            } else {
+                tail.next = t;
+            }
+            tail = t;
+        }
+
+        void remove(Timeout t) {
+            if (t.prev == null) {
+                head = t.next;
+            } else {
+                t.prev.next = t.next;
+            }
+            if (t.next == null) {
+                tail = t.prev;
+            } else {
+                t.next.prev = t.prev;
+            }
+            t.bucket = null;
+            t.prev = null;
+            t.next = null;
+        }
+    }
+}
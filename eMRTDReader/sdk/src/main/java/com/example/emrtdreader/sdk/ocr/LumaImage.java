@@ -0,0 +1,35 @@
+package com.example.emrtdreader.sdk.ocr;
+
+/**
+ * Single-channel 8-bit image (one byte per pixel, rows {@code stride} bytes apart), as handed to
+ * Tesseract via {@code setImage(byte[], w, h, 1, stride)}.
+ *
+ * The buffer is owned by the image once constructed: producers allocate it per call and don't reuse
+ * it, because the engine reads it on its own worker after recognizeAsync returns.
+ */
+public final class LumaImage {
+    public final byte[] data;
+    public final int width;
+    public final int height;
+    public final int stride;
+
+    public LumaImage(byte[] data, int width, int height, int stride) {
+        if (data == null) {
+            throw new IllegalArgumentException("data cannot be null");
+        }
+        if (width <= 0 || height <= 0 || stride < width) {
+            throw new IllegalArgumentException("invalid luma geometry " + width + "x" + height + " stride " + stride);
+        }
+        if ((long) stride * (height - 1) + width > data.length) {
+            throw new IllegalArgumentException("data too short for " + width + "x" + height + " stride " + stride);
+        }
+        this.data = data;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+    }
+
+    public LumaImage(byte[] data, int width, int height) {
+        this(data, width, height, width);
+    }
+}
@@ -2,22 +2,22 @@ package com.example.emrtdreader.sdk.ocr;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.os.CancellationSignal;
 
 import com.example.emrtdreader.sdk.models.OcrMetrics;
 import com.example.emrtdreader.sdk.models.OcrResult;
+import com.google.android.gms.tasks.Task;
 import com.google.mlkit.vision.common.InputImage;
+import com.google.mlkit.vision.text.Text;
 import com.google.mlkit.vision.text.TextRecognition;
 import com.google.mlkit.vision.text.latin.TextRecognizerOptions;
 
 import java.util.concurrent.CancellationException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public final class MlKitOcrEngine implements OcrEngine {
 
@@ -25,9 +25,8 @@ public final class MlKitOcrEngine implements OcrEngine {
             TextRecognition.getClient(TextRecognizerOptions.DEFAULT_OPTIONS);
 
     private static final long OCR_TIMEOUT_MS = 1200;
-
-    private static final ScheduledExecutorService TIMEOUT_EXECUTOR =
-            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("mlkit-ocr-timeout"));
+    // Blank image used to load the recognizer model before the first frame
+    private static final int WARM_UP_SIZE_PX = 32;
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -37,6 +36,17 @@ public final class MlKitOcrEngine implements OcrEngine {
 
     @Override
     public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees, Callback callback) {
+        recognizeAsync(ctx, bitmap, rotationDegrees, null, callback);
+    }
+
+    /**
+     * ML Kit's process() task can't be aborted, so cancellation settles the call at once (timeout
+     * disarmed, callback not invoked) and the task's late result is dropped. The frame hold stays
+     * until the task completes, since ML Kit may still be reading the bitmap.
+     */
+    @Override
+    public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees,
+                               CancellationSignal signal, Callback callback) {
         if (callback == null) return;
 
         if (closed.get()) {
@@ -47,6 +57,7 @@ public final class MlKitOcrEngine implements OcrEngine {
             callback.onFailure(new IllegalArgumentException("Bitmap is null"));
             return;
         }
+        if (signal != null && signal.isCanceled()) return;
 
         long t0 = System.currentTimeMillis();
         OcrMetrics metrics = OcrQuality.compute(bitmap);
@@ -61,18 +72,44 @@ public final class MlKitOcrEngine implements OcrEngine {
 
         AtomicBoolean finished = new AtomicBoolean(false);
 
-        ScheduledFuture<?> timeoutFuture = TIMEOUT_EXECUTOR.schedule(() -> {
+        // ML Kit keeps reading the bitmap until its task completes, which may be after our timeout
+        FrameArena hold = FrameArena.holdCurrent();
+
+        HashedWheelTimer.Timeout timeout = OcrScheduler.get().schedule(() -> {
             if (closed.get()) return;
             if (finished.compareAndSet(false, true)) {
-                callback.onFailure(new TimeoutException("ML Kit OCR timed out"));
+                // Deliver like the task listeners, off the timer thread
+                listenerExecutor().execute(
+                        () -> callback.onFailure(new TimeoutException("ML Kit OCR timed out")));
             }
         }, OCR_TIMEOUT_MS, TimeUnit.MILLISECONDS);
 
-        recognizer.process(img)
-                .addOnSuccessListener(text -> {
+        if (signal != null) {
+            signal.setOnCancelListener(() -> {
+                if (finished.compareAndSet(false, true)) timeout.cancel();
+            });
+        }
+
+        // Listeners default to the main thread; keep the result (and everything the callback chains
+        // onto it: DualOcrRunner finalization, MRZ parsing, analyzer state) off the UI
+        Executor listeners = listenerExecutor();
+        Task<Text> recognition;
+        try {
+            recognition = recognizer.process(img);
+        } catch (Throwable e) {
+            // No task, so no listener will release the hold or settle the call
+            FrameArena.releaseHold(hold);
+            if (finished.compareAndSet(false, true)) {
+                timeout.cancel();
+                callback.onFailure(new IllegalStateException("ML Kit OCR failed: process", e));
+            }
+            return;
+        }
+        recognition
+                .addOnSuccessListener(listeners, text -> {
                     if (closed.get()) return;
                     if (!finished.compareAndSet(false, true)) return;
-                    timeoutFuture.cancel(false);
+                    timeout.cancel();
 
                     long dt = System.currentTimeMillis() - t0;
                     callback.onSuccess(new OcrResult(
@@ -82,18 +119,53 @@ public final class MlKitOcrEngine implements OcrEngine {
                             OcrResult.Engine.ML_KIT
                     ));
                 })
-                .addOnFailureListener(e -> {
+                .addOnFailureListener(listeners, e -> {
                     if (closed.get()) return;
                     if (!finished.compareAndSet(false, true)) return;
-                    timeoutFuture.cancel(false);
+                    timeout.cancel();
                     callback.onFailure(new IllegalStateException("ML Kit OCR failed", e));
                 })
-                .addOnCanceledListener(() -> {
+                .addOnCanceledListener(listeners, () -> {
                     if (closed.get()) return;
                     if (!finished.compareAndSet(false, true)) return;
-                    timeoutFuture.cancel(false);
+                    timeout.cancel();
                     callback.onFailure(new CancellationException("ML Kit OCR canceled"));
-                });
+                })
+                .addOnCompleteListener(listeners, task -> FrameArena.releaseHold(hold));
+    }
+
+    /** Runs one recognition on a small blank image so the model is loaded before scanning. */
+    @Override
+    public CompletableFuture<Void> warmUp(Context ctx) {
+        CompletableFuture<Void> ready = new CompletableFuture<>();
+        if (closed.get()) {
+            ready.completeExceptionally(new IllegalStateException("ML Kit engine is closed"));
+            return ready;
+        }
+        try {
+            Bitmap blank = Bitmap.createBitmap(WARM_UP_SIZE_PX, WARM_UP_SIZE_PX, Bitmap.Config.ARGB_8888);
+            recognizer.process(InputImage.fromBitmap(blank, 0))
+                    .addOnCompleteListener(listenerExecutor(), task -> {
+                        blank.recycle();
+                        if (task.isSuccessful()) {
+                            ready.complete(null);
+                        } else {
+                            Exception e = task.getException();
+                            ready.completeExceptionally(e != null ? e : new CancellationException("ML Kit warm-up canceled"));
+                        }
+                    });
+        } catch (Throwable e) {
+            ready.completeExceptionally(e);
+        }
+        return ready;
+    }
+
+    /**
+     * ML Kit task continuations run on the OCR lane at high priority: a finished recognition is
+     * delivered ahead of queued orchestration work.
+     */
+    private static Executor listenerExecutor() {
+        return OcrScheduler.get().executor(OcrScheduler.Lane.OCR, OcrScheduler.PRIORITY_HIGH);
     }
 
     @Override
@@ -103,20 +175,4 @@ public final class MlKitOcrEngine implements OcrEngine {
             recognizer.close();
         } catch (Throwable ignored) {}
     }
-
-    private static final class NamedThreadFactory implements ThreadFactory {
-        private final String baseName;
-        private final AtomicInteger counter = new AtomicInteger(1);
-
-        private NamedThreadFactory(String baseName) {
-            this.baseName = baseName;
-        }
-
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, baseName + "-" + counter.getAndIncrement());
-            t.setDaemon(true);
-            return t;
-        }
-    }
 }
@@ -3,14 +3,28 @@ package com.example.emrtdreader.sdk.ocr;
 import android.graphics.Bitmap;
 import android.graphics.Rect;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Deterministic MRZ band detector (no ML).
  *
  * Idea:
  * - MRZ region produces high horizontal edge energy per row (many vertical strokes).
- * - We compute per-row gradient energy on a downscaled frame.
- * - Find the strongest contiguous band of rows near the bottom of the image.
- * - Refine left/right bounds by column energy inside the band.
+ * - We compute per-row gradient energy on a downscaled frame in one row-major pass: luma is
+ *   computed once per pixel and |dL/dx| is kept in a byte plane for the column refinement.
+ * - Find contiguous bands of rows above threshold near the bottom of the image.
+ * - Refine left/right bounds by column energy inside each band (summed row by row from the plane,
+ *   no strided column walks), and drop bands whose column energy lacks MRZ character pitch
+ *   ({@link MrzPitchCheck}) before they cost an OCR pass.
+ * - Rank bands by integrated energy x aspect prior x position prior; callers may try the runner-up
+ *   when OCR of the top band finds no MRZ.
+ *
+ * Search-window mode: when a window is given (expanded around the last stable rect), only that
+ * region is converted and scanned, so cost scales with the document size rather than the frame.
+ * Band size/position limits stay relative to the full frame in both modes.
  *
  * Output Rect is in ORIGINAL bitmap coordinates.
  */
@@ -34,44 +48,99 @@ public final class MrzAutoDetector {
     // Thresholding: choose band based on percentile of energies
     private static final float ENERGY_THRESH_RATIO = 0.55f; // relative to max in search zone
 
+    // Candidate ranking
+    public static final int MAX_BANDS = 3;
+    private static final int MAX_EVALUATED_RUNS = 6;
+    private static final float PREFERRED_ASPECT_MIN = 4.0f;  // TD1 (3 lines) with padding
+    private static final float PREFERRED_ASPECT_MAX = 12.0f; // TD3 (2 long lines) with padding
+    private static final float MIN_PRIOR = 0.5f;
+
+    // Per-thread scratch: ARGB rows from the bitmap and the |dL/dx| plane
+    private static final ThreadLocal<int[]> PIXEL_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<byte[]> GRAD_POOL = new ThreadLocal<>();
+
+    /** Scored MRZ band candidate (original coordinates). */
+    public static final class Band {
+        public final Rect rect;
+        public final float score;
+        public final float energy;        // integrated row energy relative to the strongest run
+        public final float aspectPrior;
+        public final float positionPrior;
+
+        Band(Rect rect, float score, float energy, float aspectPrior, float positionPrior) {
+            this.rect = rect;
+            this.score = score;
+            this.energy = energy;
+            this.aspectPrior = aspectPrior;
+            this.positionPrior = positionPrior;
+        }
+    }
+
     private MrzAutoDetector() {}
 
     public static Rect detect(Bitmap src) {
-        if (src == null) return null;
-        final int ow = src.getWidth();
-        final int oh = src.getHeight();
-        if (ow < 200 || oh < 200) return null;
+        return detect(src, null);
+    }
 
-        // Downscale for speed (keep aspect)
-        final float scale = ow > TARGET_W ? (TARGET_W / (float) ow) : 1.0f;
-        final int w = Math.max(1, Math.round(ow * scale));
-        final int h = Math.max(1, Math.round(oh * scale));
+    /**
+     * @param window region to scan (original coordinates), or null for a full-frame scan
+     * @return best-ranked band, or null if no band passes the MRZ shape/position limits
+     */
+    public static Rect detect(Bitmap src, Rect window) {
+        List<Band> bands = detectBands(src, window);
+        return bands.isEmpty() ? null : bands.get(0).rect;
+    }
 
-        Bitmap bm = (scale < 1.0f)
-                ? Bitmap.createScaledBitmap(src, w, h, false)
+    /**
+     * Ranked MRZ band candidates (best first, at most {@value #MAX_BANDS}).
+     *
+     * @param window region to scan (original coordinates), or null for a full-frame scan
+     */
+    public static List<Band> detectBands(Bitmap src, Rect window) {
+        if (src == null) return Collections.emptyList();
+        final int ow = src.getWidth();
+        final int oh = src.getHeight();
+        if (ow < 200 || oh < 200) return Collections.emptyList();
+
+        // Region to scan: whole frame, or the search window clipped to it
+        final boolean windowed = window != null;
+        final int rx = windowed ? clamp(window.left, 0, ow - 1) : 0;
+        final int ry = windowed ? clamp(window.top, 0, oh - 1) : 0;
+        final int rw = windowed ? clamp(window.right, rx + 1, ow) - rx : ow;
+        final int rh = windowed ? clamp(window.bottom, ry + 1, oh) - ry : oh;
+
+        // Downscale for speed (keep aspect); scale is chosen from the region width
+        final float scale = rw > TARGET_W ? (TARGET_W / (float) rw) : 1.0f;
+        final int w = Math.max(1, Math.round(rw * scale));
+        final int h = Math.max(1, Math.round(rh * scale));
+
+        Bitmap region = windowed
+                ? FrameArena.trackCurrent(Bitmap.createBitmap(src, rx, ry, rw, rh))
                 : src;
-
-        final int[] px = new int[w * h];
-        bm.getPixels(px, 0, w, 0, 0, w, h);
-
-        // Search zone in downscaled coords
-        final int y0 = clamp(Math.round(h * SEARCH_BOTTOM_START_RATIO), 0, h - 1);
-        final int y1 = clamp(Math.round(h * SEARCH_BOTTOM_END_RATIO), 0, h);
-        if (y1 - y0 < 20) return null;
-
-        // Compute row edge energy: sum |lum(x)-lum(x-1)| across row
+        Bitmap bm = (scale < 1.0f)
+                ? FrameArena.trackCurrent(Bitmap.createScaledBitmap(region, w, h, false))
+                : region;
+
+        // Frame size in downscaled units: band limits are relative to the full frame
+        final float fw = ow * scale;
+        final float fh = oh * scale;
+
+        // Search zone in downscaled coords (the whole window in windowed mode)
+        final int y0 = windowed ? 0 : clamp(Math.round(h * SEARCH_BOTTOM_START_RATIO), 0, h - 1);
+        final int y1 = windowed ? h : clamp(Math.round(h * SEARCH_BOTTOM_END_RATIO), 0, h);
+        if (y1 - y0 < 20) return Collections.emptyList();
+
+        // Only rows a band can reach (search zone + expansion) are read and converted
+        final int fromRow = Math.max(0, y0 - ROW_EXPAND_PX);
+        final int toRow = Math.min(h, y1 + ROW_EXPAND_PX);
+        final int rows = toRow - fromRow;
+        final int[] px = borrowPixels(w * rows);
+        bm.getPixels(px, 0, w, 0, fromRow, w, rows);
+
+        // Fused pass: luma once per pixel -> |dL/dx| plane + row edge energy
+        final byte[] grad = borrowGrad(w * rows);
         final float[] rowEnergy = new float[h];
-        for (int y = y0; y < y1; y++) {
-            int idx = y * w;
-            int prevLum = lum(px[idx]);
-            float sum = 0f;
-            for (int x = 1; x < w; x++) {
-                int curLum = lum(px[idx + x]);
-                sum += Math.abs(curLum - prevLum);
-                prevLum = curLum;
-            }
-            rowEnergy[y] = sum;
-        }
+        edgeEnergy(px, w, fromRow, toRow, grad, rowEnergy);
 
         // Smooth row energies
         smooth1d(rowEnergy, y0, y1, ROW_SMOOTH_WIN);
@@ -81,68 +150,61 @@ public final class MrzAutoDetector {
         for (int y = y0; y < y1; y++) {
             if (rowEnergy[y] > maxE) maxE = rowEnergy[y];
         }
-        if (maxE <= 0f) return null;
+        if (maxE <= 0f) return Collections.emptyList();
 
         final float thr = maxE * ENERGY_THRESH_RATIO;
 
-        // Find best contiguous band above threshold: choose band with max integrated energy
-        int bestTop = -1, bestBot = -1;
-        float bestScore = 0f;
-
+        // Collect contiguous runs above threshold with their integrated energy
+        List<float[]> runs = new ArrayList<>(); // {top, bottom(exclusive), integrated energy}
         int curTop = -1;
         float curScore = 0f;
-
-        for (int y = y0; y < y1; y++) {
-            if (rowEnergy[y] >= thr) {
+        for (int y = y0; y <= y1; y++) {
+            if (y < y1 && rowEnergy[y] >= thr) {
                 if (curTop < 0) curTop = y;
                 curScore += rowEnergy[y];
-            } else {
-                if (curTop >= 0) {
-                    int curBot = y; // exclusive
-                    float score = curScore;
-                    if (score > bestScore) {
-                        bestScore = score;
-                        bestTop = curTop;
-                        bestBot = curBot;
-                    }
-                    curTop = -1;
-                    curScore = 0f;
-                }
-            }
-        }
-        // close tail
-        if (curTop >= 0) {
-            int curBot = y1;
-            float score = curScore;
-            if (score > bestScore) {
-                bestScore = score;
-                bestTop = curTop;
-                bestBot = curBot;
+            } else if (curTop >= 0) {
+                runs.add(new float[] {curTop, y, curScore});
+                curTop = -1;
+                curScore = 0f;
             }
         }
+        if (runs.isEmpty()) return Collections.emptyList();
 
-        if (bestTop < 0 || bestBot <= bestTop) return null;
+        // Evaluate the strongest runs only
+        runs.sort((a, b) -> Float.compare(b[2], a[2]));
+        final float bestEnergy = runs.get(0)[2];
 
-        // Expand band a little
-        bestTop = clamp(bestTop - ROW_EXPAND_PX, 0, h - 1);
-        bestBot = clamp(bestBot + ROW_EXPAND_PX, bestTop + 1, h);
+        List<Band> bands = new ArrayList<>();
+        float[] colEnergy = new float[w];
+        for (int i = 0; i < runs.size() && i < MAX_EVALUATED_RUNS; i++) {
+            float[] run = runs.get(i);
+            Band band = refineBand(grad, w, h, fromRow, toRow, (int) run[0], (int) run[1],
+                    run[2] / bestEnergy, colEnergy, fw, fh, scale, rx, ry, ow, oh);
+            if (band != null) bands.add(band);
+        }
 
-        int bandH = bestBot - bestTop;
-        float bandHR = bandH / (float) h;
+        bands.sort((a, b) -> Float.compare(b.score, a.score));
+        return bands.size() > MAX_BANDS ? new ArrayList<>(bands.subList(0, MAX_BANDS)) : bands;
+    }
+
+    /**
+     * Expand a row run to a band, refine left/right by column energy, apply MRZ shape/position limits
+     * and score it. Returns null if the band can't be an MRZ.
+     */
+    private static Band refineBand(byte[] grad, int w, int h, int fromRow, int toRow,
+                                   int runTop, int runBot, float energy,
+                                   float[] colEnergy, float fw, float fh, float scale,
+                                   int rx, int ry, int ow, int oh) {
+        // Expand band a little (the gradient plane covers exactly this reach)
+        int bandTop = clamp(runTop - ROW_EXPAND_PX, fromRow, h - 1);
+        int bandBot = clamp(runBot + ROW_EXPAND_PX, bandTop + 1, toRow);
+
+        int bandH = bandBot - bandTop;
+        float bandHR = bandH / fh;
         if (bandHR < MIN_BAND_HEIGHT_RATIO || bandHR > MAX_BAND_HEIGHT_RATIO) return null;
 
         // Refine left/right bounds by column energies within the band
-        float[] colEnergy = new float[w];
-        for (int x = 1; x < w; x++) {
-            float sum = 0f;
-            for (int y = bestTop; y < bestBot; y++) {
-                int idx = y * w + x;
-                int a = lum(px[idx]);
-                int b = lum(px[idx - 1]);
-                sum += Math.abs(a - b);
-            }
-            colEnergy[x] = sum;
-        }
+        columnEnergy(grad, w, fromRow, bandTop, bandBot, colEnergy);
 
         // Find horizontal bounds where colEnergy is significant
         float maxC = 0f;
@@ -156,12 +218,15 @@ public final class MrzAutoDetector {
         int right = w - 1;
         while (right >= 0 && colEnergy[right] < cThr) right--;
 
+        // Barcodes, guilloche and signatures are energetic too, but lack the MRZ character pitch
+        if (right <= left || !MrzPitchCheck.hasMrzPitch(colEnergy, left, right + 1)) return null;
+
         // Expand margins a bit
         left = clamp(left - 8, 0, w - 1);
         right = clamp(right + 8, left + 1, w);
 
         int bandW = right - left;
-        float bandWR = bandW / (float) w;
+        float bandWR = bandW / fw;
         if (bandWR < MIN_BAND_WIDTH_RATIO) return null;
 
         float aspect = bandW / (float) bandH;
@@ -169,10 +234,10 @@ public final class MrzAutoDetector {
 
         // Convert to original coords
         Rect r = new Rect(
-                Math.round(left / scale),
-                Math.round(bestTop / scale),
-                Math.round(right / scale),
-                Math.round(bestBot / scale)
+                rx + Math.round(left / scale),
+                ry + Math.round(bandTop / scale),
+                rx + Math.round(right / scale),
+                ry + Math.round(bandBot / scale)
         );
 
         // Clamp to original frame
@@ -184,7 +249,59 @@ public final class MrzAutoDetector {
         // Additional sanity: MRZ usually in lower half
         if (r.bottom < oh * 0.55f) return null;
 
-        return r;
+        float aspectPrior = aspectPrior(aspect);
+        float positionPrior = positionPrior(r.centerY() / (float) oh);
+        return new Band(r, energy * aspectPrior * positionPrior, energy, aspectPrior, positionPrior);
+    }
+
+    /** 1 inside the typical MRZ band aspect range, decaying linearly outside it. */
+    static float aspectPrior(float aspect) {
+        if (aspect < PREFERRED_ASPECT_MIN) {
+            return Math.max(MIN_PRIOR, aspect / PREFERRED_ASPECT_MIN);
+        }
+        if (aspect > PREFERRED_ASPECT_MAX) {
+            return Math.max(MIN_PRIOR, PREFERRED_ASPECT_MAX / aspect);
+        }
+        return 1f;
+    }
+
+    /** MRZ sits at the bottom of the data page: prefer bands whose center is lower in the frame. */
+    static float positionPrior(float centerYRatio) {
+        float t = (centerYRatio - SEARCH_BOTTOM_START_RATIO) / (1f - SEARCH_BOTTOM_START_RATIO);
+        t = Math.max(0f, Math.min(1f, t));
+        return MIN_PRIOR + (1f - MIN_PRIOR) * t;
+    }
+
+    /**
+     * Single row-major pass over rows [fromRow, toRow): converts each pixel to luma once, stores
+     * |dL/dx| in grad (index (y - fromRow) * w + x, column 0 is 0) and its row sum in rowEnergy[y].
+     */
+    static void edgeEnergy(int[] argb, int w, int fromRow, int toRow, byte[] grad, float[] rowEnergy) {
+        for (int y = fromRow; y < toRow; y++) {
+            int idx = (y - fromRow) * w;
+            int prevLum = lum(argb[idx]);
+            grad[idx] = 0;
+            int sum = 0;
+            for (int x = 1; x < w; x++) {
+                int curLum = lum(argb[idx + x]);
+                int d = Math.abs(curLum - prevLum);
+                grad[idx + x] = (byte) d;
+                sum += d;
+                prevLum = curLum;
+            }
+            rowEnergy[y] = sum;
+        }
+    }
+
+    /** Per-column sum of the gradient plane over rows [top, bottom), accumulated row by row. */
+    static void columnEnergy(byte[] grad, int w, int fromRow, int top, int bottom, float[] colEnergy) {
+        Arrays.fill(colEnergy, 0, w, 0f);
+        for (int y = top; y < bottom; y++) {
+            int idx = (y - fromRow) * w;
+            for (int x = 1; x < w; x++) {
+                colEnergy[x] += grad[idx + x] & 0xFF;
+            }
+        }
     }
 
     private static int lum(int argb) {
@@ -216,6 +333,24 @@ public final class MrzAutoDetector {
         }
     }
 
+    private static int[] borrowPixels(int size) {
+        int[] buf = PIXEL_POOL.get();
+        if (buf == null || buf.length < size) {
+            buf = new int[size];
+            PIXEL_POOL.set(buf);
+        }
+        return buf;
+    }
+
+    private static byte[] borrowGrad(int size) {
+        byte[] buf = GRAD_POOL.get();
+        if (buf == null || buf.length < size) {
+            buf = new byte[size];
+            GRAD_POOL.set(buf);
+        }
+        return buf;
+    }
+
     private static int clamp(int v, int lo, int hi) {
         return Math.max(lo, Math.min(hi, v));
     }
@@ -0,0 +1,43 @@
+package com.example.emrtdreader.sdk.ocr;
+
+/**
+ * Chooses which ranked MrzAutoDetector band to OCR in the next cycle.
+ *
+ * Idea:
+ * - Normally OCR the top-ranked band.
+ * - If OCR of the top band found no MRZ, the next cycle tries the runner-up once (when the detector
+ *   reports one) instead of re-reading the same wrong band.
+ * - After the runner-up attempt, go back to the top band regardless of its outcome.
+ *
+ * Thread-safe: picks happen on the pipeline thread, results arrive on OCR callbacks.
+ */
+public final class MrzBandCycler {
+
+    private boolean runnerUpPending;
+
+    /**
+     * Rank of the band to OCR in this cycle (0 = top band, 1 = runner-up).
+     * Consumes a pending runner-up request.
+     *
+     * @param bandCount number of ranked bands the detector returned for this frame
+     */
+    public synchronized int pick(int bandCount) {
+        boolean useRunnerUp = runnerUpPending && bandCount > 1;
+        runnerUpPending = false;
+        return useRunnerUp ? 1 : 0;
+    }
+
+    /** Report the OCR outcome for the band picked with {@link #pick(int)}. */
+    public synchronized void onOcrResult(int rank, boolean mrzFound) {
+        runnerUpPending = rank == 0 && !mrzFound;
+    }
+
+    /** True if the next cycle wants the runner-up (callers should scan the full frame for it). */
+    public synchronized boolean runnerUpPending() {
+        return runnerUpPending;
+    }
+
+    public synchronized void reset() {
+        runnerUpPending = false;
+    }
+}
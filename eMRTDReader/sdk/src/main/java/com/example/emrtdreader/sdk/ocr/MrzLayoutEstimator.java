@@ -0,0 +1,208 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.graphics.Bitmap;
+
+import com.example.emrtdreader.sdk.models.MrzLayout;
+
+import java.util.Arrays;
+
+/**
+ * Estimates MRZ text line count and character pitch from projection profiles of the ROI.
+ *
+ * Idea:
+ * - Ink threshold halfway between the dark (5%) and bright (95%) luma percentiles.
+ * - Row ink profile: contiguous runs of inked rows are text lines (2 = TD2/TD3, 3 = TD1).
+ * - Column ink profile of each line: MRZ uses a monospaced font and fills every position (fillers
+ *   are '<'), so its autocorrelation peaks at the character pitch; line extent / pitch gives the
+ *   characters per line (30 / 36 / 44).
+ *
+ * The result is a hint: anything unclear is reported as unknown (0) and then allows every format.
+ */
+public final class MrzLayoutEstimator {
+
+    // Luma percentiles for the ink threshold; below MIN_SPAN the ROI has no readable text
+    private static final float DARK_PCT = 0.05f;
+    private static final float BRIGHT_PCT = 0.95f;
+    private static final int MIN_SPAN = 40;
+
+    // A row belongs to a text line if its ink count reaches this fraction of the busiest row
+    private static final float ROW_INK_RATIO = 0.25f;
+    // Gaps up to this many rows inside a line (thin strokes, noise) don't split it
+    private static final int MAX_ROW_GAP = 2;
+    // Lines thinner than this fraction of the tallest line are noise
+    private static final float MIN_LINE_HEIGHT_RATIO = 0.4f;
+
+    // Pitch search range in characters per line (covers TD1..TD3 with margin)
+    private static final int MIN_CHARS = 24;
+    private static final int MAX_CHARS = 52;
+
+    private static final ThreadLocal<int[]> LUMA_POOL = new ThreadLocal<>();
+
+    private MrzLayoutEstimator() {}
+
+    public static MrzLayout estimate(Bitmap roi) {
+        if (roi == null) return new MrzLayout(0, 0, 0f);
+        int w = roi.getWidth();
+        int h = roi.getHeight();
+        int[] luma = borrow(w * h);
+        roi.getPixels(luma, 0, w, 0, 0, w, h);
+        for (int i = 0; i < w * h; i++) {
+            int c = luma[i];
+            int r = (c >> 16) & 0xFF;
+            int g = (c >> 8) & 0xFF;
+            int b = (c) & 0xFF;
+            // integer luma approximation
+            luma[i] = (r * 77 + g * 150 + b * 29) >> 8;
+        }
+        return estimate(luma, w, h);
+    }
+
+    /** Estimate from a luma plane (values 0..255, row-major, stride w). */
+    static MrzLayout estimate(int[] luma, int w, int h) {
+        if (luma == null || w < MIN_CHARS * 4 || h < 8) return new MrzLayout(0, 0, 0f);
+
+        int thr = inkThreshold(luma, w * h);
+        if (thr < 0) return new MrzLayout(0, 0, 0f);
+
+        // 1) Row ink profile -> text lines
+        int[] rowInk = new int[h];
+        int maxRow = 0;
+        for (int y = 0; y < h; y++) {
+            int idx = y * w;
+            int n = 0;
+            for (int x = 0; x < w; x++) {
+                if (luma[idx + x] < thr) n++;
+            }
+            rowInk[y] = n;
+            if (n > maxRow) maxRow = n;
+        }
+        if (maxRow == 0) return new MrzLayout(0, 0, 0f);
+
+        int[] lineTop = new int[8];
+        int[] lineBot = new int[8];
+        int lines = findLines(rowInk, h, Math.max(1, Math.round(maxRow * ROW_INK_RATIO)), lineTop, lineBot);
+        int lineCount = (lines == 2 || lines == 3) ? lines : 0;
+        if (lineCount == 0) return new MrzLayout(0, 0, 0f);
+
+        // 2) Column ink profile per line -> pitch; chars from the widest line
+        float pitchSum = 0f;
+        int pitchCount = 0;
+        int maxExtent = 0;
+        float[] colInk = new float[w];
+        for (int i = 0; i < lineCount; i++) {
+            int extent = columnProfile(luma, w, lineTop[i], lineBot[i], thr, colInk);
+            if (extent <= 0) continue;
+            float pitch = pitchByAutocorrelation(colInk, extent);
+            if (pitch <= 0f) continue;
+            pitchSum += pitch;
+            pitchCount++;
+            if (extent > maxExtent) maxExtent = extent;
+        }
+        if (pitchCount == 0) return new MrzLayout(lineCount, 0, 0f);
+
+        float pitch = pitchSum / pitchCount;
+        int chars = Math.round(maxExtent / pitch);
+        if (chars < MIN_CHARS || chars > MAX_CHARS) return new MrzLayout(lineCount, 0, 0f);
+        return new MrzLayout(lineCount, chars, pitch);
+    }
+
+    /** Midpoint between dark and bright luma percentiles, or -1 if the ROI is too flat. */
+    private static int inkThreshold(int[] luma, int n) {
+        int[] hist = new int[256];
+        for (int i = 0; i < n; i++) hist[luma[i]]++;
+        int darkTarget = Math.round(n * DARK_PCT);
+        int brightTarget = Math.round(n * BRIGHT_PCT);
+        int dark = 0;
+        int bright = 255;
+        int acc = 0;
+        boolean darkSet = false;
+        for (int v = 0; v < 256; v++) {
+            acc += hist[v];
+            if (!darkSet && acc > darkTarget) {
+                dark = v;
+                darkSet = true;
+            }
+            if (acc >= brightTarget) {
+                bright = v;
+                break;
+            }
+        }
+        if (bright - dark < MIN_SPAN) return -1;
+        return (dark + bright + 1) / 2;
+    }
+
+    /** Runs of rows with ink >= minInk; returns the number of lines (capped by the arrays). */
+    private static int findLines(int[] rowInk, int h, int minInk, int[] tops, int[] bots) {
+        int count = 0;
+        int top = -1;
+        int lastOn = -1;
+        for (int y = 0; y <= h; y++) {
+            boolean on = y < h && rowInk[y] >= minInk;
+            if (on) {
+                if (top < 0) top = y;
+                lastOn = y;
+            } else if (top >= 0 && (y == h || y - lastOn > MAX_ROW_GAP)) {
+                if (count == tops.length) return 0; // way too many runs: not an MRZ
+                tops[count] = top;
+                bots[count] = lastOn + 1;
+                count++;
+                top = -1;
+            }
+        }
+
+        // Drop slivers (underlines, card edges) relative to the tallest line
+        int maxH = 0;
+        for (int i = 0; i < count; i++) maxH = Math.max(maxH, bots[i] - tops[i]);
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (bots[i] - tops[i] < maxH * MIN_LINE_HEIGHT_RATIO) continue;
+            tops[kept] = tops[i];
+            bots[kept] = bots[i];
+            kept++;
+        }
+        return kept;
+    }
+
+    /**
+     * Ink count per column for rows [top, bottom), shifted so that colInk[0] is the first inked
+     * column. Returns the inked extent (0 if the line is empty).
+     */
+    private static int columnProfile(int[] luma, int w, int top, int bottom, int thr, float[] colInk) {
+        Arrays.fill(colInk, 0f);
+        for (int y = top; y < bottom; y++) {
+            int idx = y * w;
+            for (int x = 0; x < w; x++) {
+                if (luma[idx + x] < thr) colInk[x]++;
+            }
+        }
+        // Ignore specks: a glyph column has ink in a fair share of the line's rows
+        int minInk = Math.max(1, (bottom - top) / 8);
+        int left = 0;
+        while (left < w && colInk[left] < minInk) left++;
+        int right = w - 1;
+        while (right > left && colInk[right] < minInk) right--;
+        if (left >= right) return 0;
+        int extent = right - left + 1;
+        if (left > 0) System.arraycopy(colInk, left, colInk, 0, extent);
+        return extent;
+    }
+
+    /** Lag with the strongest normalized autocorrelation in the plausible pitch range (sub-pixel). */
+    private static float pitchByAutocorrelation(float[] prof, int n) {
+        int minLag = Math.max(2, n / MAX_CHARS);
+        int maxLag = Math.min(n / 2, (n + MIN_CHARS - 1) / MIN_CHARS);
+        if (maxLag - minLag < 2) return 0f;
+
+        MrzPitch autocorr = MrzPitch.of(prof, 0, n);
+        return autocorr != null ? autocorr.dominantLag(minLag, maxLag) : 0f;
+    }
+
+    private static int[] borrow(int size) {
+        int[] buf = LUMA_POOL.get();
+        if (buf == null || buf.length < size) {
+            buf = new int[size];
+            LUMA_POOL.set(buf);
+        }
+        return buf;
+    }
+}
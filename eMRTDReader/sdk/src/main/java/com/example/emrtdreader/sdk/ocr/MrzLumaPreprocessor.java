@@ -0,0 +1,211 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bitmap-free Tesseract preprocessing: the same steps as
+ * {@link MrzPreprocessor#preprocessForTesseract(Bitmap, PreprocessParams)} on a single-channel buffer.
+ *
+ * Idea:
+ * - Read the ROI bitmap's ARGB pixels once into luma bytes; no intermediate bitmap is created.
+ * - Percentile stretch, box blur, one resample and adaptive threshold all run on byte buffers; the
+ *   threshold uses an integral image, so its cost doesn't grow with the block size.
+ * - The binary result goes to Tesseract via setImage(byte[], w, h, 1, stride) once;
+ *   {@link #lineStrips(LumaImage)} finds the text lines so each can be recognized with setRectangle.
+ *
+ * Intermediate buffers are pooled per thread; only the returned image is allocated per call.
+ */
+public final class MrzLumaPreprocessor {
+
+    // Line strips: a row is text if at least this fraction of its pixels is ink
+    private static final float LINE_INK_RATIO = 0.02f;
+    // Rows shorter than this don't form a line; gaps up to this are bridged
+    private static final int MIN_LINE_PX = 4;
+    private static final int MAX_LINE_GAP_PX = 2;
+    // Strip padding above/below the inked rows, as a fraction of the line height
+    private static final float LINE_PAD_RATIO = 0.25f;
+    private static final int MAX_LINES = 3;
+
+    private static final ThreadLocal<int[]> PIXEL_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<byte[]> LUMA_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<byte[]> BLUR_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> ROW_SUM_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> INTEGRAL_POOL = new ThreadLocal<>();
+
+    private MrzLumaPreprocessor() {}
+
+    public static LumaImage preprocessForTesseract(Bitmap src, PreprocessParams params) {
+        if (src == null) return null;
+        int w = src.getWidth();
+        int h = src.getHeight();
+        int[] px = borrowInts(PIXEL_POOL, w * h);
+        src.getPixels(px, 0, w, 0, 0, w, h);
+
+        byte[] luma = borrowBytes(LUMA_POOL, w * h);
+        for (int i = 0; i < w * h; i++) {
+            int p = px[i];
+            luma[i] = (byte) ((((p >> 16) & 0xFF) * 77 + ((p >> 8) & 0xFF) * 150 + (p & 0xFF) * 29) >> 8);
+        }
+        return process(luma, w, h, params);
+    }
+
+    private static LumaImage process(byte[] luma, int w, int h, PreprocessParams params) {
+        PreprocessParams p = params != null ? params : PreprocessParamSet.getDefault();
+        float emphasis = p.scale / PreprocessParamSet.getDefault().scale;
+
+        // Glyph height is measured on the raw ROI luma, as the bitmap path does
+        MrzScalePlanner.Plan plan = MrzScalePlanner.planForTesseract(luma, w, h, emphasis);
+        ContrastStretch.applyInPlace(luma, 0, w * h);
+
+        byte[] blurred = p.blurRadius > 0 ? boxBlur(luma, w, h, p.blurRadius) : luma;
+        byte[] scaled = MrzScalePlanner.apply(blurred, w, h, plan);
+        int sw = plan.isIdentity() ? w : plan.outWidth;
+        int sh = plan.isIdentity() ? h : plan.outHeight;
+
+        byte[] out = new byte[sw * sh];
+        binarize(scaled, sw, sh, p.blockSize, p.c, out);
+        return new LumaImage(out, sw, sh);
+    }
+
+    /**
+     * Mean over the (clipped) square window of side 2 * radius + 1, separable. Returns a pooled buffer.
+     */
+    static byte[] boxBlur(byte[] in, int w, int h, int radius) {
+        int[] rows = borrowInts(ROW_SUM_POOL, w * h);
+        for (int y = 0; y < h; y++) {
+            int row = y * w;
+            for (int x = 0; x < w; x++) {
+                int x0 = Math.max(0, x - radius);
+                int x1 = Math.min(w - 1, x + radius);
+                int sum = 0;
+                for (int xx = x0; xx <= x1; xx++) sum += in[row + xx] & 0xFF;
+                // Keep the horizontal sum; the count is applied once below (exact 2D mean)
+                rows[row + x] = sum;
+            }
+        }
+        byte[] out = borrowBytes(BLUR_POOL, w * h);
+        for (int y = 0; y < h; y++) {
+            int y0 = Math.max(0, y - radius);
+            int y1 = Math.min(h - 1, y + radius);
+            for (int x = 0; x < w; x++) {
+                int cols = Math.min(w - 1, x + radius) - Math.max(0, x - radius) + 1;
+                int sum = 0;
+                for (int yy = y0; yy <= y1; yy++) sum += rows[yy * w + x];
+                out[y * w + x] = (byte) (sum / (cols * (y1 - y0 + 1)));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Adaptive threshold with the same rule as {@link AdaptiveThreshold#binarize(Bitmap, int, int)}
+     * (pixel &lt; local mean - offset is ink), using an integral image.
+     */
+    static void binarize(byte[] gray, int w, int h, int blockSize, int offset, byte[] out) {
+        int safeBlock = blockSize < 3 ? 3 : (blockSize % 2 == 0 ? blockSize + 1 : blockSize);
+        int radius = safeBlock / 2;
+
+        // (w + 1) x (h + 1) integral image with a zero top row / left column
+        int iw = w + 1;
+        int[] integral = borrowInts(INTEGRAL_POOL, iw * (h + 1));
+        for (int x = 0; x < iw; x++) integral[x] = 0;
+        for (int y = 0; y < h; y++) {
+            int rowSum = 0;
+            int base = (y + 1) * iw;
+            integral[base] = 0;
+            for (int x = 0; x < w; x++) {
+                rowSum += gray[y * w + x] & 0xFF;
+                integral[base + x + 1] = integral[base - iw + x + 1] + rowSum;
+            }
+        }
+
+        for (int y = 0; y < h; y++) {
+            int y0 = Math.max(0, y - radius);
+            int y1 = Math.min(h - 1, y + radius) + 1;
+            for (int x = 0; x < w; x++) {
+                int x0 = Math.max(0, x - radius);
+                int x1 = Math.min(w - 1, x + radius) + 1;
+                int sum = integral[y1 * iw + x1] - integral[y0 * iw + x1]
+                        - integral[y1 * iw + x0] + integral[y0 * iw + x0];
+                int mean = sum / ((x1 - x0) * (y1 - y0));
+                int cur = gray[y * w + x] & 0xFF;
+                out[y * w + x] = (byte) ((cur < mean - offset) ? 0 : 255);
+            }
+        }
+    }
+
+    /**
+     * Text line rectangles of a binarized image (ink = 0), full width, padded vertically. Empty when
+     * the lines can't be told apart (fewer than 2 or more than 3): recognize the whole image then.
+     */
+    public static List<Rect> lineStrips(LumaImage binary) {
+        if (binary == null) return Collections.emptyList();
+        int w = binary.width;
+        int h = binary.height;
+        int minInk = Math.max(1, Math.round(w * LINE_INK_RATIO));
+
+        int[] tops = new int[MAX_LINES + 1];
+        int[] bots = new int[MAX_LINES + 1];
+        int lines = 0;
+        int start = -1;
+        int lastInk = -1;
+        for (int y = 0; y <= h; y++) {
+            boolean ink = y < h && rowInk(binary, y) >= minInk;
+            if (ink) {
+                if (start < 0) start = y;
+                lastInk = y;
+            } else if (start >= 0 && (y == h || y - lastInk > MAX_LINE_GAP_PX)) {
+                if (lastInk + 1 - start >= MIN_LINE_PX) {
+                    if (lines == tops.length) return Collections.emptyList();
+                    tops[lines] = start;
+                    bots[lines] = lastInk + 1;
+                    lines++;
+                }
+                start = -1;
+            }
+        }
+        if (lines < 2 || lines > MAX_LINES) return Collections.emptyList();
+
+        List<Rect> strips = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            int pad = Math.round((bots[i] - tops[i]) * LINE_PAD_RATIO);
+            // Don't pad into the neighbouring line
+            int top = Math.max(i > 0 ? bots[i - 1] : 0, tops[i] - pad);
+            int bottom = Math.min(i + 1 < lines ? tops[i + 1] : h, bots[i] + pad);
+            strips.add(new Rect(0, top, w, bottom));
+        }
+        return strips;
+    }
+
+    private static int rowInk(LumaImage img, int y) {
+        int row = y * img.stride;
+        int ink = 0;
+        for (int x = 0; x < img.width; x++) {
+            if (img.data[row + x] == 0) ink++;
+        }
+        return ink;
+    }
+
+    private static int[] borrowInts(ThreadLocal<int[]> pool, int size) {
+        int[] buf = pool.get();
+        if (buf == null || buf.length < size) {
+            buf = new int[size];
+            pool.set(buf);
+        }
+        return buf;
+    }
+
+    private static byte[] borrowBytes(ThreadLocal<byte[]> pool, int size) {
+        byte[] buf = pool.get();
+        if (buf == null || buf.length < size) {
+            buf = new byte[size];
+            pool.set(buf);
+        }
+        return buf;
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.emrtdreader.sdk.ocr;
+
+/**
+ * Autocorrelation of a column profile, shared by the pre-OCR pitch check and the layout estimator.
+ *
+ * Idea:
+ * - Monospaced MRZ glyphs make the profile repeat at the character pitch.
+ * - Autocorrelation is normalized by variance and overlap, so longer lags aren't penalized.
+ * - The strongest lag in the caller's range is refined to sub-sample precision with a parabola
+ *   through the peak and its neighbours.
+ */
+final class MrzPitch {
+
+    // Normalized autocorrelation the pitch peak must reach
+    static final float MIN_PEAK_CORR = 0.15f;
+
+    private final float[] profile;
+    private final int from;
+    private final int to;
+    private final double mean;
+    private final double var;
+    private float peakCorr;
+
+    private MrzPitch(float[] profile, int from, int to, double mean, double var) {
+        this.profile = profile;
+        this.from = from;
+        this.to = to;
+        this.mean = mean;
+        this.var = var;
+    }
+
+    /** Autocorrelation over profile[from, to), or null if the range is flat. */
+    static MrzPitch of(float[] profile, int from, int to) {
+        int n = to - from;
+        if (n <= 0) return null;
+        double sum = 0;
+        for (int i = from; i < to; i++) sum += profile[i];
+        double mean = sum / n;
+        double var = 0;
+        for (int i = from; i < to; i++) {
+            double d = profile[i] - mean;
+            var += d * d;
+        }
+        return var > 0 ? new MrzPitch(profile, from, to, mean, var) : null;
+    }
+
+    int length() {
+        return to - from;
+    }
+
+    /**
+     * Sub-sample lag of the strongest peak in [minLag, maxLag], or 0 if it is under
+     * {@link #MIN_PEAK_CORR}. Lags minLag-1 and maxLag+1 must lie inside the profile.
+     */
+    float dominantLag(int minLag, int maxLag) {
+        // l/c/r keep the peak and its neighbours for sub-sample refinement
+        float l = 0f;
+        float c = 0f;
+        float r = 0f;
+        float prev = 0f;
+        float best = -Float.MAX_VALUE;
+        int bestLag = -1;
+        for (int lag = minLag - 1; lag <= maxLag + 1; lag++) {
+            float corr = correlation(lag);
+            if (lag == bestLag + 1 && bestLag >= 0) r = corr;
+            if (lag >= minLag && lag <= maxLag && corr > best) {
+                best = corr;
+                bestLag = lag;
+                l = prev;
+                c = corr;
+                r = 0f;
+            }
+            prev = corr;
+        }
+        peakCorr = best;
+        if (bestLag < 0 || best < MIN_PEAK_CORR) return 0f;
+
+        // Parabolic interpolation around the peak
+        float denom = l - 2f * c + r;
+        float offset = (denom < 0f) ? 0.5f * (l - r) / denom : 0f;
+        return bestLag + Math.max(-0.5f, Math.min(0.5f, offset));
+    }
+
+    /** Correlation at the integer peak found by the last {@link #dominantLag(int, int)}. */
+    float peakCorrelation() {
+        return peakCorr;
+    }
+
+    /** Stronger autocorrelation of the two integer lags around a fractional lag. */
+    float peakNear(float lag) {
+        int lo = (int) Math.floor(lag);
+        if (lo + 1 >= to - from) return -Float.MAX_VALUE;
+        return Math.max(correlation(lo), correlation(lo + 1));
+    }
+
+    float correlation(int lag) {
+        int n = to - from;
+        double acc = 0;
+        for (int i = from + lag; i < to; i++) {
+            acc += (profile[i] - mean) * (profile[i - lag] - mean);
+        }
+        return (float) (acc / var * n / (n - lag));
+    }
+}
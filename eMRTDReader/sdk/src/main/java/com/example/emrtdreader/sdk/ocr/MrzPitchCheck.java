@@ -0,0 +1,79 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import com.example.emrtdreader.sdk.models.MrzLayout;
+
+/**
+ * Cheap pre-OCR check that a candidate band's column-energy profile has MRZ character pitch.
+ *
+ * Idea:
+ * - OCR-B MRZ text is monospaced and every position is filled ('<' fillers), so the column energy
+ *   of the band repeats at the character pitch.
+ * - Barcodes (irregular bar widths), guilloche and signature strokes also carry strong horizontal
+ *   edge energy, but no dominant period matching an MRZ line length.
+ * - Autocorrelate the profile over the lags of 27..48 characters across the band; the band passes
+ *   if the strongest normalized peak is clear enough and the implied characters per line is within
+ *   10% of 30 (TD1), 36 (TD2) or 44 (TD3).
+ * - Fine periodic texture (hatching, dense stripes) also peaks inside that range at multiples of its
+ *   own period; a peak whose lag/k correlates nearly as well (at lag/k and beyond the peak) is
+ *   attributed to the finer period and fails.
+ *
+ * The autocorrelation itself is {@link MrzPitch}, shared with {@link MrzLayoutEstimator}.
+ *
+ * Bands too narrow to resolve the pitch (under 2 samples per character) are not judged.
+ */
+public final class MrzPitchCheck {
+
+    private static final int[] LINE_CHARS = {MrzLayout.TD1_CHARS, MrzLayout.TD2_CHARS, MrzLayout.TD3_CHARS};
+    // Allowed deviation of the measured characters per line from the nominal length
+    private static final float CHARS_TOLERANCE_RATIO = 0.10f;
+    private static final int MIN_PITCH = 2;
+    // A peak is a harmonic of a finer period if a lag of peak/k correlates at least this much of it
+    private static final float HARMONIC_RATIO = 0.85f;
+
+    // Lag search range in characters: widest / narrowest line with tolerance
+    private static final float MIN_CHARS = MrzLayout.TD1_CHARS * (1f - CHARS_TOLERANCE_RATIO);
+    private static final float MAX_CHARS = MrzLayout.TD3_CHARS * (1f + CHARS_TOLERANCE_RATIO);
+
+    private MrzPitchCheck() {}
+
+    /** True if profile[from, to) repeats at an MRZ character pitch (or is too short to tell). */
+    public static boolean hasMrzPitch(float[] profile, int from, int to) {
+        float chars = charsPerLine(profile, from, to);
+        return chars < 0f || matchesLineLength(chars);
+    }
+
+    static boolean matchesLineLength(float chars) {
+        for (int nominal : LINE_CHARS) {
+            if (Math.abs(chars - nominal) <= nominal * CHARS_TOLERANCE_RATIO) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Characters per line implied by the dominant period: 0 when there is no clear period in range,
+     * -1 when the profile is too short to resolve MRZ pitch.
+     */
+    static float charsPerLine(float[] profile, int from, int to) {
+        int n = to - from;
+        int minLag = (int) Math.floor(n / MAX_CHARS);
+        int maxLag = (int) Math.ceil(n / MIN_CHARS);
+        if (minLag < MIN_PITCH) return -1f;
+
+        MrzPitch autocorr = MrzPitch.of(profile, from, to);
+        if (autocorr == null) return 0f;
+        float pitch = autocorr.dominantLag(minLag, maxLag);
+        if (pitch <= 0f) return 0f;
+
+        // The peak may be a multiple of a finer period: report the finer one. The finer period must
+        // also repeat past the peak (lag (k+1)*sub), otherwise a second stroke inside each glyph
+        // would pass for it.
+        float minCorr = autocorr.peakCorrelation() * HARMONIC_RATIO;
+        for (int k = 2; pitch / k >= MIN_PITCH; k++) {
+            float sub = pitch / k;
+            if (autocorr.peakNear(sub) >= minCorr && autocorr.peakNear(sub * (k + 1)) >= minCorr) {
+                return n / sub;
+            }
+        }
+        return n / pitch;
+    }
+}
@@ -1,24 +1,34 @@
 package com.example.emrtdreader.sdk.ocr;
 
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
-import android.graphics.Paint;
 
-/** Lightweight MRZ-oriented preprocessing: grayscale + contrast. */
+/** Lightweight MRZ-oriented preprocessing: grayscale + adaptive contrast stretch. */
 public final class MrzPreprocessor {
+    private static final ThreadLocal<int[]> PIXEL_POOL = new ThreadLocal<>();
+
     private MrzPreprocessor() {}
 
     public static Bitmap preprocess(Bitmap src) {
         if (src == null) return null;
-        Bitmap gray = toGrayscale(src);
-        return increaseContrast(gray, 1.8f);
+        int w = src.getWidth();
+        int h = src.getHeight();
+        int[] px = borrowPixels(w * h);
+        src.getPixels(px, 0, w, 0, 0, w, h);
+
+        // Grayscale + percentile stretch in one scan (replaces two ColorMatrix draws)
+        ContrastStretch.applyToArgbInPlace(px, w * h);
+
+        Bitmap out = FrameArena.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        out.setPixels(px, 0, w, 0, 0, w, h);
+        return out;
     }
 
     public static Bitmap preprocessForMl(Bitmap src) {
-        return preprocess(src);
+        if (src == null) return null;
+        // Single resample (upscale only when glyphs are too small for ML Kit)
+        MrzScalePlanner.Plan plan = MrzScalePlanner.planForMl(src);
+        return MrzScalePlanner.apply(preprocess(src), plan);
     }
 
     public static Bitmap preprocessForMlMinimal(Bitmap src) {
@@ -33,38 +43,21 @@ public final class MrzPreprocessor {
         if (params == null) {
             return preprocessForTesseract(src);
         }
+        // One factor from the measured glyph height; params.scale only biases the target
+        float emphasis = params.scale / PreprocessParamSet.getDefault().scale;
+        MrzScalePlanner.Plan plan = MrzScalePlanner.planForTesseract(src, emphasis);
+
         Bitmap pre = preprocess(src);
         Bitmap blurred = blur(pre, params.blurRadius);
-        Bitmap scaled = scaleForTesseract(blurred, params.scale);
+        Bitmap scaled = MrzScalePlanner.apply(blurred, plan);
         return AdaptiveThreshold.binarize(scaled, params.blockSize, params.c);
     }
 
-    private static Bitmap toGrayscale(Bitmap src) {
-        Bitmap out = Bitmap.createBitmap(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(out);
-        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        ColorMatrix cm = new ColorMatrix();
-        cm.setSaturation(0f);
-        paint.setColorFilter(new ColorMatrixColorFilter(cm));
-        canvas.drawBitmap(src, 0, 0, paint);
-        return out;
-    }
-
-    private static Bitmap scaleForTesseract(Bitmap src, float scaleFactor) {
-        if (src == null) return null;
-        int width = Math.max(1, Math.round(src.getWidth() * scaleFactor));
-        int height = Math.max(1, Math.round(src.getHeight() * scaleFactor));
-        if (width == src.getWidth() && height == src.getHeight()) {
-            return src;
-        }
-        return Bitmap.createScaledBitmap(src, width, height, true);
-    }
-
     private static Bitmap blur(Bitmap src, int radius) {
         if (src == null || radius <= 0) return src;
         int w = src.getWidth();
         int h = src.getHeight();
-        Bitmap out = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap out = FrameArena.createBitmap(w, h, Bitmap.Config.ARGB_8888);
         for (int y = 0; y < h; y++) {
             for (int x = 0; x < w; x++) {
                 int sum = 0;
@@ -86,20 +79,12 @@ public final class MrzPreprocessor {
         return out;
     }
 
-    private static Bitmap increaseContrast(Bitmap src, float factor) {
-        float translate = -128f * (factor - 1f);
-        ColorMatrix cm = new ColorMatrix(new float[]{
-                factor, 0, 0, 0, translate,
-                0, factor, 0, 0, translate,
-                0, 0, factor, 0, translate,
-                0, 0, 0, 1, 0
-        });
-
-        Bitmap out = Bitmap.createBitmap(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
-        Canvas canvas = new Canvas(out);
-        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setColorFilter(new ColorMatrixColorFilter(cm));
-        canvas.drawBitmap(src, 0, 0, paint);
-        return out;
+    private static int[] borrowPixels(int size) {
+        int[] buf = PIXEL_POOL.get();
+        if (buf == null || buf.length < size) {
+            buf = new int[size];
+            PIXEL_POOL.set(buf);
+        }
+        return buf;
     }
 }
@@ -0,0 +1,351 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.graphics.Bitmap;
+
+import java.util.Arrays;
+
+/**
+ * Perspective rectification of the MRZ band (no ML).
+ *
+ * Idea:
+ * - Text rows have strong horizontal gradients; text columns end where column energy drops.
+ * - Measure top/bottom of the text block in a left and a right strip -> top/bottom edge lines.
+ * - Measure left/right line ends separately for the upper and lower half -> left/right edges.
+ * - The four corners define a homography; warp only the band into a rectangle.
+ *
+ * Warp is inverse-mapped (destination -> source) with incremental fixed-point numerators and
+ * bilinear sampling. Luma and output buffers are pooled per thread; only the output bitmap is allocated.
+ * If the band is already axis-aligned (tilt under ~1 degree, keystone under 10% of the band height)
+ * or no band is found, the ROI is returned unchanged.
+ */
+public final class MrzRectifier {
+
+    // Row/column profile thresholds (relative to max)
+    private static final float ROW_THRESH_RATIO = 0.35f;
+    private static final float COL_THRESH_RATIO = 0.20f;
+
+    // Left/right strips used for edge lines: fraction of the text width
+    private static final float STRIP_RATIO = 0.25f;
+
+    // Sanity limits
+    private static final int MIN_TEXT_ROWS = 8;
+    private static final float MIN_TEXT_WIDTH_RATIO = 0.30f;
+    private static final float MAX_SIDE_HEIGHT_RATIO = 2.0f;
+
+    // Below both limits the band is treated as axis-aligned (no warp): OCR copes with a small skew,
+    // so handheld jitter shouldn't cost a resample. Edge tilt as rise over run (~1 degree) and side
+    // lean / left-right height difference as a fraction of the band height.
+    private static final float MIN_TILT_SLOPE = 0.0175f;
+    private static final float MIN_KEYSTONE_RATIO = 0.10f;
+
+    // Quiet zone kept around the text after rectification (px, source scale)
+    private static final int MARGIN_PX = 4;
+
+    // Fixed point precision of homography coefficients
+    private static final int Q = 24;
+
+    private static final ThreadLocal<int[]> LUMA_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> DST_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<long[]> PROFILE_POOL = new ThreadLocal<>();
+
+    /** MRZ band corners in ROI coordinates (tl, tr, br, bl). */
+    public static final class Quad {
+        public final float tlX, tlY;
+        public final float trX, trY;
+        public final float brX, brY;
+        public final float blX, blY;
+
+        public Quad(float tlX, float tlY, float trX, float trY,
+                    float brX, float brY, float blX, float blY) {
+            this.tlX = tlX;
+            this.tlY = tlY;
+            this.trX = trX;
+            this.trY = trY;
+            this.brX = brX;
+            this.brY = brY;
+            this.blX = blX;
+            this.blY = blY;
+        }
+
+        public int outWidth() {
+            float top = dist(tlX, tlY, trX, trY);
+            float bottom = dist(blX, blY, brX, brY);
+            return Math.max(1, Math.round(Math.max(top, bottom)));
+        }
+
+        public int outHeight() {
+            float left = dist(tlX, tlY, blX, blY);
+            float right = dist(trX, trY, brX, brY);
+            return Math.max(1, Math.round(Math.max(left, right)));
+        }
+
+        /** Largest misalignment between paired corners (top/bottom edges tilt, left/right edges lean). */
+        public float keystonePx() {
+            float k = Math.abs(tlY - trY);
+            k = Math.max(k, Math.abs(blY - brY));
+            k = Math.max(k, Math.abs(tlX - blX));
+            k = Math.max(k, Math.abs(trX - brX));
+            return k;
+        }
+
+        /** Steeper of the top/bottom edges, as rise over run. */
+        public float tiltSlope() {
+            float rise = Math.max(Math.abs(tlY - trY), Math.abs(blY - brY));
+            return rise / Math.max(1f, Math.min(Math.abs(trX - tlX), Math.abs(brX - blX)));
+        }
+
+        /** Side lean or left/right height difference, relative to the band height. */
+        public float keystoneRatio() {
+            float left = dist(tlX, tlY, blX, blY);
+            float right = dist(trX, trY, brX, brY);
+            float lean = Math.max(Math.abs(tlX - blX), Math.abs(trX - brX));
+            return Math.max(lean, Math.abs(left - right)) / Math.max(1f, Math.max(left, right));
+        }
+
+        private static float dist(float x0, float y0, float x1, float y1) {
+            float dx = x1 - x0;
+            float dy = y1 - y0;
+            return (float) Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    private MrzRectifier() {}
+
+    /**
+     * Rectify the MRZ band inside roi. Returns roi itself when no band is found or it is already
+     * axis-aligned; otherwise a new grayscale ARGB_8888 bitmap with straight text lines.
+     */
+    public static Bitmap rectify(Bitmap roi) {
+        if (roi == null) return null;
+        int w = roi.getWidth();
+        int h = roi.getHeight();
+        int[] luma = loadLuma(roi, w, h);
+
+        Quad q = detectQuad(luma, w, h);
+        if (q == null || (q.tiltSlope() < MIN_TILT_SLOPE && q.keystoneRatio() < MIN_KEYSTONE_RATIO)) {
+            return roi;
+        }
+
+        int dw = q.outWidth();
+        int dh = q.outHeight();
+        int[] out = borrow(DST_POOL, dw * dh);
+        warp(luma, w, h, q, out, dw, dh);
+
+        Bitmap result = FrameArena.createBitmap(dw, dh, Bitmap.Config.ARGB_8888);
+        result.setPixels(out, 0, dw, 0, 0, dw, dh);
+        return result;
+    }
+
+    public static Quad detectQuad(Bitmap roi) {
+        if (roi == null) return null;
+        int w = roi.getWidth();
+        int h = roi.getHeight();
+        return detectQuad(loadLuma(roi, w, h), w, h);
+    }
+
+    /**
+     * Find the MRZ band corners in a luma plane (values 0..255, row-major, stride w).
+     * Returns null if no plausible band is found.
+     */
+    static Quad detectQuad(int[] luma, int w, int h) {
+        if (luma == null || w < 16 || h < MIN_TEXT_ROWS) return null;
+
+        // 1) Overall text rows
+        long[] prof = borrowLong(PROFILE_POOL, Math.max(w, h));
+        rowProfile(luma, w, 0, w, h, prof);
+        int[] rows = onRange(prof, h, ROW_THRESH_RATIO);
+        if (rows == null || rows[1] - rows[0] < MIN_TEXT_ROWS) return null;
+        int y0 = rows[0];
+        int y1 = rows[1];
+        int mid = (y0 + y1 + 1) / 2;
+
+        // 2) Line ends for upper and lower half of the block
+        colProfile(luma, w, y0, mid, prof);
+        int[] upper = onRange(prof, w, COL_THRESH_RATIO);
+        colProfile(luma, w, mid, y1 + 1, prof);
+        int[] lower = onRange(prof, w, COL_THRESH_RATIO);
+        if (upper == null || lower == null) return null;
+
+        int xL = Math.min(upper[0], lower[0]);
+        int xR = Math.max(upper[1], lower[1]);
+        if (xR - xL < w * MIN_TEXT_WIDTH_RATIO) return null;
+
+        // 3) Top/bottom edges in left and right strips
+        int strip = Math.max(4, Math.round((xR - xL) * STRIP_RATIO));
+        rowProfile(luma, w, xL, xL + strip, h, prof);
+        int[] left = onRange(prof, h, ROW_THRESH_RATIO);
+        rowProfile(luma, w, xR + 1 - strip, xR + 1, h, prof);
+        int[] right = onRange(prof, h, ROW_THRESH_RATIO);
+        if (left == null || right == null) return null;
+
+        int leftH = left[1] - left[0] + 1;
+        int rightH = right[1] - right[0] + 1;
+        if (leftH < MIN_TEXT_ROWS || rightH < MIN_TEXT_ROWS) return null;
+        if (leftH > rightH * MAX_SIDE_HEIGHT_RATIO || rightH > leftH * MAX_SIDE_HEIGHT_RATIO) return null;
+
+        // Edge lines through strip centers, extrapolated to the line ends
+        float cxL = xL + strip / 2f;
+        float cxR = xR + 1 - strip / 2f;
+        float topSlope = (right[0] - left[0]) / (cxR - cxL);
+        float botSlope = (right[1] + 1 - (left[1] + 1)) / (cxR - cxL);
+
+        float tlX = upper[0] - MARGIN_PX;
+        float trX = upper[1] + 1 + MARGIN_PX;
+        float blX = lower[0] - MARGIN_PX;
+        float brX = lower[1] + 1 + MARGIN_PX;
+
+        float tlY = left[0] + topSlope * (tlX - cxL) - MARGIN_PX;
+        float trY = left[0] + topSlope * (trX - cxL) - MARGIN_PX;
+        float blY = left[1] + 1 + botSlope * (blX - cxL) + MARGIN_PX;
+        float brY = left[1] + 1 + botSlope * (brX - cxL) + MARGIN_PX;
+
+        return new Quad(tlX, tlY, trX, trY, brX, brY, blX, blY);
+    }
+
+    /**
+     * Inverse-map out[dw x dh] onto the quad in luma[sw x sh] and sample bilinearly.
+     * Output is grayscale ARGB.
+     */
+    static void warp(int[] luma, int sw, int sh, Quad q, int[] out, int dw, int dh) {
+        // Unit square -> quad projective map (Heckbert):
+        // x = (a*u + b*v + c) / (g*u + h*v + 1), y = (d*u + e*v + f) / (g*u + h*v + 1)
+        double x0 = q.tlX, y0 = q.tlY;
+        double x1 = q.trX, y1 = q.trY;
+        double x2 = q.brX, y2 = q.brY;
+        double x3 = q.blX, y3 = q.blY;
+
+        double dx1 = x1 - x2, dx2 = x3 - x2, dx3 = x0 - x1 + x2 - x3;
+        double dy1 = y1 - y2, dy2 = y3 - y2, dy3 = y0 - y1 + y2 - y3;
+
+        double g = 0, hh = 0;
+        double det = dx1 * dy2 - dx2 * dy1;
+        if ((dx3 != 0 || dy3 != 0) && det != 0) {
+            g = (dx3 * dy2 - dx2 * dy3) / det;
+            hh = (dx1 * dy3 - dx3 * dy1) / det;
+        }
+        double a = x1 - x0 + g * x1;
+        double b = x3 - x0 + hh * x3;
+        double d = y1 - y0 + g * y1;
+        double e = y3 - y0 + hh * y3;
+
+        // Fold pixel -> unit square (u = x / dw, v = y / dh) into the coefficients, then fixed point
+        final double s = (double) (1L << Q);
+        long fa = Math.round(a / dw * s), fb = Math.round(b / dh * s), fc = Math.round(x0 * s);
+        long fd = Math.round(d / dw * s), fe = Math.round(e / dh * s), ff = Math.round(y0 * s);
+        long fg = Math.round(g / dw * s), fh = Math.round(hh / dh * s), fi = 1L << Q;
+
+        final int maxX = sw - 1;
+        final int maxY = sh - 1;
+        final long maxX16 = (long) maxX << 16;
+        final long maxY16 = (long) maxY << 16;
+
+        for (int y = 0; y < dh; y++) {
+            // Sample at pixel centers: start at (0.5, y + 0.5)
+            long nx = fc + ((fa + fb * (2L * y + 1)) >> 1);
+            long ny = ff + ((fd + fe * (2L * y + 1)) >> 1);
+            long nw = fi + ((fg + fh * (2L * y + 1)) >> 1);
+            int dst = y * dw;
+
+            for (int x = 0; x < dw; x++, nx += fa, ny += fd, nw += fg) {
+                long sx = 0, sy = 0;
+                if (nw > 0) {
+                    // Source position in 16.16, shifted by -0.5 to address pixel centers
+                    sx = ((nx << 16) / nw) - 0x8000;
+                    sy = ((ny << 16) / nw) - 0x8000;
+                }
+                sx = sx < 0 ? 0 : (sx > maxX16 ? maxX16 : sx);
+                sy = sy < 0 ? 0 : (sy > maxY16 ? maxY16 : sy);
+
+                int ix = (int) (sx >> 16);
+                int iy = (int) (sy >> 16);
+                int wx = (int) ((sx >> 8) & 0xFF);
+                int wy = (int) ((sy >> 8) & 0xFF);
+                int ix1 = Math.min(ix + 1, maxX);
+                int iy1 = Math.min(iy + 1, maxY);
+                int r0 = iy * sw;
+                int r1 = iy1 * sw;
+
+                int top = luma[r0 + ix] * (256 - wx) + luma[r0 + ix1] * wx;
+                int bot = luma[r1 + ix] * (256 - wx) + luma[r1 + ix1] * wx;
+                int v = (top * (256 - wy) + bot * wy + (1 << 15)) >> 16;
+                out[dst + x] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            }
+        }
+    }
+
+    /** Row profile of |dx| over columns [x0, x1). */
+    private static void rowProfile(int[] luma, int w, int x0, int x1, int h, long[] prof) {
+        int from = Math.max(1, x0);
+        int to = Math.min(w, x1);
+        for (int y = 0; y < h; y++) {
+            int idx = y * w;
+            long sum = 0;
+            for (int x = from; x < to; x++) {
+                sum += Math.abs(luma[idx + x] - luma[idx + x - 1]);
+            }
+            prof[y] = sum;
+        }
+    }
+
+    /** Column profile of |dx| over rows [y0, y1). Row-major loop for cache locality. */
+    private static void colProfile(int[] luma, int w, int y0, int y1, long[] prof) {
+        Arrays.fill(prof, 0, w, 0L);
+        for (int y = y0; y < y1; y++) {
+            int idx = y * w;
+            for (int x = 1; x < w; x++) {
+                prof[x] += Math.abs(luma[idx + x] - luma[idx + x - 1]);
+            }
+        }
+    }
+
+    /** First and last index whose value is >= ratio * max, or null if the profile is flat. */
+    private static int[] onRange(long[] prof, int n, float ratio) {
+        long max = 0;
+        for (int i = 0; i < n; i++) {
+            if (prof[i] > max) max = prof[i];
+        }
+        if (max <= 0) return null;
+        long thr = (long) (max * ratio);
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < n; i++) {
+            if (prof[i] >= thr) {
+                if (first < 0) first = i;
+                last = i;
+            }
+        }
+        return first < 0 ? null : new int[] {first, last};
+    }
+
+    private static int[] loadLuma(Bitmap roi, int w, int h) {
+        int[] px = borrow(LUMA_POOL, w * h);
+        roi.getPixels(px, 0, w, 0, 0, w, h);
+        for (int i = 0; i < w * h; i++) {
+            int c = px[i];
+            int r = (c >> 16) & 0xFF;
+            int g = (c >> 8) & 0xFF;
+            int b = (c) & 0xFF;
+            // integer luma approximation
+            px[i] = (r * 77 + g * 150 + b * 29) >> 8;
+        }
+        return px;
+    }
+
+    private static int[] borrow(ThreadLocal<int[]> pool, int size) {
+        int[] buf = pool.get();
+        if (buf == null || buf.length < size) {
+            buf = new int[size];
+            pool.set(buf);
+        }
+        return buf;
+    }
+
+    private static long[] borrowLong(ThreadLocal<long[]> pool, int size) {
+        long[] buf = pool.get();
+        if (buf == null || buf.length < size) {
+            buf = new long[size];
+            pool.set(buf);
+        }
+        return buf;
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.graphics.Bitmap;
+
+import java.util.Arrays;
+
+/**
+ * Plans and applies a single resampling step for an MRZ ROI.
+ *
+ * Idea:
+ * - Measure glyph height from the ROI row edge profile (text rows have strong horizontal gradients).
+ * - Compute ONE factor that maps the measured glyph height to the engine optimum.
+ * - Apply it in a single pass: area averaging when shrinking, bilinear when enlarging.
+ *
+ * This replaces the chained analyzer upscale (nearest) + preprocessor upscale (bilinear), which could
+ * blow a 60px ROI up ~8x. Pixel buffers are pooled per thread; only the output bitmap is allocated.
+ */
+public final class MrzScalePlanner {
+
+    // Tesseract LSTM reads OCR-B best at roughly 30-36px capital height
+    public static final int TESS_TARGET_GLYPH_PX = 32;
+    // ML Kit wants >= 16px per character; only upscale when we are below this (with margin)
+    public static final int ML_MIN_GLYPH_PX = 24;
+
+    private static final float MIN_FACTOR = 0.5f;
+    private static final float MAX_FACTOR = 4.0f;
+    private static final float NO_OP_EPSILON = 0.05f;
+
+    // Fallback when rows can't be measured: MRZ is typically 2 lines, glyph ~60% of line pitch
+    private static final int FALLBACK_LINES = 2;
+    private static final float FALLBACK_GLYPH_TO_PITCH = 0.6f;
+
+    // Row profile thresholding
+    private static final float ROW_THRESH_RATIO = 0.35f;
+    private static final float MIN_RUN_TO_MAX_RATIO = 0.5f;
+    private static final int MIN_GLYPH_PX = 4;
+
+    private static final ThreadLocal<int[]> SRC_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<int[]> DST_POOL = new ThreadLocal<>();
+    private static final ThreadLocal<long[]> ROW_POOL = new ThreadLocal<>();
+
+    public static final class Plan {
+        public final int glyphHeightPx;
+        public final boolean measured;
+        public final float factor;
+        public final int outWidth;
+        public final int outHeight;
+
+        Plan(int glyphHeightPx, boolean measured, float factor, int outWidth, int outHeight) {
+            this.glyphHeightPx = glyphHeightPx;
+            this.measured = measured;
+            this.factor = factor;
+            this.outWidth = outWidth;
+            this.outHeight = outHeight;
+        }
+
+        public boolean isIdentity() {
+            return Math.abs(factor - 1f) < NO_OP_EPSILON;
+        }
+    }
+
+    private MrzScalePlanner() {}
+
+    /**
+     * @param emphasis relative multiplier on the Tesseract target (candidate scale / default scale)
+     */
+    public static Plan planForTesseract(Bitmap roi, float emphasis) {
+        float e = emphasis > 0f ? emphasis : 1f;
+        return plan(roi, Math.round(TESS_TARGET_GLYPH_PX * e), false);
+    }
+
+    public static Plan planForMl(Bitmap roi) {
+        return plan(roi, ML_MIN_GLYPH_PX, true);
+    }
+
+    public static Plan plan(Bitmap roi, int targetGlyphPx, boolean upscaleOnly) {
+        if (roi == null) return null;
+        int w = roi.getWidth();
+        int h = roi.getHeight();
+        int[] px = borrow(SRC_POOL, w * h);
+        roi.getPixels(px, 0, w, 0, 0, w, h);
+        return plan(px, w, h, targetGlyphPx, upscaleOnly);
+    }
+
+    public static Plan plan(int[] argb, int w, int h, int targetGlyphPx, boolean upscaleOnly) {
+        return planForGlyph(measureGlyphHeight(argb, w, h), w, h, targetGlyphPx, upscaleOnly);
+    }
+
+    /** Tesseract plan for a single-channel luma buffer (row stride = w). */
+    public static Plan planForTesseract(byte[] luma, int w, int h, float emphasis) {
+        float e = emphasis > 0f ? emphasis : 1f;
+        return planForGlyph(measureGlyphHeight(luma, w, h), w, h, Math.round(TESS_TARGET_GLYPH_PX * e), false);
+    }
+
+    private static Plan planForGlyph(int glyph, int w, int h, int targetGlyphPx, boolean upscaleOnly) {
+        boolean measured = glyph > 0;
+        if (!measured) {
+            glyph = Math.max(1, Math.round(h / (float) FALLBACK_LINES * FALLBACK_GLYPH_TO_PITCH));
+        }
+
+        float factor = targetGlyphPx / (float) glyph;
+        factor = Math.max(MIN_FACTOR, Math.min(factor, MAX_FACTOR));
+        if (upscaleOnly && factor < 1f) factor = 1f;
+
+        int outW = Math.max(1, Math.round(w * factor));
+        int outH = Math.max(1, Math.round(h * factor));
+        return new Plan(glyph, measured, factor, outW, outH);
+    }
+
+    /**
+     * Resample src according to plan in one pass. Input is expected to be grayscale
+     * (R=G=B); output is a grayscale ARGB_8888 bitmap.
+     */
+    public static Bitmap apply(Bitmap src, Plan plan) {
+        if (src == null || plan == null || plan.isIdentity()) return src;
+
+        int sw = src.getWidth();
+        int sh = src.getHeight();
+        int dw = plan.outWidth;
+        int dh = plan.outHeight;
+
+        int[] in = borrow(SRC_POOL, sw * sh);
+        src.getPixels(in, 0, sw, 0, 0, sw, sh);
+        int[] out = borrow(DST_POOL, dw * dh);
+
+        if (dw < sw || dh < sh) {
+            resampleArea(in, sw, sh, out, dw, dh);
+        } else {
+            resampleBilinear(in, sw, sh, out, dw, dh);
+        }
+
+        Bitmap result = FrameArena.createBitmap(dw, dh, Bitmap.Config.ARGB_8888);
+        result.setPixels(out, 0, dw, 0, 0, dw, dh);
+        return result;
+    }
+
+    /**
+     * Resample a luma buffer (row stride = sw) according to plan in one pass. Returns a new buffer,
+     * or in itself for an identity plan.
+     */
+    public static byte[] apply(byte[] in, int sw, int sh, Plan plan) {
+        if (in == null || plan == null || plan.isIdentity()) return in;
+        byte[] out = new byte[plan.outWidth * plan.outHeight];
+        if (plan.outWidth < sw || plan.outHeight < sh) {
+            resampleArea(in, sw, sh, out, plan.outWidth, plan.outHeight);
+        } else {
+            resampleBilinear(in, sw, sh, out, plan.outWidth, plan.outHeight);
+        }
+        return out;
+    }
+
+    /**
+     * Median height of text rows found in the row gradient profile, or 0 if no rows stand out.
+     */
+    static int measureGlyphHeight(int[] argb, int w, int h) {
+        if (argb == null || w < 2 || h < MIN_GLYPH_PX) return 0;
+
+        long[] rowEnergy = borrowLong(ROW_POOL, h);
+        for (int y = 0; y < h; y++) {
+            int idx = y * w;
+            int prev = lum(argb[idx]);
+            long sum = 0;
+            for (int x = 1; x < w; x++) {
+                int cur = lum(argb[idx + x]);
+                sum += Math.abs(cur - prev);
+                prev = cur;
+            }
+            rowEnergy[y] = sum;
+        }
+        return glyphHeightFromRows(rowEnergy, h);
+    }
+
+    /** Luma variant of {@link #measureGlyphHeight(int[], int, int)}. */
+    static int measureGlyphHeight(byte[] luma, int w, int h) {
+        if (luma == null || w < 2 || h < MIN_GLYPH_PX) return 0;
+
+        long[] rowEnergy = borrowLong(ROW_POOL, h);
+        for (int y = 0; y < h; y++) {
+            int idx = y * w;
+            int prev = luma[idx] & 0xFF;
+            long sum = 0;
+            for (int x = 1; x < w; x++) {
+                int cur = luma[idx + x] & 0xFF;
+                sum += Math.abs(cur - prev);
+                prev = cur;
+            }
+            rowEnergy[y] = sum;
+        }
+        return glyphHeightFromRows(rowEnergy, h);
+    }
+
+    private static int glyphHeightFromRows(long[] rowEnergy, int h) {
+        long maxE = 0;
+        for (int y = 0; y < h; y++) {
+            if (rowEnergy[y] > maxE) maxE = rowEnergy[y];
+        }
+        if (maxE <= 0) return 0;
+
+        long thr = (long) (maxE * ROW_THRESH_RATIO);
+
+        // Collect run heights; MRZ has at most 3 lines, so the small array rarely grows
+        int[] runs = new int[8];
+        int runCount = 0;
+        int maxRun = 0;
+        int start = -1;
+        for (int y = 0; y <= h; y++) {
+            boolean on = y < h && rowEnergy[y] >= thr;
+            if (on && start < 0) {
+                start = y;
+            } else if (!on && start >= 0) {
+                int len = y - start;
+                if (len >= MIN_GLYPH_PX) {
+                    if (runCount == runs.length) {
+                        int[] grown = new int[runs.length * 2];
+                        System.arraycopy(runs, 0, grown, 0, runs.length);
+                        runs = grown;
+                    }
+                    runs[runCount++] = len;
+                    if (len > maxRun) maxRun = len;
+                }
+                start = -1;
+            }
+        }
+        if (runCount == 0) return 0;
+
+        // Drop thin noise runs, take median of the rest
+        int kept = 0;
+        int minKeep = Math.round(maxRun * MIN_RUN_TO_MAX_RATIO);
+        for (int i = 0; i < runCount; i++) {
+            if (runs[i] >= minKeep) runs[kept++] = runs[i];
+        }
+        Arrays.sort(runs, 0, kept);
+        return runs[kept / 2];
+    }
+
+    private static void resampleBilinear(int[] in, int sw, int sh, int[] out, int dw, int dh) {
+        // 16.16 fixed point, pixel-center aligned
+        final int fx = (int) (((long) sw << 16) / dw);
+        final int fy = (int) (((long) sh << 16) / dh);
+        final int maxX = sw - 1;
+        final int maxY = sh - 1;
+
+        int sy = (fy >> 1) - 0x8000;
+        for (int y = 0; y < dh; y++, sy += fy) {
+            int syc = Math.max(0, sy);
+            int y0 = Math.min(syc >> 16, maxY);
+            int y1 = Math.min(y0 + 1, maxY);
+            int wy = (syc >> 8) & 0xFF;
+            int row0 = y0 * sw;
+            int row1 = y1 * sw;
+            int dst = y * dw;
+
+            int sx = (fx >> 1) - 0x8000;
+            for (int x = 0; x < dw; x++, sx += fx) {
+                int sxc = Math.max(0, sx);
+                int x0 = Math.min(sxc >> 16, maxX);
+                int x1 = Math.min(x0 + 1, maxX);
+                int wx = (sxc >> 8) & 0xFF;
+
+                int top = lum(in[row0 + x0]) * (256 - wx) + lum(in[row0 + x1]) * wx;
+                int bot = lum(in[row1 + x0]) * (256 - wx) + lum(in[row1 + x1]) * wx;
+                int v = (top * (256 - wy) + bot * wy + (1 << 15)) >> 16;
+                out[dst + x] = gray(v);
+            }
+        }
+    }
+
+    private static void resampleArea(int[] in, int sw, int sh, int[] out, int dw, int dh) {
+        for (int y = 0; y < dh; y++) {
+            int y0 = (int) ((long) y * sh / dh);
+            int y1 = Math.max(y0 + 1, (int) ((long) (y + 1) * sh / dh));
+            int dst = y * dw;
+            for (int x = 0; x < dw; x++) {
+                int x0 = (int) ((long) x * sw / dw);
+                int x1 = Math.max(x0 + 1, (int) ((long) (x + 1) * sw / dw));
+                int sum = 0;
+                for (int yy = y0; yy < y1; yy++) {
+                    int row = yy * sw;
+                    for (int xx = x0; xx < x1; xx++) {
+                        sum += lum(in[row + xx]);
+                    }
+                }
+                out[dst + x] = gray(sum / ((y1 - y0) * (x1 - x0)));
+            }
+        }
+    }
+
+    private static void resampleBilinear(byte[] in, int sw, int sh, byte[] out, int dw, int dh) {
+        final int fx = (int) (((long) sw << 16) / dw);
+        final int fy = (int) (((long) sh << 16) / dh);
+        final int maxX = sw - 1;
+        final int maxY = sh - 1;
+
+        int sy = (fy >> 1) - 0x8000;
+        for (int y = 0; y < dh; y++, sy += fy) {
+            int syc = Math.max(0, sy);
+            int y0 = Math.min(syc >> 16, maxY);
+            int y1 = Math.min(y0 + 1, maxY);
+            int wy = (syc >> 8) & 0xFF;
+            int row0 = y0 * sw;
+            int row1 = y1 * sw;
+            int dst = y * dw;
+
+            int sx = (fx >> 1) - 0x8000;
+            for (int x = 0; x < dw; x++, sx += fx) {
+                int sxc = Math.max(0, sx);
+                int x0 = Math.min(sxc >> 16, maxX);
+                int x1 = Math.min(x0 + 1, maxX);
+                int wx = (sxc >> 8) & 0xFF;
+
+                int top = (in[row0 + x0] & 0xFF) * (256 - wx) + (in[row0 + x1] & 0xFF) * wx;
+                int bot = (in[row1 + x0] & 0xFF) * (256 - wx) + (in[row1 + x1] & 0xFF) * wx;
+                out[dst + x] = (byte) ((top * (256 - wy) + bot * wy + (1 << 15)) >> 16);
+            }
+        }
+    }
+
+    private static void resampleArea(byte[] in, int sw, int sh, byte[] out, int dw, int dh) {
+        for (int y = 0; y < dh; y++) {
+            int y0 = (int) ((long) y * sh / dh);
+            int y1 = Math.max(y0 + 1, (int) ((long) (y + 1) * sh / dh));
+            int dst = y * dw;
+            for (int x = 0; x < dw; x++) {
+                int x0 = (int) ((long) x * sw / dw);
+                int x1 = Math.max(x0 + 1, (int) ((long) (x + 1) * sw / dw));
+                int sum = 0;
+                for (int yy = y0; yy < y1; yy++) {
+                    int row = yy * sw;
+                    for (int xx = x0; xx < x1; xx++) {
+                        sum += in[row + xx] & 0xFF;
+                    }
+                }
+                out[dst + x] = (byte) (sum / ((y1 - y0) * (x1 - x0)));
+            }
+        }
+    }
+
+    private static int lum(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = (argb) & 0xFF;
+        // integer luma approximation
+        return (r * 77 + g * 150 + b * 29) >> 8;
+    }
+
+    private static int gray(int v) {
+        int c = v < 0 ? 0 : (v > 255 ? 255 : v);
+        return 0xFF000000 | (c << 16) | (c << 8) | c;
+    }
+
+    private static int[] borrow(ThreadLocal<int[]> pool, int size) {
+        int[] buf = pool.get();
+        if (buf == null || buf.length < size) {
+            buf = new int[size];
+            pool.set(buf);
+        }
+        return buf;
+    }
+
+    private static long[] borrowLong(ThreadLocal<long[]> pool, int size) {
+        long[] buf = pool.get();
+        if (buf == null || buf.length < size) {
+            buf = new long[size];
+            pool.set(buf);
+        }
+        return buf;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.graphics.Rect;
+
+/**
+ * Decides where MrzAutoDetector should look in the next frame.
+ *
+ * Idea:
+ * - Once the MRZ has been detected, search only an expanded window around the stable rect.
+ * - Re-acquire with a full-frame scan every N frames, after a miss, or when OCR confidence drops
+ *   (caller invokes {@link #requestFullScan()}).
+ *
+ * Thread-safe: detection runs on the pipeline thread, confidence feedback arrives on OCR callbacks.
+ */
+public final class MrzSearchWindow {
+
+    // Full-frame scan at least every N frames to re-acquire a moved/replaced document
+    public static final int DEFAULT_FULL_SCAN_INTERVAL = 10;
+
+    // Window around the stable rect: MRZ moves mostly vertically between frames in handheld use
+    private static final float EXPAND_X_RATIO = 0.10f; // of rect width, each side
+    private static final float EXPAND_Y_RATIO = 0.75f; // of rect height, each side
+
+    private final int fullScanInterval;
+
+    private Rect anchor;
+    private int framesSinceFullScan;
+    private boolean fullScanRequested = true;
+
+    public MrzSearchWindow() {
+        this(DEFAULT_FULL_SCAN_INTERVAL);
+    }
+
+    public MrzSearchWindow(int fullScanInterval) {
+        if (fullScanInterval < 1) throw new IllegalArgumentException("fullScanInterval must be >= 1");
+        this.fullScanInterval = fullScanInterval;
+    }
+
+    /**
+     * Window to scan in the next frame (original coordinates), or null for a full-frame scan.
+     */
+    public synchronized Rect next(int frameW, int frameH) {
+        if (anchor == null || fullScanRequested || framesSinceFullScan >= fullScanInterval) {
+            fullScanRequested = false;
+            framesSinceFullScan = 0;
+            return null;
+        }
+        framesSinceFullScan++;
+        return expand(anchor, frameW, frameH);
+    }
+
+    /**
+     * Report the outcome of this frame's detection.
+     *
+     * @param detected detector output (null on a miss)
+     * @param stable   stabilized rect used for OCR; becomes the next window anchor on a hit
+     */
+    public synchronized void onDetection(Rect detected, Rect stable) {
+        if (detected == null || stable == null) {
+            // Lost in the window (or not found at all): next frame scans the full frame
+            anchor = null;
+            return;
+        }
+        anchor = new Rect(stable);
+    }
+
+    /** Force the next frame to scan the full frame (e.g. OCR found no MRZ in the stable rect). */
+    public synchronized void requestFullScan() {
+        fullScanRequested = true;
+    }
+
+    public synchronized void reset() {
+        anchor = null;
+        framesSinceFullScan = 0;
+        fullScanRequested = true;
+    }
+
+    private static Rect expand(Rect r, int frameW, int frameH) {
+        int dx = Math.round(r.width() * EXPAND_X_RATIO);
+        int dy = Math.round(r.height() * EXPAND_Y_RATIO);
+        int left = Math.max(0, r.left - dx);
+        int top = Math.max(0, r.top - dy);
+        int right = Math.min(frameW, r.right + dx);
+        int bottom = Math.min(frameH, r.bottom + dy);
+        return new Rect(left, top, Math.max(left + 1, right), Math.max(top + 1, bottom));
+    }
+}
@@ -3,6 +3,7 @@ package com.example.emrtdreader.sdk.ocr;
 import android.util.Log;
 
 import com.example.emrtdreader.sdk.models.MrzFormat;
+import com.example.emrtdreader.sdk.models.MrzLayout;
 import com.example.emrtdreader.sdk.models.MrzResult;
 
 import java.util.ArrayList;
@@ -13,6 +14,9 @@ public final class MrzTextProcessor {
 
     private static final String TAG = "MRZ_PROC";
 
+    /** Highest confidence {@link #parse} assigns (all structural checks pass). */
+    public static final int MAX_CONFIDENCE = 5;
+
     private MrzTextProcessor() {}
 
     // =====================================================================
@@ -21,11 +25,24 @@ public final class MrzTextProcessor {
 
     /** Используется по всему пайплайну */
     public static MrzResult normalizeAndRepair(String rawOcrText) {
-        return parse(rawOcrText);
+        return parse(rawOcrText, null);
+    }
+
+    /** Same as {@link #normalizeAndRepair(String)}, limited to formats the ROI geometry allows. */
+    public static MrzResult normalizeAndRepair(String rawOcrText, MrzLayout layout) {
+        return parse(rawOcrText, layout);
     }
 
     /** Основной парсер */
     public static MrzResult parse(String rawOcrText) {
+        return parse(rawOcrText, null);
+    }
+
+    /**
+     * Parse with a geometry hint from {@link MrzLayoutEstimator}: OCR text whose line structure
+     * belongs to a format the band can't hold is rejected without parsing. Null = no hint.
+     */
+    public static MrzResult parse(String rawOcrText, MrzLayout layout) {
         if (rawOcrText == null || rawOcrText.trim().isEmpty()) {
             return null;
         }
@@ -33,10 +50,12 @@ public final class MrzTextProcessor {
         List<String> lines = normalizeLines(rawOcrText);
 
         if (lines.size() == 2 && lines.get(0).length() == 44) {
+            if (layout != null && !layout.allows(MrzFormat.TD3)) return null;
             return parseTD3(lines);
         }
 
         if (lines.size() == 3 && lines.get(0).length() == 30) {
+            if (layout != null && !layout.allows(MrzFormat.TD1)) return null;
             return parseTD1(lines);
         }
 
@@ -160,6 +179,6 @@ public final class MrzTextProcessor {
         }
         if (format == MrzFormat.TD3 && lines.size() == 2) score++;
         if (format == MrzFormat.TD1 && lines.size() == 3) score++;
-        return Math.min(score, 5);
+        return Math.min(score, MAX_CONFIDENCE);
     }
 }
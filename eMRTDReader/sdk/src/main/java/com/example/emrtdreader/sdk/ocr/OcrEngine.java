@@ -2,10 +2,16 @@ package com.example.emrtdreader.sdk.ocr;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.CancellationSignal;
 
 import com.example.emrtdreader.sdk.models.OcrResult;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface OcrEngine {
+    /** Invoked on an engine or SDK worker thread (never the main thread). */
     interface Callback {
         void onSuccess(OcrResult result);
         void onFailure(Throwable error);
@@ -14,5 +20,42 @@ public interface OcrEngine {
     String getName();
     boolean isAvailable(Context ctx);
     void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees, Callback callback);
+
+    /**
+     * Cancellable variant. Once signal is canceled the engine skips work that hasn't started and
+     * interrupts work in progress where it can, freeing its worker; the callback of canceled work is
+     * not invoked. The engine installs the signal's cancel listener, so use one signal per call.
+     * Engines without cancellation support ignore the signal.
+     */
+    default void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees,
+                                CancellationSignal signal, Callback callback) {
+        recognizeAsync(ctx, bitmap, rotationDegrees, callback);
+    }
+
+    /** True if the engine reads {@link LumaImage} input directly (no bitmap on its path). */
+    default boolean supportsLuma() {
+        return false;
+    }
+
+    /**
+     * Recognize a single-channel image. With regions (e.g. {@link MrzLumaPreprocessor#lineStrips}),
+     * each rectangle is recognized separately and the texts are joined with newlines; null or empty
+     * regions recognize the whole image. Only valid when {@link #supportsLuma()} is true.
+     */
+    default void recognizeLumaAsync(Context ctx, LumaImage image, List<Rect> regions,
+                                    CancellationSignal signal, Callback callback) {
+        if (callback != null) {
+            callback.onFailure(new UnsupportedOperationException(getName() + " does not accept luma input"));
+        }
+    }
+
+    /**
+     * Load models / native state ahead of the first recognition. The future completes once the engine
+     * is warm (exceptionally if it can't be initialized). Engines without a costly init complete at once.
+     */
+    default CompletableFuture<Void> warmUp(Context ctx) {
+        return CompletableFuture.completedFuture(null);
+    }
+
     void close();
 }
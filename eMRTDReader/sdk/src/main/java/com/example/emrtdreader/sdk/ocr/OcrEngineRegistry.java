@@ -0,0 +1,141 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Process-wide owner of the OCR engines.
+ *
+ * Idea:
+ * - Engines are created once per process and shared by every scanner screen, so the Tesseract
+ *   traineddata copy / TessBaseAPI init and the ML Kit model load are paid once, not per session.
+ * - {@link #preload()} (call it from Application.onCreate) creates and warms the engines on a
+ *   background thread; {@link #whenReady()} exposes that as a future the scanner can wait on before
+ *   it starts feeding frames.
+ * - Readiness means "warm-up attempted": a failed warm-up (e.g. no traineddata offline) is logged and
+ *   does not block the scanner, the engine then reports the failure on its first OCR call.
+ *
+ * Shared engines are never closed by callers; they live as long as the process.
+ */
+public final class OcrEngineRegistry {
+
+    private static final String TAG = "OcrEngineRegistry";
+
+    /** Creates an engine; called once per registry on the preload thread (or the first caller). */
+    interface EngineFactory {
+        OcrEngine create();
+    }
+
+    private static final Object INSTANCE_LOCK = new Object();
+    private static volatile OcrEngineRegistry instance;
+
+    private final Context appContext;
+    private final EngineFactory mlKitFactory;
+    private final EngineFactory tessFactory;
+
+    private final Object lock = new Object();
+    private OcrEngine mlKit;
+    private OcrEngine tess;
+    private AdaptiveOcrRouter adaptiveRouter;
+    private CompletableFuture<Void> ready;
+
+    OcrEngineRegistry(Context appContext, EngineFactory mlKitFactory, EngineFactory tessFactory) {
+        if (appContext == null) {
+            throw new IllegalArgumentException("appContext cannot be null");
+        }
+        if (mlKitFactory == null || tessFactory == null) {
+            throw new IllegalArgumentException("engine factories cannot be null");
+        }
+        this.appContext = appContext;
+        this.mlKitFactory = mlKitFactory;
+        this.tessFactory = tessFactory;
+    }
+
+    /** The process-wide registry (ML Kit + pooled Tesseract). */
+    public static OcrEngineRegistry get(Context ctx) {
+        if (ctx == null) {
+            throw new IllegalArgumentException("ctx cannot be null");
+        }
+        OcrEngineRegistry r = instance;
+        if (r != null) return r;
+        synchronized (INSTANCE_LOCK) {
+            if (instance == null) {
+                Context app = ctx.getApplicationContext();
+                instance = new OcrEngineRegistry(app != null ? app : ctx,
+                        MlKitOcrEngine::new, TesseractOcrEngine::new);
+            }
+            return instance;
+        }
+    }
+
+    /** Shared ML Kit engine (created on demand if preload hasn't run yet). */
+    public OcrEngine mlKit() {
+        synchronized (lock) {
+            if (mlKit == null) mlKit = mlKitFactory.create();
+            return mlKit;
+        }
+    }
+
+    /** Shared Tesseract engine (created on demand if preload hasn't run yet). */
+    public OcrEngine tesseract() {
+        synchronized (lock) {
+            if (tess == null) tess = tessFactory.create();
+            return tess;
+        }
+    }
+
+    /** Shared adaptive router, so what one scanner session learns carries over to the next. */
+    public AdaptiveOcrRouter adaptiveRouter() {
+        synchronized (lock) {
+            if (adaptiveRouter == null) adaptiveRouter = new AdaptiveOcrRouter(appContext);
+            return adaptiveRouter;
+        }
+    }
+
+    /** Start creating and warming the engines in the background. Idempotent. */
+    public void preload() {
+        whenReady();
+    }
+
+    /**
+     * Completes once both engines have been created and their warm-up finished (successfully or
+     * not). Starts the preload if it wasn't started yet.
+     */
+    public CompletableFuture<Void> whenReady() {
+        CompletableFuture<Void> started;
+        synchronized (lock) {
+            if (ready != null) return ready;
+            ready = new CompletableFuture<>();
+            started = ready;
+        }
+        // Low priority: a scan already in flight keeps the OCR lane first
+        OcrScheduler.get().execute(OcrScheduler.Lane.OCR, OcrScheduler.PRIORITY_LOW, () -> {
+            CompletableFuture<Void> mlReady = warm(mlKit());
+            CompletableFuture<Void> tessReady = warm(tesseract());
+            CompletableFuture.allOf(mlReady, tessReady).whenComplete((ignored, ex) -> started.complete(null));
+        });
+        return started;
+    }
+
+    public boolean isReady() {
+        synchronized (lock) {
+            return ready != null && ready.isDone();
+        }
+    }
+
+    private CompletableFuture<Void> warm(OcrEngine engine) {
+        CompletableFuture<Void> warm;
+        try {
+            warm = engine.warmUp(appContext);
+        } catch (Throwable e) {
+            warm = new CompletableFuture<>();
+            warm.completeExceptionally(e);
+        }
+        return warm.handle((ignored, ex) -> {
+            if (ex != null) Log.w(TAG, engine.getName() + " warm-up failed", ex);
+            return null;
+        });
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed pool of heavyweight OCR instances (e.g. TessBaseAPI), each confined to its own worker thread.
+ *
+ * Idea:
+ * - Pool size is the configured maximum, capped by a memory budget (each instance loads its own
+ *   traineddata): size = min(maxInstances, budget / bytesPerInstance), at least 1.
+ * - A job checks out an idle slot, runs on that slot's single worker thread with the slot's
+ *   instance, and returns the slot when it finishes; queued jobs wait for the next returned slot.
+ * - Instances are created lazily on their worker (only as many as concurrent demand needs) and
+ *   disposed on the same worker on close, so no instance is ever touched by two threads.
+ *   {@link #warmAll()} creates every slot's instance up front, so no job pays the factory cost.
+ *
+ * Thread-safe.
+ */
+public final class OcrInstancePool<T> {
+
+    /** Creates one instance; called on the slot's worker thread. */
+    public interface Factory<T> {
+        T create() throws Exception;
+    }
+
+    /** Releases one instance; called on the slot's worker thread. */
+    public interface Disposer<T> {
+        void dispose(T instance);
+    }
+
+    public interface Job<T> {
+        /**
+         * Runs on the slot's worker with its instance; the instance must not escape the call.
+         * The job reports its own errors: {@link #fail} is not called after run.
+         */
+        void run(T instance);
+
+        /** The job could not run: the instance failed to initialize or the pool is closed. */
+        void fail(Throwable error);
+    }
+
+    private final Factory<T> factory;
+    private final Disposer<T> disposer;
+    private final List<Slot> slots;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Slot> idle = new ArrayDeque<>();
+    private final ArrayDeque<Job<T>> pending = new ArrayDeque<>();
+    private boolean closed;
+
+    public OcrInstancePool(String name,
+                           int maxInstances,
+                           long memoryBudgetBytes,
+                           long bytesPerInstance,
+                           Factory<T> factory,
+                           Disposer<T> disposer) {
+        if (name == null) {
+            throw new IllegalArgumentException("name cannot be null");
+        }
+        if (maxInstances < 1) {
+            throw new IllegalArgumentException("maxInstances must be >= 1");
+        }
+        if (memoryBudgetBytes <= 0 || bytesPerInstance <= 0) {
+            throw new IllegalArgumentException("memory sizes must be > 0");
+        }
+        if (factory == null || disposer == null) {
+            throw new IllegalArgumentException("factory/disposer cannot be null");
+        }
+        this.factory = factory;
+        this.disposer = disposer;
+
+        int size = sizeFor(maxInstances, memoryBudgetBytes, bytesPerInstance);
+        ThreadFactory threads = new NamedThreadFactory(name);
+        List<Slot> created = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Slot slot = new Slot(Executors.newSingleThreadExecutor(threads));
+            created.add(slot);
+            idle.add(slot);
+        }
+        this.slots = created;
+    }
+
+    /** Number of instances the budget allows (at least one). */
+    static int sizeFor(int maxInstances, long memoryBudgetBytes, long bytesPerInstance) {
+        long byBudget = memoryBudgetBytes / bytesPerInstance;
+        return (int) Math.max(1, Math.min(maxInstances, byBudget));
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /** Slots currently checked out by running jobs. */
+    public int busy() {
+        synchronized (lock) {
+            return slots.size() - idle.size();
+        }
+    }
+
+    /** Jobs waiting for a free slot. */
+    public int queued() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /** Run job on the next free instance (immediately if one is idle, else in submission order). */
+    public void execute(Job<T> job) {
+        if (job == null) {
+            throw new IllegalArgumentException("job cannot be null");
+        }
+        Slot slot;
+        synchronized (lock) {
+            if (closed) {
+                slot = null;
+            } else {
+                slot = idle.poll();
+                if (slot == null) {
+                    pending.add(job);
+                    return;
+                }
+            }
+        }
+        if (slot == null) {
+            job.fail(new IllegalStateException("OCR instance pool is closed"));
+            return;
+        }
+        slot.run(job);
+    }
+
+    /**
+     * Create the instance of every slot on its own worker, ahead of the first job (idle slots are
+     * handed out in any order, so warming a single one doesn't keep the factory off the scan path).
+     * Completes once every slot has tried; exceptionally with the first factory failure. Slots that
+     * fail retry on their next job.
+     */
+    public CompletableFuture<Void> warmAll() {
+        List<CompletableFuture<Void>> warmed = new ArrayList<>(slots.size());
+        for (Slot slot : slots) {
+            warmed.add(slot.warm());
+        }
+        return CompletableFuture.allOf(warmed.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Drop job if it is still waiting for a slot. Returns true if it was removed: it will neither run
+     * nor fail. A job that already started is not affected (the caller interrupts it through its
+     * instance, e.g. TessBaseAPI.stop()).
+     */
+    public boolean cancel(Job<T> job) {
+        if (job == null) return false;
+        synchronized (lock) {
+            return pending.remove(job);
+        }
+    }
+
+    /** Fails queued jobs, then disposes every instance on its own worker and stops the workers. */
+    public void close() {
+        List<Job<T>> dropped;
+        synchronized (lock) {
+            if (closed) return;
+            closed = true;
+            dropped = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (Job<T> job : dropped) {
+            job.fail(new IllegalStateException("OCR instance pool is closed"));
+        }
+        for (Slot slot : slots) {
+            slot.shutdown();
+        }
+    }
+
+    /** Give the slot to the next queued job, or back to the idle set. */
+    private void checkIn(Slot slot) {
+        Job<T> next;
+        synchronized (lock) {
+            next = closed ? null : pending.poll();
+            if (next == null) {
+                idle.add(slot);
+                return;
+            }
+        }
+        slot.run(next);
+    }
+
+    private final class Slot {
+        private final ExecutorService worker;
+        // Touched only on the worker thread
+        private T instance;
+
+        Slot(ExecutorService worker) {
+            this.worker = worker;
+        }
+
+        void run(Job<T> job) {
+            try {
+                worker.execute(() -> runOnWorker(job));
+            } catch (RejectedExecutionException e) {
+                // close() stopped the worker after this slot was taken: the job must still hear back
+                job.fail(new IllegalStateException("OCR instance pool is closed", e));
+            }
+        }
+
+        private void runOnWorker(Job<T> job) {
+            try {
+                T api;
+                try {
+                    api = acquire();
+                } catch (Throwable e) {
+                    job.fail(e);
+                    return;
+                }
+                try {
+                    job.run(api);
+                } catch (Throwable ignored) {
+                    // Jobs report their own failures; a throwing job must not lose the slot
+                }
+            } finally {
+                checkIn(this);
+            }
+        }
+
+        CompletableFuture<Void> warm() {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            synchronized (lock) {
+                if (closed) {
+                    done.completeExceptionally(new IllegalStateException("OCR instance pool is closed"));
+                    return done;
+                }
+            }
+            try {
+                // Serialized with this slot's jobs: the instance stays confined to the worker
+                worker.execute(() -> {
+                    try {
+                        acquire();
+                        done.complete(null);
+                    } catch (Throwable e) {
+                        done.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                done.completeExceptionally(new IllegalStateException("OCR instance pool is closed", e));
+            }
+            return done;
+        }
+
+        private T acquire() throws Exception {
+            if (instance == null) {
+                T created = factory.create();
+                if (created == null) {
+                    throw new IllegalStateException("OCR instance factory returned null");
+                }
+                instance = created;
+            }
+            return instance;
+        }
+
+        void shutdown() {
+            worker.execute(() -> {
+                if (instance != null) {
+                    try {
+                        disposer.dispose(instance);
+                    } catch (Throwable ignored) {}
+                    instance = null;
+                }
+            });
+            worker.shutdown();
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String baseName;
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        private NamedThreadFactory(String baseName) {
+            this.baseName = baseName;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, baseName + "-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
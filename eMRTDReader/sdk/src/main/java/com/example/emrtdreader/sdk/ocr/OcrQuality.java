@@ -11,4 +11,39 @@ public final class OcrQuality {
         FrameStats stats = FrameStats.compute(bmp);
         return new OcrMetrics(stats.brightness, stats.contrast, stats.sharpness);
     }
+
+    /** Same metrics (mean, stddev, Laplacian variance) straight from a luma image. */
+    public static OcrMetrics compute(LumaImage img) {
+        if (img == null) return new OcrMetrics(0, 0, 0);
+        int w = img.width;
+        int h = img.height;
+        byte[] d = img.data;
+        long sum = 0;
+        long sum2 = 0;
+        long lapSum = 0;
+        long lapSum2 = 0;
+        long lapCount = 0;
+        for (int y = 0; y < h; y++) {
+            int row = y * img.stride;
+            for (int x = 0; x < w; x++) {
+                int v = d[row + x] & 0xFF;
+                sum += v;
+                sum2 += (long) v * v;
+                if (y > 0 && y < h - 1 && x > 0 && x < w - 1) {
+                    int lap = -4 * v
+                            + (d[row + x - 1] & 0xFF) + (d[row + x + 1] & 0xFF)
+                            + (d[row - img.stride + x] & 0xFF) + (d[row + img.stride + x] & 0xFF);
+                    lapSum += lap;
+                    lapSum2 += (long) lap * lap;
+                    lapCount++;
+                }
+            }
+        }
+        double n = (double) w * h;
+        double mean = sum / n;
+        double stddev = Math.sqrt(Math.max(0, sum2 / n - mean * mean));
+        double lapMean = lapCount > 0 ? lapSum / (double) lapCount : 0;
+        double lapVar = lapCount > 0 ? lapSum2 / (double) lapCount - lapMean * lapMean : 0;
+        return new OcrMetrics(mean, stddev, lapVar);
+    }
 }
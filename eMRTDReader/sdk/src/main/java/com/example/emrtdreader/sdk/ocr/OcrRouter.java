@@ -2,6 +2,7 @@ package com.example.emrtdreader.sdk.ocr;
 
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.os.CancellationSignal;
 import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
@@ -10,9 +11,8 @@ import com.example.emrtdreader.sdk.models.MrzResult;
 import com.example.emrtdreader.sdk.models.OcrMetrics;
 import com.example.emrtdreader.sdk.models.OcrResult;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -23,6 +23,15 @@ import java.util.concurrent.atomic.AtomicReference;
  * IMPORTANT POLICY:
  * - MRZ result is derived ONLY from Tesseract output (never from ML Kit).
  *
+ * Candidate loop modes:
+ * - exhaustive (default): candidates run one after another and all of them are evaluated;
+ * - parallel ({@link #runAsync(Context, OcrEngine, OcrEngine, Bitmap, int, int, Callback)}): up to N
+ *   candidates are in flight on the engine's workers, dispatched in priority order. Once candidate i
+ *   reaches {@link MrzTextProcessor#MAX_CONFIDENCE} and every candidate before it has finished, the
+ *   rest is not dispatched and in-flight results are discarded. The pick is folded in candidate order,
+ *   so it equals a sequential loop stopping at the first full-confidence candidate, whatever the
+ *   completion order.
+ *
  * This implementation is aligned with:
  * - OcrEngine (async callback API)
  * - OcrMetrics / OcrResult models
@@ -59,12 +68,6 @@ public final class OcrRouter {
         void onFailure(Throwable error);
     }
 
-    private static final ExecutorService EXEC = Executors.newSingleThreadExecutor(r -> {
-        Thread t = new Thread(r, "ocr-router");
-        t.setDaemon(true);
-        return t;
-    });
-
     private OcrRouter() {}
 
     /**
@@ -78,17 +81,61 @@ public final class OcrRouter {
             int rotationDeg,
             @NonNull Callback cb
     ) {
-        EXEC.execute(() -> runInternal(ctx, mlKitEngine, tessEngine, roiBitmap, rotationDeg, cb));
+        OcrScheduler.get().execute(OcrScheduler.Lane.OCR, () -> runInternal(ctx, mlKitEngine, tessEngine, roiBitmap, rotationDeg, 0, null, null, cb));
+    }
+
+    /**
+     * Same routing with the parallel candidate loop: up to candidateWorkers Tesseract candidates in
+     * flight (e.g. {@link TesseractOcrEngine#poolSize()}) and early exit on a full-confidence MRZ.
+     */
+    public static void runAsync(
+            @NonNull Context ctx,
+            @NonNull OcrEngine mlKitEngine,
+            @NonNull OcrEngine tessEngine,
+            @NonNull Bitmap roiBitmap,
+            int rotationDeg,
+            int candidateWorkers,
+            @NonNull Callback cb
+    ) {
+        runAsync(ctx, mlKitEngine, tessEngine, roiBitmap, rotationDeg, candidateWorkers, null, cb);
+    }
+
+    /**
+     * Parallel candidate loop with learned candidate order: route (from {@link AdaptiveOcrRouter})
+     * orders the candidates by sampled expected time to a valid MRZ and records each candidate's
+     * outcome and latency. A null route keeps the fixed priority order.
+     */
+    public static void runAsync(
+            @NonNull Context ctx,
+            @NonNull OcrEngine mlKitEngine,
+            @NonNull OcrEngine tessEngine,
+            @NonNull Bitmap roiBitmap,
+            int rotationDeg,
+            int candidateWorkers,
+            AdaptiveOcrRouter.Route route,
+            @NonNull Callback cb
+    ) {
+        if (candidateWorkers < 1) {
+            throw new IllegalArgumentException("candidateWorkers must be >= 1");
+        }
+        // Candidate preprocessing runs on engine threads: keep the caller's frame arena alive for it
+        FrameArena hold = FrameArena.holdCurrent();
+        OcrScheduler.get().execute(OcrScheduler.Lane.OCR, () -> runInternal(ctx, mlKitEngine, tessEngine, roiBitmap, rotationDeg,
+                candidateWorkers, route, hold, cb));
     }
 
     // ---------------- internal ----------------
 
+    /** candidateWorkers == 0 selects the exhaustive sequential loop. */
     private static void runInternal(
             @NonNull Context ctx,
             @NonNull OcrEngine mlKitEngine,
             @NonNull OcrEngine tessEngine,
             @NonNull Bitmap roiBitmap,
             int rotationDeg,
+            int candidateWorkers,
+            AdaptiveOcrRouter.Route route,
+            FrameArena hold,
             @NonNull Callback cb
     ) {
         final long t0 = SystemClock.elapsedRealtime();
@@ -106,6 +153,7 @@ public final class OcrRouter {
                     long elapsed = SystemClock.elapsedRealtime() - t0;
                     OcrMetrics metrics = (mlRes != null) ? mlRes.metrics : new OcrMetrics(0, 0, 0);
 
+                    FrameArena.releaseHold(hold);
                     cb.onSuccess(
                             new Result(
                                     mlText,
@@ -121,17 +169,40 @@ public final class OcrRouter {
                 }
 
                 // ML empty -> fallback to tesseract candidate loop
-                runTesseractCandidateLoop(ctx, tessEngine, roiBitmap, rotationDeg, t0, "", cb);
+                runTesseract(ctx, tessEngine, roiBitmap, rotationDeg, t0, candidateWorkers, route, hold, cb);
             }
 
             @Override
             public void onFailure(Throwable error) {
                 // ML failures must not kill pipeline -> fallback to tesseract loop
-                runTesseractCandidateLoop(ctx, tessEngine, roiBitmap, rotationDeg, t0, "", cb);
+                runTesseract(ctx, tessEngine, roiBitmap, rotationDeg, t0, candidateWorkers, route, hold, cb);
             }
         });
     }
 
+    private static void runTesseract(
+            @NonNull Context ctx,
+            @NonNull OcrEngine tessEngine,
+            @NonNull Bitmap roiBitmap,
+            int rotationDeg,
+            long t0,
+            int candidateWorkers,
+            AdaptiveOcrRouter.Route route,
+            FrameArena hold,
+            @NonNull Callback cb
+    ) {
+        if (candidateWorkers > 0) {
+            List<PreprocessParams> candidates = route != null
+                    ? route.orderCandidates(PreprocessParamSet.getCandidates())
+                    : PreprocessParamSet.getCandidates();
+            new ParallelCandidateLoop(ctx, tessEngine, roiBitmap, rotationDeg, t0, "",
+                    candidateWorkers, candidates, route, hold, cb).start();
+        } else {
+            FrameArena.releaseHold(hold);
+            runTesseractCandidateLoop(ctx, tessEngine, roiBitmap, rotationDeg, t0, "", cb);
+        }
+    }
+
     private static void runTesseractCandidateLoop(
             @NonNull Context ctx,
             @NonNull OcrEngine tessEngine,
@@ -153,31 +224,53 @@ public final class OcrRouter {
                 candidates,
                 0,
                 best,
-                () -> {
-                    BestPick pick = best.get();
-                    String tessText = safe(pick.bestText);
+                () -> deliverPick(best.get(), t0, mlText, cb),
+                cb
+        );
+    }
+
+    /**
+     * Preprocess one candidate and hand it to Tesseract. Engines that read luma get the binarized
+     * buffer with its line strips (no bitmap on that path); others get the preprocessed bitmap.
+     */
+    private static void recognizeCandidate(@NonNull Context ctx,
+                                           @NonNull OcrEngine tessEngine,
+                                           @NonNull Bitmap roiBitmap,
+                                           @NonNull PreprocessParams params,
+                                           int rotationDeg,
+                                           CancellationSignal signal,
+                                           @NonNull OcrEngine.Callback callback) {
+        // Tesseract preprocessing: grayscale/contrast -> blur -> scale -> binarize
+        if (tessEngine.supportsLuma()) {
+            LumaImage input = MrzLumaPreprocessor.preprocessForTesseract(roiBitmap, params);
+            tessEngine.recognizeLumaAsync(ctx, input, MrzLumaPreprocessor.lineStrips(input), signal, callback);
+            return;
+        }
+        Bitmap tessInput = MrzPreprocessor.preprocessForTesseract(roiBitmap, params);
+        tessEngine.recognizeAsync(ctx, tessInput, rotationDeg, signal, callback);
+    }
 
-                    if (tessText.isBlank()) {
-                        cb.onFailure(new IllegalStateException("Tesseract produced empty text for all candidates"));
-                        return;
-                    }
+    private static void deliverPick(@NonNull BestPick pick, long t0, @NonNull String mlText, @NonNull Callback cb) {
+        String tessText = safe(pick.bestText);
 
-                    long elapsed = SystemClock.elapsedRealtime() - t0;
-                    OcrMetrics metrics = pick.bestMetrics != null ? pick.bestMetrics : new OcrMetrics(0, 0, 0);
+        if (tessText.isBlank()) {
+            cb.onFailure(new IllegalStateException("Tesseract produced empty text for all candidates"));
+            return;
+        }
 
-                    cb.onSuccess(
-                            new Result(
-                                    tessText,
-                                    mlText,
-                                    tessText,
-                                    elapsed,
-                                    metrics,
-                                    OcrResult.Engine.TESSERACT
-                            ),
-                            pick.bestMrz
-                    );
-                },
-                cb
+        long elapsed = SystemClock.elapsedRealtime() - t0;
+        OcrMetrics metrics = pick.bestMetrics != null ? pick.bestMetrics : new OcrMetrics(0, 0, 0);
+
+        cb.onSuccess(
+                new Result(
+                        tessText,
+                        mlText,
+                        tessText,
+                        elapsed,
+                        metrics,
+                        OcrResult.Engine.TESSERACT
+                ),
+                pick.bestMrz
         );
     }
 
@@ -199,56 +292,14 @@ public final class OcrRouter {
 
         PreprocessParams params = candidates.get(index);
 
-        // Tesseract preprocessing: grayscale/contrast -> blur -> scale -> binarize
-        Bitmap tessInput = MrzPreprocessor.preprocessForTesseract(roiBitmap, params);
-
-        tessEngine.recognizeAsync(ctx, tessInput, rotationDeg, new OcrEngine.Callback() {
+        recognizeCandidate(ctx, tessEngine, roiBitmap, params, rotationDeg, null, new OcrEngine.Callback() {
             @Override
             public void onSuccess(OcrResult tessRes) {
                 String text = safe(tessRes != null ? tessRes.rawText : null);
+                MrzResult mrz = text.isBlank() ? null : MrzTextProcessor.normalizeAndRepair(text);
 
-                // Evaluate candidate -> prefer MRZ with higher confidence
-                MrzResult mrz = null;
-                int mrzConfidence = 0;
-                if (!text.isBlank()) {
-                    mrz = MrzTextProcessor.normalizeAndRepair(text);
-                    if (mrz != null) {
-                        mrzConfidence = mrz.confidence;
-                    }
-                }
-
-                BestPick cur = bestRef.get();
-                BestPick next = cur.copy();
-
-                // Primary: higher checksum confidence wins (0..4 TD3 / 0..4 TD1)
-                boolean take = false;
-
-                if (mrz != null && cur.bestMrz == null) {
-                    take = true;
-                } else if (mrz != null && cur.bestMrz != null) {
-                    if (mrzConfidence > cur.bestMrz.confidence) {
-                        take = true;
-                    } else if (mrzConfidence == cur.bestMrz.confidence) {
-                        // Tie-break: better MRZ-like score, then longer text
-                        int sNew = MrzCandidateValidator.score(text);
-                        int sOld = MrzCandidateValidator.score(safe(cur.bestText));
-                        if (sNew > sOld) take = true;
-                        else if (sNew == sOld && text.length() > safe(cur.bestText).length()) take = true;
-                    }
-                } else if (mrz == null && cur.bestMrz == null) {
-                    // No MRZ yet: choose the most MRZ-like raw by heuristic score
-                    int sNew = MrzCandidateValidator.score(text);
-                    int sOld = MrzCandidateValidator.score(safe(cur.bestText));
-                    if (sNew > sOld) take = true;
-                    else if (sNew == sOld && text.length() > safe(cur.bestText).length()) take = true;
-                }
-
-                if (take) {
-                    next.bestText = text;
-                    next.bestMrz = mrz; // may be null
-                    next.bestMetrics = (tessRes != null) ? tessRes.metrics : null;
-                }
-
+                BestPick next = bestRef.get().copy();
+                next.consider(text, mrz, tessRes != null ? tessRes.metrics : null);
                 bestRef.set(next);
 
                 runCandidateAtIndex(ctx, tessEngine, roiBitmap, rotationDeg, candidates, index + 1, bestRef, onDone, cb);
@@ -266,11 +317,224 @@ public final class OcrRouter {
         return s == null ? "" : s;
     }
 
+    /**
+     * Parallel candidate loop: dispatches candidates in priority order with at most {@code workers}
+     * in flight, records each outcome by candidate index and decides once a prefix of the candidate
+     * list is complete (all done, or a full-confidence MRZ after a finished prefix).
+     */
+    private static final class ParallelCandidateLoop {
+        private final Context ctx;
+        private final OcrEngine tessEngine;
+        private final Bitmap roiBitmap;
+        private final int rotationDeg;
+        private final long t0;
+        private final String mlText;
+        private final int workers;
+        private final FrameArena hold;
+        private final Callback cb;
+        private final List<PreprocessParams> candidates;
+        private final AdaptiveOcrRouter.Route route;
+
+        // Guarded by this
+        private final Outcome[] outcomes;
+        // One per launched candidate; canceled on early exit so running candidates free their instance
+        private final CancellationSignal[] signals;
+        private int nextIndex;
+        private int inFlight;
+        private boolean finished;
+
+        ParallelCandidateLoop(Context ctx, OcrEngine tessEngine, Bitmap roiBitmap, int rotationDeg,
+                              long t0, String mlText, int workers, List<PreprocessParams> candidates,
+                              AdaptiveOcrRouter.Route route, FrameArena hold, Callback cb) {
+            this.ctx = ctx;
+            this.tessEngine = tessEngine;
+            this.roiBitmap = roiBitmap;
+            this.rotationDeg = rotationDeg;
+            this.t0 = t0;
+            this.mlText = mlText;
+            this.workers = workers;
+            this.candidates = candidates;
+            this.route = route;
+            this.outcomes = new Outcome[candidates.size()];
+            this.signals = new CancellationSignal[candidates.size()];
+            this.hold = hold;
+            this.cb = cb;
+        }
+
+        void start() {
+            if (candidates.isEmpty()) {
+                FrameArena.releaseHold(hold);
+                deliverPick(new BestPick(), t0, mlText, cb);
+                return;
+            }
+            dispatch();
+        }
+
+        /** Launch candidates until the worker budget is used; launches happen outside the lock. */
+        private void dispatch() {
+            while (true) {
+                int index;
+                CancellationSignal signal = new CancellationSignal();
+                synchronized (this) {
+                    if (finished || inFlight >= workers || nextIndex >= candidates.size()) return;
+                    index = nextIndex++;
+                    inFlight++;
+                    signals[index] = signal;
+                }
+                launch(index, signal);
+            }
+        }
+
+        private void launch(int index, CancellationSignal signal) {
+            // Canceled candidates never finish: only completed runs teach the router
+            AdaptiveOcrRouter.Attempt attempt = route != null ? route.begin(candidates.get(index)) : null;
+            OcrEngine.Callback candidateCb = new OcrEngine.Callback() {
+                @Override
+                public void onSuccess(OcrResult tessRes) {
+                    String text = safe(tessRes != null ? tessRes.rawText : null);
+                    MrzResult mrz = text.isBlank() ? null : MrzTextProcessor.normalizeAndRepair(text);
+                    if (attempt != null) attempt.finish(mrz);
+                    onOutcome(index, new Outcome(text, mrz, tessRes != null ? tessRes.metrics : null));
+                }
+
+                @Override
+                public void onFailure(Throwable error) {
+                    if (attempt != null) attempt.finish(null);
+                    // A failed candidate is skipped, as in the sequential loop
+                    onOutcome(index, Outcome.FAILED);
+                }
+            };
+            // Outcomes (and so this launch) arrive on Tesseract workers: preprocess on the preprocess
+            // lane and hand the engine a ready input, so a worker never preprocesses while holding
+            // its instance. The candidate keeps the arena alive until its input is built.
+            FrameArena candidateHold = (hold != null && hold.retain()) ? hold : null;
+            OcrScheduler.get().execute(OcrScheduler.Lane.PREPROCESS, () -> {
+                FrameArena prev = FrameArena.bind(candidateHold);
+                try {
+                    // Early exit while queued: the loop has already delivered
+                    if (signal.isCanceled()) return;
+                    recognizeCandidate(ctx, tessEngine, roiBitmap, candidates.get(index), rotationDeg, signal, candidateCb);
+                } catch (Throwable e) {
+                    onOutcome(index, Outcome.FAILED);
+                } finally {
+                    FrameArena.bind(prev);
+                    FrameArena.releaseHold(candidateHold);
+                }
+            });
+        }
+
+        private void onOutcome(int index, Outcome outcome) {
+            BestPick pick;
+            synchronized (this) {
+                // Late result after an early exit, or a second report for the same candidate: discarded
+                if (finished || outcomes[index] != null) return;
+                outcomes[index] = outcome;
+                inFlight--;
+                pick = decide();
+                if (pick != null) finished = true;
+            }
+            if (pick == null) {
+                dispatch();
+                return;
+            }
+            cancelUnfinished();
+            FrameArena.releaseHold(hold);
+            deliverPick(pick, t0, mlText, cb);
+        }
+
+        /** Early exit: candidates still running can't change the pick. */
+        private void cancelUnfinished() {
+            List<CancellationSignal> running = new ArrayList<>();
+            synchronized (this) {
+                for (int i = 0; i < signals.length; i++) {
+                    if (signals[i] != null && outcomes[i] == null) running.add(signals[i]);
+                }
+            }
+            for (CancellationSignal signal : running) {
+                signal.cancel();
+            }
+        }
+
+        /**
+         * Fold the finished prefix in candidate order. Returns the pick once it can no longer change
+         * (full-confidence MRZ with every earlier candidate done, or everything done), else null.
+         */
+        private BestPick decide() {
+            int limit = -1;
+            for (int i = 0; i < outcomes.length; i++) {
+                Outcome o = outcomes[i];
+                if (o == null) break;
+                limit = i;
+                if (o.mrz != null && o.mrz.confidence >= MrzTextProcessor.MAX_CONFIDENCE) break;
+            }
+            boolean allDone = limit == outcomes.length - 1;
+            boolean earlyExit = limit >= 0
+                    && outcomes[limit].mrz != null
+                    && outcomes[limit].mrz.confidence >= MrzTextProcessor.MAX_CONFIDENCE;
+            if (!allDone && !earlyExit) return null;
+
+            BestPick pick = new BestPick();
+            for (int i = 0; i <= limit; i++) {
+                Outcome o = outcomes[i];
+                if (o != Outcome.FAILED) pick.consider(o.text, o.mrz, o.metrics);
+            }
+            return pick;
+        }
+    }
+
+    private static final class Outcome {
+        static final Outcome FAILED = new Outcome("", null, null);
+
+        final String text;
+        final MrzResult mrz;
+        final OcrMetrics metrics;
+
+        Outcome(String text, MrzResult mrz, OcrMetrics metrics) {
+            this.text = text;
+            this.mrz = mrz;
+            this.metrics = metrics;
+        }
+    }
+
     private static final class BestPick {
         String bestText = "";
         MrzResult bestMrz = null;
         OcrMetrics bestMetrics = null;
 
+        /** Take the candidate if it beats the current pick (order-sensitive only on exact ties). */
+        void consider(@NonNull String text, MrzResult mrz, OcrMetrics metrics) {
+            int mrzConfidence = mrz != null ? mrz.confidence : 0;
+
+            // Primary: higher checksum confidence wins (0..4 TD3 / 0..4 TD1)
+            boolean take = false;
+
+            if (mrz != null && bestMrz == null) {
+                take = true;
+            } else if (mrz != null) {
+                if (mrzConfidence > bestMrz.confidence) {
+                    take = true;
+                } else if (mrzConfidence == bestMrz.confidence) {
+                    // Tie-break: better MRZ-like score, then longer text
+                    take = beatsByScore(text);
+                }
+            } else if (bestMrz == null) {
+                // No MRZ yet: choose the most MRZ-like raw by heuristic score
+                take = beatsByScore(text);
+            }
+
+            if (take) {
+                bestText = text;
+                bestMrz = mrz; // may be null
+                bestMetrics = metrics;
+            }
+        }
+
+        private boolean beatsByScore(@NonNull String text) {
+            int sNew = MrzCandidateValidator.score(text);
+            int sOld = MrzCandidateValidator.score(safe(bestText));
+            return sNew > sOld || (sNew == sOld && text.length() > safe(bestText).length());
+        }
+
         BestPick copy() {
             BestPick b = new BestPick();
             b.bestText = this.bestText;
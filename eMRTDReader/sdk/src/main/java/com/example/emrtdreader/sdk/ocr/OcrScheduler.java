@@ -0,0 +1,268 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide scheduler for all SDK background work, split into named lanes.
+ *
+ * Idea:
+ * - One bounded thread set per {@link Lane}, sized from the core count, instead of a private
+ *   executor per class: frame handling, preprocessing, OCR orchestration and timers can't starve
+ *   each other, and the total thread count stays predictable on small devices.
+ * - Work lanes run tasks by priority ({@link #PRIORITY_HIGH} first); equal priorities run FIFO,
+ *   except on {@link Lane#FRAME}, which runs the newest frame first so queued stale frames wait
+ *   (and are usually superseded by their keep-latest owners).
+ * - Each lane reports queue depth, active threads and queue wait time ({@link #stats(Lane)}).
+ * - Idle lane threads time out, so an app that stops scanning holds no SDK threads.
+ *
+ * Tesseract instances are thread-affine and keep their own workers ({@link OcrInstancePool}).
+ */
+public final class OcrScheduler {
+
+    public enum Lane {
+        /** Per-frame pipelines (ROI detection, rectification). */
+        FRAME("mrz-pipeline", true),
+        /** Per-engine preprocessing of an ROI. */
+        PREPROCESS("mrz-preprocess", false),
+        /** OCR orchestration (router loops, engine fan-out). */
+        OCR("mrz-ocr", false),
+        /** Timeouts and watchdogs. */
+        TIMER("mrz-timer", false);
+
+        final String threadName;
+        // Newest-first among equal priorities
+        final boolean lifo;
+
+        Lane(String threadName, boolean lifo) {
+            this.threadName = threadName;
+            this.lifo = lifo;
+        }
+    }
+
+    public static final int PRIORITY_LOW = -1;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 1;
+
+    // Idle time after which a lane thread exits
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+    // Timer lane resolution: deadlines fire up to one tick late
+    private static final long TIMER_TICK_MS = 20L;
+    // Timer lane buckets; one turn (2.56 s) covers the OCR deadlines
+    private static final int TIMER_WHEEL_SIZE = 128;
+    // Weight of a new wait sample in the running mean
+    private static final double WAIT_ALPHA = 0.1;
+
+    private static final Object INSTANCE_LOCK = new Object();
+    private static volatile OcrScheduler instance;
+
+    private final Map<Lane, WorkLane> workLanes = new EnumMap<>(Lane.class);
+    private final HashedWheelTimer timers;
+
+    /** The process-wide scheduler, sized from {@link Runtime#availableProcessors()}. */
+    public static OcrScheduler get() {
+        OcrScheduler s = instance;
+        if (s != null) return s;
+        synchronized (INSTANCE_LOCK) {
+            if (instance == null) {
+                int cores = Math.max(1, Runtime.getRuntime().availableProcessors());
+                instance = new OcrScheduler(
+                        clamp(cores / 4, 1, 2),
+                        clamp(cores / 4, 1, 2),
+                        clamp(cores / 2, 1, 4));
+            }
+            return instance;
+        }
+    }
+
+    @VisibleForTesting
+    OcrScheduler(int frameThreads, int preprocessThreads, int ocrThreads) {
+        if (frameThreads < 1 || preprocessThreads < 1 || ocrThreads < 1) {
+            throw new IllegalArgumentException("lane thread counts must be >= 1");
+        }
+        workLanes.put(Lane.FRAME, new WorkLane(Lane.FRAME, frameThreads));
+        workLanes.put(Lane.PREPROCESS, new WorkLane(Lane.PREPROCESS, preprocessThreads));
+        workLanes.put(Lane.OCR, new WorkLane(Lane.OCR, ocrThreads));
+        timers = new HashedWheelTimer(Lane.TIMER.threadName, TIMER_TICK_MS, TIMER_WHEEL_SIZE,
+                TimeUnit.SECONDS.toMillis(KEEP_ALIVE_SECONDS));
+    }
+
+    /** Run task on a work lane at {@link #PRIORITY_NORMAL}. */
+    public void execute(Lane lane, Runnable task) {
+        execute(lane, PRIORITY_NORMAL, task);
+    }
+
+    /** Run task on a work lane; higher priorities leave the queue first. */
+    public void execute(Lane lane, int priority, Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("task cannot be null");
+        }
+        workLane(lane).execute(priority, task);
+    }
+
+    /** Work lane as a plain Executor (normal priority), e.g. for CompletableFuture stages. */
+    public Executor executor(Lane lane) {
+        return executor(lane, PRIORITY_NORMAL);
+    }
+
+    /** Work lane as a plain Executor whose tasks run at priority. */
+    public Executor executor(Lane lane, int priority) {
+        WorkLane l = workLane(lane);
+        return task -> l.execute(priority, task);
+    }
+
+    /**
+     * Run task on the timer lane (a {@link HashedWheelTimer}) after delay, up to one tick late.
+     * Canceled timers leave the wheel at once. All deadlines share one timer thread: a task should
+     * only claim its run and cancel, and hand any delivery to a work lane.
+     */
+    public HashedWheelTimer.Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        return timers.schedule(task, delay, unit);
+    }
+
+    /** Point-in-time load of one lane. */
+    public LaneStats stats(Lane lane) {
+        if (lane == Lane.TIMER) {
+            // Timers have no queue wait; queued counts the pending deadlines
+            return new LaneStats(lane, 1, timers.pendingCount(), 0, timers.firedCount(), 0.0, 0L);
+        }
+        return workLane(lane).stats();
+    }
+
+    private WorkLane workLane(Lane lane) {
+        WorkLane l = lane != null ? workLanes.get(lane) : null;
+        if (l == null) {
+            throw new IllegalArgumentException("not a work lane: " + lane);
+        }
+        return l;
+    }
+
+    private static int clamp(int v, int min, int max) {
+        return Math.max(min, Math.min(max, v));
+    }
+
+    /** Queue depth and wait time of a lane; waits are measured from enqueue to start. */
+    public static final class LaneStats {
+        public final Lane lane;
+        public final int threads;
+        public final int queued;
+        public final int active;
+        public final long completed;
+        // Running mean of queue wait
+        public final double meanWaitMs;
+        public final long maxWaitMs;
+
+        LaneStats(Lane lane, int threads, int queued, int active, long completed,
+                  double meanWaitMs, long maxWaitMs) {
+            this.lane = lane;
+            this.threads = threads;
+            this.queued = queued;
+            this.active = active;
+            this.completed = completed;
+            this.meanWaitMs = meanWaitMs;
+            this.maxWaitMs = maxWaitMs;
+        }
+
+        @Override
+        public String toString() {
+            return lane + "{threads=" + threads + ", queued=" + queued + ", active=" + active
+                    + ", completed=" + completed + ", meanWaitMs=" + String.format(Locale.US, "%.1f", meanWaitMs)
+                    + ", maxWaitMs=" + maxWaitMs + "}";
+        }
+    }
+
+    private static final class WorkLane {
+        private final Lane lane;
+        private final ThreadPoolExecutor executor;
+        private final AtomicLong sequence = new AtomicLong();
+
+        // Guarded by this
+        private double meanWaitMs;
+        private long maxWaitMs;
+        private boolean sampled;
+
+        WorkLane(Lane lane, int threads) {
+            this.lane = lane;
+            // Unbounded priority queue: the pool never grows past its core size
+            executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new PriorityBlockingQueue<>(), new NamedThreadFactory(lane.threadName));
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        void execute(int priority, Runnable task) {
+            executor.execute(new Task(this, priority, sequence.getAndIncrement(), task));
+        }
+
+        synchronized void recordWait(long waitMs) {
+            meanWaitMs = sampled ? meanWaitMs + WAIT_ALPHA * (waitMs - meanWaitMs) : waitMs;
+            sampled = true;
+            if (waitMs > maxWaitMs) maxWaitMs = waitMs;
+        }
+
+        LaneStats stats() {
+            double mean;
+            long max;
+            synchronized (this) {
+                mean = meanWaitMs;
+                max = maxWaitMs;
+            }
+            return new LaneStats(lane, executor.getCorePoolSize(), executor.getQueue().size(),
+                    executor.getActiveCount(), executor.getCompletedTaskCount(), mean, max);
+        }
+    }
+
+    private static final class Task implements Runnable, Comparable<Task> {
+        private final WorkLane owner;
+        private final int priority;
+        private final long seq;
+        private final Runnable body;
+        private final long enqueuedNs = System.nanoTime();
+
+        Task(WorkLane owner, int priority, long seq, Runnable body) {
+            this.owner = owner;
+            this.priority = priority;
+            this.seq = seq;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            owner.recordWait(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - enqueuedNs));
+            body.run();
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            if (priority != other.priority) {
+                return priority > other.priority ? -1 : 1;
+            }
+            return owner.lane.lifo ? Long.compare(other.seq, seq) : Long.compare(seq, other.seq);
+        }
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String baseName;
+        private final AtomicInteger counter = new AtomicInteger(1);
+
+        private NamedThreadFactory(String baseName) {
+            this.baseName = baseName;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, baseName + "-" + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
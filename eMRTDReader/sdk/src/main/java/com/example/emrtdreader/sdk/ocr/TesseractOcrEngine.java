@@ -3,34 +3,74 @@ package com.example.emrtdreader.sdk.ocr;
 import android.content.Context;
 import android.content.res.AssetManager;
 import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.os.CancellationSignal;
 
+import com.example.emrtdreader.sdk.models.OcrElement;
 import com.example.emrtdreader.sdk.models.OcrMetrics;
 import com.example.emrtdreader.sdk.models.OcrResult;
+import com.googlecode.tesseract.android.ResultIterator;
 import com.googlecode.tesseract.android.TessBaseAPI;
 
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Tesseract MRZ engine backed by a pool of TessBaseAPI instances.
+ *
+ * Idea:
+ * - TessBaseAPI is not thread-safe and costly to init, so each instance lives on its own pool worker
+ *   ({@link OcrInstancePool}); concurrent calls run on different instances instead of queuing on one.
+ * - The pool size is bounded by a memory budget, since every instance loads its own traineddata.
+ * - Traineddata is copied / downloaded once; instances are initialized lazily on first use.
+ * - Every result carries per-character {@link OcrElement}s (symbol, box, confidence) read from the
+ *   result iterator of the recognition that produced the text, so no second OCR pass is needed.
+ * - A canceled call leaves the pool queue, or stops its running recognition, so timeouts and
+ *   superseded frames don't keep an instance busy.
+ */
 public final class TesseractOcrEngine implements OcrEngine {
 
     private static final String MRZ_WHITELIST = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789<";
     private static final String VAR_LOAD_SYSTEM_DAWG = "load_system_dawg";
     private static final String VAR_LOAD_FREQ_DAWG = "load_freq_dawg";
     private static final String VAR_USER_DEFINED_DPI = "user_defined_dpi";
+    // Symbols per MRZ (TD1: 3 x 30); sizes the element list up front
+    private static final int EXPECTED_SYMBOLS = 90;
 
-    private static final ExecutorService TESS_EXECUTOR =
-            Executors.newSingleThreadExecutor(new NamedThreadFactory("tess-ocr"));
+    // Instances kept alive at most: OCR of candidates / line strips can overlap up to this
+    private static final int DEFAULT_MAX_INSTANCES =
+            Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() / 2));
+    // Native memory allowed for all instances together; each one loads its own traineddata
+    private static final long DEFAULT_MEMORY_BUDGET_BYTES = 96L * 1024 * 1024;
+    // Estimated footprint of one initialized instance (traineddata + recognizer working set)
+    private static final long DEFAULT_BYTES_PER_INSTANCE = 32L * 1024 * 1024;
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final OcrInstancePool<TessBaseAPI> pool;
 
-    private final Object lock = new Object();
-    private TessBaseAPI tess;
+    // Context for lazy instance init on the pool workers
+    private volatile Context appContext;
+
+    private final Object dataLock = new Object();
+    private String lang;
+
+    public TesseractOcrEngine() {
+        this(DEFAULT_MAX_INSTANCES, DEFAULT_MEMORY_BUDGET_BYTES);
+    }
+
+    /**
+     * @param maxInstances      upper bound on concurrently initialized TessBaseAPI instances
+     * @param memoryBudgetBytes memory the instances may take together; caps the pool size
+     */
+    public TesseractOcrEngine(int maxInstances, long memoryBudgetBytes) {
+        this.pool = new OcrInstancePool<>("tess-ocr", maxInstances, memoryBudgetBytes,
+                DEFAULT_BYTES_PER_INSTANCE, this::createApi, TesseractOcrEngine::endApi);
+    }
 
     @Override public String getName() { return "Tesseract"; }
 
@@ -39,8 +79,39 @@ public final class TesseractOcrEngine implements OcrEngine {
         return true; // availability depends on traineddata presence; handled on init
     }
 
+    /** Number of TessBaseAPI instances the pool may run concurrently. */
+    public int poolSize() {
+        return pool.size();
+    }
+
     @Override
     public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees, Callback callback) {
+        recognizeAsync(ctx, bitmap, rotationDegrees, null, callback);
+    }
+
+    /**
+     * Copies traineddata and initializes every pooled instance on its own worker, so no scan call
+     * (including the parallel candidates of the first frame) lands on a cold instance.
+     */
+    @Override
+    public CompletableFuture<Void> warmUp(Context ctx) {
+        if (closed.get()) {
+            CompletableFuture<Void> ready = new CompletableFuture<>();
+            ready.completeExceptionally(new IllegalStateException("Tesseract engine is closed"));
+            return ready;
+        }
+        rememberContext(ctx);
+        return pool.warmAll();
+    }
+
+    /**
+     * Cancellation: a call still waiting for a free instance is removed from the pool queue; a running
+     * one is interrupted with TessBaseAPI.stop() so the instance is free for the next frame at once.
+     * The callback of a canceled call is not invoked.
+     */
+    @Override
+    public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees,
+                               CancellationSignal signal, Callback callback) {
         if (callback == null) return;
 
         if (closed.get()) {
@@ -51,43 +122,260 @@ public final class TesseractOcrEngine implements OcrEngine {
             callback.onFailure(new IllegalArgumentException("Bitmap is null"));
             return;
         }
+        rememberContext(ctx);
+
+        // Keep the frame's bitmaps alive until Tesseract is done reading, even if the caller times out
+        FrameArena hold = FrameArena.holdCurrent();
+        submit(signal, hold, callback, (api, sig) -> recognizeInternal(api, bitmap, sig));
+    }
+
+    /** One recognition on a pooled instance, run on that instance's worker. */
+    private interface Recognition {
+        OcrResult run(TessBaseAPI api, CancellationSignal signal);
+    }
 
-        TESS_EXECUTOR.execute(() -> {
-            if (closed.get()) return;
+    private void submit(CancellationSignal signal, FrameArena hold, Callback callback, Recognition recognition) {
+        RunningCall running = new RunningCall();
+        OcrInstancePool.Job<TessBaseAPI> job = new OcrInstancePool.Job<TessBaseAPI>() {
+            @Override
+            public void run(TessBaseAPI api) {
+                try {
+                    if (closed.get()) {
+                        if (!isCanceled(signal)) callback.onFailure(closedError());
+                        return;
+                    }
+                    if (!running.attach(api, signal)) return;
+                    OcrResult result;
+                    try {
+                        result = recognition.run(api, signal);
+                    } catch (Throwable e) {
+                        if (!isCanceled(signal)) callback.onFailure(closed.get() ? closedError() : e);
+                        return;
+                    } finally {
+                        running.detach();
+                    }
+                    // Interrupted by stop(): the partial text is not reported
+                    if (isCanceled(signal)) return;
+                    if (closed.get()) {
+                        callback.onFailure(closedError());
+                    } else {
+                        callback.onSuccess(result);
+                    }
+                } finally {
+                    FrameArena.releaseHold(hold);
+                }
+            }
+
+            @Override
+            public void fail(Throwable error) {
+                try {
+                    // Rejected by a closing pool included: the caller still hears back
+                    if (!isCanceled(signal)) callback.onFailure(error);
+                } finally {
+                    FrameArena.releaseHold(hold);
+                }
+            }
+        };
+        pool.execute(job);
+        if (signal != null) {
+            signal.setOnCancelListener(() -> {
+                // Never started: neither run nor fail will release the hold
+                if (pool.cancel(job)) {
+                    FrameArena.releaseHold(hold);
+                } else {
+                    running.stop();
+                }
+            });
+        }
+    }
+
+    private static IllegalStateException closedError() {
+        return new IllegalStateException("Tesseract engine is closed");
+    }
+
+    private static boolean isCanceled(CancellationSignal signal) {
+        return signal != null && signal.isCanceled();
+    }
+
+    /** The instance a job is running on, so a cancel from another thread can stop that recognition. */
+    private static final class RunningCall {
+        private TessBaseAPI api;
+
+        /** False if the call was canceled before it started. */
+        synchronized boolean attach(TessBaseAPI api, CancellationSignal signal) {
+            if (isCanceled(signal)) return false;
+            this.api = api;
+            return true;
+        }
+
+        synchronized void detach() {
+            api = null;
+        }
+
+        /** Stops the recognition in progress; no-op once the job is done (the instance may be reused). */
+        synchronized void stop() {
+            if (api == null) return;
             try {
-                callback.onSuccess(recognizeInternal(ctx, bitmap));
-            } catch (Throwable e) {
-                if (!closed.get()) callback.onFailure(e);
+                api.stop();
+            } catch (Throwable ignored) {}
+        }
+    }
+
+    private void rememberContext(Context ctx) {
+        if (appContext == null && ctx != null) {
+            Context app = ctx.getApplicationContext();
+            appContext = app != null ? app : ctx;
+        }
+    }
+
+    @Override
+    public boolean supportsLuma() {
+        return true;
+    }
+
+    /**
+     * The buffer is handed to TessBaseAPI once; regions are recognized with setRectangle. Canceled
+     * like {@link #recognizeAsync(Context, Bitmap, int, CancellationSignal, Callback)}.
+     */
+    @Override
+    public void recognizeLumaAsync(Context ctx, LumaImage image, List<Rect> regions,
+                                   CancellationSignal signal, Callback callback) {
+        if (callback == null) return;
+
+        if (closed.get()) {
+            callback.onFailure(new IllegalStateException("Tesseract engine is closed"));
+            return;
+        }
+        if (image == null) {
+            callback.onFailure(new IllegalArgumentException("Luma image is null"));
+            return;
+        }
+        rememberContext(ctx);
+
+        submit(signal, null, callback, (api, sig) -> recognizeLumaInternal(api, image, regions, sig));
+    }
+
+    private static OcrResult recognizeLumaInternal(TessBaseAPI api, LumaImage image, List<Rect> regions,
+                                                   CancellationSignal signal) {
+        long t0 = System.currentTimeMillis();
+        OcrMetrics metrics = OcrQuality.compute(image);
+        boolean strips = regions != null && !regions.isEmpty();
+        try {
+            api.setImage(image.data, image.width, image.height, 1, image.stride);
+            List<OcrElement> symbols = new ArrayList<>(EXPECTED_SYMBOLS);
+            String txt;
+            if (!strips) {
+                txt = api.getUTF8Text();
+                if (!isCanceled(signal)) collectSymbols(api, symbols);
+            } else {
+                // One text line per strip
+                api.setPageSegMode(TessBaseAPI.PageSegMode.PSM_SINGLE_LINE);
+                StringBuilder sb = new StringBuilder();
+                for (Rect r : regions) {
+                    // stop() only interrupts the current line; don't start the next one
+                    if (isCanceled(signal)) break;
+                    api.setRectangle(r);
+                    String line = api.getUTF8Text();
+                    if (line == null || line.trim().isEmpty()) continue;
+                    if (sb.length() > 0) sb.append('\n');
+                    sb.append(line.trim());
+                    if (!isCanceled(signal)) collectSymbols(api, symbols);
+                }
+                txt = sb.toString();
             }
-        });
+            long dt = System.currentTimeMillis() - t0;
+            return new OcrResult(txt == null ? "" : txt, dt, metrics, OcrResult.Engine.TESSERACT, symbols);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Tesseract OCR failed", e);
+        } finally {
+            try {
+                if (strips) api.setPageSegMode(TessBaseAPI.PageSegMode.PSM_SINGLE_BLOCK);
+                api.clear();
+            } catch (Throwable ignored) {}
+        }
     }
 
-    private OcrResult recognizeInternal(Context ctx, Bitmap bitmap) {
+    /** Runs on the instance's own pool worker; no other thread touches api. */
+    private static OcrResult recognizeInternal(TessBaseAPI api, Bitmap bitmap, CancellationSignal signal) {
         long t0 = System.currentTimeMillis();
         OcrMetrics metrics = OcrQuality.compute(bitmap);
+        try {
+            api.setImage(bitmap);
+            String txt = api.getUTF8Text();
+            List<OcrElement> symbols = new ArrayList<>(EXPECTED_SYMBOLS);
+            if (!isCanceled(signal)) collectSymbols(api, symbols);
+            long dt = System.currentTimeMillis() - t0;
+            return new OcrResult(txt == null ? "" : txt, dt, metrics, OcrResult.Engine.TESSERACT, symbols);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Tesseract OCR failed", e);
+        } finally {
+            try {
+                api.clear();
+            } catch (Throwable ignored) {}
+        }
+    }
 
-        ensureInit(ctx);
+    /**
+     * Appends one SYMBOL element per recognized character of the last recognition (confidence scaled
+     * from Tesseract's 0..100 to 0..1, box in OCR input pixels). Must follow getUTF8Text(): the
+     * iterator then reuses that recognition instead of running OCR again.
+     */
+    static void collectSymbols(TessBaseAPI api, List<OcrElement> out) {
+        ResultIterator it = api.getResultIterator();
+        if (it == null) return;
+        final int level = TessBaseAPI.PageIteratorLevel.RIL_SYMBOL;
+        try {
+            it.begin();
+            do {
+                String ch = it.getUTF8Text(level);
+                if (ch == null || ch.isEmpty()) continue;
+                out.add(new OcrElement(ch, it.getBoundingRect(level), OcrElement.Level.SYMBOL,
+                        OcrResult.Engine.TESSERACT, it.confidence(level) / 100f));
+            } while (it.next(level));
+        } finally {
+            it.delete();
+        }
+    }
 
-        synchronized (lock) {
-            if (tess == null) {
-                throw new IllegalStateException("Tesseract init failed (tess is null)");
-            }
-            try {
-                tess.setImage(bitmap);
-                String txt = tess.getUTF8Text();
-                long dt = System.currentTimeMillis() - t0;
-                return new OcrResult(txt == null ? "" : txt, dt, metrics, OcrResult.Engine.TESSERACT);
-            } catch (Throwable e) {
-                throw new IllegalStateException("Tesseract OCR failed", e);
-            }
+    /** Pool factory: initializes one TessBaseAPI on the calling pool worker. */
+    private TessBaseAPI createApi() {
+        Context ctx = appContext;
+        if (ctx == null) {
+            throw new IllegalStateException("Tesseract init failed (no context)");
+        }
+        File baseDir = ctx.getFilesDir();
+        String selected = ensureTrainedData(ctx, baseDir);
+
+        TessBaseAPI api = new TessBaseAPI();
+        boolean ok;
+        try {
+            ok = api.init(baseDir.getAbsolutePath(), selected, 1);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Tesseract init failed", e);
+        }
+
+        if (!ok) {
+            throw new IllegalStateException("Tesseract init returned false");
         }
+
+        // MRZ tuning
+        api.setVariable(TessBaseAPI.VAR_CHAR_WHITELIST, MRZ_WHITELIST);
+        api.setVariable(VAR_LOAD_SYSTEM_DAWG, "0");
+        api.setVariable(VAR_LOAD_FREQ_DAWG, "0");
+        api.setVariable(VAR_USER_DEFINED_DPI, "300");
+        api.setPageSegMode(TessBaseAPI.PageSegMode.PSM_SINGLE_BLOCK);
+        return api;
+    }
+
+    private static void endApi(TessBaseAPI api) {
+        api.end();
     }
 
-    private void ensureInit(Context ctx) {
-        synchronized (lock) {
-            if (tess != null) return;
+    /** Copies / downloads traineddata once for all instances and returns the language to load. */
+    private String ensureTrainedData(Context ctx, File baseDir) {
+        synchronized (dataLock) {
+            if (lang != null) return lang;
 
-            File baseDir = ctx.getFilesDir();
             File tessdataDir = new File(baseDir, "tessdata");
             if (!tessdataDir.exists()) tessdataDir.mkdirs();
 
@@ -102,7 +390,6 @@ public final class TesseractOcrEngine implements OcrEngine {
             File ocrb = new File(tessdataDir, "ocrb.traineddata");
             File eng = new File(tessdataDir, "eng.traineddata");
 
-            String lang;
             if (ocrb.exists() && ocrb.length() > 1024 * 1024) {
                 lang = "ocrb";
             } else if (eng.exists() && eng.length() > 1024 * 1024) {
@@ -113,27 +400,7 @@ public final class TesseractOcrEngine implements OcrEngine {
                                 tessdataDir.getAbsolutePath()
                 );
             }
-
-            TessBaseAPI api = new TessBaseAPI();
-            boolean ok;
-            try {
-                ok = api.init(baseDir.getAbsolutePath(), lang, 1);
-            } catch (Throwable e) {
-                throw new IllegalStateException("Tesseract init failed", e);
-            }
-
-            if (!ok) {
-                throw new IllegalStateException("Tesseract init returned false");
-            }
-
-            // MRZ tuning
-            api.setVariable(TessBaseAPI.VAR_CHAR_WHITELIST, MRZ_WHITELIST);
-            api.setVariable(VAR_LOAD_SYSTEM_DAWG, "0");
-            api.setVariable(VAR_LOAD_FREQ_DAWG, "0");
-            api.setVariable(VAR_USER_DEFINED_DPI, "300");
-            api.setPageSegMode(TessBaseAPI.PageSegMode.PSM_SINGLE_BLOCK);
-
-            tess = api;
+            return lang;
         }
     }
 
@@ -153,30 +420,6 @@ public final class TesseractOcrEngine implements OcrEngine {
     @Override
     public void close() {
         if (!closed.compareAndSet(false, true)) return;
-
-        synchronized (lock) {
-            if (tess != null) {
-                try {
-                    tess.end();
-                } catch (Throwable ignored) {}
-                tess = null;
-            }
-        }
-    }
-
-    private static final class NamedThreadFactory implements ThreadFactory {
-        private final String baseName;
-        private final AtomicInteger counter = new AtomicInteger(1);
-
-        private NamedThreadFactory(String baseName) {
-            this.baseName = baseName;
-        }
-
-        @Override
-        public Thread newThread(Runnable r) {
-            Thread t = new Thread(r, baseName + "-" + counter.getAndIncrement());
-            t.setDaemon(true);
-            return t;
-        }
+        pool.close();
     }
 }
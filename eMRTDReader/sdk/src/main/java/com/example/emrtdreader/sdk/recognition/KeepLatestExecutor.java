@@ -1,32 +1,24 @@
 package com.example.emrtdreader.sdk.recognition;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.example.emrtdreader.sdk.ocr.OcrScheduler;
+
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Single-thread executor with "keep latest" semantics.
+ * Serial executor with "keep latest" semantics on the shared {@link OcrScheduler.Lane#FRAME} lane.
  *
  * If tasks are submitted while a task is running, only the most recent submitted task will run next.
  * This prevents backlogs on slow devices.
  */
 public final class KeepLatestExecutor {
 
-    private final ExecutorService executor;
     private final AtomicReference<Runnable> pending = new AtomicReference<>(null);
     private final AtomicBoolean workerScheduled = new AtomicBoolean(false);
-
-    public KeepLatestExecutor(String threadName) {
-        this.executor = Executors.newSingleThreadExecutor(r -> {
-            Thread t = new Thread(r, threadName);
-            t.setDaemon(true);
-            return t;
-        });
-    }
+    private volatile boolean shutdown;
 
     public void submit(Runnable task) {
-        if (task == null) return;
+        if (task == null || shutdown) return;
         pending.set(task);
         scheduleWorkerIfNeeded();
     }
@@ -35,9 +27,9 @@ public final class KeepLatestExecutor {
         if (!workerScheduled.compareAndSet(false, true)) {
             return;
         }
-        executor.execute(() -> {
+        OcrScheduler.get().execute(OcrScheduler.Lane.FRAME, () -> {
             try {
-                while (true) {
+                while (!shutdown) {
                     Runnable r = pending.getAndSet(null);
                     if (r == null) break;
                     try {
@@ -49,14 +41,16 @@ public final class KeepLatestExecutor {
             } finally {
                 workerScheduled.set(false);
                 // Handle race: task submitted after we cleared workerScheduled
-                if (pending.get() != null) {
+                if (!shutdown && pending.get() != null) {
                     scheduleWorkerIfNeeded();
                 }
             }
         });
     }
 
+    /** Drops the pending task and stops accepting new ones; the running task is not interrupted. */
     public void shutdownNow() {
-        executor.shutdownNow();
+        shutdown = true;
+        pending.set(null);
     }
 }
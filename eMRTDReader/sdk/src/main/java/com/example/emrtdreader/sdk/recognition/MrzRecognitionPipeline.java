@@ -4,23 +4,33 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Matrix;
 import android.graphics.Rect;
+import android.os.CancellationSignal;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 
 import com.example.emrtdreader.sdk.analysis.ScanState;
+import com.example.emrtdreader.sdk.models.KalmanBoxTracker;
 import com.example.emrtdreader.sdk.models.MrzResult;
 import com.example.emrtdreader.sdk.models.OcrMetrics;
 import com.example.emrtdreader.sdk.models.OcrResult;
 import com.example.emrtdreader.sdk.ocr.DualOcrRunner;
+import com.example.emrtdreader.sdk.ocr.FrameArena;
 import com.example.emrtdreader.sdk.ocr.FrameStats;
+import com.example.emrtdreader.sdk.ocr.HashedWheelTimer;
 import com.example.emrtdreader.sdk.ocr.MrzAutoDetector;
+import com.example.emrtdreader.sdk.ocr.MrzBandCycler;
+import com.example.emrtdreader.sdk.ocr.MrzRectifier;
+import com.example.emrtdreader.sdk.ocr.MrzSearchWindow;
 import com.example.emrtdreader.sdk.ocr.OcrEngine;
-import com.example.emrtdreader.sdk.ocr.RectAverager;
+import com.example.emrtdreader.sdk.ocr.OcrScheduler;
 import com.example.emrtdreader.sdk.utils.MrzBurstAggregator;
 
+import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Re-designed MRZ recognition pipeline:
@@ -42,13 +52,9 @@ public final class MrzRecognitionPipeline {
     private static final float FALLBACK_ROI_HEIGHT_RATIO = 0.38f;
     private static final float FALLBACK_ROI_SIDE_MARGIN_RATIO = 0.05f;
 
-    // ROI scaling for OCR stability (especially for Tesseract on small MRZ)
-    private static final int TARGET_MRZ_LINE_PX = 110; // ~100-120px per line is a good baseline
-    private static final float MIN_SCALE = 1.25f;
-    private static final float MAX_SCALE = 4.0f;
-
     // Backpressure/timeout handling
-    private static final long OCR_IN_FLIGHT_TIMEOUT_MS = 1200L;
+    // Backstop only: beyond the runner's own deadline, so its timeout result is delivered first
+    private static final long OCR_IN_FLIGHT_TIMEOUT_MS = DualOcrRunner.IN_FLIGHT_BACKSTOP_MS;
 
     // Simple degradation counters (reset on success)
     private int consecutiveMrzNotFound = 0;
@@ -59,6 +65,10 @@ public final class MrzRecognitionPipeline {
     private static final int MAX_CONSEC_REJECTED = 3;
     private static final int MAX_CONSEC_INVALID = 3;
 
+    // OCR misses in a row after which the detector re-scans the full frame
+    private static final int FULL_SCAN_AFTER_OCR_MISSES = 2;
+
+    /** Called on SDK worker threads, never the main thread; UI work must be posted by the listener. */
     public interface Listener {
         void onOcr(OcrResult ocr, MrzResult bestSingle, Rect roi);
         void onFinalMrz(MrzResult finalMrz, Rect roi);
@@ -71,18 +81,25 @@ public final class MrzRecognitionPipeline {
     private final Listener listener;
 
     private final MrzBurstAggregator aggregator;
-    private final RectAverager rectAverager;
+    private final KalmanBoxTracker roiTracker = new KalmanBoxTracker();
+    private final MrzSearchWindow searchWindow = new MrzSearchWindow();
+    private final MrzBandCycler bandCycler = new MrzBandCycler();
 
     private final AtomicBoolean finished = new AtomicBoolean(false);
     private final AtomicBoolean ocrInFlight = new AtomicBoolean(false);
 
     private volatile long ocrInFlightSinceMs = 0L;
+    // Cancels the in-flight OCR run when it is given up as stuck, freeing the engine workers.
+    // Whoever takes it (the run's callback or the watchdog) settles the run
+    private final AtomicReference<CancellationSignal> ocrCancel = new AtomicReference<>();
+    // Fires OCR_IN_FLIGHT_TIMEOUT_MS after dispatch unless the run settles first
+    private volatile HashedWheelTimer.Timeout ocrWatchdog;
 
     private volatile OcrEngine mlKitEngine;
     private volatile OcrEngine tessEngine;
     private volatile DualOcrRunner.Mode mode;
 
-    private final KeepLatestExecutor executor = new KeepLatestExecutor("mrz-recognition");
+    private final KeepLatestExecutor executor = new KeepLatestExecutor();
 
     public MrzRecognitionPipeline(Context ctx,
                                  OcrEngine mlKit,
@@ -96,7 +113,6 @@ public final class MrzRecognitionPipeline {
         this.listener = listener;
 
         this.aggregator = new MrzBurstAggregator(3, 12);
-        this.rectAverager = new RectAverager(6, 0.35f);
     }
 
     public void setMode(DualOcrRunner.Mode mode) {
@@ -106,7 +122,9 @@ public final class MrzRecognitionPipeline {
     public void resetBurst() {
         finished.set(false);
         aggregator.reset();
-        rectAverager.reset();
+        roiTracker.reset();
+        searchWindow.reset();
+        bandCycler.reset();
     }
 
     public boolean isFinished() {
@@ -123,17 +141,13 @@ public final class MrzRecognitionPipeline {
 
     /**
      * Called by analyzer before doing heavy bitmap conversions. If OCR is still in flight and not
-     * timed out yet, analyzer can safely drop the frame early.
+     * timed out yet, analyzer can safely drop the frame early. (A stuck run is reset by its
+     * watchdog on the timer wheel, so in flight here always means within the timeout.)
      */
     public boolean shouldSkipBeforeBitmap(long nowMs) {
         if (finished.get()) return true;
 
         if (ocrInFlight.get()) {
-            if (ocrInFlightSinceMs > 0L && (nowMs - ocrInFlightSinceMs) > OCR_IN_FLIGHT_TIMEOUT_MS) {
-                // Treat as stuck; reset and request retry
-                forceInFlightTimeout(nowMs);
-                return false; // allow next frame to be processed
-            }
             notifyFrameProcessed(ScanState.OCR_IN_FLIGHT, MSG_SKIP_OCR_IN_FLIGHT, nowMs);
             return true;
         }
@@ -143,7 +157,19 @@ public final class MrzRecognitionPipeline {
     public void submitUprightFrame(@Nullable Bitmap uprightFrame) {
         if (uprightFrame == null) return;
         if (finished.get()) return;
-        executor.submit(() -> runPipeline(uprightFrame));
+        // Arena is opened when the task actually runs, so superseded frames never allocate one
+        executor.submit(() -> runPipeline(uprightFrame, FrameArena.open("recognition")));
+    }
+
+    private void runPipeline(Bitmap uprightFrame, FrameArena arena) {
+        FrameArena prev = FrameArena.bind(arena);
+        try {
+            runPipeline(uprightFrame);
+        } finally {
+            FrameArena.bind(prev);
+            // DualOcrRunner holds its own reference if OCR was dispatched; otherwise the frame ends here
+            arena.close();
+        }
     }
 
     private void runPipeline(Bitmap uprightFrame) {
@@ -171,15 +197,35 @@ public final class MrzRecognitionPipeline {
             int w = uprightFrame.getWidth();
             int h = uprightFrame.getHeight();
 
-            // FULL-FRAME ROI SEARCH: always run detector on the entire frame.
-            Rect detected = MrzAutoDetector.detect(uprightFrame);
-
-            if (detected == null) {
-                detected = buildFallbackRoi(w, h);
-                notifyFrameProcessed(ScanState.MRZ_NOT_FOUND, MSG_NO_ROI, System.currentTimeMillis());
+            // Search around the stable rect; full-frame scan every N frames, after a miss, on low
+            // confidence, or when the runner-up band is due (it may lie outside the window)
+            boolean wantRunnerUp = bandCycler.runnerUpPending();
+            Rect window = wantRunnerUp ? null : searchWindow.next(w, h);
+            List<MrzAutoDetector.Band> bands = MrzAutoDetector.detectBands(uprightFrame, window);
+            if (bands.isEmpty() && window != null) {
+                // Lost inside the window: re-acquire over the full frame right away
+                bands = MrzAutoDetector.detectBands(uprightFrame, null);
+            }
+            final int bandRank = bandCycler.pick(bands.size());
+
+            Rect stable;
+            if (bandRank > 0) {
+                // Top band gave no MRZ last cycle: read the runner-up as-is, keeping the tracker
+                // and search window anchored on the top band
+                stable = bands.get(bandRank).rect;
+            } else {
+                Rect detected = bands.isEmpty() ? null : bands.get(0).rect;
+                if (detected != null) {
+                    roiTracker.update(detected.left, detected.top, detected.right, detected.bottom);
+                } else {
+                    roiTracker.coast();
+                    notifyFrameProcessed(ScanState.MRZ_NOT_FOUND, MSG_NO_ROI, System.currentTimeMillis());
+                }
+
+                // Velocity-compensated tracked box; blind bottom ROI only when nothing is tracked
+                stable = roiTracker.hasEstimate() ? trackedRect(roiTracker, w, h) : buildFallbackRoi(w, h);
+                searchWindow.onDetection(detected, stable);
             }
-
-            Rect stable = rectAverager.update(detected, w, h);
 
             Bitmap rawRoi = Bitmap.createBitmap(
                     uprightFrame,
@@ -188,24 +234,34 @@ public final class MrzRecognitionPipeline {
                     stable.width(),
                     stable.height()
             );
+            // The upright frame belongs to the caller; only our own crop goes to the arena
+            if (rawRoi != uprightFrame) FrameArena.trackCurrent(rawRoi);
 
-            Bitmap roiForOcr = scaleMrzRoi(rawRoi);
-
-            runOcrAsync(roiForOcr, metrics, stable);
+            // Straighten tilted/keystoned MRZ lines (no-op for axis-aligned bands).
+            // ROI goes out at native resolution; MrzPreprocessor resamples it once per engine
+            Bitmap roi = MrzRectifier.rectify(rawRoi);
+            runOcrAsync(roi, metrics, stable, bandRank);
 
         } catch (Throwable t) {
+            disarmOcrWatchdog();
             ocrInFlight.set(false);
             notifyError("Pipeline error", t);
         }
     }
 
-    private void runOcrAsync(Bitmap roiBmp, OcrMetrics metrics, Rect stable) {
+    private void runOcrAsync(Bitmap roiBmp, OcrMetrics metrics, Rect stable, int bandRank) {
         DualOcrRunner.Mode m = (mode == null) ? DualOcrRunner.Mode.AUTO_DUAL : mode;
 
-        DualOcrRunner.runAsync(appContext, m, mlKitEngine, tessEngine, roiBmp, 0,
+        CancellationSignal cancel = new CancellationSignal();
+        ocrCancel.set(cancel);
+        // Fires on the shared timer wheel even if no further frame arrives
+        ocrWatchdog = OcrScheduler.get().schedule(() -> onOcrWatchdog(cancel),
+                OCR_IN_FLIGHT_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        DualOcrRunner.runAsync(appContext, m, mlKitEngine, tessEngine, roiBmp, 0, FrameArena.current(), cancel,
                 new DualOcrRunner.RunCallback() {
                     @Override
                     public void onSuccess(DualOcrRunner.RunResult rr) {
+                        if (!settleOcr(cancel)) return;
                         ocrInFlight.set(false);
                         ocrInFlightSinceMs = 0L;
                         if (finished.get()) return;
@@ -226,6 +282,7 @@ public final class MrzRecognitionPipeline {
                         }
 
                         MrzResult mrz = (rr != null) ? rr.mrz : null;
+                        bandCycler.onOcrResult(bandRank, mrz != null);
 
                         if (listener != null) {
                             listener.onOcr(ocr, mrz, stable);
@@ -258,6 +315,11 @@ public final class MrzRecognitionPipeline {
                                 msg = "OCR text detected, but MRZ rejected";
                             }
 
+                            // Confidence dropped in the stable rect: re-acquire over the full frame
+                            if (consecutiveMrzNotFound + consecutiveMrzRejected >= FULL_SCAN_AFTER_OCR_MISSES) {
+                                searchWindow.requestFullScan();
+                            }
+
                             if (consecutiveMrzNotFound >= MAX_CONSEC_NOT_FOUND
                                     || consecutiveMrzRejected >= MAX_CONSEC_REJECTED
                                     || consecutiveMrzInvalid >= MAX_CONSEC_INVALID) {
@@ -274,6 +336,7 @@ public final class MrzRecognitionPipeline {
 
                     @Override
                     public void onFailure(Throwable error) {
+                        if (!settleOcr(cancel)) return;
                         ocrInFlight.set(false);
                         String cause = (error != null && error.getMessage() != null && !error.getMessage().isBlank())
                                 ? error.getMessage()
@@ -283,7 +346,20 @@ public final class MrzRecognitionPipeline {
                 });
     }
 
-    private void forceInFlightTimeout(long nowMs) {
+    /**
+     * Watchdog of the run dispatched with cancel: gives it up as stuck, resets and requests a retry.
+     * The stuck run's callback won't arrive after this; its queued/running OCR is dropped.
+     */
+    private void onOcrWatchdog(CancellationSignal cancel) {
+        // The run's callback got there first: nothing is stuck
+        if (!ocrCancel.compareAndSet(cancel, null)) return;
+        cancel.cancel();
+        // Runs on the timer thread: reset and notify on the OCR lane
+        OcrScheduler.get().execute(OcrScheduler.Lane.OCR, OcrScheduler.PRIORITY_HIGH, this::resetStuckOcr);
+    }
+
+    private void resetStuckOcr() {
+        long nowMs = System.currentTimeMillis();
         ocrInFlight.set(false);
         ocrInFlightSinceMs = 0L;
         consecutiveMrzNotFound = 0;
@@ -293,6 +369,20 @@ public final class MrzRecognitionPipeline {
         notifyFrameProcessed(ScanState.MRZ_RETRY_REQUIRED, "Processing took too long. Try again.", nowMs);
     }
 
+    /** Claims the run for its callback; false if the watchdog already gave it up. */
+    private boolean settleOcr(CancellationSignal cancel) {
+        if (!ocrCancel.compareAndSet(cancel, null)) return false;
+        HashedWheelTimer.Timeout watchdog = ocrWatchdog;
+        if (watchdog != null) watchdog.cancel();
+        return true;
+    }
+
+    private void disarmOcrWatchdog() {
+        ocrCancel.set(null);
+        HashedWheelTimer.Timeout watchdog = ocrWatchdog;
+        if (watchdog != null) watchdog.cancel();
+    }
+
     private void notifyError(String message, Throwable error) {
         Log.e(TAG, message, error);
         if (listener != null) {
@@ -319,22 +409,12 @@ public final class MrzRecognitionPipeline {
         }
     }
 
-    private static Bitmap scaleMrzRoi(Bitmap src) {
-        if (src == null) return null;
-        int w = src.getWidth();
-        int h = src.getHeight();
-        if (w <= 0 || h <= 0) return src;
-
-        int currentLinePx = Math.max(1, h / 2);
-        float scale = TARGET_MRZ_LINE_PX / (float) currentLinePx;
-        scale = Math.max(MIN_SCALE, Math.min(scale, MAX_SCALE));
-
-        if (scale < 1.05f) return src;
-
-        int newW = Math.max(1, Math.round(w * scale));
-        int newH = Math.max(1, Math.round(h * scale));
-
-        return Bitmap.createScaledBitmap(src, newW, newH, false);
+    private static Rect trackedRect(KalmanBoxTracker tracker, int frameWidth, int frameHeight) {
+        int left = Math.max(0, Math.min(frameWidth - 1, Math.round(tracker.left())));
+        int top = Math.max(0, Math.min(frameHeight - 1, Math.round(tracker.top())));
+        int right = Math.max(left + 1, Math.min(frameWidth, Math.round(tracker.right())));
+        int bottom = Math.max(top + 1, Math.min(frameHeight, Math.round(tracker.bottom())));
+        return new Rect(left, top, right, bottom);
     }
 
     private static Rect buildFallbackRoi(int frameWidth, int frameHeight) {
@@ -0,0 +1,161 @@
+package com.example.emrtdreader.sdk.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Rect;
+
+import com.example.emrtdreader.sdk.models.MrzBox;
+import com.example.emrtdreader.sdk.models.MrzTracker;
+import com.example.emrtdreader.sdk.models.OcrOutput;
+import com.example.emrtdreader.sdk.models.TrackResult;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class BlockMotionEstimatorTest {
+
+    private static final int W = 320;
+    private static final int H = 240;
+    private static final Rect ROI = new Rect(60, 140, 260, 200);
+
+    @Test
+    public void staticContentHasZeroMotion() {
+        byte[] frame = texturedPlane(W, H, 1);
+
+        BlockMotionEstimator.Motion motion = new BlockMotionEstimator().estimate(frame, frame, W, H, ROI);
+
+        assertTrue(motion.reliable);
+        assertEquals(0f, motion.dx, 0.01f);
+        assertEquals(0f, motion.dy, 0.01f);
+        assertEquals(1f, motion.scale, 0.02f);
+    }
+
+    @Test
+    public void translationIsRecoveredAtFullResolution() {
+        byte[] prev = texturedPlane(W, H, 2);
+        byte[] cur = shift(prev, W, H, 7, -3);
+
+        BlockMotionEstimator.Motion motion = new BlockMotionEstimator().estimate(cur, prev, W, H, ROI);
+
+        assertTrue(motion.reliable);
+        assertEquals(7f, motion.dx, 0.01f);
+        assertEquals(-3f, motion.dy, 0.01f);
+        assertTrue(motion.residual < 1f);
+    }
+
+    @Test
+    public void streamKeepsPreviousFrameItself() {
+        byte[] f0 = texturedPlane(W, H, 5);
+        byte[] f1 = shift(f0, W, H, 6, 2);
+        byte[] f2 = shift(f1, W, H, -3, 0);
+        BlockMotionEstimator estimator = new BlockMotionEstimator();
+
+        assertSame(BlockMotionEstimator.Motion.NONE, estimator.estimateStream(f0, W, H, ROI));
+        BlockMotionEstimator.Motion m1 = estimator.estimateStream(f1, W, H, ROI);
+        // The ROI follows the content, as the facade moves the box
+        BlockMotionEstimator.Motion m2 = estimator.estimateStream(f2, W, H,
+                new Rect(ROI.left + 6, ROI.top + 2, ROI.right + 6, ROI.bottom + 2));
+
+        assertTrue(m1.reliable);
+        assertEquals(6f, m1.dx, 1f);
+        assertEquals(2f, m1.dy, 1f);
+        assertTrue(m2.reliable);
+        assertEquals(-3f, m2.dx, 1f);
+        assertEquals(0f, m2.dy, 1f);
+
+        estimator.reset();
+        assertSame(BlockMotionEstimator.Motion.NONE, estimator.estimateStream(f2, W, H, ROI));
+    }
+
+    @Test
+    public void flatOrMissingInputIsNotReliable() {
+        byte[] flat = new byte[W * H];
+        BlockMotionEstimator estimator = new BlockMotionEstimator();
+
+        assertFalse(estimator.estimate(flat, flat, W, H, ROI).reliable);
+        assertSame(BlockMotionEstimator.Motion.NONE, estimator.estimate(flat, null, W, H, ROI));
+        assertSame(BlockMotionEstimator.Motion.NONE,
+                estimator.estimate(flat, flat, W, H, new Rect(0, 0, 8, 8)));
+    }
+
+    @Test
+    public void gateUsesMotionVectorInsteadOfMad() {
+        byte[] prev = texturedPlane(W, H, 3);
+        byte[] still = prev.clone();
+        byte[] moved = shift(prev, W, H, 16, 0);
+        // MAD threshold of 0 would reject any change; the tracked vector decides instead
+        MrzFrameGate gate = new MrzFrameGate(new MrzFrameGate.Thresholds(0, 255, 0, 0, 0, 10));
+
+        MrzFrameGate.Result stillResult = gate.evaluate(still, W, H, prev, ROI);
+        MrzFrameGate.Result movedResult = gate.evaluate(moved, W, H, prev, ROI);
+
+        assertTrue(stillResult.metrics.motionTracked);
+        assertTrue(stillResult.pass);
+        assertTrue(movedResult.metrics.motionTracked);
+        assertEquals(16f, movedResult.metrics.motionDx, 0.01f);
+        assertFalse(movedResult.pass);
+    }
+
+    @Test
+    public void facadeCarriesBoxAlongMotionWithoutLocalizing() {
+        int[] locateCalls = new int[1];
+        MrzLocalizer localizer = frame -> {
+            locateCalls[0]++;
+            return new MrzBox(ROI.left, ROI.top, ROI.right, ROI.bottom);
+        };
+        MrzPipelineFacade facade = new MrzPipelineFacade(
+                new MrzFrameGate(new MrzFrameGate.Thresholds(0, 255, 0, 0, 255)),
+                localizer,
+                new MrzTracker(),
+                (frame, track) -> new OcrOutput("", 1L, 0f, 0),
+                output -> null,
+                new MrzStateMachine()
+        );
+        byte[] f0 = texturedPlane(W, H, 4);
+        byte[] f1 = shift(f0, W, H, 4, 2);
+
+        facade.onFrame(new FrameInput(f0, W, H, null, 0L));
+        MrzPipelineOutput out = facade.onFrame(new FrameInput(f1, W, H, null, 33L));
+
+        assertEquals(1, locateCalls[0]);
+        assertEquals(ROI.left + 4f, out.localizedBox.left, 0.5f);
+        assertEquals(ROI.top + 2f, out.localizedBox.top, 0.5f);
+    }
+
+    /** Smoothed random texture (blocks of 3x3 noise) so block matching has structure to lock on. */
+    private static byte[] texturedPlane(int w, int h, long seed) {
+        Random rnd = new Random(seed);
+        byte[] out = new byte[w * h];
+        int[] cells = new int[(w / 3 + 1) * (h / 3 + 1)];
+        for (int i = 0; i < cells.length; i++) cells[i] = 40 + rnd.nextInt(180);
+        int cw = w / 3 + 1;
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                out[y * w + x] = (byte) cells[(y / 3) * cw + x / 3];
+            }
+        }
+        return out;
+    }
+
+    /** Content moved by (dx, dy): cur(x + dx, y + dy) = prev(x, y); uncovered pixels repeat the edge. */
+    private static byte[] shift(byte[] src, int w, int h, int dx, int dy) {
+        byte[] out = new byte[w * h];
+        for (int y = 0; y < h; y++) {
+            int sy = Math.max(0, Math.min(h - 1, y - dy));
+            for (int x = 0; x < w; x++) {
+                int sx = Math.max(0, Math.min(w - 1, x - dx));
+                out[y * w + x] = src[sy * w + sx];
+            }
+        }
+        return out;
+    }
+}
@@ -1,11 +1,13 @@
 package com.example.emrtdreader.sdk.analysis;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import android.graphics.Rect;
 
 import com.example.emrtdreader.sdk.models.GateMetrics;
+import com.example.emrtdreader.sdk.models.GateRejectReason;
 
 import org.junit.Test;
 
@@ -76,4 +78,141 @@ public class MrzFrameGateIntegrationTest {
         assertTrue(defaultMetrics.motionMad > 0f);
         assertEquals(0f, defaultMetrics.blurVarLap, 0.001f);
     }
+
+    @Test
+    public void glareAcrossTextRowsRejectsFrame() {
+        int w = 200;
+        int h = 100;
+        byte[] frame = mrzLikePlane(w, h);
+        Rect roi = new Rect(10, 60, 190, 100);
+        // Specular highlight: 60 px wide, covering the middle of the text rows
+        fill(frame, w, 80, 66, 140, 94, 255);
+        MrzFrameGate gate = new MrzFrameGate(new MrzFrameGate.Thresholds(0, 255, 0, 0, 255));
+
+        MrzFrameGate.Result result = gate.evaluate(frame, w, h, null, roi);
+
+        assertFalse(result.pass);
+        assertTrue(result.reasons.contains(GateRejectReason.GLARE));
+        assertTrue(result.metrics.glareTextOverlap > 0.9f);
+        assertTrue(result.metrics.glareExtent >= result.metrics.glareFraction - 0.001f);
+        assertEquals(60f * 28f / (180f * 40f), result.metrics.glareFraction, 0.001f);
+    }
+
+    @Test
+    public void smallHighlightInMarginIsNotGlare() {
+        int w = 200;
+        int h = 100;
+        byte[] frame = mrzLikePlane(w, h);
+        Rect roi = new Rect(10, 60, 190, 100);
+        // Small reflection on the top margin of the band, away from the text rows
+        fill(frame, w, 20, 60, 30, 64, 255);
+        MrzFrameGate gate = new MrzFrameGate(new MrzFrameGate.Thresholds(0, 255, 0, 0, 255));
+
+        MrzFrameGate.Result result = gate.evaluate(frame, w, h, null, roi);
+
+        assertTrue(result.pass);
+        assertTrue(result.reasons.isEmpty());
+        assertEquals(0f, result.metrics.glareTextOverlap, 0.001f);
+        assertTrue(result.metrics.glareFraction > 0f);
+    }
+
+    @Test
+    public void scatteredSaturatedPixelsAreNotConnectedGlare() {
+        int w = 200;
+        int h = 100;
+        byte[] frame = mrzLikePlane(w, h);
+        Rect roi = new Rect(10, 60, 190, 100);
+        for (int y = 60; y < 100; y += 2) {
+            for (int x = 10; x < 190; x += 7) {
+                frame[y * w + x] = (byte) 255;
+            }
+        }
+
+        GateMetrics metrics = MrzFrameGate.computeMetrics(frame, w, h, null, roi);
+
+        assertEquals(0f, metrics.glareTextOverlap, 0.001f);
+        assertTrue(metrics.glareExtent < 0.01f);
+    }
+
+    @Test
+    public void streamKeepsPreviousRoiForMotion() {
+        int w = 200;
+        int h = 100;
+        byte[] first = mrzLikePlane(w, h);
+        byte[] second = first.clone();
+        fill(second, w, 10, 60, 190, 100, 120);
+        Rect roi = new Rect(10, 60, 190, 100);
+        MrzFrameGate gate = new MrzFrameGate(new MrzFrameGate.Thresholds(0, 255, 0, 0, 5), 2);
+
+        MrzFrameGate.Result initial = gate.evaluateStream(first, w, h, roi, null);
+        MrzFrameGate.Result still = gate.evaluateStream(first, w, h, roi, null);
+        MrzFrameGate.Result moved = gate.evaluateStream(second, w, h, roi, null);
+
+        assertEquals(0f, initial.metrics.motionMad, 0.001f);
+        assertEquals(0f, still.metrics.motionMad, 0.001f);
+        assertTrue(still.pass);
+        assertTrue(moved.metrics.motionMad > 5f);
+        assertTrue(moved.reasons.contains(GateRejectReason.HIGH_MOTION));
+    }
+
+    @Test
+    public void streamHistoryIsDroppedWhenRoiChangesOrOnReset() {
+        int w = 200;
+        int h = 100;
+        byte[] first = mrzLikePlane(w, h);
+        byte[] second = first.clone();
+        fill(second, w, 0, 0, w, h, 120);
+        MrzFrameGate gate = new MrzFrameGate(new MrzFrameGate.Thresholds(0, 255, 0, 0, 5));
+
+        gate.evaluateStream(first, w, h, new Rect(10, 60, 190, 100), null);
+        MrzFrameGate.Result otherRoi = gate.evaluateStream(second, w, h, new Rect(10, 50, 190, 100), null);
+        gate.resetHistory();
+        MrzFrameGate.Result afterReset = gate.evaluateStream(first, w, h, new Rect(10, 50, 190, 100), null);
+
+        assertEquals(0f, otherRoi.metrics.motionMad, 0.001f);
+        assertEquals(0f, afterReset.metrics.motionMad, 0.001f);
+    }
+
+    @Test
+    public void streamAtFullResolutionMatchesRoiMetrics() {
+        int w = 200;
+        int h = 100;
+        byte[] frame = mrzLikePlane(w, h);
+        fill(frame, w, 80, 66, 140, 94, 255);
+        Rect roi = new Rect(10, 60, 190, 100);
+        MrzFrameGate gate = new MrzFrameGate(new MrzFrameGate.Thresholds(0, 255, 0, 0, 255), 1);
+
+        GateMetrics stream = gate.evaluateStream(frame, w, h, roi, null).metrics;
+        GateMetrics legacy = MrzFrameGate.computeMetrics(frame, w, h, null, roi);
+        GateMetrics sampled = new MrzFrameGate(new MrzFrameGate.Thresholds(0, 255, 0, 0, 255), 2)
+                .evaluateStream(frame, w, h, roi, null).metrics;
+
+        assertEquals(legacy.blurVarLap, stream.blurVarLap, 0.001f);
+        assertEquals(legacy.glareFraction, stream.glareFraction, 0.001f);
+        assertEquals(legacy.glareExtent, stream.glareExtent, 0.001f);
+        assertEquals(legacy.glareTextOverlap, stream.glareTextOverlap, 0.001f);
+        assertEquals(legacy.glareFraction, sampled.glareFraction, 0.02f);
+        assertEquals(legacy.glareTextOverlap, sampled.glareTextOverlap, 0.05f);
+        assertTrue(sampled.blurVarLap > 0f);
+    }
+
+    /** Mid-gray page with dark glyph-like strokes; no saturated pixels. */
+    private static byte[] mrzLikePlane(int w, int h) {
+        byte[] plane = new byte[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                boolean stroke = y >= 66 && y < 94 && (x % 6) < 2;
+                plane[y * w + x] = (byte) (stroke ? 40 : 180);
+            }
+        }
+        return plane;
+    }
+
+    private static void fill(byte[] plane, int w, int left, int top, int right, int bottom, int value) {
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                plane[y * w + x] = (byte) value;
+            }
+        }
+    }
 }
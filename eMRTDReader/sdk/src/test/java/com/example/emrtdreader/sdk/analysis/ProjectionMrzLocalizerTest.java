@@ -0,0 +1,103 @@
+package com.example.emrtdreader.sdk.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import com.example.emrtdreader.sdk.models.MrzBox;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+public class ProjectionMrzLocalizerTest {
+
+    @Test
+    public void locateFindsMrzBandInLowerPart() {
+        int w = 640;
+        int h = 480;
+        byte[] y = frameWithBand(w, h, 340, 420, 40, 600);
+
+        MrzBox box = new ProjectionMrzLocalizer().locate(new FrameInput(y, w, h, null, 0L));
+
+        assertNotNull(box);
+        assertEquals(340f, box.top, 8f);
+        assertEquals(420f, box.bottom, 8f);
+        assertEquals(40f, box.left, 10f);
+        assertEquals(600f, box.right, 10f);
+    }
+
+    @Test
+    public void locateMapsSampledCoordinatesBackToFrame() {
+        // 1280 wide -> sampled every 2nd pixel
+        int w = 1280;
+        int h = 720;
+        byte[] y = frameWithBand(w, h, 520, 640, 80, 1200);
+
+        MrzBox box = new ProjectionMrzLocalizer().locate(new FrameInput(y, w, h, null, 0L));
+
+        assertNotNull(box);
+        assertEquals(520f, box.top, 16f);
+        assertEquals(640f, box.bottom, 16f);
+        assertEquals(80f, box.left, 20f);
+        assertEquals(1200f, box.right, 20f);
+    }
+
+    @Test
+    public void locateReusesScratchAcrossFrameSizes() {
+        ProjectionMrzLocalizer localizer = new ProjectionMrzLocalizer();
+        assertNotNull(localizer.locate(frameWithBand(1280, 720, 520, 640, 80, 1200), 1280, 720));
+
+        MrzBox box = localizer.locate(frameWithBand(640, 480, 340, 420, 40, 600), 640, 480);
+
+        assertNotNull(box);
+        assertEquals(340f, box.top, 8f);
+    }
+
+    @Test
+    public void locateReturnsNullForFlatFrame() {
+        byte[] y = new byte[640 * 480];
+        Arrays.fill(y, (byte) 200);
+
+        assertNull(new ProjectionMrzLocalizer().locate(new FrameInput(y, 640, 480, null, 0L)));
+    }
+
+    @Test
+    public void locateRejectsNarrowBand() {
+        // Text block too narrow to be an MRZ
+        byte[] y = frameWithBand(640, 480, 340, 420, 250, 390);
+
+        assertNull(new ProjectionMrzLocalizer().locate(y, 640, 480));
+    }
+
+    @Test
+    public void locateRejectsBandInUpperHalf() {
+        byte[] y = frameWithBand(640, 480, 40, 120, 40, 600);
+
+        assertNull(new ProjectionMrzLocalizer().locate(y, 640, 480));
+    }
+
+    @Test
+    public void locateRejectsNullFrame() {
+        assertThrows(IllegalArgumentException.class, () -> new ProjectionMrzLocalizer().locate((FrameInput) null));
+    }
+
+    /** Bright frame with a block of glyph-like vertical strokes at TD3 character pitch. */
+    private static byte[] frameWithBand(int w, int h, int top, int bottom, int left, int right) {
+        byte[] y = new byte[w * h];
+        Arrays.fill(y, (byte) 210);
+        for (int row = top; row < bottom; row++) {
+            for (int x = left; x < right; x++) {
+                if (isStroke(x, left, right)) y[row * w + x] = 20;
+            }
+        }
+        return y;
+    }
+
+    /** Glyph-like strokes: 44 evenly pitched characters (TD3 line) across [left, right). */
+    private static boolean isStroke(int x, int left, int right) {
+        int span = right - left;
+        return ((x - left) * 44) % span < span * 11 / 20;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.emrtdreader.sdk.analyzer;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -8,6 +9,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -388,6 +390,41 @@ public class MrzImageAnalyzerTest {
         firstThread.join(500);
     }
 
+    @Test
+    public void analyzeDeliversPartialMlTextWhenDualTimeoutFires() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        MrzImageAnalyzer.Listener listener = mock(MrzImageAnalyzer.Listener.class);
+        CountDownLatch ocrLatch = new CountDownLatch(1);
+        AtomicReference<OcrResult> delivered = new AtomicReference<>();
+        doAnswer(invocation -> {
+            delivered.set(invocation.getArgument(0));
+            ocrLatch.countDown();
+            return null;
+        }).when(listener).onOcr(any(), any(), any());
+
+        // ML Kit answers with partial text; Tesseract never answers, so the dual timeout decides
+        MrzImageAnalyzer analyzer = new MrzImageAnalyzer(
+                context,
+                new FixedOcrEngine(new OcrResult(
+                        "P<UTOERIKSSON<<ANNA",
+                        1,
+                        new OcrMetrics(0, 0, 0),
+                        OcrResult.Engine.ML_KIT
+                )),
+                new HangingOcrEngine(),
+                DualOcrRunner.Mode.AUTO_DUAL,
+                0,
+                listener,
+                createTestConverter(createMrzSampleBitmap(320, 240))
+        );
+
+        analyzer.analyze(createImageProxy(new AtomicBoolean(false), 320, 240));
+
+        assertTrue(ocrLatch.await(DualOcrRunner.IN_FLIGHT_BACKSTOP_MS + 1000L, TimeUnit.MILLISECONDS));
+        assertEquals("P<UTOERIKSSON<<ANNA", delivered.get().rawText);
+        verify(listener, never()).onFrameProcessed(eq(ScanState.MRZ_OCR_TIMEOUT), any(), anyLong());
+    }
+
     @Test
     public void analyzeLogsFrameStatsForSyntheticBitmap() throws InterruptedException {
         ShadowLog.clear();
@@ -1433,6 +1470,27 @@ public class MrzImageAnalyzerTest {
         }
     }
 
+    private static class HangingOcrEngine implements OcrEngine {
+        @Override
+        public String getName() {
+            return "hanging";
+        }
+
+        @Override
+        public boolean isAvailable(Context ctx) {
+            return true;
+        }
+
+        @Override
+        public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees, Callback callback) {
+            // Never calls back
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private static class FlagOnlyOcrEngine implements OcrEngine {
         private final AtomicBoolean called;
 
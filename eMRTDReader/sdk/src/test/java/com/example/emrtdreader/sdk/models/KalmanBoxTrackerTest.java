@@ -0,0 +1,103 @@
+package com.example.emrtdreader.sdk.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class KalmanBoxTrackerTest {
+    @Test
+    public void constructorRejectsNonPositiveNoise() {
+        assertThrows(IllegalArgumentException.class, () -> new KalmanBoxTracker(0f, 2f));
+        assertThrows(IllegalArgumentException.class, () -> new KalmanBoxTracker(4f, -1f));
+    }
+
+    @Test
+    public void stillBoxBecomesStableWithinMeasurementNoise() {
+        KalmanBoxTracker tracker = new KalmanBoxTracker();
+
+        tracker.update(100f, 400f, 900f, 500f);
+        assertFalse(tracker.isStable());
+        tracker.update(101f, 399f, 899f, 501f);
+        assertFalse(tracker.isStable());
+        tracker.update(100f, 400f, 900f, 500f);
+
+        assertTrue(tracker.isStable());
+        assertTrue(tracker.positionStd() < KalmanBoxTracker.DEFAULT_MEASUREMENT_STD_PX);
+        assertEquals(100f, tracker.left(), 1f);
+        assertEquals(500f, tracker.bottom(), 1f);
+    }
+
+    @Test
+    public void boxJitteringInPlaceIsNotStable() {
+        KalmanBoxTracker tracker = new KalmanBoxTracker();
+        for (int i = 0; i < 10; i++) {
+            // +-5 px around a fixed box: the covariance converges and the mean velocity stays small
+            float o = (i % 2 == 0) ? 5f : -5f;
+            tracker.update(100f + o, 400f + o, 900f + o, 500f + o);
+            assertFalse("frame " + i, tracker.isStable());
+        }
+
+        assertTrue(tracker.positionStd() < KalmanBoxTracker.DEFAULT_MEASUREMENT_STD_PX);
+        assertTrue(Math.abs(tracker.velocityY()) < 1.5f);
+        assertTrue(tracker.innovationScore() > 1f);
+    }
+
+    @Test
+    public void constantVelocityIsFollowedWithoutLag() {
+        KalmanBoxTracker tracker = new KalmanBoxTracker();
+        for (int i = 0; i < 15; i++) {
+            float y = 300f + 6f * i;
+            tracker.update(100f, y, 900f, y + 100f);
+        }
+
+        // A moving average over the last 6 boxes would trail by ~15 px here
+        assertEquals(300f + 6f * 14, tracker.top(), 1.5f);
+        assertEquals(6f, tracker.velocityY(), 0.5f);
+        assertFalse(tracker.isStable());
+
+        tracker.coast();
+        assertEquals(300f + 6f * 15, tracker.top(), 2f);
+    }
+
+    @Test
+    public void outlierIsRejectedThenReacquiredAfterRepeats() {
+        KalmanBoxTracker tracker = new KalmanBoxTracker();
+        for (int i = 0; i < 5; i++) tracker.update(100f, 400f, 900f, 500f);
+
+        assertFalse(tracker.update(100f, 100f, 900f, 200f));
+        assertEquals(400f, tracker.top(), 1f);
+        assertFalse(tracker.update(100f, 100f, 900f, 200f));
+        assertTrue(tracker.update(100f, 100f, 900f, 200f));
+        assertEquals(100f, tracker.top(), 0.001f);
+        assertFalse(tracker.isStable());
+    }
+
+    @Test
+    public void trackIsDroppedAfterTooManyCoasts() {
+        KalmanBoxTracker tracker = new KalmanBoxTracker();
+        tracker.update(100f, 400f, 900f, 500f);
+
+        for (int i = 0; i < 5; i++) tracker.coast();
+        assertTrue(tracker.hasEstimate());
+        tracker.coast();
+        assertFalse(tracker.hasEstimate());
+    }
+
+    @Test
+    public void kalmanMrzTrackerReportsCovarianceStability() {
+        KalmanMrzTracker tracker = new KalmanMrzTracker();
+        MrzBox box = new MrzBox(0f, 300f, 600f, 400f);
+
+        TrackResult first = tracker.track(box);
+        tracker.track(box);
+        TrackResult third = tracker.track(box);
+
+        assertFalse(first.stable);
+        assertTrue(third.stable);
+        assertEquals(1, third.stableCount);
+        assertTrue(third.jitter < first.jitter);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.emrtdreader.sdk.models;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class MrzLayoutTest {
+    @Test
+    public void classifiesFormatFromLinesAndChars() {
+        assertEquals(MrzFormat.TD1, new MrzLayout(3, 30, 20f).format);
+        assertEquals(MrzFormat.TD3, new MrzLayout(2, 43, 14f).format);
+        // Lines or chars alone don't pin a format
+        assertNull(new MrzLayout(3, 0, 0f).format);
+        assertNull(new MrzLayout(3, 44, 14f).format);
+        assertNull(new MrzLayout(2, 30, 20f).format);
+        // TD2 can't be parsed: leave it open rather than reject everything
+        assertNull(new MrzLayout(2, 36, 16f).format);
+        assertNull(new MrzLayout(2, 0, 0f).format);
+        assertNull(new MrzLayout(2, 40, 15f).format);
+        assertNull(new MrzLayout(0, 0, 0f).format);
+    }
+
+    @Test
+    public void allowsOnlyPlausibleFormats() {
+        MrzLayout twoLines = new MrzLayout(2, 0, 0f);
+        assertTrue(twoLines.allows(MrzFormat.TD3));
+        assertTrue(twoLines.allows(MrzFormat.TD2));
+        assertTrue(twoLines.allows(MrzFormat.TD1));
+
+        MrzLayout td3 = new MrzLayout(2, 44, 14f);
+        assertTrue(td3.allows(MrzFormat.TD3));
+        assertFalse(td3.allows(MrzFormat.TD2));
+        assertFalse(td3.allows(MrzFormat.TD1));
+
+        MrzLayout unknown = new MrzLayout(0, 0, 0f);
+        assertTrue(unknown.allows(MrzFormat.TD1));
+        assertTrue(unknown.allows(MrzFormat.TD3));
+    }
+
+    @Test
+    public void constructorRejectsNegativeValues() {
+        assertThrows(IllegalArgumentException.class, () -> new MrzLayout(-1, 0, 0f));
+        assertThrows(IllegalArgumentException.class, () -> new MrzLayout(2, 0, -1f));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class AdaptiveOcrRouterStoreTest {
+
+    private SharedPreferences preferences() {
+        Context context = ApplicationProvider.getApplicationContext();
+        return context.getSharedPreferences(AdaptiveOcrRouterStore.PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    private void clearPrefs() {
+        preferences().edit().clear().commit();
+    }
+
+    @Test
+    public void saveAndLoadRoundTrip() {
+        clearPrefs();
+        Context context = ApplicationProvider.getApplicationContext();
+        AdaptiveOcrRouterStore store = new AdaptiveOcrRouterStore(context);
+        Map<String, AdaptiveOcrRouter.ArmStats> arms = new HashMap<>();
+        arms.put("mode:TESS_ONLY", new AdaptiveOcrRouter.ArmStats(7.5, 2.25, 340.0));
+        arms.put("params:15/5/2.0/0", new AdaptiveOcrRouter.ArmStats(1, 0, 95.5));
+
+        store.save("back", 720, 1280, arms);
+        Map<String, AdaptiveOcrRouter.ArmStats> loaded = store.load("back", 720, 1280);
+
+        assertNotNull(loaded);
+        assertEquals(2, loaded.size());
+        AdaptiveOcrRouter.ArmStats mode = loaded.get("mode:TESS_ONLY");
+        assertEquals(7.5, mode.successes, 1e-9);
+        assertEquals(2.25, mode.failures, 1e-9);
+        assertEquals(340.0, mode.latencyMs, 1e-9);
+        assertEquals(95.5, loaded.get("params:15/5/2.0/0").latencyMs, 1e-9);
+        assertNull(store.load("back", 1280, 720));
+    }
+
+    @Test
+    public void loadReturnsNullForInvalidJson() {
+        clearPrefs();
+        String key = AdaptiveOcrRouterStore.buildKey("back", 720, 1280);
+        preferences().edit().putString(key, "not-json").commit();
+
+        AdaptiveOcrRouterStore store = new AdaptiveOcrRouterStore(ApplicationProvider.getApplicationContext());
+
+        assertNull(store.load("back", 720, 1280));
+    }
+
+    @Test
+    public void fromJsonRejectsNegativeStats() {
+        assertNull(AdaptiveOcrRouterStore.fromJson(
+                "{\"mode:AUTO_DUAL\":{\"successes\":-1,\"failures\":0,\"latencyMs\":10}}"));
+    }
+
+    @Test
+    public void routerRestoresSavedStats() {
+        clearPrefs();
+        Context context = ApplicationProvider.getApplicationContext();
+        AdaptiveOcrRouterStore store = new AdaptiveOcrRouterStore(context);
+        AdaptiveOcrRouter first = new AdaptiveOcrRouter(store, new Random(1));
+        first.route("back", 720, 1280).begin(DualOcrRunner.Mode.TESS_ONLY).finish(null);
+        first.flush();
+
+        AdaptiveOcrRouter second = new AdaptiveOcrRouter(store, new Random(1));
+        AdaptiveOcrRouter.ArmStats stats = second.route("back", 720, 1280).snapshot().get("mode:TESS_ONLY");
+
+        assertNotNull(stats);
+        assertEquals(1.0, stats.failures, 1e-9);
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.emrtdreader.sdk.models.MrzFormat;
+import com.example.emrtdreader.sdk.models.MrzResult;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class AdaptiveOcrRouterTest {
+
+    private static final MrzResult VALID_MRZ =
+            new MrzResult("L1", "L2", null, MrzFormat.TD3, DualOcrRunner.STRONG_MRZ_CONFIDENCE);
+
+    private static AdaptiveOcrRouter newRouter() {
+        return new AdaptiveOcrRouter(null, new Random(42));
+    }
+
+    @Test
+    public void chooseModeConvergesToModeThatReadsMrz() {
+        AdaptiveOcrRouter.Route route = newRouter().route("back", 720, 1280);
+        for (int i = 0; i < 20; i++) {
+            route.begin(DualOcrRunner.Mode.AUTO_DUAL).finish(null);
+            route.begin(DualOcrRunner.Mode.TESS_ONLY).finish(VALID_MRZ);
+        }
+
+        int tessOnly = 0;
+        for (int i = 0; i < 100; i++) {
+            if (route.chooseMode() == DualOcrRunner.Mode.TESS_ONLY) tessOnly++;
+        }
+        assertTrue("TESS_ONLY chosen " + tessOnly + "/100", tessOnly >= 95);
+    }
+
+    @Test
+    public void orderCandidatesPutsSuccessfulCandidateFirst() {
+        AdaptiveOcrRouter.Route route = newRouter().route("back", 720, 1280);
+        List<PreprocessParams> candidates = PreprocessParamSet.getCandidates();
+        PreprocessParams winner = candidates.get(candidates.size() - 1);
+        for (int i = 0; i < 20; i++) {
+            for (PreprocessParams p : candidates) {
+                route.begin(p).finish(p == winner ? VALID_MRZ : null);
+            }
+        }
+
+        int first = 0;
+        for (int i = 0; i < 100; i++) {
+            List<PreprocessParams> ordered = route.orderCandidates(candidates);
+            assertEquals(candidates.size(), ordered.size());
+            if (ordered.get(0) == winner) first++;
+        }
+        assertTrue("winner first " + first + "/100", first >= 95);
+    }
+
+    @Test
+    public void weakMrzCountsAsFailure() {
+        AdaptiveOcrRouter.Route route = newRouter().route("back", 720, 1280);
+        MrzResult weak = new MrzResult("L1", "L2", null, MrzFormat.TD3, DualOcrRunner.STRONG_MRZ_CONFIDENCE - 1);
+        route.begin(DualOcrRunner.Mode.TESS_ONLY).finish(weak);
+
+        AdaptiveOcrRouter.ArmStats stats = route.snapshot().get("mode:TESS_ONLY");
+        assertEquals(0.0, stats.successes, 0.0);
+        assertEquals(1.0, stats.failures, 0.0);
+    }
+
+    @Test
+    public void attemptRecordsOnlyFirstFinish() {
+        AdaptiveOcrRouter.Route route = newRouter().route("back", 720, 1280);
+        AdaptiveOcrRouter.Attempt attempt = route.begin(DualOcrRunner.Mode.AUTO_DUAL);
+        attempt.finish(VALID_MRZ);
+        attempt.finish(null);
+
+        Map<String, AdaptiveOcrRouter.ArmStats> snapshot = route.snapshot();
+        AdaptiveOcrRouter.ArmStats stats = snapshot.get("mode:AUTO_DUAL");
+        assertEquals(1.0, stats.successes, 0.0);
+        assertEquals(0.0, stats.failures, 0.0);
+    }
+
+    @Test
+    public void routeIsCachedPerCameraAndSize() {
+        AdaptiveOcrRouter router = newRouter();
+        AdaptiveOcrRouter.Route a = router.route("back", 720, 1280);
+
+        assertSame(a, router.route("back", 720, 1280));
+        assertTrue(a != router.route("back", 1280, 720));
+        assertTrue(a != router.route("front", 720, 1280));
+    }
+
+    @Test
+    public void armStatsDiscountEvidenceBeyondCap() {
+        AdaptiveOcrRouter.ArmStats stats = new AdaptiveOcrRouter.ArmStats();
+        for (int i = 0; i < 200; i++) {
+            stats.add(i % 2 == 0, 100);
+        }
+        assertEquals(AdaptiveOcrRouter.MAX_EVIDENCE, stats.successes + stats.failures, 1e-9);
+        assertEquals(stats.successes, stats.failures, 1.0);
+    }
+
+    @Test
+    public void armStatsTrackLatencyMean() {
+        AdaptiveOcrRouter.ArmStats stats = new AdaptiveOcrRouter.ArmStats();
+        assertEquals(AdaptiveOcrRouter.PRIOR_LATENCY_MS, stats.expectedLatencyMs(), 0.0);
+
+        stats.add(true, 100);
+        assertEquals(100.0, stats.expectedLatencyMs(), 1e-9);
+        stats.add(false, 200);
+        assertEquals(120.0, stats.expectedLatencyMs(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void armStatsRejectNegativeCounts() {
+        new AdaptiveOcrRouter.ArmStats(-1, 0, 0);
+    }
+
+    @Test
+    public void sampleBetaStaysInUnitIntervalAndFollowsMean() {
+        Random random = new Random(7);
+        double sum = 0;
+        int n = 2000;
+        for (int i = 0; i < n; i++) {
+            double x = AdaptiveOcrRouter.sampleBeta(random, 9, 3);
+            assertTrue(x > 0 && x < 1);
+            sum += x;
+        }
+        assertEquals(0.75, sum / n, 0.02);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ContrastStretchTest {
+
+    @Test
+    public void applyInPlaceStretchesDarkCaptureToFullRange() {
+        // Dark capture: text at ~20, paper at ~70
+        byte[] luma = new byte[1000];
+        for (int i = 0; i < luma.length; i++) {
+            luma[i] = (byte) ((i % 5 == 0) ? 20 : 70);
+        }
+
+        ContrastStretch.applyInPlace(luma, 0, luma.length);
+
+        assertEquals(0, luma[0] & 0xFF);
+        assertEquals(255, luma[1] & 0xFF);
+    }
+
+    @Test
+    public void applyInPlaceKeepsMidtonesOfWashedOutCapture() {
+        // Washed out: text at 180, paper at 240 - a fixed 1.8x gain would clip both to 255
+        byte[] luma = new byte[1000];
+        for (int i = 0; i < luma.length; i++) {
+            luma[i] = (byte) ((i % 4 == 0) ? 180 : 240);
+        }
+
+        ContrastStretch.applyInPlace(luma, 0, luma.length);
+
+        assertTrue((luma[0] & 0xFF) < 64);
+        assertEquals(255, luma[1] & 0xFF);
+    }
+
+    @Test
+    public void applyInPlaceRespectsOffsetAndLength() {
+        byte[] luma = new byte[] {5, 20, 70, 20, 70, 5};
+
+        ContrastStretch.applyInPlace(luma, 1, 4);
+
+        assertEquals(5, luma[0]);
+        assertEquals(5, luma[5]);
+        assertEquals(0, luma[1] & 0xFF);
+        assertEquals(255, luma[2] & 0xFF);
+    }
+
+    @Test
+    public void buildLutEnforcesMinimumSpanOnFlatHistogram() {
+        int[] hist = new int[256];
+        hist[128] = 100;
+
+        byte[] lut = ContrastStretch.buildLut(hist, 100);
+
+        int lo = 128 - ContrastStretch.MIN_SPAN / 2;
+        assertEquals(0, lut[lo] & 0xFF);
+        assertEquals(255, lut[lo + ContrastStretch.MIN_SPAN] & 0xFF);
+        int mid = lut[128] & 0xFF;
+        assertTrue(mid > 100 && mid < 155);
+    }
+
+    @Test
+    public void applyToArgbInPlaceProducesGrayPixels() {
+        int[] argb = new int[] {0xFF102030, 0xFF808080, 0xFFC0D0E0, 0xFF000000};
+
+        ContrastStretch.applyToArgbInPlace(argb, argb.length);
+
+        for (int p : argb) {
+            int r = (p >> 16) & 0xFF;
+            int g = (p >> 8) & 0xFF;
+            int b = p & 0xFF;
+            assertEquals(r, g);
+            assertEquals(g, b);
+            assertEquals(0xFF, p >>> 24);
+        }
+    }
+}
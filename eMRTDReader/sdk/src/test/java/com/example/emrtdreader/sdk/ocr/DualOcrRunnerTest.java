@@ -1,6 +1,7 @@
 package com.example.emrtdreader.sdk.ocr;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -8,6 +9,7 @@ import static org.junit.Assert.assertTrue;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Color;
+import android.os.CancellationSignal;
 
 import androidx.test.core.app.ApplicationProvider;
 
@@ -26,6 +28,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 @RunWith(RobolectricTestRunner.class)
@@ -87,6 +90,113 @@ public class DualOcrRunnerTest {
         assertEquals(OcrResult.Engine.ML_KIT, result.ocr.engine);
     }
 
+    @Test
+    public void strongMlKitMrzCompletesEarlyAndCancelsTesseract() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        Bitmap bitmap = Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888);
+
+        OcrEngine mlKit = new FakeOcrEngine("mlkit",
+                new OcrResult(TD3_VALID_RAW, 12, new OcrMetrics(0, 0, 0), OcrResult.Engine.ML_KIT),
+                0,
+                false);
+        SlowCancellableOcrEngine tess = new SlowCancellableOcrEngine(
+                new OcrResult(TD3_INVALID_RAW, 14, new OcrMetrics(0, 0, 0), OcrResult.Engine.TESSERACT),
+                3000);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<DualOcrRunner.RunResult> resultRef = new AtomicReference<>();
+
+        DualOcrRunner.runAsyncWithTimeout(
+                context,
+                DualOcrRunner.Mode.AUTO_DUAL,
+                mlKit,
+                tess,
+                bitmap,
+                0,
+                5000,
+                new DualOcrRunner.RunCallback() {
+                    @Override
+                    public void onSuccess(DualOcrRunner.RunResult result) {
+                        resultRef.set(result);
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable error) {
+                        latch.countDown();
+                    }
+                });
+
+        // Neither the 3 s Tesseract run nor the 5 s timeout is waited for
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        DualOcrRunner.RunResult result = resultRef.get();
+        assertNotNull(result);
+        assertNotNull(result.mrz);
+        assertEquals(OcrResult.Engine.ML_KIT, result.ocr.engine);
+        assertTrue(tess.signal.get().isCanceled());
+        assertFalse(tess.delivered.get());
+    }
+
+    @Test
+    public void callerCancelStopsBothEnginesAndSuppressesCallback() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        Bitmap bitmap = Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888);
+
+        SlowCancellableOcrEngine mlKit = new SlowCancellableOcrEngine(
+                new OcrResult(TD3_VALID_RAW, 12, new OcrMetrics(0, 0, 0), OcrResult.Engine.ML_KIT),
+                300);
+        SlowCancellableOcrEngine tess = new SlowCancellableOcrEngine(
+                new OcrResult(TD3_VALID_RAW, 14, new OcrMetrics(0, 0, 0), OcrResult.Engine.TESSERACT),
+                300);
+        FrameArena arena = FrameArena.open("cancel-test");
+        CancellationSignal cancel = new CancellationSignal();
+        AtomicBoolean called = new AtomicBoolean(false);
+
+        DualOcrRunner.runAsyncWithTimeout(
+                context,
+                DualOcrRunner.Mode.AUTO_DUAL,
+                mlKit,
+                tess,
+                bitmap,
+                0,
+                5000,
+                arena,
+                cancel,
+                new DualOcrRunner.RunCallback() {
+                    @Override
+                    public void onSuccess(DualOcrRunner.RunResult result) {
+                        called.set(true);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable error) {
+                        called.set(true);
+                    }
+                });
+        arena.close();
+
+        // Wait until both engines got their work, then give up on the run
+        long deadline = System.currentTimeMillis() + 2000;
+        while ((mlKit.signal.get() == null || tess.signal.get() == null)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        cancel.cancel();
+
+        assertTrue(mlKit.signal.get().isCanceled());
+        assertTrue(tess.signal.get().isCanceled());
+        // Runner reference released without a callback
+        deadline = System.currentTimeMillis() + 1000;
+        while (!arena.isReleased() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(arena.isReleased());
+        Thread.sleep(500);
+        assertFalse(called.get());
+        assertFalse(mlKit.delivered.get());
+        assertFalse(tess.delivered.get());
+    }
+
     @Test
     public void dualRunnerReturnsAvailableResultWhenOtherFails() throws InterruptedException {
         Context context = ApplicationProvider.getApplicationContext();
@@ -302,6 +412,52 @@ public class DualOcrRunnerTest {
         assertTrue("Tesseract input should be scaled up", tessBitmap.getWidth() > mlBitmap.getWidth());
     }
 
+    @Test
+    public void frameArenaIsReleasedAfterCallbackDelivered() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        FrameArena arena = FrameArena.open("test");
+        Bitmap bitmap = arena.track(createGradientBitmap(8, 8));
+
+        CapturingOcrEngine mlKit = new CapturingOcrEngine(OcrResult.Engine.ML_KIT);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Boolean> releasedInCallback = new AtomicReference<>();
+
+        DualOcrRunner.runAsyncWithTimeout(
+                context,
+                DualOcrRunner.Mode.MLKIT_ONLY,
+                mlKit,
+                null,
+                bitmap,
+                0,
+                500,
+                arena,
+                new DualOcrRunner.RunCallback() {
+                    @Override
+                    public void onSuccess(DualOcrRunner.RunResult result) {
+                        releasedInCallback.set(arena.isReleased());
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onFailure(Throwable error) {
+                        latch.countDown();
+                    }
+                });
+        // Runner holds its own reference; the owner can let go right away
+        arena.close();
+
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        assertEquals(Boolean.FALSE, releasedInCallback.get());
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!arena.isReleased() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(arena.isReleased());
+        assertTrue(bitmap.isRecycled());
+        assertTrue("Preprocessed input should be allocated from the arena", mlKit.lastBitmap.get().isRecycled());
+    }
+
     @Test
     public void pickBestPrefersTd3WhenConfidenceTies() throws Exception {
         MrzResult td1 = new MrzResult("L1", "L2", "L3", MrzFormat.TD1, 2);
@@ -424,6 +580,52 @@ public class DualOcrRunnerTest {
         }
     }
 
+    /** Delivers after delayMs unless the signal was canceled first. */
+    private static final class SlowCancellableOcrEngine implements OcrEngine {
+        private static final ScheduledExecutorService EXECUTOR =
+                Executors.newScheduledThreadPool(1);
+
+        private final OcrResult result;
+        private final long delayMs;
+        private final AtomicReference<CancellationSignal> signal = new AtomicReference<>();
+        private final AtomicBoolean delivered = new AtomicBoolean(false);
+
+        private SlowCancellableOcrEngine(OcrResult result, long delayMs) {
+            this.result = result;
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public String getName() {
+            return "slow";
+        }
+
+        @Override
+        public boolean isAvailable(Context ctx) {
+            return true;
+        }
+
+        @Override
+        public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees, Callback callback) {
+            recognizeAsync(ctx, bitmap, rotationDegrees, new CancellationSignal(), callback);
+        }
+
+        @Override
+        public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees,
+                                   CancellationSignal cancel, Callback callback) {
+            signal.set(cancel);
+            EXECUTOR.schedule(() -> {
+                if (cancel != null && cancel.isCanceled()) return;
+                delivered.set(true);
+                callback.onSuccess(result);
+            }, delayMs, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private static final class CapturingOcrEngine implements OcrEngine {
         private static final ScheduledExecutorService EXECUTOR =
                 Executors.newScheduledThreadPool(2);
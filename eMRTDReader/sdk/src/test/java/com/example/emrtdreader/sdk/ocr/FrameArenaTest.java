@@ -0,0 +1,131 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class FrameArenaTest {
+
+    @After
+    public void tearDown() {
+        FrameArena.bind(null);
+        FrameArena.setLeakReporting(false);
+    }
+
+    @Test
+    public void closeRecyclesTrackedBitmaps() {
+        FrameArena arena = FrameArena.open("test");
+        Bitmap a = arena.track(Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888));
+        Bitmap b = arena.track(Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888));
+
+        arena.close();
+
+        assertTrue(arena.isReleased());
+        assertTrue(a.isRecycled());
+        assertTrue(b.isRecycled());
+    }
+
+    @Test
+    public void retainedArenaSurvivesOwnerCloseUntilReleased() {
+        FrameArena arena = FrameArena.open("test");
+        Bitmap a = arena.track(Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888));
+
+        assertTrue(arena.retain());
+        arena.close();
+        assertFalse(a.isRecycled());
+
+        arena.release();
+        assertTrue(a.isRecycled());
+        assertFalse(arena.retain());
+    }
+
+    @Test
+    public void closeIsIdempotent() {
+        FrameArena arena = FrameArena.open("test");
+        assertTrue(arena.retain());
+
+        arena.close();
+        arena.close();
+
+        assertFalse(arena.isReleased());
+        arena.release();
+        assertTrue(arena.isReleased());
+    }
+
+    @Test
+    public void trackingSameBitmapTwiceKeepsOneEntry() {
+        FrameArena arena = FrameArena.open("test");
+        Bitmap a = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+
+        assertSame(a, arena.track(a));
+        assertSame(a, arena.track(a));
+
+        assertEquals(1, arena.size());
+        arena.close();
+    }
+
+    @Test
+    public void createBitmapRegistersWithBoundArena() {
+        FrameArena arena = FrameArena.open("test");
+        FrameArena prev = FrameArena.bind(arena);
+        Bitmap a;
+        try {
+            a = FrameArena.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+        } finally {
+            FrameArena.bind(prev);
+        }
+        Bitmap unbound = FrameArena.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+
+        arena.close();
+
+        assertTrue(a.isRecycled());
+        assertFalse(unbound.isRecycled());
+        assertNull(FrameArena.current());
+    }
+
+    @Test
+    public void holdCurrentDelaysRecycleUntilHoldReleased() {
+        FrameArena arena = FrameArena.open("test");
+        Bitmap a = arena.track(Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888));
+        FrameArena prev = FrameArena.bind(arena);
+        FrameArena hold;
+        try {
+            hold = FrameArena.holdCurrent();
+        } finally {
+            FrameArena.bind(prev);
+        }
+
+        arena.close();
+        assertFalse(a.isRecycled());
+
+        FrameArena.releaseHold(hold);
+        assertTrue(a.isRecycled());
+        assertNull(FrameArena.holdCurrent());
+    }
+
+    @Test
+    public void reportLeaksCountsOnlyOpenArenas() {
+        FrameArena.setLeakReporting(true);
+        FrameArena leaked = FrameArena.open("leaked");
+        FrameArena closed = FrameArena.open("closed");
+        closed.close();
+
+        assertEquals(1, FrameArena.reportLeaks(-1L));
+        assertEquals(0, FrameArena.reportLeaks(60_000L));
+
+        leaked.close();
+        assertEquals(0, FrameArena.reportLeaks(-1L));
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Robolectric: a failing task is logged through android.util.Log
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class HashedWheelTimerTest {
+
+    @Test
+    public void firesNoEarlierThanDelay() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 10, 16, 1000);
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong elapsedMs = new AtomicLong();
+        long start = System.nanoTime();
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(() -> {
+            elapsedMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            fired.countDown();
+        }, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue("fired after " + elapsedMs.get() + " ms", elapsedMs.get() >= 50);
+        assertTrue(timeout.isExpired());
+        assertEquals(0, timer.pendingCount());
+        assertEquals(1, timer.firedCount());
+    }
+
+    @Test
+    public void firesWithinOneTickOfDeadline() throws InterruptedException {
+        // Coarse ticks so a second tick of lateness stands out from scheduling noise
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 50, 16, 1000);
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong elapsedMs = new AtomicLong();
+        long start = System.nanoTime();
+
+        timer.schedule(() -> {
+            elapsedMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            fired.countDown();
+        }, 60, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue("fired after " + elapsedMs.get() + " ms", elapsedMs.get() >= 60);
+        // Deadline + one tick, plus slack for thread wake-up
+        assertTrue("fired after " + elapsedMs.get() + " ms", elapsedMs.get() < 60 + 50 + 25);
+    }
+
+    @Test
+    public void deadlineBeyondOneTurnWaitsForLaterTurn() throws InterruptedException {
+        // 4 buckets x 5 ms: a 100 ms deadline shares its bucket with five earlier visits
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 5, 4, 1000);
+        CountDownLatch fired = new CountDownLatch(1);
+        AtomicLong elapsedMs = new AtomicLong();
+        long start = System.nanoTime();
+
+        timer.schedule(() -> {
+            elapsedMs.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            fired.countDown();
+        }, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue("fired after " + elapsedMs.get() + " ms", elapsedMs.get() >= 100);
+    }
+
+    @Test
+    public void canceledTimeoutNeverRunsAndLeavesWheel() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 10, 16, 1000);
+        AtomicBoolean ran = new AtomicBoolean(false);
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(() -> ran.set(true), 30, TimeUnit.MILLISECONDS);
+        assertEquals(1, timer.pendingCount());
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, timer.pendingCount());
+
+        Thread.sleep(80);
+        assertFalse(ran.get());
+        assertTrue(timeout.isCanceled());
+        assertEquals(0, timer.firedCount());
+    }
+
+    @Test
+    public void cancelAfterFireReturnsFalse() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 5, 16, 1000);
+        CountDownLatch fired = new CountDownLatch(1);
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(fired::countDown, 0, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void firesManyTimeoutsSharingBuckets() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 5, 8, 1000);
+        int n = 200;
+        CountDownLatch fired = new CountDownLatch(n / 2);
+        HashedWheelTimer.Timeout[] timeouts = new HashedWheelTimer.Timeout[n];
+        for (int i = 0; i < n; i++) {
+            timeouts[i] = timer.schedule(fired::countDown, 10 + (i % 40), TimeUnit.MILLISECONDS);
+        }
+        // Cancel every other one, including entries in the middle of a bucket's list
+        for (int i = 1; i < n; i += 2) {
+            assertTrue(timeouts[i].cancel());
+        }
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(n / 2, timer.firedCount());
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    public void failingTaskDoesNotStopWheel() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("test-wheel", 5, 16, 1000);
+        CountDownLatch fired = new CountDownLatch(1);
+
+        timer.schedule(() -> { throw new IllegalStateException("boom"); }, 0, TimeUnit.MILLISECONDS);
+        timer.schedule(fired::countDown, 20, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void idleWorkerExitsAndRestartsOnSchedule() throws InterruptedException {
+        HashedWheelTimer timer = new HashedWheelTimer("idle-wheel", 5, 16, 20);
+        AtomicReference<String> first = new AtomicReference<>();
+        AtomicReference<String> second = new AtomicReference<>();
+        CountDownLatch firstFired = new CountDownLatch(1);
+        CountDownLatch secondFired = new CountDownLatch(1);
+
+        timer.schedule(() -> { first.set(Thread.currentThread().getName()); firstFired.countDown(); },
+                0, TimeUnit.MILLISECONDS);
+        assertTrue(firstFired.await(1, TimeUnit.SECONDS));
+        Thread.sleep(150);
+
+        timer.schedule(() -> { second.set(Thread.currentThread().getName()); secondFired.countDown(); },
+                10, TimeUnit.MILLISECONDS);
+        assertTrue(secondFired.await(1, TimeUnit.SECONDS));
+
+        assertEquals("idle-wheel-1", first.get());
+        assertEquals("idle-wheel-2", second.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveTick() {
+        new HashedWheelTimer("test-wheel", 0, 16, 1000);
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * MrzAutoDetector edge-energy pass: the fused row-major pass (luma once, |dL/dx| plane, column sums
+ * row by row) against the previous layout (row pass, then a column-major band pass recomputing luma).
+ * The equivalence checks always run. The timing loop is a JVM micro-benchmark and only runs on
+ * request ({@code -PmrzBenchmark}, which sets {@code mrz.benchmark}); it fails if the fused pass is
+ * slower than the legacy one.
+ */
+public class MrzAutoDetectorBenchmarkTest {
+
+    private static final String BENCHMARK_PROPERTY = "mrz.benchmark";
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 200;
+
+    @Test
+    public void fusedPassMatchesLegacyAt640x360() {
+        new Frame(640, 360).assertEquivalent();
+    }
+
+    @Test
+    public void fusedPassMatchesLegacyAt1280x720() {
+        new Frame(1280, 720).assertEquivalent();
+    }
+
+    @Test
+    public void fusedPassIsNotSlowerAt1280x720() {
+        assumeTrue("benchmark is opt-in (-PmrzBenchmark)", Boolean.getBoolean(BENCHMARK_PROPERTY));
+        Frame frame = new Frame(1280, 720);
+        for (int i = 0; i < WARMUP; i++) {
+            frame.legacy();
+            frame.fused();
+        }
+        long t0 = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) frame.legacy();
+        long legacyNs = (System.nanoTime() - t0) / ITERATIONS;
+        t0 = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) frame.fused();
+        long fusedNs = (System.nanoTime() - t0) / ITERATIONS;
+
+        assertTrue("legacy " + legacyNs + " ns/frame, fused " + fusedNs + " ns/frame", fusedNs <= legacyNs);
+    }
+
+    /** Synthetic frame plus the detector's search zone and candidate bands. */
+    private static final class Frame {
+        final int w;
+        final int h;
+        final int[] argb;
+        final int y0;
+        final int y1;
+        final int[][] bands;
+        final int[] zone;
+        final float[] legacyRows;
+        final float[] legacyCols;
+        final float[] fusedRows;
+        final float[] fusedCols;
+        final byte[] grad;
+
+        Frame(int w, int h) {
+            this.w = w;
+            this.h = h;
+            argb = syntheticFrame(w, h);
+            // Full-frame search zone and three candidate bands, as the detector evaluates them
+            y0 = Math.round(h * 0.40f);
+            y1 = Math.round(h * 0.98f);
+            bands = new int[][]{
+                    {h * 11 / 20, h * 13 / 20},
+                    {h * 3 / 4, h * 9 / 10},
+                    {h * 9 / 10, y1},
+            };
+            // The detector reads only the rows in reach (getPixels with a y offset)
+            zone = Arrays.copyOfRange(argb, y0 * w, y1 * w);
+            legacyRows = new float[h];
+            legacyCols = new float[w];
+            fusedRows = new float[h];
+            fusedCols = new float[w];
+            grad = new byte[w * h];
+        }
+
+        void legacy() {
+            legacyPass(argb, w, y0, y1, bands, legacyRows, legacyCols);
+        }
+
+        void fused() {
+            fusedPass(zone, w, y0, y1, bands, grad, fusedRows, fusedCols);
+        }
+
+        void assertEquivalent() {
+            legacy();
+            fused();
+            for (int y = 0; y < h; y++) assertEquals("row " + y, legacyRows[y], fusedRows[y], 0f);
+            for (int x = 0; x < w; x++) assertEquals("column " + x, legacyCols[x], fusedCols[x], 0f);
+        }
+    }
+
+    private static void fusedPass(int[] zone, int w, int y0, int y1, int[][] bands,
+                                  byte[] grad, float[] rowEnergy, float[] colEnergy) {
+        MrzAutoDetector.edgeEnergy(zone, w, y0, y1, grad, rowEnergy);
+        for (int[] band : bands) {
+            MrzAutoDetector.columnEnergy(grad, w, y0, band[0], band[1], colEnergy);
+        }
+    }
+
+    /** Previous implementation: row pass, then x-outer / y-inner column pass with luma recomputed. */
+    private static void legacyPass(int[] px, int w, int y0, int y1, int[][] bands,
+                                   float[] rowEnergy, float[] colEnergy) {
+        for (int y = y0; y < y1; y++) {
+            int idx = y * w;
+            int prevLum = lum(px[idx]);
+            float sum = 0f;
+            for (int x = 1; x < w; x++) {
+                int curLum = lum(px[idx + x]);
+                sum += Math.abs(curLum - prevLum);
+                prevLum = curLum;
+            }
+            rowEnergy[y] = sum;
+        }
+        for (int[] band : bands) {
+            colEnergy[0] = 0f;
+            for (int x = 1; x < w; x++) {
+                float sum = 0f;
+                for (int y = band[0]; y < band[1]; y++) {
+                    int idx = y * w + x;
+                    sum += Math.abs(lum(px[idx]) - lum(px[idx - 1]));
+                }
+                colEnergy[x] = sum;
+            }
+        }
+    }
+
+    private static int lum(int argb) {
+        int r = (argb >> 16) & 0xFF;
+        int g = (argb >> 8) & 0xFF;
+        int b = (argb) & 0xFF;
+        return (r * 77 + g * 150 + b * 29) >> 8;
+    }
+
+    /** Light page with noise and a dark glyph-like stripe pattern in the lower band. */
+    private static int[] syntheticFrame(int w, int h) {
+        Random rnd = new Random(42);
+        int[] px = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            boolean band = y >= h * 3 / 4 && y < h * 9 / 10;
+            for (int x = 0; x < w; x++) {
+                int v = 200 + rnd.nextInt(40);
+                if (band && (x / 3) % 3 == 0) v = 30 + rnd.nextInt(30);
+                px[y * w + x] = 0xFF000000 | (v << 16) | (v << 8) | v;
+            }
+        }
+        return px;
+    }
+}
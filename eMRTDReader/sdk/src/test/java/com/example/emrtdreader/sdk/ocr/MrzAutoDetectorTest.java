@@ -0,0 +1,118 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MrzAutoDetectorTest {
+
+    @Test
+    public void bandsAreRankedWithLowerBandFirst() {
+        int w = 640;
+        int h = 480;
+        int[] px = new int[w * h];
+        Arrays.fill(px, Color.WHITE);
+        drawBand(px, w, 290, 340, 40, 600, Color.DKGRAY);
+        drawBand(px, w, 400, 460, 40, 600, Color.BLACK);
+
+        List<MrzAutoDetector.Band> bands = MrzAutoDetector.detectBands(frame(px, w, h), null);
+
+        assertEquals(2, bands.size());
+        Rect top = bands.get(0).rect;
+        Rect runnerUp = bands.get(1).rect;
+        assertTrue("top band should be the bottom one, got " + top, top.top >= 380);
+        assertTrue("runner-up should be the upper one, got " + runnerUp, runnerUp.bottom <= 360);
+        assertTrue(bands.get(0).score >= bands.get(1).score);
+        assertTrue(bands.get(0).positionPrior > bands.get(1).positionPrior);
+    }
+
+    @Test
+    public void detectReturnsTopRankedBand() {
+        int w = 640;
+        int h = 480;
+        int[] px = new int[w * h];
+        Arrays.fill(px, Color.WHITE);
+        drawBand(px, w, 400, 460, 40, 600, Color.BLACK);
+        Bitmap frame = frame(px, w, h);
+
+        List<MrzAutoDetector.Band> bands = MrzAutoDetector.detectBands(frame, null);
+
+        assertEquals(1, bands.size());
+        assertEquals(bands.get(0).rect, MrzAutoDetector.detect(frame));
+    }
+
+    @Test
+    public void blankFrameHasNoBands() {
+        int w = 640;
+        int h = 480;
+        int[] px = new int[w * h];
+        Arrays.fill(px, Color.WHITE);
+
+        assertTrue(MrzAutoDetector.detectBands(frame(px, w, h), null).isEmpty());
+        assertNull(MrzAutoDetector.detect(frame(px, w, h)));
+    }
+
+    @Test
+    public void barcodeBandWithoutCharacterPitchIsRejected() {
+        int w = 640;
+        int h = 480;
+        int[] px = new int[w * h];
+        Arrays.fill(px, Color.WHITE);
+        Random rnd = new Random(11);
+        int x = 40;
+        while (x < 600) {
+            // Irregular bar / gap widths
+            int bar = 1 + rnd.nextInt(4);
+            for (int y = 400; y < 460; y++) {
+                for (int bx = x; bx < Math.min(600, x + bar); bx++) px[y * w + bx] = Color.BLACK;
+            }
+            x += bar + 1 + rnd.nextInt(4);
+        }
+
+        assertTrue(MrzAutoDetector.detectBands(frame(px, w, h), null).isEmpty());
+    }
+
+    @Test
+    public void priorsFavorMrzShapeAndLowPosition() {
+        assertEquals(1f, MrzAutoDetector.aspectPrior(8f), 1e-6f);
+        assertTrue(MrzAutoDetector.aspectPrior(3f) < 1f);
+        assertTrue(MrzAutoDetector.aspectPrior(20f) < 1f);
+        assertTrue(MrzAutoDetector.positionPrior(0.9f) > MrzAutoDetector.positionPrior(0.6f));
+        assertEquals(1f, MrzAutoDetector.positionPrior(1f), 1e-6f);
+    }
+
+    private static Bitmap frame(int[] px, int w, int h) {
+        Bitmap bmp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        bmp.setPixels(px, 0, w, 0, 0, w, h);
+        return bmp;
+    }
+
+    private static void drawBand(int[] px, int w, int top, int bottom, int left, int right, int color) {
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                if (isStroke(x, left, right)) px[y * w + x] = color;
+            }
+        }
+    }
+
+    /** Glyph-like strokes: 44 evenly pitched characters (TD3 line) across [left, right). */
+    private static boolean isStroke(int x, int left, int right) {
+        int span = right - left;
+        return ((x - left) * 44) % span < span * 11 / 20;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MrzBandCyclerTest {
+
+    @Test
+    public void picksTopBandByDefault() {
+        MrzBandCycler cycler = new MrzBandCycler();
+
+        assertEquals(0, cycler.pick(3));
+    }
+
+    @Test
+    public void topBandMissSchedulesRunnerUpOnce() {
+        MrzBandCycler cycler = new MrzBandCycler();
+        cycler.onOcrResult(0, false);
+
+        assertTrue(cycler.runnerUpPending());
+        assertEquals(1, cycler.pick(2));
+        assertFalse(cycler.runnerUpPending());
+
+        // Runner-up outcome doesn't chain further down the ranking
+        cycler.onOcrResult(1, false);
+        assertEquals(0, cycler.pick(2));
+    }
+
+    @Test
+    public void singleBandKeepsTopRank() {
+        MrzBandCycler cycler = new MrzBandCycler();
+        cycler.onOcrResult(0, false);
+
+        assertEquals(0, cycler.pick(1));
+        assertFalse(cycler.runnerUpPending());
+    }
+
+    @Test
+    public void hitOrResetClearsRunnerUp() {
+        MrzBandCycler cycler = new MrzBandCycler();
+        cycler.onOcrResult(0, true);
+        assertFalse(cycler.runnerUpPending());
+
+        cycler.onOcrResult(0, false);
+        cycler.reset();
+        assertEquals(0, cycler.pick(2));
+    }
+}
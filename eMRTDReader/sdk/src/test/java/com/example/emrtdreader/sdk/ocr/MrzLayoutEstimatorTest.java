@@ -0,0 +1,106 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import com.example.emrtdreader.sdk.models.MrzFormat;
+import com.example.emrtdreader.sdk.models.MrzLayout;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MrzLayoutEstimatorTest {
+
+    private static final String TD3 =
+            "P<UTOERIKSSON<<ANNA<MARIA<<<<<<<<<<<<<<<<<<<\n" +
+            "L898902C36UTO7408122F1204159ZE184226B<<<<<10";
+
+    @Test
+    public void twoLinesOf44CharsClassifyAsTd3() {
+        MrzLayout layout = MrzLayoutEstimator.estimate(glyphGrid(2, 44, 14, 9, 20));
+
+        assertEquals(2, layout.lineCount);
+        assertEquals(44, layout.charsPerLine);
+        assertEquals(14f, layout.pitchPx, 0.5f);
+        assertEquals(MrzFormat.TD3, layout.format);
+    }
+
+    @Test
+    public void threeLinesOf30CharsClassifyAsTd1() {
+        MrzLayout layout = MrzLayoutEstimator.estimate(glyphGrid(3, 30, 20, 13, 24));
+
+        assertEquals(3, layout.lineCount);
+        assertEquals(30, layout.charsPerLine);
+        assertEquals(MrzFormat.TD1, layout.format);
+    }
+
+    @Test
+    public void blankRoiIsUnknown() {
+        Bitmap bmp = Bitmap.createBitmap(400, 80, Bitmap.Config.ARGB_8888);
+        bmp.eraseColor(Color.WHITE);
+
+        MrzLayout layout = MrzLayoutEstimator.estimate(bmp);
+
+        assertEquals(0, layout.lineCount);
+        assertNull(layout.format);
+    }
+
+    @Test
+    public void layoutHintRejectsWrongGeometryInParser() {
+        MrzLayout td3 = new MrzLayout(2, 44, 14f);
+        MrzLayout td1 = new MrzLayout(3, 30, 20f);
+
+        assertNotNull(MrzTextProcessor.parse(TD3, td3));
+        assertNotNull(MrzTextProcessor.parse(TD3, null));
+        assertNull(MrzTextProcessor.parse(TD3, td1));
+        // TD2-like geometry doesn't pin anything the parser handles, so TD3 text still parses
+        assertNotNull(MrzTextProcessor.parse(TD3, new MrzLayout(2, 36, 16f)));
+    }
+
+    @Test
+    public void threeLinesOf44CharsLeaveFormatOpen() {
+        MrzLayout layout = MrzLayoutEstimator.estimate(glyphGrid(3, 44, 14, 9, 20));
+
+        assertEquals(3, layout.lineCount);
+        assertEquals(44, layout.charsPerLine);
+        assertNull(layout.format);
+        // A stray third line (e.g. printed text above the MRZ) must not veto a TD3 read
+        assertNotNull(MrzTextProcessor.parse(TD3, layout));
+    }
+
+    /** White ROI with `lines` rows of `chars` dark blocks (glyphW wide, spaced by pitch). */
+    private static Bitmap glyphGrid(int lines, int chars, int pitch, int glyphW, int glyphH) {
+        int margin = 12;
+        int lineGap = glyphH / 2;
+        int w = margin * 2 + chars * pitch;
+        int h = margin * 2 + lines * glyphH + (lines - 1) * lineGap;
+        int[] px = new int[w * h];
+        Arrays.fill(px, Color.WHITE);
+        for (int l = 0; l < lines; l++) {
+            int top = margin + l * (glyphH + lineGap);
+            for (int c = 0; c < chars; c++) {
+                int left = margin + c * pitch;
+                // Vary glyph shapes a little so the profile isn't a pure square wave
+                int gw = glyphW - (c % 3);
+                for (int y = top; y < top + glyphH; y++) {
+                    for (int x = left; x < left + gw; x++) {
+                        px[y * w + x] = Color.BLACK;
+                    }
+                }
+            }
+        }
+        Bitmap bmp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        bmp.setPixels(px, 0, w, 0, 0, w, h);
+        return bmp;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+import java.util.Random;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MrzLumaPreprocessorTest {
+
+    @Test
+    public void integralBinarizeMatchesAdaptiveThreshold() {
+        int w = 37;
+        int h = 21;
+        byte[] gray = new byte[w * h];
+        Random rnd = new Random(7);
+        Bitmap bmp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int v = rnd.nextInt(256);
+                gray[y * w + x] = (byte) v;
+                bmp.setPixel(x, y, Color.rgb(v, v, v));
+            }
+        }
+
+        byte[] out = new byte[w * h];
+        MrzLumaPreprocessor.binarize(gray, w, h, 15, 5, out);
+        Bitmap expected = AdaptiveThreshold.binarize(bmp, 15, 5);
+
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                assertEquals("pixel " + x + "," + y,
+                        Color.red(expected.getPixel(x, y)), out[y * w + x] & 0xFF);
+            }
+        }
+    }
+
+    @Test
+    public void boxBlurAveragesClippedWindow() {
+        // 3x3 image, radius 1: the corner averages its 2x2 neighbourhood, the centre all nine
+        byte[] in = {
+                0, 0, 90,
+                0, 90, 90,
+                90, 90, 90
+        };
+        byte[] out = MrzLumaPreprocessor.boxBlur(in, 3, 3, 1);
+        assertEquals(90 / 4, out[0] & 0xFF);
+        assertEquals(90 * 6 / 9, out[4] & 0xFF);
+        assertEquals(90, out[8] & 0xFF);
+    }
+
+    @Test
+    public void lineStripsSplitsTwoTextLines() {
+        int w = 100;
+        int h = 40;
+        byte[] data = new byte[w * h];
+        java.util.Arrays.fill(data, (byte) 255);
+        inkRows(data, w, 5, 14);
+        inkRows(data, w, 24, 33);
+
+        List<Rect> strips = MrzLumaPreprocessor.lineStrips(new LumaImage(data, w, h));
+
+        assertEquals(2, strips.size());
+        assertTrue(strips.get(0).top <= 5 && strips.get(0).bottom >= 14);
+        assertTrue(strips.get(1).top >= strips.get(0).bottom);
+        assertTrue(strips.get(1).top <= 24 && strips.get(1).bottom >= 33);
+        assertEquals(w, strips.get(0).width());
+    }
+
+    @Test
+    public void lineStripsIsEmptyForSingleBlock() {
+        int w = 100;
+        int h = 40;
+        byte[] data = new byte[w * h];
+        java.util.Arrays.fill(data, (byte) 255);
+        inkRows(data, w, 5, 30);
+
+        assertTrue(MrzLumaPreprocessor.lineStrips(new LumaImage(data, w, h)).isEmpty());
+    }
+
+    @Test
+    public void bitmapInputGivesBinaryImage() {
+        int w = 120;
+        int h = 30;
+        Bitmap bmp = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Random rnd = new Random(3);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int v = rnd.nextInt(256);
+                bmp.setPixel(x, y, Color.rgb(v, v, v));
+            }
+        }
+
+        LumaImage image = MrzLumaPreprocessor.preprocessForTesseract(bmp, PreprocessParamSet.getDefault());
+
+        assertNotNull(image);
+        for (int i = 0; i < image.width * image.height; i++) {
+            int v = image.data[i] & 0xFF;
+            assertTrue("output must be binary", v == 0 || v == 255);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lumaImageRejectsShortBuffer() {
+        new LumaImage(new byte[10], 4, 4);
+    }
+
+    private static void inkRows(byte[] data, int w, int top, int bottom) {
+        for (int y = top; y < bottom; y++) {
+            for (int x = 10; x < w - 10; x++) {
+                data[y * w + x] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class MrzPitchCheckTest {
+
+    @Test
+    public void mrzLineLengthsPass() {
+        for (int chars : new int[] {30, 36, 44}) {
+            float[] profile = glyphProfile(560, chars);
+
+            assertTrue("chars=" + chars, MrzPitchCheck.hasMrzPitch(profile, 0, profile.length));
+            assertEquals(chars, MrzPitchCheck.charsPerLine(profile, 0, profile.length), chars * 0.05f);
+        }
+    }
+
+    @Test
+    public void fineStripesAreRejected() {
+        // 140 periods across the band: far denser than any MRZ line
+        float[] profile = glyphProfile(560, 140);
+
+        assertFalse(MrzPitchCheck.hasMrzPitch(profile, 0, profile.length));
+    }
+
+    @Test
+    public void barcodeLikeProfileIsRejected() {
+        Random rnd = new Random(7);
+        float[] profile = new float[560];
+        int x = 0;
+        while (x < profile.length) {
+            // Bars and gaps of irregular width: edges at random positions
+            profile[x] = 200f;
+            x += 1 + rnd.nextInt(9);
+        }
+
+        assertFalse(MrzPitchCheck.hasMrzPitch(profile, 0, profile.length));
+    }
+
+    @Test
+    public void profileRangeIsHonored() {
+        float[] profile = new float[700];
+        float[] line = glyphProfile(560, 36);
+        System.arraycopy(line, 0, profile, 70, line.length);
+
+        assertTrue(MrzPitchCheck.hasMrzPitch(profile, 70, 630));
+    }
+
+    @Test
+    public void tooShortProfileIsNotJudged() {
+        float[] profile = glyphProfile(60, 44);
+
+        assertTrue(MrzPitchCheck.hasMrzPitch(profile, 0, profile.length));
+    }
+
+    /** Column energy of evenly pitched glyphs: edge energy at both sides of each glyph's stroke. */
+    private static float[] glyphProfile(int n, int chars) {
+        float[] profile = new float[n];
+        for (int x = 1; x < n; x++) {
+            boolean cur = (x * chars) % n < n * 11 / 20;
+            boolean prev = ((x - 1) * chars) % n < n * 11 / 20;
+            profile[x] = cur != prev ? 100f : 5f;
+        }
+        return profile;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MrzRectifierTest {
+
+    private static final int W = 300;
+    private static final int H = 100;
+
+    @Test
+    public void detectQuadFollowsTiltedBand() {
+        // Band drifts down 15px across the text width
+        Bitmap roi = band(0.06f);
+
+        MrzRectifier.Quad q = MrzRectifier.detectQuad(roi);
+
+        assertNotNull(q);
+        assertEquals(26f, q.tlY, 2f);
+        assertEquals(41.6f, q.trY, 2f);
+        assertEquals(16f, q.tlX, 2f);
+        assertEquals(284f, q.trX, 2f);
+        assertTrue(q.keystonePx() > 10f);
+    }
+
+    @Test
+    public void rectifyStraightensTiltedBand() {
+        Bitmap roi = band(0.06f);
+
+        Bitmap out = MrzRectifier.rectify(roi);
+
+        assertNotSame(roi, out);
+        MrzRectifier.Quad q = MrzRectifier.detectQuad(out);
+        assertNotNull(q);
+        assertTrue("keystone=" + q.keystonePx(), q.keystonePx() < 2f);
+        assertSame(out, MrzRectifier.rectify(out));
+    }
+
+    @Test
+    public void rectifyLeavesAxisAlignedBandUntouched() {
+        Bitmap roi = band(0f);
+
+        assertSame(roi, MrzRectifier.rectify(roi));
+    }
+
+    @Test
+    public void rectifyLeavesSlightlyTiltedBandUntouched() {
+        // ~0.6 degrees: 2.6px drift across the text, above any absolute pixel threshold
+        Bitmap roi = band(0.01f);
+
+        MrzRectifier.Quad q = MrzRectifier.detectQuad(roi);
+
+        assertNotNull(q);
+        assertTrue("keystone=" + q.keystonePx(), q.keystonePx() >= 2f);
+        assertSame(roi, MrzRectifier.rectify(roi));
+    }
+
+    @Test
+    public void detectQuadReturnsNullForFlatRoi() {
+        Bitmap roi = Bitmap.createBitmap(W, H, Bitmap.Config.ARGB_8888);
+        int[] px = new int[W * H];
+        Arrays.fill(px, Color.WHITE);
+        roi.setPixels(px, 0, W, 0, 0, W, H);
+
+        assertNull(MrzRectifier.detectQuad(roi));
+        assertSame(roi, MrzRectifier.rectify(roi));
+    }
+
+    @Test
+    public void warpOfIdentityQuadCopiesPixels() {
+        int w = 8;
+        int h = 4;
+        int[] luma = new int[w * h];
+        for (int i = 0; i < luma.length; i++) luma[i] = i * 7;
+        MrzRectifier.Quad q = new MrzRectifier.Quad(0, 0, w, 0, w, h, 0, h);
+        int[] out = new int[w * h];
+
+        MrzRectifier.warp(luma, w, h, q, out, w, h);
+
+        for (int i = 0; i < luma.length; i++) {
+            assertEquals(luma[i], out[i] & 0xFF);
+        }
+    }
+
+    /** White ROI with a 30px stroke band from x=20..280 whose top is 30 + slope * (x - 20). */
+    private static Bitmap band(float slope) {
+        int[] px = new int[W * H];
+        Arrays.fill(px, Color.WHITE);
+        for (int x = 20; x < 280; x++) {
+            if ((x % 4) >= 2) continue;
+            int top = Math.round(30 + slope * (x - 20));
+            for (int y = top; y < top + 30; y++) {
+                px[y * W + x] = Color.BLACK;
+            }
+        }
+        Bitmap bmp = Bitmap.createBitmap(W, H, Bitmap.Config.ARGB_8888);
+        bmp.setPixels(px, 0, W, 0, 0, W, H);
+        return bmp;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MrzScalePlannerTest {
+
+    @Test
+    public void measureGlyphHeightFindsMedianTextRowHeight() {
+        // Two "text lines" of 12px with vertical stroke pattern, separated by blank rows
+        int w = 120;
+        int h = 60;
+        int[] px = twoLineRoi(w, h, 10, 22, 34, 46);
+
+        int glyph = MrzScalePlanner.measureGlyphHeight(px, w, h);
+
+        assertEquals(12, glyph);
+    }
+
+    @Test
+    public void measureGlyphHeightReturnsZeroForFlatImage() {
+        int[] px = new int[40 * 40];
+        Arrays.fill(px, Color.WHITE);
+
+        assertEquals(0, MrzScalePlanner.measureGlyphHeight(px, 40, 40));
+    }
+
+    @Test
+    public void planMapsMeasuredGlyphToTesseractTarget() {
+        int w = 120;
+        int h = 60;
+        int[] px = twoLineRoi(w, h, 10, 26, 34, 50);
+
+        MrzScalePlanner.Plan plan = MrzScalePlanner.plan(px, w, h, MrzScalePlanner.TESS_TARGET_GLYPH_PX, false);
+
+        assertTrue(plan.measured);
+        assertEquals(16, plan.glyphHeightPx);
+        assertEquals(2.0f, plan.factor, 0.001f);
+        assertEquals(240, plan.outWidth);
+        assertEquals(120, plan.outHeight);
+    }
+
+    @Test
+    public void planForMlNeverDownscales() {
+        int w = 200;
+        int h = 120;
+        int[] px = twoLineRoi(w, h, 10, 50, 60, 100);
+
+        MrzScalePlanner.Plan plan = MrzScalePlanner.plan(px, w, h, MrzScalePlanner.ML_MIN_GLYPH_PX, true);
+
+        assertEquals(1.0f, plan.factor, 0.0001f);
+        assertTrue(plan.isIdentity());
+    }
+
+    @Test
+    public void planFallsBackToRoiHeightWhenRowsAreNotMeasurable() {
+        int[] px = new int[100 * 40];
+        Arrays.fill(px, Color.GRAY);
+
+        MrzScalePlanner.Plan plan = MrzScalePlanner.plan(px, 100, 40, 24, false);
+
+        assertFalse(plan.measured);
+        assertEquals(12, plan.glyphHeightPx);
+        assertEquals(2.0f, plan.factor, 0.001f);
+    }
+
+    @Test
+    public void applyResamplesOnceToPlannedSize() {
+        Bitmap src = Bitmap.createBitmap(120, 60, Bitmap.Config.ARGB_8888);
+        int[] px = twoLineRoi(120, 60, 10, 26, 34, 50);
+        src.setPixels(px, 0, 120, 0, 0, 120, 60);
+
+        MrzScalePlanner.Plan plan = MrzScalePlanner.planForTesseract(src, 1.0f);
+        Bitmap out = MrzScalePlanner.apply(src, plan);
+
+        assertEquals(plan.outWidth, out.getWidth());
+        assertEquals(plan.outHeight, out.getHeight());
+        int c = out.getPixel(out.getWidth() / 2, 2);
+        assertEquals(Color.red(c), Color.green(c));
+        assertEquals(Color.green(c), Color.blue(c));
+    }
+
+    @Test
+    public void applyDownscalesWithAreaAverage() {
+        int size = 20;
+        Bitmap src = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        int[] checker = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                checker[y * size + x] = ((x + y) % 2 == 0) ? Color.BLACK : Color.WHITE;
+            }
+        }
+        src.setPixels(checker, 0, size, 0, 0, size, size);
+        int[] flat = new int[size * size];
+        Arrays.fill(flat, Color.GRAY);
+
+        // Flat input -> fallback glyph of 6px; target 3px -> 0.5x
+        MrzScalePlanner.Plan plan = MrzScalePlanner.plan(flat, size, size, 3, false);
+        Bitmap out = MrzScalePlanner.apply(src, plan);
+
+        assertEquals(10, out.getWidth());
+        assertEquals(10, out.getHeight());
+        assertEquals(127, Color.red(out.getPixel(3, 3)), 1);
+    }
+
+    @Test
+    public void applyReturnsSourceForIdentityPlan() {
+        Bitmap src = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+        int[] px = new int[100];
+        Arrays.fill(px, Color.GRAY);
+
+        MrzScalePlanner.Plan plan = MrzScalePlanner.plan(px, 10, 10, 3, false);
+
+        assertSame(src, MrzScalePlanner.apply(src, plan));
+    }
+
+    private static int[] twoLineRoi(int w, int h, int top1, int bottom1, int top2, int bottom2) {
+        int[] px = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            boolean text = (y >= top1 && y < bottom1) || (y >= top2 && y < bottom2);
+            for (int x = 0; x < w; x++) {
+                px[y * w + x] = (text && (x % 4) < 2) ? Color.BLACK : Color.WHITE;
+            }
+        }
+        return px;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Rect;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MrzSearchWindowTest {
+
+    @Test
+    public void firstFrameScansFullFrame() {
+        MrzSearchWindow sw = new MrzSearchWindow(5);
+
+        assertNull(sw.next(1000, 800));
+    }
+
+    @Test
+    public void hitNarrowsSearchToExpandedWindow() {
+        MrzSearchWindow sw = new MrzSearchWindow(5);
+        sw.next(1000, 800);
+        Rect stable = new Rect(100, 600, 900, 700);
+
+        sw.onDetection(stable, stable);
+        Rect window = sw.next(1000, 800);
+
+        assertNotNull(window);
+        assertEquals(20, window.left);
+        assertEquals(525, window.top);
+        assertEquals(980, window.right);
+        assertEquals(775, window.bottom);
+    }
+
+    @Test
+    public void fullScanRunsEveryNFrames() {
+        MrzSearchWindow sw = new MrzSearchWindow(3);
+        Rect stable = new Rect(100, 600, 900, 700);
+        assertNull(sw.next(1000, 800));
+        sw.onDetection(stable, stable);
+
+        assertNotNull(sw.next(1000, 800));
+        assertNotNull(sw.next(1000, 800));
+        assertNotNull(sw.next(1000, 800));
+        assertNull(sw.next(1000, 800));
+        assertNotNull(sw.next(1000, 800));
+    }
+
+    @Test
+    public void missOrLowConfidenceForcesFullScan() {
+        MrzSearchWindow sw = new MrzSearchWindow(10);
+        Rect stable = new Rect(100, 600, 900, 700);
+        sw.next(1000, 800);
+        sw.onDetection(stable, stable);
+
+        sw.requestFullScan();
+        assertNull(sw.next(1000, 800));
+
+        sw.onDetection(stable, stable);
+        assertNotNull(sw.next(1000, 800));
+        sw.onDetection(null, stable);
+        assertNull(sw.next(1000, 800));
+    }
+
+    @Test
+    public void windowIsClampedToFrame() {
+        MrzSearchWindow sw = new MrzSearchWindow(10);
+        Rect stable = new Rect(0, 700, 1000, 800);
+        sw.next(1000, 800);
+        sw.onDetection(stable, stable);
+
+        Rect window = sw.next(1000, 800);
+
+        assertEquals(new Rect(0, 625, 1000, 800), window);
+    }
+
+    @Test
+    public void detectorOnlyScansInsideWindow() {
+        // Two stroke bands: a stronger one at the bottom, a weaker one above it
+        int w = 640;
+        int h = 480;
+        int[] px = new int[w * h];
+        Arrays.fill(px, Color.WHITE);
+        drawBand(px, w, 300, 350, 40, 600, Color.GRAY);
+        drawBand(px, w, 400, 460, 40, 600, Color.BLACK);
+        Bitmap frame = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        frame.setPixels(px, 0, w, 0, 0, w, h);
+
+        Rect full = MrzAutoDetector.detect(frame);
+        Rect windowed = MrzAutoDetector.detect(frame, new Rect(0, 260, w, 390));
+
+        assertNotNull(full);
+        assertTrue("full scan should pick the strong bottom band, got " + full, full.top >= 380);
+        assertNotNull(windowed);
+        assertTrue("window scan should stay inside the window, got " + windowed,
+                windowed.top >= 260 && windowed.bottom <= 390);
+    }
+
+    private static void drawBand(int[] px, int w, int top, int bottom, int left, int right, int color) {
+        for (int y = top; y < bottom; y++) {
+            for (int x = left; x < right; x++) {
+                if (isStroke(x, left, right)) px[y * w + x] = color;
+            }
+        }
+    }
+
+    /** Glyph-like strokes: 44 evenly pitched characters (TD3 line) across [left, right). */
+    private static boolean isStroke(int x, int left, int right) {
+        int span = right - left;
+        return ((x - left) * 44) % span < span * 11 / 20;
+    }
+}
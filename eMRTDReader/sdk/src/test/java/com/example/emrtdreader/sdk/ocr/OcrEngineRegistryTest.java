@@ -0,0 +1,118 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class OcrEngineRegistryTest {
+
+    @Test
+    public void sharesOneInstancePerEngine() {
+        AtomicInteger created = new AtomicInteger();
+        OcrEngineRegistry registry = new OcrEngineRegistry(context(),
+                () -> new WarmingEngine("ml", created, CompletableFuture.completedFuture(null)),
+                () -> new WarmingEngine("tess", created, CompletableFuture.completedFuture(null)));
+
+        assertSame(registry.mlKit(), registry.mlKit());
+        assertSame(registry.tesseract(), registry.tesseract());
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void readinessCompletesAfterBothWarmUps() throws Exception {
+        CompletableFuture<Void> mlWarm = new CompletableFuture<>();
+        CompletableFuture<Void> tessWarm = new CompletableFuture<>();
+        AtomicInteger created = new AtomicInteger();
+        OcrEngineRegistry registry = new OcrEngineRegistry(context(),
+                () -> new WarmingEngine("ml", created, mlWarm),
+                () -> new WarmingEngine("tess", created, tessWarm));
+
+        CompletableFuture<Void> ready = registry.whenReady();
+        assertSame(ready, registry.whenReady());
+
+        mlWarm.complete(null);
+        Thread.sleep(100);
+        assertFalse(ready.isDone());
+        assertFalse(registry.isReady());
+
+        tessWarm.complete(null);
+        ready.get(2, TimeUnit.SECONDS);
+        assertTrue(registry.isReady());
+        // Engines were created by the preload, once
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    public void failedWarmUpDoesNotBlockReadiness() throws Exception {
+        CompletableFuture<Void> tessWarm = new CompletableFuture<>();
+        tessWarm.completeExceptionally(new IllegalStateException("No traineddata found"));
+        OcrEngineRegistry registry = new OcrEngineRegistry(context(),
+                () -> new WarmingEngine("ml", new AtomicInteger(), CompletableFuture.completedFuture(null)),
+                () -> new WarmingEngine("tess", new AtomicInteger(), tessWarm));
+
+        registry.preload();
+        registry.whenReady().get(2, TimeUnit.SECONDS);
+        assertTrue(registry.isReady());
+    }
+
+    @Test
+    public void processRegistryIsSingleton() {
+        Context ctx = context();
+        assertSame(OcrEngineRegistry.get(ctx), OcrEngineRegistry.get(ctx));
+    }
+
+    private static Context context() {
+        return ApplicationProvider.getApplicationContext();
+    }
+
+    private static final class WarmingEngine implements OcrEngine {
+        private final String name;
+        private final CompletableFuture<Void> warm;
+
+        private WarmingEngine(String name, AtomicInteger created, CompletableFuture<Void> warm) {
+            this.name = name;
+            this.warm = warm;
+            created.incrementAndGet();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isAvailable(Context ctx) {
+            return true;
+        }
+
+        @Override
+        public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees, Callback callback) {
+        }
+
+        @Override
+        public CompletableFuture<Void> warmUp(Context ctx) {
+            return warm;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
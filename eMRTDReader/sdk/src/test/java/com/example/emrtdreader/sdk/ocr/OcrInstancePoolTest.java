@@ -0,0 +1,242 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OcrInstancePoolTest {
+
+    private static final long MB = 1024L * 1024;
+
+    @Test
+    public void sizeIsCappedByMemoryBudget() {
+        assertEquals(4, OcrInstancePool.sizeFor(4, 200 * MB, 32 * MB));
+        assertEquals(3, OcrInstancePool.sizeFor(4, 100 * MB, 32 * MB));
+        // Never below one instance, even over budget
+        assertEquals(1, OcrInstancePool.sizeFor(4, 10 * MB, 32 * MB));
+    }
+
+    @Test
+    public void jobsRunConcurrentlyUpToPoolSize() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        OcrInstancePool<Object> pool = newPool(2, created);
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        try {
+            for (int i = 0; i < 3; i++) {
+                pool.execute(job(instance -> {
+                    bothRunning.countDown();
+                    await(release);
+                    done.countDown();
+                }, null));
+            }
+            assertTrue("two instances should run at once", bothRunning.await(2, TimeUnit.SECONDS));
+            assertEquals(2, pool.busy());
+            assertEquals(1, pool.queued());
+
+            release.countDown();
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertEquals(2, created.get());
+        } finally {
+            release.countDown();
+            pool.close();
+        }
+    }
+
+    @Test
+    public void instanceIsConfinedToOneWorkerThread() throws Exception {
+        OcrInstancePool<Object> pool = newPool(2, new AtomicInteger());
+        Map<Object, Thread> owner = new ConcurrentHashMap<>();
+        AtomicReference<String> violation = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(40);
+        try {
+            for (int i = 0; i < 40; i++) {
+                pool.execute(job(instance -> {
+                    Thread prev = owner.putIfAbsent(instance, Thread.currentThread());
+                    if (prev != null && prev != Thread.currentThread()) {
+                        violation.set(instance + " used on " + prev.getName()
+                                + " and " + Thread.currentThread().getName());
+                    }
+                    done.countDown();
+                }, null));
+            }
+            assertTrue(done.await(2, TimeUnit.SECONDS));
+            assertEquals(null, violation.get());
+            assertEquals(0, pool.busy());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void factoryFailureIsReportedAndSlotIsReturned() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        OcrInstancePool<Object> pool = new OcrInstancePool<>("test-pool", 1, 64 * MB, 32 * MB,
+                () -> {
+                    if (attempts.incrementAndGet() == 1) throw new IllegalStateException("no traineddata");
+                    return new Object();
+                },
+                instance -> {});
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch failed = new CountDownLatch(1);
+        CountDownLatch ran = new CountDownLatch(1);
+        try {
+            pool.execute(job(instance -> {}, e -> {
+                error.set(e);
+                failed.countDown();
+            }));
+            assertTrue(failed.await(2, TimeUnit.SECONDS));
+            assertNotNull(error.get());
+
+            // Next job retries init on the same slot
+            pool.execute(job(instance -> ran.countDown(), null));
+            assertTrue(ran.await(2, TimeUnit.SECONDS));
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void closeFailsQueuedJobsAndDisposesInstances() throws Exception {
+        List<Object> disposed = new ArrayList<>();
+        CountDownLatch disposedLatch = new CountDownLatch(1);
+        OcrInstancePool<Object> pool = new OcrInstancePool<>("test-pool", 1, 64 * MB, 32 * MB,
+                Object::new,
+                instance -> {
+                    synchronized (disposed) {
+                        disposed.add(instance);
+                    }
+                    disposedLatch.countDown();
+                });
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch queuedFailed = new CountDownLatch(1);
+        AtomicInteger queuedRuns = new AtomicInteger();
+
+        pool.execute(job(instance -> {
+            running.countDown();
+            await(release);
+        }, null));
+        assertTrue(running.await(2, TimeUnit.SECONDS));
+        pool.execute(job(instance -> queuedRuns.incrementAndGet(), e -> queuedFailed.countDown()));
+
+        pool.close();
+        release.countDown();
+
+        assertTrue("queued job should fail on close", queuedFailed.await(2, TimeUnit.SECONDS));
+        assertTrue("instance should be disposed", disposedLatch.await(2, TimeUnit.SECONDS));
+        assertEquals(0, queuedRuns.get());
+
+        CountDownLatch rejected = new CountDownLatch(1);
+        pool.execute(job(instance -> queuedRuns.incrementAndGet(), e -> rejected.countDown()));
+        assertTrue(rejected.await(1, TimeUnit.SECONDS));
+        assertFalse(queuedRuns.get() > 0);
+    }
+
+    @Test
+    public void canceledQueuedJobNeitherRunsNorFails() throws Exception {
+        OcrInstancePool<Object> pool = newPool(1, new AtomicInteger());
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch after = new CountDownLatch(1);
+        AtomicInteger canceledCalls = new AtomicInteger();
+        try {
+            pool.execute(job(instance -> {
+                running.countDown();
+                await(release);
+            }, null));
+            assertTrue(running.await(2, TimeUnit.SECONDS));
+
+            OcrInstancePool.Job<Object> queued = job(instance -> canceledCalls.incrementAndGet(),
+                    e -> canceledCalls.incrementAndGet());
+            pool.execute(queued);
+            pool.execute(job(instance -> after.countDown(), null));
+            assertEquals(2, pool.queued());
+
+            assertTrue(pool.cancel(queued));
+            assertFalse("already removed", pool.cancel(queued));
+            assertEquals(1, pool.queued());
+
+            release.countDown();
+            assertTrue(after.await(2, TimeUnit.SECONDS));
+            assertEquals(0, canceledCalls.get());
+        } finally {
+            release.countDown();
+            pool.close();
+        }
+    }
+
+    @Test
+    public void warmAllKeepsFactoryOffTheFirstJobs() throws Exception {
+        AtomicInteger created = new AtomicInteger();
+        OcrInstancePool<Object> pool = newPool(3, created);
+        CountDownLatch allRunning = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            pool.warmAll().get(2, TimeUnit.SECONDS);
+            assertEquals("every slot is warmed, not just one", 3, created.get());
+
+            // The first calls after warm-up, on whichever slots they land, reuse warm instances
+            for (int i = 0; i < 3; i++) {
+                pool.execute(job(instance -> {
+                    allRunning.countDown();
+                    await(release);
+                }, null));
+            }
+            assertTrue(allRunning.await(2, TimeUnit.SECONDS));
+            assertEquals(3, created.get());
+        } finally {
+            release.countDown();
+            pool.close();
+        }
+    }
+
+    private static OcrInstancePool<Object> newPool(int size, AtomicInteger created) {
+        return new OcrInstancePool<>("test-pool", size, size * 32 * MB, 32 * MB,
+                () -> "instance-" + created.incrementAndGet(),
+                instance -> {});
+    }
+
+    private interface Body {
+        void accept(Object value);
+    }
+
+    private interface Failure {
+        void accept(Throwable error);
+    }
+
+    private static OcrInstancePool.Job<Object> job(Body body, Failure failure) {
+        return new OcrInstancePool.Job<Object>() {
+            @Override
+            public void run(Object instance) {
+                body.accept(instance);
+            }
+
+            @Override
+            public void fail(Throwable error) {
+                if (failure != null) failure.accept(error);
+            }
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
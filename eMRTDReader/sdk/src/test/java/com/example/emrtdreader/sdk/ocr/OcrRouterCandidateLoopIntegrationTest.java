@@ -77,6 +77,77 @@ public class OcrRouterCandidateLoopIntegrationTest {
         assertNotNull(mrzRef.get());
     }
 
+    @Test
+    public void parallelLoopStopsAtFirstFullConfidenceCandidate() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        Bitmap bitmap = Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888);
+        OcrEngine mlKit = new FixedOcrEngine(new OcrResult("", 5, new OcrMetrics(0, 0, 0), OcrResult.Engine.ML_KIT));
+
+        int size = PreprocessParamSet.getCandidates().size();
+        List<String> texts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) texts.add("INVALID" + i);
+        texts.set(1, TD3_VALID_RAW);
+        SequencedOcrEngine tess = new SequencedOcrEngine(texts, OcrResult.Engine.TESSERACT);
+
+        RouterOutcome outcome = run(context, mlKit, tess, bitmap, 1);
+
+        assertNull(outcome.error.get());
+        assertEquals(TD3_VALID_RAW, outcome.result.get().finalText);
+        assertEquals(MrzTextProcessor.MAX_CONFIDENCE, outcome.mrz.get().confidence);
+        assertEquals("candidates after the full-confidence one are not run", 2, tess.callCount.get());
+    }
+
+    @Test
+    public void parallelLoopPickIsIndependentOfCompletionOrder() throws InterruptedException {
+        Context context = ApplicationProvider.getApplicationContext();
+        Bitmap bitmap = Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888);
+        OcrEngine mlKit = new FixedOcrEngine(new OcrResult("", 5, new OcrMetrics(0, 0, 0), OcrResult.Engine.ML_KIT));
+
+        int size = PreprocessParamSet.getCandidates().size();
+        List<String> texts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) texts.add("INVALID" + i);
+        // Two full-confidence candidates; the later one (longer text) finishes first
+        texts.set(1, TD3_VALID_RAW);
+        texts.set(2, TD3_VALID_RAW + "\nZZ");
+        ReverseOrderOcrEngine tess = new ReverseOrderOcrEngine(texts);
+
+        RouterOutcome outcome = run(context, mlKit, tess, bitmap, size);
+
+        assertNull(outcome.error.get());
+        assertEquals(size, tess.callbacks.size());
+        // Decided in candidate order: candidate 1 wins once candidate 0 is in
+        assertEquals(TD3_VALID_RAW, outcome.result.get().finalText);
+        assertNotNull(outcome.mrz.get());
+    }
+
+    private static RouterOutcome run(Context context, OcrEngine mlKit, OcrEngine tess, Bitmap bitmap, int workers)
+            throws InterruptedException {
+        RouterOutcome outcome = new RouterOutcome();
+        CountDownLatch latch = new CountDownLatch(1);
+        OcrRouter.runAsync(context, mlKit, tess, bitmap, 0, workers, new OcrRouter.Callback() {
+            @Override
+            public void onSuccess(OcrRouter.Result result, MrzResult mrz) {
+                outcome.result.set(result);
+                outcome.mrz.set(mrz);
+                latch.countDown();
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                outcome.error.set(error);
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(2, TimeUnit.SECONDS));
+        return outcome;
+    }
+
+    private static final class RouterOutcome {
+        final AtomicReference<OcrRouter.Result> result = new AtomicReference<>();
+        final AtomicReference<MrzResult> mrz = new AtomicReference<>();
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+    }
+
     private static List<String> buildCandidateTexts() {
         int size = PreprocessParamSet.getCandidates().size();
         List<String> texts = new ArrayList<>(size);
@@ -116,6 +187,39 @@ public class OcrRouterCandidateLoopIntegrationTest {
         }
     }
 
+    /** Holds every call until all texts were requested, then completes them last-first. */
+    private static final class ReverseOrderOcrEngine implements OcrEngine {
+        private final List<String> texts;
+        private final List<Callback> callbacks = new ArrayList<>();
+
+        private ReverseOrderOcrEngine(List<String> texts) {
+            this.texts = texts;
+        }
+
+        @Override
+        public String getName() {
+            return "reverse";
+        }
+
+        @Override
+        public boolean isAvailable(Context ctx) {
+            return true;
+        }
+
+        @Override
+        public void recognizeAsync(Context ctx, Bitmap bitmap, int rotationDegrees, Callback callback) {
+            callbacks.add(callback);
+            if (callbacks.size() < texts.size()) return;
+            for (int i = callbacks.size() - 1; i >= 0; i--) {
+                callbacks.get(i).onSuccess(new OcrResult(texts.get(i), 5, new OcrMetrics(0, 0, 0), OcrResult.Engine.TESSERACT));
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
     private static final class SequencedOcrEngine implements OcrEngine {
         private final List<String> texts;
         private final OcrResult.Engine engine;
@@ -0,0 +1,158 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OcrSchedulerTest {
+
+    /** Occupies the lane's only thread until the returned latch is released. */
+    private static CountDownLatch block(OcrScheduler scheduler, OcrScheduler.Lane lane) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        scheduler.execute(lane, () -> {
+            started.countDown();
+            try {
+                release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        return release;
+    }
+
+    @Test
+    public void higherPriorityLeavesQueueFirst() throws InterruptedException {
+        OcrScheduler scheduler = new OcrScheduler(1, 1, 1);
+        CountDownLatch release = block(scheduler, OcrScheduler.Lane.OCR);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+
+        scheduler.execute(OcrScheduler.Lane.OCR, OcrScheduler.PRIORITY_LOW, () -> { order.add("low"); done.countDown(); });
+        scheduler.execute(OcrScheduler.Lane.OCR, () -> { order.add("normal"); done.countDown(); });
+        scheduler.execute(OcrScheduler.Lane.OCR, OcrScheduler.PRIORITY_HIGH, () -> { order.add("high"); done.countDown(); });
+        release.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("high", "normal", "low"), order);
+    }
+
+    @Test
+    public void priorityExecutorRunsAheadOfQueuedWork() throws InterruptedException {
+        OcrScheduler scheduler = new OcrScheduler(1, 1, 1);
+        CountDownLatch release = block(scheduler, OcrScheduler.Lane.OCR);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(2);
+
+        scheduler.executor(OcrScheduler.Lane.OCR).execute(() -> { order.add("queued"); done.countDown(); });
+        scheduler.executor(OcrScheduler.Lane.OCR, OcrScheduler.PRIORITY_HIGH)
+                .execute(() -> { order.add("result"); done.countDown(); });
+        release.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("result", "queued"), order);
+    }
+
+    @Test
+    public void equalPrioritiesRunFifoOnWorkLanes() throws InterruptedException {
+        OcrScheduler scheduler = new OcrScheduler(1, 1, 1);
+        CountDownLatch release = block(scheduler, OcrScheduler.Lane.PREPROCESS);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            int id = i;
+            scheduler.execute(OcrScheduler.Lane.PREPROCESS, () -> { order.add(id); done.countDown(); });
+        }
+        release.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2), order);
+    }
+
+    @Test
+    public void frameLaneRunsNewestFrameFirst() throws InterruptedException {
+        OcrScheduler scheduler = new OcrScheduler(1, 1, 1);
+        CountDownLatch release = block(scheduler, OcrScheduler.Lane.FRAME);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            int id = i;
+            scheduler.execute(OcrScheduler.Lane.FRAME, () -> { order.add(id); done.countDown(); });
+        }
+        release.countDown();
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(2, 1, 0), order);
+    }
+
+    @Test
+    public void statsReportQueueDepthAndWait() throws InterruptedException {
+        OcrScheduler scheduler = new OcrScheduler(1, 1, 1);
+        CountDownLatch release = block(scheduler, OcrScheduler.Lane.OCR);
+        CountDownLatch done = new CountDownLatch(2);
+        scheduler.execute(OcrScheduler.Lane.OCR, done::countDown);
+        scheduler.execute(OcrScheduler.Lane.OCR, done::countDown);
+
+        OcrScheduler.LaneStats busy = scheduler.stats(OcrScheduler.Lane.OCR);
+        assertEquals(1, busy.threads);
+        assertEquals(2, busy.queued);
+        assertEquals(1, busy.active);
+
+        Thread.sleep(60);
+        release.countDown();
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+
+        OcrScheduler.LaneStats idle = scheduler.stats(OcrScheduler.Lane.OCR);
+        assertEquals(0, idle.queued);
+        assertTrue("maxWaitMs=" + idle.maxWaitMs, idle.maxWaitMs >= 50);
+        assertTrue(idle.meanWaitMs > 0);
+    }
+
+    @Test
+    public void lanesUseNamedThreads() throws InterruptedException {
+        OcrScheduler scheduler = new OcrScheduler(1, 1, 1);
+        AtomicReference<String> frame = new AtomicReference<>();
+        AtomicReference<String> timer = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(2);
+
+        scheduler.execute(OcrScheduler.Lane.FRAME, () -> { frame.set(Thread.currentThread().getName()); done.countDown(); });
+        scheduler.schedule(() -> { timer.set(Thread.currentThread().getName()); done.countDown(); }, 10, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(frame.get(), frame.get().startsWith("mrz-pipeline-"));
+        assertTrue(timer.get(), timer.get().startsWith("mrz-timer-"));
+    }
+
+    @Test
+    public void canceledTimerLeavesQueue() {
+        OcrScheduler scheduler = new OcrScheduler(1, 1, 1);
+        HashedWheelTimer.Timeout timer = scheduler.schedule(() -> { }, 10, TimeUnit.SECONDS);
+        assertEquals(1, scheduler.stats(OcrScheduler.Lane.TIMER).queued);
+
+        timer.cancel();
+
+        assertEquals(0, scheduler.stats(OcrScheduler.Lane.TIMER).queued);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void timerLaneDoesNotTakeWork() {
+        new OcrScheduler(1, 1, 1).execute(OcrScheduler.Lane.TIMER, () -> { });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyLane() {
+        new OcrScheduler(1, 0, 1);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.emrtdreader.sdk.ocr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.graphics.Rect;
+
+import com.example.emrtdreader.sdk.models.OcrElement;
+import com.example.emrtdreader.sdk.models.OcrResult;
+import com.googlecode.tesseract.android.ResultIterator;
+import com.googlecode.tesseract.android.TessBaseAPI;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mockito;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class TesseractOcrEngineTest {
+
+    private static final int SYMBOL = TessBaseAPI.PageIteratorLevel.RIL_SYMBOL;
+
+    @Test
+    public void collectSymbolsReadsCharacterBoxAndConfidence() {
+        TessBaseAPI api = Mockito.mock(TessBaseAPI.class);
+        ResultIterator it = Mockito.mock(ResultIterator.class);
+        when(api.getResultIterator()).thenReturn(it);
+        when(it.getUTF8Text(SYMBOL)).thenReturn("P", "", "<");
+        when(it.confidence(SYMBOL)).thenReturn(92f, 40f);
+        when(it.getBoundingRect(SYMBOL)).thenReturn(new Rect(0, 0, 10, 20), new Rect(12, 0, 22, 20));
+        when(it.next(SYMBOL)).thenReturn(true, true, false);
+
+        List<OcrElement> out = new ArrayList<>();
+        TesseractOcrEngine.collectSymbols(api, out);
+
+        // The empty symbol is skipped
+        assertEquals(2, out.size());
+        assertEquals("P", out.get(0).text);
+        assertEquals(OcrElement.Level.SYMBOL, out.get(0).level);
+        assertEquals(OcrResult.Engine.TESSERACT, out.get(0).engine);
+        assertEquals(0.92f, out.get(0).confidence, 0.0001f);
+        assertEquals(new Rect(0, 0, 10, 20), out.get(0).bbox);
+        assertEquals("<", out.get(1).text);
+        assertEquals(0.40f, out.get(1).confidence, 0.0001f);
+        verify(it).delete();
+    }
+
+    @Test
+    public void collectSymbolsToleratesMissingIterator() {
+        TessBaseAPI api = Mockito.mock(TessBaseAPI.class);
+        when(api.getResultIterator()).thenReturn(null);
+
+        List<OcrElement> out = new ArrayList<>();
+        TesseractOcrEngine.collectSymbols(api, out);
+
+        assertTrue(out.isEmpty());
+    }
+}